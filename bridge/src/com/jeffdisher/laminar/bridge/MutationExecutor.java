@@ -1,48 +1,212 @@
 package com.jeffdisher.laminar.bridge;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
+import com.jeffdisher.laminar.types.payload.Payload_Batch;
 import com.jeffdisher.laminar.types.payload.Payload_TopicCreate;
 import com.jeffdisher.laminar.types.payload.Payload_KeyDelete;
 import com.jeffdisher.laminar.types.payload.Payload_KeyPut;
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
 import com.jeffdisher.laminar.utils.Assert;
 
 
 /**
  * Executes mutations prior to commit (this typically just means converting them to their corresponding event).
- * This is responsible for managing active topics, any code and object graphs associated with them (if they are
- * programmable), and invoking the AVM when applicable.
+ * This is responsible for managing active topics, any code associated with them (if they are programmable), and
+ * running that code, in a TopicProgram, for the mutations sent to them.
+ * A mutation only reads and changes the state of its own topic so, when given a batch of mutations, those for different
+ * topics are executed concurrently on a pool of workers while those for the same topic are executed in order, on one
+ * worker.  The results are returned in the order of the batch so the outcome is the same as executing them one at a
+ * time, on every node.
+ * Each topic also has a materialized view of its key-value space (the latest value of every key PUT and not DELETEd),
+ * updated by the same executions, so that the value of a key can be read without replaying the topic's events.
+ * The loaded programs of programmable topics are kept in a ProgramCache, bounded by memory, so hot topics don't load
+ * their code for each mutation while idle topics only keep their code.
  */
 public class MutationExecutor {
-	// Note that we need to describe active topics and next event by topic separately since topic event offsets don't reset when a topic is recreated.
-	private final Set<TopicName> _activeTopics;
-	private final Map<TopicName, Long> _nextEventOffsetByTopic;
+	/**
+	 * The default bound on the estimated size of the loaded programs kept in the cache.
+	 */
+	public static final long DEFAULT_PROGRAM_CACHE_BYTES = 64L * 1024L * 1024L;
 
+	private final ExecutorService _workers;
+	private final ProgramCache _programCache;
+	// Note that we need to keep the state of a topic after it is destroyed since topic event offsets don't reset when a
+	// topic is recreated.
+	// This map is only modified on the calling thread, before any workers run, so each worker only touches the
+	// TopicExecutionState objects for its own topic.
+	private final Map<TopicName, TopicExecutionState> _topicStates;
+
+	/**
+	 * Creates an executor which uses one worker per available processor for batches spanning multiple topics.
+	 */
 	public MutationExecutor() {
-		// Global offsets are 1-indexed so the first one is 1L.
-		_activeTopics = new HashSet<>();
-		_nextEventOffsetByTopic = new HashMap<>();
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_PROGRAM_CACHE_BYTES);
+	}
+
+	/**
+	 * Creates an executor with the given number of workers for batches spanning multiple topics.
+	 * 
+	 * @param workerCount The number of worker threads (if this is 1, everything is executed on the calling thread).
+	 * @param programCacheBytes The bound on the estimated size of the loaded programs to keep in the cache.
+	 */
+	public MutationExecutor(int workerCount, long programCacheBytes) {
+		Assert.assertTrue(workerCount > 0);
+		_workers = (workerCount > 1)
+				? Executors.newFixedThreadPool(workerCount, (runnable) -> {
+					Thread thread = new Thread(runnable, "Laminar mutation executor");
+					thread.setDaemon(true);
+					return thread;
+				})
+				: null;
+		_programCache = new ProgramCache(programCacheBytes);
+		_topicStates = new HashMap<>();
 	}
 
 	public void stop() {
-		// This is just here as a placeholder for lifecycle operations.
+		if (null != _workers) {
+			_workers.shutdown();
+		}
 	}
 
+	/**
+	 * Executes a single mutation on the calling thread.
+	 * 
+	 * @param mutation The mutation to execute.
+	 * @return The result of the execution.
+	 */
 	public ExecutionResult execute(MutationRecord mutation) {
+		return _execute(_getOrCreateTopicState(mutation.topic), mutation);
+	}
+
+	/**
+	 * Executes a batch of mutations, which must be in global offset order, running the mutations for different topics
+	 * concurrently.
+	 * 
+	 * @param mutations The mutations to execute, in global offset order.
+	 * @return The results of the executions, in the same order as the mutations.
+	 */
+	public List<ExecutionResult> executeBatch(List<MutationRecord> mutations) {
+		// Split the batch by topic, remembering where each result goes (the per-topic lists are in global order).
+		Map<TopicName, List<Integer>> indicesByTopic = new LinkedHashMap<>();
+		for (int i = 0; i < mutations.size(); ++i) {
+			TopicName topic = mutations.get(i).topic;
+			List<Integer> indices = indicesByTopic.get(topic);
+			if (null == indices) {
+				indices = new ArrayList<>();
+				indicesByTopic.put(topic, indices);
+				// Resolve the state here so that the workers never modify the map.
+				_getOrCreateTopicState(topic);
+			}
+			indices.add(i);
+		}
+		
+		ExecutionResult[] results = new ExecutionResult[mutations.size()];
+		if ((null == _workers) || (indicesByTopic.size() < 2)) {
+			// There is no concurrency to be had so just run them here.
+			for (int i = 0; i < results.length; ++i) {
+				MutationRecord mutation = mutations.get(i);
+				results[i] = _execute(_topicStates.get(mutation.topic), mutation);
+			}
+		} else {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Map.Entry<TopicName, List<Integer>> elt : indicesByTopic.entrySet()) {
+				TopicExecutionState state = _topicStates.get(elt.getKey());
+				List<Integer> indices = elt.getValue();
+				// Each worker writes only to its own indices of the results so they don't interfere.
+				futures.add(_workers.submit(() -> {
+					for (int index : indices) {
+						results[index] = _execute(state, mutations.get(index));
+					}
+				}));
+			}
+			// Waiting on the futures also makes the workers' writes visible to this thread.
+			for (Future<?> future : futures) {
+				_waitForWorker(future);
+			}
+		}
+		List<ExecutionResult> list = new ArrayList<>(results.length);
+		Collections.addAll(list, results);
+		return list;
+	}
+
+	/**
+	 * Reads the state of the given topic, as of the last mutation executed.  This is only a read of the executor's
+	 * existing state so it has no effect on what later mutations will produce.
+	 * 
+	 * @param topic The topic to read.
+	 * @return The state of the topic (an inactive topic with no events if it has never been created).
+	 */
+	public TopicState readTopicState(TopicName topic) {
+		TopicExecutionState state = _topicStates.get(topic);
+		return (null != state)
+				? TopicState.create(state.isActive, state.nextEventOffset - 1L)
+				: TopicState.create(false, 0L);
+	}
+
+	/**
+	 * Reads the latest value of a key in the given topic, as of the last mutation executed.
+	 * 
+	 * @param topic The topic to read.
+	 * @param key The key to look up.
+	 * @return The value of the key (null if the key has no value or the topic isn't active).
+	 */
+	public byte[] readValue(TopicName topic, byte[] key) {
+		TopicExecutionState state = _topicStates.get(topic);
+		return (null != state)
+				? state.values.get(key)
+				: null;
+	}
+
+
+	private TopicExecutionState _getOrCreateTopicState(TopicName topic) {
+		TopicExecutionState state = _topicStates.get(topic);
+		if (null == state) {
+			state = new TopicExecutionState();
+			_topicStates.put(topic, state);
+		}
+		return state;
+	}
+
+	private static void _waitForWorker(Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			// We don't use interruption.
+			throw Assert.unexpected(e);
+		} catch (ExecutionException e) {
+			// Failures in execution are static errors, just as they would be on the calling thread, so re-throw them.
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw Assert.unexpected(cause);
+			}
+		}
+	}
+
+	private ExecutionResult _execute(TopicExecutionState state, MutationRecord mutation) {
 		boolean isSynthetic = mutation.topic.string.isEmpty();
 		long offsetToPropose = isSynthetic
 				? 0L
-				: _nextEventOffsetByTopic.getOrDefault(mutation.topic, 1L);
+				: state.nextEventOffset;
 		
 		ExecutionResult result;
 		switch (mutation.type) {
@@ -50,12 +214,21 @@ public class MutationExecutor {
 			throw Assert.unimplemented("Invalid message type");
 		case TOPIC_CREATE: {
 			// We want to create the topic but should fail with Effect.INVALID if it is already there.
-			if (_activeTopics.contains(mutation.topic)) {
+			// A programmable topic is also INVALID if its code doesn't verify.
+			Payload_TopicCreate payload = (Payload_TopicCreate)mutation.payload;
+			TopicProgram program = (payload.code.length > 0)
+					? TopicProgram.load(payload.code, payload.arguments)
+					: null;
+			if (state.isActive || ((payload.code.length > 0) && (null == program))) {
 				result = new ExecutionResult(CommitInfo.Effect.INVALID, Collections.emptyList());
 			} else {
-				// 1-indexed.
-				_activeTopics.add(mutation.topic);
-				Payload_TopicCreate payload = (Payload_TopicCreate)mutation.payload;
+				state.isActive = true;
+				if (null != program) {
+					// We keep the code so that the program can be loaded again if it is evicted from the cache.
+					state.code = payload.code;
+					state.arguments = payload.arguments;
+					_programCache.put(mutation.topic, program);
+				}
 				EventRecord eventToReturn = EventRecord.createTopic(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.code, payload.arguments);
 				result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
 			}
@@ -63,8 +236,15 @@ public class MutationExecutor {
 			break;
 		case TOPIC_DESTROY: {
 			// We want to destroy the topic but should fail with Effect.ERROR if it doesn't exist.
-			if (_activeTopics.contains(mutation.topic)) {
-				_activeTopics.remove(mutation.topic);
+			if (state.isActive) {
+				state.isActive = false;
+				if (null != state.code) {
+					state.code = null;
+					state.arguments = null;
+					_programCache.remove(mutation.topic);
+				}
+				// A destroyed topic has no keys (if it is re-created, it starts empty).
+				state.values.clear();
 				EventRecord eventToReturn = EventRecord.destroyTopic(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce);
 				result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
 			} else {
@@ -74,10 +254,15 @@ public class MutationExecutor {
 			break;
 		case KEY_PUT: {
 			// This is VALID if the topic exists but ERROR, if not.
-			if (_activeTopics.contains(mutation.topic)) {
+			if (state.isActive) {
 				Payload_KeyPut payload = (Payload_KeyPut)mutation.payload;
-				EventRecord eventToReturn = EventRecord.put(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.key, payload.value);
-				result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
+				if (null != state.code) {
+					result = _runProgram(state, mutation, offsetToPropose, ProgramBuilder.TYPE_PUT, payload.key, payload.value);
+				} else {
+					state.values.put(payload.key, payload.value);
+					EventRecord eventToReturn = EventRecord.put(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.key, payload.value);
+					result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
+				}
 			} else {
 				result = new ExecutionResult(CommitInfo.Effect.ERROR, Collections.emptyList());
 			}
@@ -85,10 +270,15 @@ public class MutationExecutor {
 			break;
 		case KEY_DELETE: {
 			// This is VALID if the topic exists but ERROR, if not.
-			if (_activeTopics.contains(mutation.topic)) {
+			if (state.isActive) {
 				Payload_KeyDelete payload = (Payload_KeyDelete)mutation.payload;
-				EventRecord eventToReturn = EventRecord.delete(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.key);
-				result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
+				if (null != state.code) {
+					result = _runProgram(state, mutation, offsetToPropose, ProgramBuilder.TYPE_DELETE, payload.key, new byte[0]);
+				} else {
+					state.values.remove(payload.key);
+					EventRecord eventToReturn = EventRecord.delete(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.key);
+					result = new ExecutionResult(CommitInfo.Effect.VALID, Collections.singletonList(eventToReturn));
+				}
 			} else {
 				result = new ExecutionResult(CommitInfo.Effect.ERROR, Collections.emptyList());
 			}
@@ -102,9 +292,14 @@ public class MutationExecutor {
 			break;
 		case STUTTER: {
 			// This is VALID if the topic exists but ERROR, if not.
-			if (_activeTopics.contains(mutation.topic)) {
+			if (state.isActive && (null != state.code)) {
+				// Programs decide what their events are so, to them, this is just a PUT.
+				Payload_KeyPut payload = (Payload_KeyPut)mutation.payload;
+				result = _runProgram(state, mutation, offsetToPropose, ProgramBuilder.TYPE_PUT, payload.key, payload.value);
+			} else if (state.isActive) {
 				// Stutter is a special-case as it produces 2 of the same PUT events.
 				Payload_KeyPut payload = (Payload_KeyPut)mutation.payload;
+				state.values.put(payload.key, payload.value);
 				List<EventRecord> events = new LinkedList<>();
 				EventRecord eventToReturn1 = EventRecord.put(mutation.termNumber, mutation.globalOffset, offsetToPropose, mutation.clientId, mutation.clientNonce, payload.key, payload.value);
 				events.add(eventToReturn1);
@@ -116,18 +311,133 @@ public class MutationExecutor {
 			}
 		}
 			break;
+		case BATCH: {
+			// This is VALID if the topic exists but ERROR, if not.  Each operation produces its events in order.
+			if (state.isActive) {
+				Payload_Batch payload = (Payload_Batch)mutation.payload;
+				if (null != state.code) {
+					result = _runProgramBatch(state, mutation, offsetToPropose, payload);
+				} else {
+					List<EventRecord> events = new ArrayList<>(payload.keys.length);
+					long localOffset = offsetToPropose;
+					for (int i = 0; i < payload.keys.length; ++i) {
+						if (null != payload.values[i]) {
+							state.values.put(payload.keys[i], payload.values[i]);
+							events.add(EventRecord.put(mutation.termNumber, mutation.globalOffset, localOffset, mutation.clientId, mutation.clientNonce, payload.keys[i], payload.values[i]));
+						} else {
+							state.values.remove(payload.keys[i]);
+							events.add(EventRecord.delete(mutation.termNumber, mutation.globalOffset, localOffset, mutation.clientId, mutation.clientNonce, payload.keys[i]));
+						}
+						localOffset += 1L;
+					}
+					result = new ExecutionResult(CommitInfo.Effect.VALID, events);
+				}
+			} else {
+				result = new ExecutionResult(CommitInfo.Effect.ERROR, Collections.emptyList());
+			}
+		}
+			break;
+		case REJECTED: {
+			// The leader couldn't replicate the client's message so this just tells the client it was rejected.
+			result = new ExecutionResult(CommitInfo.Effect.INVALID, Collections.emptyList());
+		}
+			break;
 		default:
 			throw Assert.unimplemented("Case missing in mutation processing");
 		}
 		
 		if (CommitInfo.Effect.VALID == result.effect) {
-			// Note that mutations to synthetic topics cannot be converted to events.
-			Assert.assertTrue(isSynthetic == result.events.isEmpty());
-			_nextEventOffsetByTopic.put(mutation.topic, offsetToPropose + (long)result.events.size());
+			// Note that mutations to synthetic topics cannot be converted to events (but programs can also produce none).
+			Assert.assertTrue(!isSynthetic || result.events.isEmpty());
+			state.nextEventOffset = offsetToPropose + (long)result.events.size();
+		}
+		return result;
+	}
+
+	private ExecutionResult _runProgram(TopicExecutionState state, MutationRecord mutation, long offsetToPropose, long type, byte[] key, byte[] value) {
+		TopicProgram program = _programCache.get(mutation.topic, state.code, state.arguments);
+		List<TopicProgram.Write> writes = program.run(type, key, value, state.values);
+		ExecutionResult result;
+		if (null != writes) {
+			List<EventRecord> events = new ArrayList<>(writes.size());
+			_applyWrites(state, mutation, offsetToPropose, writes, events, null);
+			result = new ExecutionResult(CommitInfo.Effect.VALID, events);
+		} else {
+			// The program faulted so it has no effect.
+			result = new ExecutionResult(CommitInfo.Effect.ERROR, Collections.emptyList());
+		}
+		return result;
+	}
+
+	private ExecutionResult _runProgramBatch(TopicExecutionState state, MutationRecord mutation, long offsetToPropose, Payload_Batch payload) {
+		TopicProgram program = _programCache.get(mutation.topic, state.code, state.arguments);
+		// The program is run for each operation, in order, and each run sees the writes of those before it.  If any run
+		// faults, the whole batch is an ERROR so we keep the previous value of every key written, to undo them.
+		List<EventRecord> events = new ArrayList<>(payload.keys.length);
+		List<byte[][]> undoLog = new ArrayList<>();
+		boolean didFault = false;
+		for (int i = 0; !didFault && (i < payload.keys.length); ++i) {
+			boolean isPut = (null != payload.values[i]);
+			List<TopicProgram.Write> writes = isPut
+					? program.run(ProgramBuilder.TYPE_PUT, payload.keys[i], payload.values[i], state.values)
+					: program.run(ProgramBuilder.TYPE_DELETE, payload.keys[i], new byte[0], state.values);
+			if (null != writes) {
+				_applyWrites(state, mutation, offsetToPropose + (long)events.size(), writes, events, undoLog);
+			} else {
+				didFault = true;
+			}
+		}
+		ExecutionResult result;
+		if (didFault) {
+			// Restore the view in reverse order so that a key written several times ends up with its original value.
+			for (int i = undoLog.size() - 1; i >= 0; --i) {
+				byte[][] entry = undoLog.get(i);
+				if (null != entry[1]) {
+					state.values.put(entry[0], entry[1]);
+				} else {
+					state.values.remove(entry[0]);
+				}
+			}
+			result = new ExecutionResult(CommitInfo.Effect.ERROR, Collections.emptyList());
+		} else {
+			result = new ExecutionResult(CommitInfo.Effect.VALID, events);
 		}
 		return result;
 	}
 
+	private static void _applyWrites(TopicExecutionState state, MutationRecord mutation, long firstLocalOffset, List<TopicProgram.Write> writes, List<EventRecord> events, List<byte[][]> undoLog) {
+		// Each write becomes an event, with consecutive local offsets, and is applied to the view.
+		long localOffset = firstLocalOffset;
+		for (TopicProgram.Write write : writes) {
+			if (null != undoLog) {
+				undoLog.add(new byte[][] { write.key, state.values.get(write.key) });
+			}
+			if (null != write.value) {
+				state.values.put(write.key, write.value);
+				events.add(EventRecord.put(mutation.termNumber, mutation.globalOffset, localOffset, mutation.clientId, mutation.clientNonce, write.key, write.value));
+			} else {
+				state.values.remove(write.key);
+				events.add(EventRecord.delete(mutation.termNumber, mutation.globalOffset, localOffset, mutation.clientId, mutation.clientNonce, write.key));
+			}
+			localOffset += 1L;
+		}
+	}
+
+
+	/**
+	 * The state of a single topic, as seen by the executor.
+	 */
+	private static class TopicExecutionState {
+		public boolean isActive;
+		// The code and arguments of a programmable topic (null for a raw topic), loaded through the ProgramCache.
+		public byte[] code;
+		public byte[] arguments;
+		// Local event offsets are 1-indexed so the first one is 1L.
+		public long nextEventOffset = 1L;
+		// The latest value of each key, kept off-heap since a topic can have millions of keys.
+		public final OffHeapKeyValueMap values = new OffHeapKeyValueMap();
+	}
+
 
 	public static class ExecutionResult {
 		public final CommitInfo.Effect effect;
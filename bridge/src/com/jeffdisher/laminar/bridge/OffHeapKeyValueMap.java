@@ -0,0 +1,313 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A map from byte[] keys to byte[] values which stores everything outside of the Java heap, so that a topic with many
+ * keys doesn't give the collector millions of small objects to trace (long pauses would also stall the main thread and
+ * disturb the cluster's heartbeat and election timing).
+ * The keys and values are appended to direct ByteBuffer "slabs" as [key length][value length][key][value] entries and
+ * found through an open-addressing (linear probing) index, also in a direct buffer, where each slot is 2 longs:  the
+ * hash of the key and the address of its entry (0 meaning the slot is empty).  The only heap objects are the slabs and
+ * the index themselves, and the byte[] copies returned by get().
+ * Replacing or removing a key leaves its old entry in its slab as garbage, which is reclaimed by compacting all live
+ * entries into new slabs once the garbage outweighs them.
+ * Note that this is not thread-safe (each topic's map is only used by one thread at a time).
+ */
+class OffHeapKeyValueMap {
+	// Slabs start small, since most topics have few keys, and double up to this size.
+	private static final int FIRST_SLAB_BYTES = 4 * 1024;
+	private static final int MAX_SLAB_BYTES = 1024 * 1024;
+	private static final int INITIAL_SLOT_COUNT = 16;
+	private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+	// An address is the slab index in the high bits and the offset within the slab in the low bits, plus 1 so that 0 can
+	// mean an empty slot.
+	private static final int OFFSET_BITS = 32;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1L;
+
+	private final List<ByteBuffer> _slabs;
+	private int _nextSlabBytes;
+	private LongBuffer _index;
+	private int _slotMask;
+	private int _size;
+	private long _liveBytes;
+	private long _garbageBytes;
+
+	public OffHeapKeyValueMap() {
+		_slabs = new ArrayList<>();
+		_nextSlabBytes = FIRST_SLAB_BYTES;
+		_index = _allocateIndex(INITIAL_SLOT_COUNT);
+		_slotMask = INITIAL_SLOT_COUNT - 1;
+		_size = 0;
+		_liveBytes = 0L;
+		_garbageBytes = 0L;
+	}
+
+	/**
+	 * @param key The key to look up.
+	 * @return A copy of the value of the key (null if it has no value).
+	 */
+	public byte[] get(byte[] key) {
+		int hash = _hash(key);
+		int slot = _findSlot(key, hash);
+		byte[] value = null;
+		if (slot >= 0) {
+			long address = _index.get(2 * slot + 1);
+			ByteBuffer slab = _slabs.get(_slabIndex(address));
+			int offset = _slabOffset(address);
+			int keyLength = slab.getInt(offset);
+			int valueLength = slab.getInt(offset + Integer.BYTES);
+			value = new byte[valueLength];
+			ByteBuffer view = slab.duplicate();
+			view.position(offset + ENTRY_HEADER_BYTES + keyLength);
+			view.get(value);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of the key, replacing any existing value.  Both arrays are copied.
+	 * 
+	 * @param key The key to set.
+	 * @param value The new value.
+	 */
+	public void put(byte[] key, byte[] value) {
+		int hash = _hash(key);
+		int slot = _findSlot(key, hash);
+		if (slot >= 0) {
+			// We are replacing the value so the old entry becomes garbage.
+			_discardEntry(_index.get(2 * slot + 1));
+			_index.put(2 * slot + 1, _appendEntry(key, value));
+		} else {
+			if ((_size + 1) > ((_slotMask + 1) / 2)) {
+				// We keep the index at most half full so probe sequences stay short.
+				_resizeIndex(2 * (_slotMask + 1));
+			}
+			_insertIntoIndex(hash, _appendEntry(key, value));
+			_size += 1;
+		}
+		_compactIfMostlyGarbage();
+	}
+
+	/**
+	 * Removes the value of the key, if it has one.
+	 * 
+	 * @param key The key to remove.
+	 * @return True if the key had a value.
+	 */
+	public boolean remove(byte[] key) {
+		int slot = _findSlot(key, _hash(key));
+		boolean didRemove = (slot >= 0);
+		if (didRemove) {
+			_discardEntry(_index.get(2 * slot + 1));
+			_removeFromIndex(slot);
+			_size -= 1;
+			_compactIfMostlyGarbage();
+		}
+		return didRemove;
+	}
+
+	/**
+	 * Removes every key, releasing the slabs.
+	 */
+	public void clear() {
+		_slabs.clear();
+		_nextSlabBytes = FIRST_SLAB_BYTES;
+		_index = _allocateIndex(INITIAL_SLOT_COUNT);
+		_slotMask = INITIAL_SLOT_COUNT - 1;
+		_size = 0;
+		_liveBytes = 0L;
+		_garbageBytes = 0L;
+	}
+
+	/**
+	 * @return The number of keys with values.
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * @return The number of bytes allocated outside of the heap (slabs and index), used to report memory footprint.
+	 */
+	public long offHeapBytes() {
+		long total = (long)_index.capacity() * Long.BYTES;
+		for (ByteBuffer slab : _slabs) {
+			total += slab.capacity();
+		}
+		return total;
+	}
+
+
+	private static LongBuffer _allocateIndex(int slotCount) {
+		// Direct buffers are zeroed, so every slot starts empty.
+		return ByteBuffer.allocateDirect(2 * slotCount * Long.BYTES).asLongBuffer();
+	}
+
+	private static int _hash(byte[] key) {
+		int hash = 1;
+		for (byte b : key) {
+			hash = 31 * hash + b;
+		}
+		// Mix the bits (the finalizer from MurmurHash3) since we use the low bits to pick the slot.
+		hash ^= (hash >>> 16);
+		hash *= 0x85ebca6b;
+		hash ^= (hash >>> 13);
+		hash *= 0xc2b2ae35;
+		hash ^= (hash >>> 16);
+		return hash;
+	}
+
+	private static int _slabIndex(long address) {
+		return (int)((address - 1L) >>> OFFSET_BITS);
+	}
+
+	private static int _slabOffset(long address) {
+		return (int)((address - 1L) & OFFSET_MASK);
+	}
+
+	private int _findSlot(byte[] key, int hash) {
+		int slot = hash & _slotMask;
+		int found = -1;
+		long address = _index.get(2 * slot + 1);
+		while ((-1 == found) && (0L != address)) {
+			if ((hash == (int)_index.get(2 * slot)) && _entryHasKey(address, key)) {
+				found = slot;
+			} else {
+				slot = (slot + 1) & _slotMask;
+				address = _index.get(2 * slot + 1);
+			}
+		}
+		return found;
+	}
+
+	private boolean _entryHasKey(long address, byte[] key) {
+		ByteBuffer slab = _slabs.get(_slabIndex(address));
+		int offset = _slabOffset(address);
+		boolean isMatch = (key.length == slab.getInt(offset));
+		int start = offset + ENTRY_HEADER_BYTES;
+		for (int i = 0; isMatch && (i < key.length); ++i) {
+			isMatch = (key[i] == slab.get(start + i));
+		}
+		return isMatch;
+	}
+
+	private void _insertIntoIndex(int hash, long address) {
+		int slot = hash & _slotMask;
+		while (0L != _index.get(2 * slot + 1)) {
+			slot = (slot + 1) & _slotMask;
+		}
+		_index.put(2 * slot, (long)hash);
+		_index.put(2 * slot + 1, address);
+	}
+
+	private void _removeFromIndex(int slot) {
+		// We don't use tombstones:  instead, we shift back any later entries in the probe run which would no longer be
+		// reachable through the hole.
+		int hole = slot;
+		int next = (hole + 1) & _slotMask;
+		while (0L != _index.get(2 * next + 1)) {
+			int ideal = (int)_index.get(2 * next) & _slotMask;
+			// The entry can move to the hole unless its ideal slot is cyclically in (hole, next].
+			boolean canMove = (hole <= next)
+					? ((ideal <= hole) || (ideal > next))
+					: ((ideal <= hole) && (ideal > next));
+			if (canMove) {
+				_index.put(2 * hole, _index.get(2 * next));
+				_index.put(2 * hole + 1, _index.get(2 * next + 1));
+				hole = next;
+			}
+			next = (next + 1) & _slotMask;
+		}
+		_index.put(2 * hole, 0L);
+		_index.put(2 * hole + 1, 0L);
+	}
+
+	private void _resizeIndex(int slotCount) {
+		LongBuffer old = _index;
+		int oldSlotCount = _slotMask + 1;
+		_index = _allocateIndex(slotCount);
+		_slotMask = slotCount - 1;
+		for (int i = 0; i < oldSlotCount; ++i) {
+			long address = old.get(2 * i + 1);
+			if (0L != address) {
+				// We stored the hash so we don't need to read the key again.
+				_insertIntoIndex((int)old.get(2 * i), address);
+			}
+		}
+	}
+
+	private long _appendEntry(byte[] key, byte[] value) {
+		int entryBytes = ENTRY_HEADER_BYTES + key.length + value.length;
+		ByteBuffer slab = _slabWithRoom(entryBytes);
+		long address = _nextAddress(slab);
+		slab.putInt(key.length);
+		slab.putInt(value.length);
+		slab.put(key);
+		slab.put(value);
+		_liveBytes += entryBytes;
+		return address;
+	}
+
+	private ByteBuffer _slabWithRoom(int entryBytes) {
+		ByteBuffer slab = _slabs.isEmpty()
+				? null
+				: _slabs.get(_slabs.size() - 1);
+		if ((null == slab) || (slab.remaining() < entryBytes)) {
+			// A large entry gets a slab of its own size.
+			slab = ByteBuffer.allocateDirect(Math.max(_nextSlabBytes, entryBytes));
+			_slabs.add(slab);
+			_nextSlabBytes = Math.min(2 * _nextSlabBytes, MAX_SLAB_BYTES);
+		}
+		return slab;
+	}
+
+	private long _nextAddress(ByteBuffer slab) {
+		// We only ever append to the last slab.
+		return (((long)(_slabs.size() - 1) << OFFSET_BITS) | (long)slab.position()) + 1L;
+	}
+
+	private void _discardEntry(long address) {
+		ByteBuffer slab = _slabs.get(_slabIndex(address));
+		int offset = _slabOffset(address);
+		int entryBytes = ENTRY_HEADER_BYTES + slab.getInt(offset) + slab.getInt(offset + Integer.BYTES);
+		_liveBytes -= entryBytes;
+		_garbageBytes += entryBytes;
+	}
+
+	private void _compactIfMostlyGarbage() {
+		// We wait for at least a full slab of garbage so that small maps don't compact on every change.
+		if ((_garbageBytes > _liveBytes) && (_garbageBytes > MAX_SLAB_BYTES)) {
+			List<ByteBuffer> oldSlabs = new ArrayList<>(_slabs);
+			_slabs.clear();
+			_nextSlabBytes = FIRST_SLAB_BYTES;
+			_liveBytes = 0L;
+			_garbageBytes = 0L;
+			for (int i = 0; i <= _slotMask; ++i) {
+				long address = _index.get(2 * i + 1);
+				if (0L != address) {
+					_index.put(2 * i + 1, _copyEntry(oldSlabs, address));
+				}
+			}
+		}
+	}
+
+	private long _copyEntry(List<ByteBuffer> oldSlabs, long address) {
+		ByteBuffer oldSlab = oldSlabs.get(_slabIndex(address));
+		int offset = _slabOffset(address);
+		int entryBytes = ENTRY_HEADER_BYTES + oldSlab.getInt(offset) + oldSlab.getInt(offset + Integer.BYTES);
+		ByteBuffer slab = _slabWithRoom(entryBytes);
+		long newAddress = _nextAddress(slab);
+		// Copy the whole entry, directly between the slabs.
+		ByteBuffer view = oldSlab.duplicate();
+		view.limit(offset + entryBytes);
+		view.position(offset);
+		slab.put(view);
+		_liveBytes += entryBytes;
+		return newAddress;
+	}
+}
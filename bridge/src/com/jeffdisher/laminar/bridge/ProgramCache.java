@@ -0,0 +1,139 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * Holds the loaded (verified and translated) TopicProgram of each programmable topic, so that running a mutation
+ * doesn't need to load its topic's code again.
+ * The cache is bounded by the estimated size of the programs it holds:  when it is over budget, the least-recently used
+ * programs are evicted and are only loaded again, from their code, the next time their topic runs a mutation.  The most
+ * recently used program is always kept, even if it alone is over budget, since it is the one about to run.
+ * Note that this is called by the workers of the MutationExecutor, concurrently, so all access is synchronized.  The
+ * exception is loading a program, on a miss, which is done outside of the lock so that one worker loading a large
+ * program doesn't stall the other workers' lookups of programs which are already cached.
+ */
+class ProgramCache {
+	private final long _maxBytes;
+	private final BiFunction<byte[], byte[], TopicProgram> _loader;
+	// Access-ordered so that iteration starts at the least-recently used program.
+	private final LinkedHashMap<TopicName, TopicProgram> _programs;
+	private long _currentBytes;
+	private long _loadCount;
+
+	/**
+	 * Creates an empty cache.
+	 * 
+	 * @param maxBytes The total estimated size of the programs the cache can hold before it starts evicting them.
+	 */
+	public ProgramCache(long maxBytes) {
+		this(maxBytes, TopicProgram::load);
+	}
+
+	/**
+	 * Creates an empty cache which loads programs with the given loader instead of TopicProgram.load() (for testing).
+	 * 
+	 * @param maxBytes The total estimated size of the programs the cache can hold before it starts evicting them.
+	 * @param loader Loads a program from its code and arguments.
+	 */
+	ProgramCache(long maxBytes, BiFunction<byte[], byte[], TopicProgram> loader) {
+		Assert.assertTrue(maxBytes > 0L);
+		_maxBytes = maxBytes;
+		_loader = loader;
+		_programs = new LinkedHashMap<>(16, 0.75f, true);
+		_currentBytes = 0L;
+		_loadCount = 0L;
+	}
+
+	/**
+	 * Returns the program of the given topic, loading it from its code if it isn't in the cache.
+	 * 
+	 * @param topic The programmable topic.
+	 * @param code The code of the topic (must already have been verified by a put()).
+	 * @param arguments The arguments the topic was created with.
+	 * @return The program of the topic.
+	 */
+	public TopicProgram get(TopicName topic, byte[] code, byte[] arguments) {
+		synchronized (this) {
+			TopicProgram program = _programs.get(topic);
+			if (null != program) {
+				return program;
+			}
+		}
+		// Load outside of the lock since this can be expensive and other workers may only need cached programs.
+		TopicProgram loaded = _loader.apply(code, arguments);
+		// This code was verified when the topic was created so it can't fail now.
+		Assert.assertTrue(null != loaded);
+		synchronized (this) {
+			_loadCount += 1L;
+			// Another worker may have loaded this topic while we were, in which case we keep theirs so all workers share
+			// one instance.
+			TopicProgram program = _programs.get(topic);
+			if (null == program) {
+				program = loaded;
+				_insert(topic, program);
+			}
+			return program;
+		}
+	}
+
+	/**
+	 * Adds a newly-loaded program to the cache, replacing any program the topic previously had.
+	 * 
+	 * @param topic The programmable topic.
+	 * @param program The loaded program of the topic.
+	 */
+	public synchronized void put(TopicName topic, TopicProgram program) {
+		_remove(topic);
+		_insert(topic, program);
+	}
+
+	/**
+	 * Drops the program of the given topic from the cache (does nothing if it isn't there).
+	 * 
+	 * @param topic The topic.
+	 */
+	public synchronized void remove(TopicName topic) {
+		_remove(topic);
+	}
+
+	/**
+	 * @return The number of programs currently in the cache.
+	 */
+	public synchronized int size() {
+		return _programs.size();
+	}
+
+	/**
+	 * @return The number of times get() had to load a program which wasn't in the cache.
+	 */
+	public synchronized long loadCount() {
+		return _loadCount;
+	}
+
+
+	private void _insert(TopicName topic, TopicProgram program) {
+		_programs.put(topic, program);
+		_currentBytes += program.estimatedBytes();
+		// Evict from the least-recently used end, but never the program we just added (it is the last entry).
+		Iterator<Map.Entry<TopicName, TopicProgram>> iterator = _programs.entrySet().iterator();
+		while ((_currentBytes > _maxBytes) && (_programs.size() > 1)) {
+			Map.Entry<TopicName, TopicProgram> eldest = iterator.next();
+			_currentBytes -= eldest.getValue().estimatedBytes();
+			iterator.remove();
+		}
+	}
+
+	private void _remove(TopicName topic) {
+		TopicProgram program = _programs.remove(topic);
+		if (null != program) {
+			_currentBytes -= program.estimatedBytes();
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
+import com.jeffdisher.laminar.types.program.ProgramOpcode;
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * The code of a programmable topic, verified and translated when it is loaded, and the interpreter which runs it for
+ * each mutation sent to the topic (see ProgramOpcode for the instructions).  The translated form has the instructions
+ * and their operands in parallel arrays, with constants ready to push and jump targets as instruction indices.
+ * Every node runs the same code on the same mutations so the interpreter must be deterministic:  programs can only see
+ * the mutation, the topic's arguments, and the topic's own key-value view (no clocks, randomness, or iteration over
+ * hashed structures) and every run has hard budgets for the instructions it executes, the depth of its stack, and the
+ * bytes it holds (on its stack and in the writes it emits), so a program can't stall the node.  A run which exceeds a
+ * budget faults, just like one which fails a check, and a faulted run has no effect.
+ * Instances are immutable (each run has its own stack) so they can be shared by whatever thread runs the topic.
+ */
+class TopicProgram {
+	public static final int MAX_INSTRUCTIONS = 100_000;
+	public static final int MAX_STACK_DEPTH = 256;
+	public static final int MAX_MEMORY_BYTES = 64 * 1024;
+	// Values are serialized with a 2-byte size so we can't create (or emit) anything larger.
+	private static final int MAX_VALUE_BYTES = 0xFFFF;
+	// Each write also costs this much of the memory budget, so that a program can't emit unlimited empty keys.
+	private static final int WRITE_OVERHEAD_BYTES = 16;
+	private static final ProgramOpcode[] OPCODES = ProgramOpcode.values();
+	private static final byte[] EMPTY = new byte[0];
+	// A rough allowance for the header of each object we hold, when estimating our size.
+	private static final int OBJECT_OVERHEAD_BYTES = 16;
+
+	/**
+	 * Verifies the given code, checking that it only contains valid instructions with complete operands and that every
+	 * jump lands on an instruction (or the end of the code), and translates it into the form the interpreter runs.
+	 * 
+	 * @param code The code of the program.
+	 * @param arguments The arguments the topic was created with.
+	 * @return The program or null, if the code is invalid.
+	 */
+	public static TopicProgram load(byte[] code, byte[] arguments) {
+		// We decode every instruction once, here, so that a run doesn't need to decode (or copy) any operands:  each
+		// instruction has an operand which is the index of its constant (for pushes) or of its target (for jumps).
+		boolean isValid = (code.length <= ProgramBuilder.MAX_CODE_BYTES);
+		List<ProgramOpcode> opcodes = new ArrayList<>();
+		List<Integer> operands = new ArrayList<>();
+		List<byte[]> constants = new ArrayList<>();
+		// Maps each code offset to the index of the instruction there (-1 if it isn't the start of an instruction).
+		int[] instructionAtOffset = new int[code.length + 1];
+		Arrays.fill(instructionAtOffset, -1);
+		int pc = 0;
+		while (isValid && (pc < code.length)) {
+			int ordinal = Byte.toUnsignedInt(code[pc]);
+			isValid = (ordinal > 0) && (ordinal < OPCODES.length);
+			if (isValid) {
+				ProgramOpcode opcode = OPCODES[ordinal];
+				instructionAtOffset[pc] = opcodes.size();
+				pc += 1;
+				int operand = 0;
+				if (ProgramOpcode.PUSH_BYTES == opcode) {
+					isValid = ((pc + Short.BYTES) <= code.length);
+					if (isValid) {
+						int length = _readUnsignedShort(code, pc);
+						pc += Short.BYTES;
+						isValid = ((pc + length) <= code.length);
+						if (isValid) {
+							operand = constants.size();
+							constants.add(Arrays.copyOfRange(code, pc, pc + length));
+						}
+						pc += length;
+					}
+				} else {
+					isValid = ((pc + opcode.immediateBytes) <= code.length);
+					if (isValid) {
+						if (ProgramOpcode.PUSH_LONG == opcode) {
+							// The constant is already the 8-byte value we push.
+							operand = constants.size();
+							constants.add(Arrays.copyOfRange(code, pc, pc + Long.BYTES));
+						} else if ((ProgramOpcode.JUMP == opcode) || (ProgramOpcode.JUMP_IF_ZERO == opcode)) {
+							// This is the code offset until we translate the targets, below.
+							operand = _readUnsignedShort(code, pc);
+						}
+					}
+					pc += opcode.immediateBytes;
+				}
+				opcodes.add(opcode);
+				operands.add(operand);
+			}
+		}
+		// Falling off the end is the same as STOP so that is also a valid jump target.
+		instructionAtOffset[code.length] = opcodes.size();
+		int[] operandArray = new int[operands.size()];
+		for (int i = 0; isValid && (i < operandArray.length); ++i) {
+			int operand = operands.get(i);
+			ProgramOpcode opcode = opcodes.get(i);
+			if ((ProgramOpcode.JUMP == opcode) || (ProgramOpcode.JUMP_IF_ZERO == opcode)) {
+				isValid = (operand <= code.length) && (-1 != instructionAtOffset[operand]);
+				operand = isValid
+						? instructionAtOffset[operand]
+						: 0;
+			}
+			operandArray[i] = operand;
+		}
+		return isValid
+				? new TopicProgram(opcodes.toArray(new ProgramOpcode[opcodes.size()]), operandArray, constants.toArray(new byte[constants.size()][]), arguments)
+				: null;
+	}
+
+
+	private final ProgramOpcode[] _opcodes;
+	private final int[] _operands;
+	private final byte[][] _constants;
+	private final byte[] _arguments;
+	private final long _estimatedBytes;
+
+	private TopicProgram(ProgramOpcode[] opcodes, int[] operands, byte[][] constants, byte[] arguments) {
+		_opcodes = opcodes;
+		_operands = operands;
+		_constants = constants;
+		_arguments = arguments;
+		// A rough count of what we hold:  a reference and an int per instruction and the constants (each is an array).
+		long estimate = OBJECT_OVERHEAD_BYTES + (long)opcodes.length * (Long.BYTES + Integer.BYTES) + arguments.length;
+		for (byte[] constant : constants) {
+			estimate += OBJECT_OVERHEAD_BYTES + constant.length;
+		}
+		_estimatedBytes = estimate;
+	}
+
+	/**
+	 * @return An estimate of the heap this program occupies, used to bound the size of the ProgramCache.
+	 */
+	public long estimatedBytes() {
+		return _estimatedBytes;
+	}
+
+	/**
+	 * Runs the program for a mutation sent to its topic.  The topic's view is only read:  the caller applies the writes
+	 * returned (in order), if the run succeeds.
+	 * 
+	 * @param type ProgramBuilder.TYPE_PUT or ProgramBuilder.TYPE_DELETE.
+	 * @param key The key of the mutation.
+	 * @param value The value of the mutation (empty, for a DELETE).
+	 * @param view The topic's key-value view, as of the previous mutation.
+	 * @return The writes the program emitted, in order, or null if the program faulted.
+	 */
+	public List<Write> run(long type, byte[] key, byte[] value, OffHeapKeyValueMap view) {
+		Frame frame = new Frame();
+		List<Write> writes = new ArrayList<>();
+		// The latest write of each key, so a GET costs the same no matter how many writes the run has emitted.
+		Map<ByteBuffer, Write> latestWrites = new HashMap<>();
+		try {
+			_run(frame, writes, latestWrites, type, key, value, view);
+		} catch (ProgramFault e) {
+			writes = null;
+		}
+		return writes;
+	}
+
+
+	private void _run(Frame frame, List<Write> writes, Map<ByteBuffer, Write> latestWrites, long type, byte[] key, byte[] value, OffHeapKeyValueMap view) throws ProgramFault {
+		int ip = 0;
+		int instructionCount = 0;
+		boolean isRunning = true;
+		while (isRunning && (ip < _opcodes.length)) {
+			instructionCount += 1;
+			if (instructionCount > MAX_INSTRUCTIONS) {
+				throw new ProgramFault();
+			}
+			ProgramOpcode opcode = _opcodes[ip];
+			int operand = _operands[ip];
+			ip += 1;
+			switch (opcode) {
+			case STOP:
+				isRunning = false;
+				break;
+			case FAIL:
+				throw new ProgramFault();
+			case PUSH_BYTES:
+			case PUSH_LONG:
+				// Values are never modified so we can push the constant, itself.
+				frame.push(_constants[operand]);
+				break;
+			case LOAD_KEY:
+				frame.push(key);
+				break;
+			case LOAD_VALUE:
+				frame.push(value);
+				break;
+			case LOAD_TYPE:
+				frame.pushLong(type);
+				break;
+			case LOAD_ARGUMENTS:
+				frame.push(_arguments);
+				break;
+			case DUP: {
+				byte[] top = frame.pop();
+				frame.push(top);
+				frame.push(top);
+			}
+				break;
+			case POP:
+				frame.pop();
+				break;
+			case SWAP: {
+				byte[] b = frame.pop();
+				byte[] a = frame.pop();
+				frame.push(b);
+				frame.push(a);
+			}
+				break;
+			case GET:
+				frame.push(_read(latestWrites, view, frame.pop()));
+				break;
+			case EMIT_PUT: {
+				byte[] putValue = frame.pop();
+				byte[] putKey = frame.pop();
+				frame.charge(WRITE_OVERHEAD_BYTES + putKey.length + putValue.length);
+				_emit(writes, latestWrites, new Write(putKey, putValue));
+			}
+				break;
+			case EMIT_DELETE: {
+				byte[] deleteKey = frame.pop();
+				frame.charge(WRITE_OVERHEAD_BYTES + deleteKey.length);
+				_emit(writes, latestWrites, new Write(deleteKey, null));
+			}
+				break;
+			case ADD: {
+				long b = frame.popLong();
+				long a = frame.popLong();
+				frame.pushLong(a + b);
+			}
+				break;
+			case SUBTRACT: {
+				long b = frame.popLong();
+				long a = frame.popLong();
+				frame.pushLong(a - b);
+			}
+				break;
+			case LESS_THAN: {
+				long b = frame.popLong();
+				long a = frame.popLong();
+				frame.pushLong((a < b) ? 1L : 0L);
+			}
+				break;
+			case EQUALS: {
+				byte[] b = frame.pop();
+				byte[] a = frame.pop();
+				frame.pushLong(Arrays.equals(a, b) ? 1L : 0L);
+			}
+				break;
+			case LENGTH:
+				frame.pushLong(frame.pop().length);
+				break;
+			case CONCAT: {
+				byte[] b = frame.pop();
+				byte[] a = frame.pop();
+				byte[] result = Arrays.copyOf(a, a.length + b.length);
+				System.arraycopy(b, 0, result, a.length, b.length);
+				frame.push(result);
+			}
+				break;
+			case JUMP:
+				ip = operand;
+				break;
+			case JUMP_IF_ZERO:
+				if (0L == frame.popLong()) {
+					ip = operand;
+				}
+				break;
+			default:
+				// Verification means that we can't see anything else.
+				throw Assert.unreachable("Unverified instruction: " + opcode);
+			}
+		}
+	}
+
+	private static void _emit(List<Write> writes, Map<ByteBuffer, Write> latestWrites, Write write) {
+		writes.add(write);
+		// Keys are never modified so the wrapper can be used as a map key.
+		latestWrites.put(ByteBuffer.wrap(write.key), write);
+	}
+
+	private static byte[] _read(Map<ByteBuffer, Write> latestWrites, OffHeapKeyValueMap view, byte[] key) {
+		// The latest write from this run takes precedence over the view.
+		Write write = latestWrites.get(ByteBuffer.wrap(key));
+		byte[] value = (null != write)
+				? write.value
+				: view.get(key);
+		return (null != value)
+				? value
+				: EMPTY;
+	}
+
+	private static int _readUnsignedShort(byte[] code, int offset) {
+		return Short.toUnsignedInt(ByteBuffer.wrap(code, offset, Short.BYTES).getShort());
+	}
+
+
+	/**
+	 * A key written by a run of the program:  a PUT of the value or a DELETE, if the value is null.
+	 */
+	public static class Write {
+		public final byte[] key;
+		public final byte[] value;
+
+		public Write(byte[] key, byte[] value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+
+	/**
+	 * The stack of a single run, which also enforces the stack and memory budgets.
+	 */
+	private static class Frame {
+		private final byte[][] _stack = new byte[MAX_STACK_DEPTH][];
+		private int _depth = 0;
+		private int _memoryBytes = 0;
+
+		public void push(byte[] value) throws ProgramFault {
+			if ((_depth == MAX_STACK_DEPTH) || (value.length > MAX_VALUE_BYTES)) {
+				throw new ProgramFault();
+			}
+			charge(value.length);
+			_stack[_depth] = value;
+			_depth += 1;
+		}
+
+		public byte[] pop() throws ProgramFault {
+			if (0 == _depth) {
+				throw new ProgramFault();
+			}
+			_depth -= 1;
+			byte[] value = _stack[_depth];
+			_stack[_depth] = null;
+			_memoryBytes -= value.length;
+			return value;
+		}
+
+		public void pushLong(long value) throws ProgramFault {
+			push(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+		}
+
+		public long popLong() throws ProgramFault {
+			byte[] value = pop();
+			long result;
+			if (0 == value.length) {
+				// Empty values (like missing keys) are 0 so counters don't need to be initialized.
+				result = 0L;
+			} else if (Long.BYTES == value.length) {
+				result = ByteBuffer.wrap(value).getLong();
+			} else {
+				throw new ProgramFault();
+			}
+			return result;
+		}
+
+		public void charge(int bytes) throws ProgramFault {
+			_memoryBytes += bytes;
+			if (_memoryBytes > MAX_MEMORY_BYTES) {
+				throw new ProgramFault();
+			}
+		}
+	}
+
+
+	/**
+	 * Thrown to unwind a run which faulted.  This is expected (it is the program's fault, not ours) so it has no stack
+	 * trace.
+	 */
+	private static class ProgramFault extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public ProgramFault() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Does a performance run just using JUnit as an entry-point.  This name starts with "Perf" instead of "Test" so that it
+ * can be run in a different Ant target ("perf"), since it takes a while and needs a larger heap.
+ * This compares the OffHeapKeyValueMap used for each topic's materialized key-value view against the obvious on-heap
+ * alternative, a HashMap<ByteBuffer, byte[]>, for the time to put and look up keys and for memory footprint.  The
+ * footprint of the HashMap is the growth of the heap while the off-heap map reports the size of its slabs and index
+ * (its heap growth is also shown, since that is what the collector has to trace).
+ */
+public class PerfOffHeapKeyValueMap {
+	/**
+	 * Key counts to use in a test run.
+	 */
+	private static final int[] KEY_COUNTS = new int[] { 10_000, 100_000, 1_000_000 };
+	/**
+	 * The size of each value (keys are 16 bytes).
+	 */
+	private static final int VALUE_BYTES = 32;
+	/**
+	 * The number of times each run is repeated before the one we measure, to warm up the JIT.
+	 */
+	private static final int WARM_UP_RUNS = 2;
+
+	@Test
+	public void perfRun() throws Throwable {
+		System.out.println("CSV OUTPUT");
+		System.out.println("keys,HashMap put ns,off-heap put ns,HashMap get ns,off-heap get ns,HashMap heap bytes,off-heap heap bytes,off-heap direct bytes");
+		for (int keyCount : KEY_COUNTS) {
+			Result onHeap = null;
+			Result offHeap = null;
+			for (int i = 0; i <= WARM_UP_RUNS; ++i) {
+				onHeap = _runHashMap(keyCount);
+				offHeap = _runOffHeap(keyCount);
+			}
+			System.out.println(keyCount
+					+ "," + onHeap.putNanosPerKey + "," + offHeap.putNanosPerKey
+					+ "," + onHeap.getNanosPerKey + "," + offHeap.getNanosPerKey
+					+ "," + onHeap.heapBytes + "," + offHeap.heapBytes + "," + offHeap.directBytes
+			);
+		}
+	}
+
+
+	private static Result _runHashMap(int keyCount) {
+		long heapBefore = _usedHeap();
+		Map<ByteBuffer, byte[]> map = new HashMap<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < keyCount; ++i) {
+			map.put(ByteBuffer.wrap(_key(i)), _value(i));
+		}
+		long putNanos = System.nanoTime() - start;
+		long heapBytes = _usedHeap() - heapBefore;
+		
+		start = System.nanoTime();
+		long check = 0L;
+		for (int i = 0; i < keyCount; ++i) {
+			check += map.get(ByteBuffer.wrap(_key(i)))[0];
+		}
+		long getNanos = System.nanoTime() - start;
+		Assert.assertEquals(_expectedCheck(keyCount), check);
+		// Keep the map reachable until we are done measuring.
+		Assert.assertEquals(keyCount, map.size());
+		return new Result(putNanos / keyCount, getNanos / keyCount, heapBytes, 0L);
+	}
+
+	private static Result _runOffHeap(int keyCount) {
+		long heapBefore = _usedHeap();
+		OffHeapKeyValueMap map = new OffHeapKeyValueMap();
+		long start = System.nanoTime();
+		for (int i = 0; i < keyCount; ++i) {
+			map.put(_key(i), _value(i));
+		}
+		long putNanos = System.nanoTime() - start;
+		long heapBytes = _usedHeap() - heapBefore;
+		
+		start = System.nanoTime();
+		long check = 0L;
+		for (int i = 0; i < keyCount; ++i) {
+			check += map.get(_key(i))[0];
+		}
+		long getNanos = System.nanoTime() - start;
+		Assert.assertEquals(_expectedCheck(keyCount), check);
+		Assert.assertEquals(keyCount, map.size());
+		return new Result(putNanos / keyCount, getNanos / keyCount, heapBytes, map.offHeapBytes());
+	}
+
+	private static byte[] _key(int i) {
+		return ByteBuffer.allocate(16).putLong(0x5eed5eed5eed5eedL).putLong(i).array();
+	}
+
+	private static byte[] _value(int i) {
+		byte[] value = new byte[VALUE_BYTES];
+		value[0] = (byte)(i & 0x7f);
+		return value;
+	}
+
+	private static long _expectedCheck(int keyCount) {
+		long check = 0L;
+		for (int i = 0; i < keyCount; ++i) {
+			check += (i & 0x7f);
+		}
+		return check;
+	}
+
+	private static long _usedHeap() {
+		// We collect a few times since a single request isn't guaranteed to finish everything.
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+
+	private static class Result {
+		public final long putNanosPerKey;
+		public final long getNanosPerKey;
+		public final long heapBytes;
+		public final long directBytes;
+		
+		public Result(long putNanosPerKey, long getNanosPerKey, long heapBytes, long directBytes) {
+			this.putNanosPerKey = putNanosPerKey;
+			this.getNanosPerKey = getNanosPerKey;
+			this.heapBytes = heapBytes;
+			this.directBytes = directBytes;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.jeffdisher.laminar.bridge;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.Assert;
@@ -7,7 +9,11 @@ import org.junit.Test;
 
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
+import com.jeffdisher.laminar.types.event.EventRecordType;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
+import com.jeffdisher.laminar.types.program.ProgramOpcode;
 
 
 public class TestMutationExecutor {
@@ -64,4 +70,244 @@ public class TestMutationExecutor {
 		
 		executor.stop();
 	}
+
+	@Test
+	public void readTopicState() {
+		long termNumber = 1L;
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		MutationExecutor executor = new MutationExecutor();
+		
+		TopicState state = executor.readTopicState(topic);
+		Assert.assertFalse(state.isActive);
+		Assert.assertEquals(0L, state.lastEventLocalOffset);
+		
+		executor.execute(MutationRecord.createTopic(termNumber, 1L, topic, clientId, 1L, new byte[0], new byte[0]));
+		executor.execute(MutationRecord.stutter(termNumber, 2L, topic, clientId, 2L, new byte[0], new byte[0]));
+		state = executor.readTopicState(topic);
+		Assert.assertTrue(state.isActive);
+		Assert.assertEquals(3L, state.lastEventLocalOffset);
+		
+		// Destroying the topic doesn't reset its local offsets.
+		executor.execute(MutationRecord.destroyTopic(termNumber, 3L, topic, clientId, 3L));
+		state = executor.readTopicState(topic);
+		Assert.assertFalse(state.isActive);
+		Assert.assertEquals(4L, state.lastEventLocalOffset);
+		
+		executor.stop();
+	}
+
+	@Test
+	public void batchMatchesSequential() {
+		long termNumber = 1L;
+		UUID clientId = UUID.randomUUID();
+		TopicName[] topics = new TopicName[] { TopicName.fromString("one"), TopicName.fromString("two"), TopicName.fromString("three") };
+		// Interleave the topics, including a put before a create and a destroy/re-create, so the order within each
+		// topic matters.
+		List<MutationRecord> mutations = new ArrayList<>();
+		long globalOffset = 1L;
+		long nonce = 1L;
+		for (TopicName topic : topics) {
+			mutations.add(MutationRecord.put(termNumber, globalOffset++, topic, clientId, nonce++, new byte[0], new byte[0]));
+		}
+		for (TopicName topic : topics) {
+			mutations.add(MutationRecord.createTopic(termNumber, globalOffset++, topic, clientId, nonce++, new byte[0], new byte[0]));
+		}
+		for (int i = 0; i < 10; ++i) {
+			for (TopicName topic : topics) {
+				mutations.add(MutationRecord.put(termNumber, globalOffset++, topic, clientId, nonce++, new byte[0], new byte[0]));
+			}
+		}
+		mutations.add(MutationRecord.destroyTopic(termNumber, globalOffset++, topics[1], clientId, nonce++));
+		mutations.add(MutationRecord.stutter(termNumber, globalOffset++, topics[0], clientId, nonce++, new byte[0], new byte[0]));
+		mutations.add(MutationRecord.put(termNumber, globalOffset++, topics[1], clientId, nonce++, new byte[0], new byte[0]));
+		mutations.add(MutationRecord.createTopic(termNumber, globalOffset++, topics[1], clientId, nonce++, new byte[0], new byte[0]));
+		
+		MutationExecutor sequential = new MutationExecutor(1, MutationExecutor.DEFAULT_PROGRAM_CACHE_BYTES);
+		MutationExecutor parallel = new MutationExecutor(4, MutationExecutor.DEFAULT_PROGRAM_CACHE_BYTES);
+		List<MutationExecutor.ExecutionResult> batchResults = parallel.executeBatch(mutations);
+		Assert.assertEquals(mutations.size(), batchResults.size());
+		for (int i = 0; i < mutations.size(); ++i) {
+			MutationExecutor.ExecutionResult expected = sequential.execute(mutations.get(i));
+			MutationExecutor.ExecutionResult actual = batchResults.get(i);
+			Assert.assertEquals(expected.effect, actual.effect);
+			Assert.assertEquals(expected.events.size(), actual.events.size());
+			for (int j = 0; j < expected.events.size(); ++j) {
+				Assert.assertEquals(expected.events.get(j).globalOffset, actual.events.get(j).globalOffset);
+				Assert.assertEquals(expected.events.get(j).localOffset, actual.events.get(j).localOffset);
+				Assert.assertEquals(expected.events.get(j).type, actual.events.get(j).type);
+			}
+		}
+		for (TopicName topic : topics) {
+			TopicState expected = sequential.readTopicState(topic);
+			TopicState actual = parallel.readTopicState(topic);
+			Assert.assertEquals(expected.isActive, actual.isActive);
+			Assert.assertEquals(expected.lastEventLocalOffset, actual.lastEventLocalOffset);
+		}
+		// The second topic was re-created so its local offsets continue from before it was destroyed.
+		Assert.assertEquals(13L, parallel.readTopicState(topics[1]).lastEventLocalOffset);
+		sequential.stop();
+		parallel.stop();
+	}
+
+	@Test
+	public void readValue() {
+		long termNumber = 1L;
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		byte[] key1 = new byte[] {1};
+		byte[] key2 = new byte[] {2};
+		MutationExecutor executor = new MutationExecutor();
+		
+		// Nothing is there before the topic exists (or if the PUT fails).
+		Assert.assertNull(executor.readValue(topic, key1));
+		Assert.assertEquals(CommitInfo.Effect.ERROR, executor.execute(MutationRecord.put(termNumber, 1L, topic, clientId, 1L, key1, new byte[] {1})).effect);
+		Assert.assertNull(executor.readValue(topic, key1));
+		
+		executor.execute(MutationRecord.createTopic(termNumber, 2L, topic, clientId, 2L, new byte[0], new byte[0]));
+		executor.execute(MutationRecord.put(termNumber, 3L, topic, clientId, 3L, key1, new byte[] {1}));
+		executor.execute(MutationRecord.put(termNumber, 4L, topic, clientId, 4L, key2, new byte[] {2}));
+		executor.execute(MutationRecord.put(termNumber, 5L, topic, clientId, 5L, key1, new byte[] {3}));
+		// Keys are compared by content, not identity.
+		Assert.assertArrayEquals(new byte[] {3}, executor.readValue(topic, new byte[] {1}));
+		Assert.assertArrayEquals(new byte[] {2}, executor.readValue(topic, key2));
+		
+		executor.execute(MutationRecord.delete(termNumber, 6L, topic, clientId, 6L, key1));
+		Assert.assertNull(executor.readValue(topic, key1));
+		Assert.assertArrayEquals(new byte[] {2}, executor.readValue(topic, key2));
+		
+		// Destroying the topic drops all of its keys, even once it is re-created.
+		executor.execute(MutationRecord.destroyTopic(termNumber, 7L, topic, clientId, 7L));
+		Assert.assertNull(executor.readValue(topic, key2));
+		executor.execute(MutationRecord.createTopic(termNumber, 8L, topic, clientId, 8L, new byte[0], new byte[0]));
+		Assert.assertNull(executor.readValue(topic, key2));
+		executor.stop();
+	}
+
+	@Test
+	public void programmableTopic() {
+		long termNumber = 1L;
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		MutationExecutor executor = new MutationExecutor();
+		
+		// Code which doesn't verify can't create the topic.
+		Assert.assertEquals(CommitInfo.Effect.INVALID, executor.execute(MutationRecord.createTopic(termNumber, 1L, topic, clientId, 1L, new byte[] {0}, new byte[0])).effect);
+		Assert.assertFalse(executor.readTopicState(topic).isActive);
+		
+		// This program ignores DELETEs and, for a PUT, writes the key and also writes the value under a "last" key.
+		ProgramBuilder builder = new ProgramBuilder()
+				.op(ProgramOpcode.LOAD_TYPE).pushLong(ProgramBuilder.TYPE_PUT).op(ProgramOpcode.EQUALS);
+		int skip = builder.jump(ProgramOpcode.JUMP_IF_ZERO);
+		builder
+				.op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.EMIT_PUT)
+				.pushBytes("last".getBytes()).op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.EMIT_PUT);
+		builder.setJumpTarget(skip);
+		MutationExecutor.ExecutionResult result = executor.execute(MutationRecord.createTopic(termNumber, 2L, topic, clientId, 2L, builder.build(), new byte[0]));
+		Assert.assertEquals(CommitInfo.Effect.VALID, result.effect);
+		Assert.assertEquals(1L, result.events.get(0).localOffset);
+		
+		result = executor.execute(MutationRecord.put(termNumber, 3L, topic, clientId, 3L, new byte[] {1}, new byte[] {2}));
+		Assert.assertEquals(CommitInfo.Effect.VALID, result.effect);
+		Assert.assertEquals(2, result.events.size());
+		Assert.assertEquals(2L, result.events.get(0).localOffset);
+		Assert.assertEquals(3L, result.events.get(1).localOffset);
+		Assert.assertArrayEquals(new byte[] {2}, executor.readValue(topic, "last".getBytes()));
+		
+		// The DELETE is valid but produces no events (so doesn't change the view or consume local offsets).
+		result = executor.execute(MutationRecord.delete(termNumber, 4L, topic, clientId, 4L, new byte[] {1}));
+		Assert.assertEquals(CommitInfo.Effect.VALID, result.effect);
+		Assert.assertTrue(result.events.isEmpty());
+		Assert.assertArrayEquals(new byte[] {2}, executor.readValue(topic, new byte[] {1}));
+		Assert.assertEquals(3L, executor.readTopicState(topic).lastEventLocalOffset);
+		
+		// Once destroyed and re-created without code, it is a raw topic, again.
+		executor.execute(MutationRecord.destroyTopic(termNumber, 5L, topic, clientId, 5L));
+		executor.execute(MutationRecord.createTopic(termNumber, 6L, topic, clientId, 6L, new byte[0], new byte[0]));
+		result = executor.execute(MutationRecord.delete(termNumber, 7L, topic, clientId, 7L, new byte[] {1}));
+		Assert.assertEquals(1, result.events.size());
+		executor.stop();
+	}
+
+	@Test
+	public void evictedPrograms() {
+		long termNumber = 1L;
+		TopicName one = TopicName.fromString("one");
+		TopicName two = TopicName.fromString("two");
+		UUID clientId = UUID.randomUUID();
+		// A cache this small can only hold one program at a time so alternating topics reloads them each time.
+		MutationExecutor executor = new MutationExecutor(1, 1L);
+		
+		// This program writes the key with the arguments of the topic as its value.
+		byte[] code = new ProgramBuilder().op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.LOAD_ARGUMENTS).op(ProgramOpcode.EMIT_PUT).build();
+		executor.execute(MutationRecord.createTopic(termNumber, 1L, one, clientId, 1L, code, new byte[] {1}));
+		executor.execute(MutationRecord.createTopic(termNumber, 2L, two, clientId, 2L, code, new byte[] {2}));
+		long globalOffset = 3L;
+		for (int i = 0; i < 10; ++i) {
+			TopicName topic = (0 == (i % 2)) ? one : two;
+			MutationRecord mutation = MutationRecord.put(termNumber, globalOffset, topic, clientId, globalOffset, new byte[] {(byte)i}, new byte[0]);
+			Assert.assertEquals(CommitInfo.Effect.VALID, executor.execute(mutation).effect);
+			globalOffset += 1L;
+		}
+		Assert.assertArrayEquals(new byte[] {1}, executor.readValue(one, new byte[] {8}));
+		Assert.assertArrayEquals(new byte[] {2}, executor.readValue(two, new byte[] {9}));
+		executor.stop();
+	}
+
+	@Test
+	public void batch() {
+		long termNumber = 1L;
+		TopicName raw = TopicName.fromString("raw");
+		TopicName programmable = TopicName.fromString("programmable");
+		UUID clientId = UUID.randomUUID();
+		MutationExecutor executor = new MutationExecutor();
+		byte[][] keys = new byte[][] { new byte[] {1}, new byte[] {2}, new byte[] {1} };
+		byte[][] values = new byte[][] { new byte[] {10}, new byte[] {20}, null };
+		
+		// A batch to a topic which doesn't exist is an ERROR.
+		Assert.assertEquals(CommitInfo.Effect.ERROR, executor.execute(MutationRecord.batch(termNumber, 1L, raw, clientId, 1L, keys, values)).effect);
+		
+		// On a raw topic, each operation becomes an event, in order.
+		executor.execute(MutationRecord.createTopic(termNumber, 2L, raw, clientId, 2L, new byte[0], new byte[0]));
+		MutationExecutor.ExecutionResult result = executor.execute(MutationRecord.batch(termNumber, 3L, raw, clientId, 3L, keys, values));
+		Assert.assertEquals(CommitInfo.Effect.VALID, result.effect);
+		Assert.assertEquals(3, result.events.size());
+		Assert.assertEquals(2L, result.events.get(0).localOffset);
+		Assert.assertEquals(4L, result.events.get(2).localOffset);
+		Assert.assertEquals(EventRecordType.KEY_DELETE, result.events.get(2).type);
+		Assert.assertNull(executor.readValue(raw, new byte[] {1}));
+		Assert.assertArrayEquals(new byte[] {20}, executor.readValue(raw, new byte[] {2}));
+		Assert.assertEquals(4L, executor.readTopicState(raw).lastEventLocalOffset);
+		
+		// This program writes each PUT under the key "last" but FAILs for a key which is a single 0.
+		ProgramBuilder builder = new ProgramBuilder().op(ProgramOpcode.LOAD_KEY).pushBytes(new byte[] {0}).op(ProgramOpcode.EQUALS);
+		int skip = builder.jump(ProgramOpcode.JUMP_IF_ZERO);
+		builder.op(ProgramOpcode.FAIL);
+		builder.setJumpTarget(skip);
+		builder.pushBytes("last".getBytes()).op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.EMIT_PUT);
+		executor.execute(MutationRecord.createTopic(termNumber, 4L, programmable, clientId, 4L, builder.build(), new byte[0]));
+		result = executor.execute(MutationRecord.batch(termNumber, 5L, programmable, clientId, 5L, new byte[][] { new byte[] {1}, new byte[] {2} }, new byte[][] { new byte[] {10}, new byte[] {20} }));
+		Assert.assertEquals(CommitInfo.Effect.VALID, result.effect);
+		Assert.assertEquals(2, result.events.size());
+		Assert.assertEquals(3L, result.events.get(1).localOffset);
+		Assert.assertArrayEquals(new byte[] {20}, executor.readValue(programmable, "last".getBytes()));
+		
+		// If any operation fails, the batch is an ERROR and the writes of the operations before it are undone.
+		result = executor.execute(MutationRecord.batch(termNumber, 6L, programmable, clientId, 6L, new byte[][] { new byte[] {1}, new byte[] {0} }, new byte[][] { new byte[] {30}, new byte[] {40} }));
+		Assert.assertEquals(CommitInfo.Effect.ERROR, result.effect);
+		Assert.assertTrue(result.events.isEmpty());
+		Assert.assertArrayEquals(new byte[] {20}, executor.readValue(programmable, "last".getBytes()));
+		Assert.assertEquals(3L, executor.readTopicState(programmable).lastEventLocalOffset);
+		executor.stop();
+	}
+
+	@Test
+	public void rejected() {
+		// A message the leader couldn't replicate is always INVALID.
+		MutationExecutor executor = new MutationExecutor();
+		MutationExecutor.ExecutionResult result = executor.execute(MutationRecord.rejected(1L, 1L, UUID.randomUUID(), 1L));
+		Assert.assertEquals(CommitInfo.Effect.INVALID, result.effect);
+		Assert.assertTrue(result.events.isEmpty());
+		executor.stop();
+	}
 }
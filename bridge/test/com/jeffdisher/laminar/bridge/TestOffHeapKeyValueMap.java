@@ -0,0 +1,87 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TestOffHeapKeyValueMap {
+	@Test
+	public void testBasic() {
+		OffHeapKeyValueMap map = new OffHeapKeyValueMap();
+		Assert.assertNull(map.get(new byte[] {1}));
+		map.put(new byte[] {1}, new byte[] {2});
+		map.put(new byte[0], new byte[0]);
+		Assert.assertArrayEquals(new byte[] {2}, map.get(new byte[] {1}));
+		Assert.assertArrayEquals(new byte[0], map.get(new byte[0]));
+		Assert.assertEquals(2, map.size());
+		
+		map.put(new byte[] {1}, new byte[] {3, 4});
+		Assert.assertArrayEquals(new byte[] {3, 4}, map.get(new byte[] {1}));
+		Assert.assertEquals(2, map.size());
+		
+		Assert.assertTrue(map.remove(new byte[] {1}));
+		Assert.assertFalse(map.remove(new byte[] {1}));
+		Assert.assertNull(map.get(new byte[] {1}));
+		Assert.assertEquals(1, map.size());
+		
+		map.clear();
+		Assert.assertNull(map.get(new byte[0]));
+		Assert.assertEquals(0, map.size());
+	}
+
+	/**
+	 * Runs a random mix of puts and removes over a small key space (so we see lots of collisions, index growth, and
+	 * removals in the middle of probe runs) and checks the map against a HashMap after each one.
+	 */
+	@Test
+	public void testMatchesHashMap() {
+		Random random = new Random(42L);
+		OffHeapKeyValueMap map = new OffHeapKeyValueMap();
+		Map<ByteBuffer, byte[]> expected = new HashMap<>();
+		for (int i = 0; i < 20_000; ++i) {
+			byte[] key = _key(random.nextInt(2_000));
+			if (random.nextInt(3) > 0) {
+				byte[] value = new byte[random.nextInt(16)];
+				random.nextBytes(value);
+				map.put(key, value);
+				expected.put(ByteBuffer.wrap(key), value);
+			} else {
+				Assert.assertEquals(expected.remove(ByteBuffer.wrap(key)) != null, map.remove(key));
+			}
+			Assert.assertEquals(expected.size(), map.size());
+		}
+		for (int i = 0; i < 2_000; ++i) {
+			byte[] key = _key(i);
+			Assert.assertArrayEquals(expected.get(ByteBuffer.wrap(key)), map.get(key));
+		}
+	}
+
+	@Test
+	public void testCompaction() {
+		OffHeapKeyValueMap map = new OffHeapKeyValueMap();
+		for (int i = 0; i < 100; ++i) {
+			map.put(_key(i), new byte[] {(byte)i});
+		}
+		// Repeatedly replacing one large value creates far more garbage than live data so the slabs are compacted.
+		byte[] large = new byte[1024];
+		for (int i = 0; i < 10_000; ++i) {
+			large[0] = (byte)i;
+			map.put(_key(0), large);
+		}
+		Assert.assertTrue(map.offHeapBytes() < (4 * 1024 * 1024));
+		Assert.assertArrayEquals(large, map.get(_key(0)));
+		for (int i = 1; i < 100; ++i) {
+			Assert.assertArrayEquals(new byte[] {(byte)i}, map.get(_key(i)));
+		}
+	}
+
+
+	private static byte[] _key(int i) {
+		return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+	}
+}
@@ -0,0 +1,155 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
+import com.jeffdisher.laminar.types.program.ProgramOpcode;
+
+
+public class TestProgramCache {
+	@Test
+	public void testHit() {
+		byte[] code = _code(1);
+		TopicName topic = TopicName.fromString("test");
+		ProgramCache cache = new ProgramCache(1024L * 1024L);
+		TopicProgram program = TopicProgram.load(code, new byte[0]);
+		cache.put(topic, program);
+		
+		// While it stays in the cache, we get back the same program, without loading it.
+		Assert.assertSame(program, cache.get(topic, code, new byte[0]));
+		Assert.assertSame(program, cache.get(topic, code, new byte[0]));
+		Assert.assertEquals(0L, cache.loadCount());
+		
+		// Once removed, it is loaded again.
+		cache.remove(topic);
+		Assert.assertEquals(0, cache.size());
+		TopicProgram reloaded = cache.get(topic, code, new byte[0]);
+		Assert.assertNotSame(program, reloaded);
+		Assert.assertEquals(1L, cache.loadCount());
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEviction() {
+		byte[] code = _code(100);
+		long programBytes = TopicProgram.load(code, new byte[0]).estimatedBytes();
+		TopicName one = TopicName.fromString("one");
+		TopicName two = TopicName.fromString("two");
+		TopicName three = TopicName.fromString("three");
+		// We only have room for 2 programs.
+		ProgramCache cache = new ProgramCache(2L * programBytes + 1L);
+		cache.put(one, TopicProgram.load(code, new byte[0]));
+		cache.put(two, TopicProgram.load(code, new byte[0]));
+		Assert.assertEquals(2, cache.size());
+		
+		// Using "one" makes "two" the least-recently used so it is the one evicted when "three" is added.
+		cache.get(one, code, new byte[0]);
+		cache.put(three, TopicProgram.load(code, new byte[0]));
+		Assert.assertEquals(2, cache.size());
+		cache.get(one, code, new byte[0]);
+		cache.get(three, code, new byte[0]);
+		Assert.assertEquals(0L, cache.loadCount());
+		cache.get(two, code, new byte[0]);
+		Assert.assertEquals(1L, cache.loadCount());
+		Assert.assertEquals(2, cache.size());
+		
+		// A program larger than the whole cache is still kept, alone, since it is the one being used.
+		ProgramCache tiny = new ProgramCache(1L);
+		tiny.put(one, TopicProgram.load(code, new byte[0]));
+		tiny.get(two, code, new byte[0]);
+		Assert.assertEquals(1, tiny.size());
+		Assert.assertEquals(1L, tiny.loadCount());
+	}
+
+	@Test
+	public void testSlowLoadDoesNotBlockHits() throws Throwable {
+		byte[] slowCode = _code(100);
+		byte[] cachedCode = _code(1);
+		TopicName slow = TopicName.fromString("slow");
+		TopicName cached = TopicName.fromString("cached");
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch finishLoad = new CountDownLatch(1);
+		// Loading the slow topic's code blocks until we release it.
+		ProgramCache cache = new ProgramCache(1024L * 1024L, (code, arguments) -> {
+			if (slowCode == code) {
+				loadStarted.countDown();
+				_await(finishLoad);
+			}
+			return TopicProgram.load(code, arguments);
+		});
+		TopicProgram program = TopicProgram.load(cachedCode, new byte[0]);
+		cache.put(cached, program);
+		
+		TopicProgram[] slowResult = new TopicProgram[1];
+		Thread loader = new Thread(() -> {
+			slowResult[0] = cache.get(slow, slowCode, new byte[0]);
+		});
+		loader.start();
+		loadStarted.await();
+		
+		// While that load is stalled, we can still get the cached program (this would hang if loading held the lock).
+		Assert.assertSame(program, cache.get(cached, cachedCode, new byte[0]));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(0L, cache.loadCount());
+		
+		finishLoad.countDown();
+		loader.join();
+		Assert.assertNotNull(slowResult[0]);
+		Assert.assertSame(slowResult[0], cache.get(slow, slowCode, new byte[0]));
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1L, cache.loadCount());
+	}
+
+	@Test
+	public void testConcurrentLoadKeepsFirstInsert() throws Throwable {
+		byte[] code = _code(1);
+		TopicName topic = TopicName.fromString("test");
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch finishLoad = new CountDownLatch(1);
+		// Only the background thread's load blocks.
+		ProgramCache cache = new ProgramCache(1024L * 1024L, (loadCode, arguments) -> {
+			if (Thread.currentThread().getName().equals("slow")) {
+				loadStarted.countDown();
+				_await(finishLoad);
+			}
+			return TopicProgram.load(loadCode, arguments);
+		});
+		
+		TopicProgram[] slowResult = new TopicProgram[1];
+		Thread loader = new Thread(() -> {
+			slowResult[0] = cache.get(topic, code, new byte[0]);
+		}, "slow");
+		loader.start();
+		loadStarted.await();
+		
+		// We load and insert the program first so the stalled load must return ours, not replace it.
+		TopicProgram first = cache.get(topic, code, new byte[0]);
+		finishLoad.countDown();
+		loader.join();
+		Assert.assertSame(first, slowResult[0]);
+		Assert.assertSame(first, cache.get(topic, code, new byte[0]));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(2L, cache.loadCount());
+	}
+
+
+	private static byte[] _code(int instructionPairs) {
+		ProgramBuilder builder = new ProgramBuilder();
+		for (int i = 0; i < instructionPairs; ++i) {
+			builder.op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.POP);
+		}
+		return builder.build();
+	}
+
+	private static void _await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw com.jeffdisher.laminar.utils.Assert.unexpected(e);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.jeffdisher.laminar.bridge;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
+import com.jeffdisher.laminar.types.program.ProgramOpcode;
+
+
+public class TestTopicProgram {
+	@Test
+	public void testVerification() {
+		// Empty code and code which only uses complete instructions are fine.
+		Assert.assertNotNull(TopicProgram.load(new byte[0], new byte[0]));
+		Assert.assertNotNull(TopicProgram.load(new ProgramBuilder().pushLong(1L).op(ProgramOpcode.POP).build(), new byte[0]));
+		
+		// Invalid and unknown instructions.
+		Assert.assertNull(TopicProgram.load(new byte[] {0}, new byte[0]));
+		Assert.assertNull(TopicProgram.load(new byte[] {(byte)0xFF}, new byte[0]));
+		// Truncated operands.
+		byte[] pushLong = new ProgramBuilder().pushLong(1L).build();
+		Assert.assertNull(TopicProgram.load(Arrays.copyOf(pushLong, pushLong.length - 1), new byte[0]));
+		byte[] pushBytes = new ProgramBuilder().pushBytes(new byte[] {1, 2, 3}).build();
+		Assert.assertNull(TopicProgram.load(Arrays.copyOf(pushBytes, pushBytes.length - 1), new byte[0]));
+		
+		// Jumps must land on an instruction or the end.
+		ProgramBuilder builder = new ProgramBuilder();
+		int handle = builder.jump(ProgramOpcode.JUMP);
+		builder.setJumpTarget(handle);
+		Assert.assertNotNull(TopicProgram.load(builder.build(), new byte[0]));
+		byte[] intoOperand = new ProgramBuilder().pushLong(0L).jumpTo(ProgramOpcode.JUMP, 1).build();
+		Assert.assertNull(TopicProgram.load(intoOperand, new byte[0]));
+		byte[] pastEnd = new ProgramBuilder().jumpTo(ProgramOpcode.JUMP, 100).build();
+		Assert.assertNull(TopicProgram.load(pastEnd, new byte[0]));
+	}
+
+	/**
+	 * A filter only passes through PUTs whose value is at least as long as the arguments.
+	 */
+	@Test
+	public void testFilter() {
+		ProgramBuilder builder = new ProgramBuilder()
+				.op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.LENGTH)
+				.op(ProgramOpcode.LOAD_ARGUMENTS).op(ProgramOpcode.LENGTH)
+				.op(ProgramOpcode.LESS_THAN);
+		int skip = builder.jump(ProgramOpcode.JUMP_IF_ZERO);
+		builder.op(ProgramOpcode.STOP);
+		builder.setJumpTarget(skip);
+		builder.op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.EMIT_PUT);
+		TopicProgram program = TopicProgram.load(builder.build(), new byte[2]);
+		OffHeapKeyValueMap view = new OffHeapKeyValueMap();
+		
+		Assert.assertTrue(program.run(ProgramBuilder.TYPE_PUT, new byte[] {1}, new byte[1], view).isEmpty());
+		List<TopicProgram.Write> writes = program.run(ProgramBuilder.TYPE_PUT, new byte[] {1}, new byte[] {5, 6}, view);
+		Assert.assertEquals(1, writes.size());
+		Assert.assertArrayEquals(new byte[] {1}, writes.get(0).key);
+		Assert.assertArrayEquals(new byte[] {5, 6}, writes.get(0).value);
+	}
+
+	/**
+	 * An aggregation keeps a running total of every value PUT (as a long), under a "total" key, and deletes the key of
+	 * the mutation, so we also see that reads in the run observe its own writes.
+	 */
+	@Test
+	public void testAggregate() {
+		byte[] total = "total".getBytes();
+		byte[] code = new ProgramBuilder()
+				.pushBytes(total)
+				.pushBytes(total).op(ProgramOpcode.GET)
+				.op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.ADD)
+				.op(ProgramOpcode.EMIT_PUT)
+				// Add it again, reading our own write.
+				.pushBytes(total)
+				.pushBytes(total).op(ProgramOpcode.GET)
+				.op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.ADD)
+				.op(ProgramOpcode.EMIT_PUT)
+				.op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.EMIT_DELETE)
+				.build();
+		TopicProgram program = TopicProgram.load(code, new byte[0]);
+		OffHeapKeyValueMap view = new OffHeapKeyValueMap();
+		view.put(total, _long(10L));
+		
+		List<TopicProgram.Write> writes = program.run(ProgramBuilder.TYPE_PUT, new byte[] {1}, _long(3L), view);
+		Assert.assertEquals(3, writes.size());
+		Assert.assertArrayEquals(_long(13L), writes.get(0).value);
+		Assert.assertArrayEquals(_long(16L), writes.get(1).value);
+		Assert.assertArrayEquals(new byte[] {1}, writes.get(2).key);
+		Assert.assertNull(writes.get(2).value);
+		// The view itself is unchanged (the caller applies the writes).
+		Assert.assertArrayEquals(_long(10L), view.get(total));
+		
+		// A value which isn't a number faults.
+		Assert.assertNull(program.run(ProgramBuilder.TYPE_PUT, new byte[] {1}, new byte[3], view));
+	}
+
+	/**
+	 * A GET sees the latest write of its key in the run, even with other writes after it, and a DELETE in the run hides
+	 * the key's value in the view.
+	 */
+	@Test
+	public void testReadLatestWriteOfKey() {
+		byte[] one = "one".getBytes();
+		byte[] two = "two".getBytes();
+		byte[] code = new ProgramBuilder()
+				.pushBytes(one).pushLong(1L).op(ProgramOpcode.EMIT_PUT)
+				.pushBytes(two).pushLong(2L).op(ProgramOpcode.EMIT_PUT)
+				.pushBytes(one).pushLong(3L).op(ProgramOpcode.EMIT_PUT)
+				.pushBytes(two).op(ProgramOpcode.EMIT_DELETE)
+				.op(ProgramOpcode.LOAD_KEY).pushBytes(one).op(ProgramOpcode.GET).op(ProgramOpcode.EMIT_PUT)
+				.op(ProgramOpcode.LOAD_VALUE).pushBytes(two).op(ProgramOpcode.GET).op(ProgramOpcode.EMIT_PUT)
+				.build();
+		TopicProgram program = TopicProgram.load(code, new byte[0]);
+		OffHeapKeyValueMap view = new OffHeapKeyValueMap();
+		view.put(one, _long(10L));
+		view.put(two, _long(20L));
+		
+		List<TopicProgram.Write> writes = program.run(ProgramBuilder.TYPE_PUT, new byte[] {1}, new byte[] {2}, view);
+		Assert.assertEquals(6, writes.size());
+		Assert.assertArrayEquals(new byte[] {1}, writes.get(4).key);
+		Assert.assertArrayEquals(_long(3L), writes.get(4).value);
+		Assert.assertArrayEquals(new byte[] {2}, writes.get(5).key);
+		Assert.assertArrayEquals(new byte[0], writes.get(5).value);
+	}
+
+	@Test
+	public void testBudgets() {
+		OffHeapKeyValueMap view = new OffHeapKeyValueMap();
+		
+		// An infinite loop runs out of instructions.
+		byte[] loop = new ProgramBuilder().jumpTo(ProgramOpcode.JUMP, 0).build();
+		Assert.assertNull(TopicProgram.load(loop, new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+		
+		// Doubling a value runs out of memory.
+		ProgramBuilder doubling = new ProgramBuilder().pushBytes(new byte[16]);
+		int top = doubling.position();
+		doubling.op(ProgramOpcode.DUP).op(ProgramOpcode.CONCAT).jumpTo(ProgramOpcode.JUMP, top);
+		Assert.assertNull(TopicProgram.load(doubling.build(), new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+		
+		// Pushing forever runs out of stack.
+		ProgramBuilder pushing = new ProgramBuilder();
+		int start = pushing.position();
+		pushing.op(ProgramOpcode.LOAD_KEY).jumpTo(ProgramOpcode.JUMP, start);
+		Assert.assertNull(TopicProgram.load(pushing.build(), new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+		
+		// Emitting forever runs out of memory, even with empty keys.
+		ProgramBuilder emitting = new ProgramBuilder();
+		int emit = emitting.position();
+		emitting.op(ProgramOpcode.LOAD_KEY).op(ProgramOpcode.EMIT_DELETE).jumpTo(ProgramOpcode.JUMP, emit);
+		Assert.assertNull(TopicProgram.load(emitting.build(), new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+		
+		// Popping an empty stack and FAIL also fault.
+		Assert.assertNull(TopicProgram.load(new ProgramBuilder().op(ProgramOpcode.POP).build(), new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+		Assert.assertNull(TopicProgram.load(new ProgramBuilder().op(ProgramOpcode.FAIL).build(), new byte[0]).run(ProgramBuilder.TYPE_PUT, new byte[0], new byte[0], view));
+	}
+
+
+	private static byte[] _long(long value) {
+		return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+	}
+}
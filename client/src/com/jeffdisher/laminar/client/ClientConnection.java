@@ -20,10 +20,14 @@ import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.types.response.ClientResponse;
 import com.jeffdisher.laminar.types.response.ClientResponsePayload_ClusterConfig;
 import com.jeffdisher.laminar.types.response.ClientResponsePayload_Commit;
 import com.jeffdisher.laminar.types.response.ClientResponsePayload_ConfigEntry;
+import com.jeffdisher.laminar.types.response.ClientResponsePayload_TopicState;
+import com.jeffdisher.laminar.types.response.ClientResponsePayload_Value;
+import com.jeffdisher.laminar.types.response.ClientResponseType;
 import com.jeffdisher.laminar.utils.Assert;
 import com.jeffdisher.laminar.utils.UninterruptibleQueue;
 
@@ -108,6 +112,12 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 	// "up" and to ensure we don't write while still waiting for state sync.
 	private boolean _isClientReady;
 	private long _nextNonce;
+	// Reads aren't written to the log so they don't use nonces, only a connection-local ID to match the response.
+	// They are only sent when there are no outgoing mutations and are all re-sent after a reconnect.
+	// NOTE:  _outgoingReads and _inFlightReads can ONLY be accessed by _internalThread.
+	private final List<ReadResult> _outgoingReads;
+	private final SortedMap<Long, ReadResult> _inFlightReads;
+	private long _nextReadId;
 	// We store the last global commit the server sends us in responses so we can ask what happened since then, when
 	// reconnecting.  It is only read or written by _internalThread.
 	private long _lastCommitGlobalOffset;
@@ -132,6 +142,9 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 		_inFlightMessages = new TreeMap<>();
 		// First message has nonce of 1L.
 		_nextNonce = 1L;
+		_outgoingReads = new LinkedList<>();
+		_inFlightReads = new TreeMap<>();
+		_nextReadId = 1L;
 		_keepRunning = true;
 		_internalThread = new Thread() {
 			@Override
@@ -200,6 +213,35 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 		return _externalWaitForMessageSetup((nonce) -> ClientMessage.delete(nonce, topic, key));
 	}
 
+	/**
+	 * Sends many PUT and DELETE operations on a topic as a single message, which is committed as a single mutation:
+	 * either all of them are applied, in order, or none of them are (if the topic doesn't exist or its program fails).
+	 * Each operation still produces its own event, with consecutive local offsets.
+	 * Note that the whole batch must fit in a single replicated mutation (MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES,
+	 * a little less than a single network message).
+	 * 
+	 * @param topic The topic to which the operations are posted.
+	 * @param keys The key of each operation.
+	 * @param values The value of each PUT operation (null for a DELETE of the corresponding key).
+	 * @return The result of the batch.
+	 * @throws IllegalArgumentException If the batch is malformed or too large to replicate.
+	 */
+	public ClientResult sendBatch(TopicName topic, byte[][] keys, byte[][] values) {
+		Assert.assertTrue(Thread.currentThread() != _internalThread);
+		if (topic.string.isEmpty()) {
+			throw new IllegalArgumentException("Cannot post to empty topic");
+		}
+		if ((keys.length != values.length) || (keys.length > 0xFFFF)) {
+			throw new IllegalArgumentException("Batch needs one value (or null) per key and at most 65535 operations");
+		}
+		// The leader would reject a batch it can't replicate so check its mutation size here (only the operations and
+		// topic vary the size so placeholders are fine for the rest).
+		if (MutationRecord.batch(1L, 1L, topic, _clientId, 0L, keys, values).serializedSize() > MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES) {
+			throw new IllegalArgumentException("Batch is too large to replicate as a single mutation");
+		}
+		return _externalWaitForMessageSetup((nonce) -> ClientMessage.batch(nonce, topic, keys, values));
+	}
+
 	public ClientResult sendPoison(TopicName topic, byte[] key, byte[] value) {
 		Assert.assertTrue(Thread.currentThread() != _internalThread);
 		if (topic.string.isEmpty()) {
@@ -221,6 +263,38 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 		return _externalWaitForMessageSetup((nonce) -> ClientMessage.updateConfig(nonce, config));
 	}
 
+	/**
+	 * Asks the cluster leader for the current state of a topic.  This isn't written to the cluster's log so it doesn't
+	 * consume a nonce and is answered as soon as the leader can prove that its view of the topic is current.
+	 * 
+	 * @param topic The topic to read.
+	 * @return The result which will be populated with the state once the leader answers.
+	 */
+	public TopicStateResult sendReadTopicState(TopicName topic) {
+		Assert.assertTrue(Thread.currentThread() != _internalThread);
+		if (topic.string.isEmpty()) {
+			throw new IllegalArgumentException("Cannot read empty topic");
+		}
+		return _enqueueRead((readId) -> new TopicStateResult(ClientMessage.readTopicState(readId, topic)));
+	}
+
+	/**
+	 * Asks the cluster leader for the latest committed value of a key in a topic.  Like sendReadTopicState(), this
+	 * isn't written to the cluster's log so it doesn't consume a nonce and is answered from the leader's materialized
+	 * view of the topic, instead of replaying its events.
+	 * 
+	 * @param topic The topic to read.
+	 * @param key The key to look up.
+	 * @return The result which will be populated with the value once the leader answers.
+	 */
+	public ValueResult sendGet(TopicName topic, byte[] key) {
+		Assert.assertTrue(Thread.currentThread() != _internalThread);
+		if (topic.string.isEmpty()) {
+			throw new IllegalArgumentException("Cannot read empty topic");
+		}
+		return _enqueueRead((readId) -> new ValueResult(ClientMessage.get(readId, topic, key)));
+	}
+
 	/**
 	 * Every client has a UUID and this is the same after reconnections but new client instances always start with a new
 	 * one.
@@ -457,7 +531,9 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 		// Update the global commit offset.
 		// The _lastCommitGlobalOffset generally just stays the same or increases but a decrease can happen after reconnecting to a new leader.
 		// We account for this by only increasing the value we have if it is moving in the right direction.
-		if (deserialized.lastCommitGlobalOffset > this._lastCommitGlobalOffset) {
+		// (a TOPIC_STATE or VALUE is the exception since the leader reads its state as soon as a mutation reaches consensus,
+		// which can be before it reports the COMMITTED we would need to see if we reconnect).
+		if ((ClientResponseType.TOPIC_STATE != deserialized.type) && (ClientResponseType.VALUE != deserialized.type) && (deserialized.lastCommitGlobalOffset > this._lastCommitGlobalOffset)) {
 			this._lastCommitGlobalOffset = deserialized.lastCommitGlobalOffset;
 		}
 		// Find the corresponding in-flight message and set its state.
@@ -512,6 +588,9 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 					_outgoingMessages.add(0, backResult);
 				}
 			}
+			// Reads have no state on the server so any we didn't get an answer for need to be re-sent, in order.
+			_outgoingReads.addAll(0, _inFlightReads.values());
+			_inFlightReads.clear();
 			clientBecameReady = true;
 			break;
 		case RECEIVED:
@@ -524,6 +603,18 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 			_inFlightMessages.remove(deserialized.nonce);
 		}
 			break;
+		case TOPIC_STATE: {
+			// The nonce of a TOPIC_STATE is the read ID we sent.
+			TopicStateResult read = (TopicStateResult)_inFlightReads.remove(deserialized.nonce);
+			read.setState(((ClientResponsePayload_TopicState)deserialized.payload).state, deserialized.lastCommitGlobalOffset);
+		}
+			break;
+		case VALUE: {
+			// The nonce of a VALUE is the read ID we sent.
+			ValueResult read = (ValueResult)_inFlightReads.remove(deserialized.nonce);
+			read.setValue(((ClientResponsePayload_Value)deserialized.payload).value, deserialized.lastCommitGlobalOffset);
+		}
+			break;
 		case UPDATE_CONFIG:
 			// This is an out-of-band config update.  This has a -1 nonce so make sure we didn't find a message.
 			Assert.assertTrue(null == result);
@@ -660,6 +751,38 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 		}
 	}
 
+	private <T extends ReadResult> T _enqueueRead(Function<Long, T> factory) {
+		Object[] container = new Object[1];
+		_commandQueue.put(new Consumer<Void>() {
+			@Override
+			public void accept(Void arg0) {
+				T result = factory.apply(_nextReadId++);
+				_outgoingReads.add(result);
+				synchronized(container) {
+					container[0] = result;
+					container.notify();
+				}
+				_internalTryWrite();
+			}});
+		boolean interrupt = false;
+		synchronized(container) {
+			while (null == container[0]) {
+				try {
+					container.wait();
+				} catch (InterruptedException e) {
+					// We don't want to interrupt this operation but store the flag.
+					interrupt = true;
+				}
+			}
+		}
+		if (interrupt) {
+			Thread.currentThread().interrupt();
+		}
+		@SuppressWarnings("unchecked")
+		T result = (T)container[0];
+		return result;
+	}
+
 	private void _internalTryWrite() {
 		Assert.assertTrue(Thread.currentThread() == _internalThread);
 		if (!_outgoingMessages.isEmpty() && _canWrite && _isClientReady) {
@@ -667,6 +790,12 @@ public class ClientConnection implements Closeable, INetworkManagerBackgroundCal
 			ClientResult messageToWrite = _outgoingMessages.remove(0);
 			_internalSendMessageInWrapper(messageToWrite);
 			_canWrite = false;
+		} else if (!_outgoingReads.isEmpty() && _canWrite && _isClientReady) {
+			// Reads go out only when there are no mutations waiting (they are typically small and don't hold anything up).
+			ReadResult readToWrite = _outgoingReads.remove(0);
+			_lockedInternalSerializeAndSendMessage(readToWrite.message);
+			_inFlightReads.put(readToWrite.message.nonce, readToWrite);
+			_canWrite = false;
 		}
 	}
 }
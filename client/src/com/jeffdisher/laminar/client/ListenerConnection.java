@@ -39,6 +39,9 @@ import com.jeffdisher.laminar.utils.Assert;
  * interrupt to break it out of its poll operation.
  * Note that the only internal thread this creates is to manage the network, not process the incoming data, so no
  * progress will be made while the user's thread isn't polling.
+ * Listeners can attach to any node in the cluster, not just the leader.  If a connection can't be established, or is
+ * closed before it delivered any events (as a node does when it is too far behind the leader to serve listeners), the
+ * listener moves on to the next node in the most recent cluster config it received.
  */
 public class ListenerConnection implements Closeable, INetworkManagerBackgroundCallbacks {
 	private static final long MILLIS_BETWEEN_CONNECTION_ATTEMPTS = 100L;
@@ -66,11 +69,13 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 	}
 
 
-	private final InetSocketAddress _serverAddress;
+	private InetSocketAddress _serverAddress;
 	private final NetworkManager _network;
 	private NetworkManager.NodeToken _connection;
-	// We also track the latest config from the cluster - this is currently just used for testing but will eventually be used to govern reconnect decisions.
+	// We also track the latest config from the cluster since it is used to pick another node when reconnecting.
 	private ClusterConfig _currentClusterConfig;
+	// Set once the current connection has delivered a real event (not just the initial config).
+	private boolean _didReceiveEventOnConnection;
 
 	private boolean _keepRunning;
 	// Since we are using the user's thread to perform the poll and we must stop polling before stopping the network
@@ -126,6 +131,7 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 						tryAgain = true;
 					} else {
 						_previousLocalOffset = record.localOffset;
+						_didReceiveEventOnConnection = true;
 					}
 				}
 			}
@@ -199,6 +205,7 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 		_connection = node;
 		// Reset our need to send the listen.
 		_didSendListen = false;
+		_didReceiveEventOnConnection = false;
 		// Clear any now-stale connection error.
 		_mostRecentConnectionFailure = null;
 		this.notifyAll();
@@ -213,6 +220,12 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 		_pendingMessages = 0;
 		_currentConnectionFailure = cause;
 		// (note that we will retry a disconnect, immediately, so don't set our force sleep flag)
+		// If this node closed us before sending any events, it may be refusing to serve us so try another node.
+		if (!_didReceiveEventOnConnection) {
+			boolean didChangeServer = _selectNextServerAddress();
+			// If there is nowhere else to go, don't hard-spin against a node which keeps closing us.
+			_shouldSleepBeforeNextConnection = !didChangeServer;
+		}
 		this.notifyAll();
 	}
 
@@ -222,6 +235,8 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 		_currentConnectionFailure = cause;
 		// When a connection attempt fails, we will force a sleep since there is no point in hard-spinning on the same failure every few millis.
 		_shouldSleepBeforeNextConnection = true;
+		// Try the next node we know about, in case this one is down.
+		_selectNextServerAddress();
 		this.notifyAll();
 	}
 	// </INetworkManagerBackgroundCallbacks>
@@ -257,6 +272,24 @@ public class ListenerConnection implements Closeable, INetworkManagerBackgroundC
 	}
 
 
+	private boolean _selectNextServerAddress() {
+		// We can only pick another node if we know about the cluster.
+		boolean didChange = false;
+		if ((null != _currentClusterConfig) && (_currentClusterConfig.entries.length > 1)) {
+			// Find where we are in the config (if we aren't in it, start from the beginning).
+			int nextIndex = 0;
+			for (int i = 0; i < _currentClusterConfig.entries.length; ++i) {
+				if (_currentClusterConfig.entries[i].client.equals(_serverAddress)) {
+					nextIndex = (i + 1) % _currentClusterConfig.entries.length;
+				}
+			}
+			InetSocketAddress next = _currentClusterConfig.entries[nextIndex].client;
+			didChange = !next.equals(_serverAddress);
+			_serverAddress = next;
+		}
+		return didChange;
+	}
+
 	private EventRecord _doLockedPollForNextEvent(long previousLocalOffset) throws InterruptedException, AssertionError {
 		EventRecord record = null;
 		while (_keepRunning && (null == record)) {
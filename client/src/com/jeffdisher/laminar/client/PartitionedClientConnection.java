@@ -0,0 +1,139 @@
+package com.jeffdisher.laminar.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import com.jeffdisher.laminar.types.TopicName;
+
+
+/**
+ * A client for a deployment where topics are partitioned across several independent consensus groups (each one a
+ * normal Laminar cluster, with its own log and leader), so that write throughput isn't limited by a single leader.
+ * This holds one ClientConnection per group and routes each topic operation to the group which owns the topic, as
+ * decided by TopicName.getPartitionIndex().  Each group connection handles its own redirects and fail-over, as usual.
+ * Note that there is no ordering between operations on topics in different groups, only within the same group.
+ * Operations which aren't about a topic (such as config updates) must be sent to a specific group using
+ * getGroupConnection().
+ */
+public class PartitionedClientConnection implements Closeable {
+	/**
+	 * Opens a connection to each of the consensus groups.
+	 *
+	 * @param groupServers For each group, in partition order, the address of any server in that group.
+	 * @return The new connection.
+	 * @throws IOException Opening one of the group connections failed (any already opened are closed).
+	 */
+	public static PartitionedClientConnection open(InetSocketAddress[] groupServers) throws IOException {
+		if ((null == groupServers) || (0 == groupServers.length)) {
+			throw new IllegalArgumentException("Must provide at least one group");
+		}
+		ClientConnection[] groups = new ClientConnection[groupServers.length];
+		try {
+			for (int i = 0; i < groupServers.length; ++i) {
+				groups[i] = ClientConnection.open(groupServers[i]);
+			}
+		} catch (IOException e) {
+			for (ClientConnection group : groups) {
+				if (null != group) {
+					group.close();
+				}
+			}
+			throw e;
+		}
+		return new PartitionedClientConnection(groups);
+	}
+
+
+	private final ClientConnection[] _groups;
+
+	private PartitionedClientConnection(ClientConnection[] groups) {
+		_groups = groups;
+	}
+
+	/**
+	 * Blocks until the connection to every group is established.
+	 *
+	 * @throws InterruptedException The user interrupted this thread before it had an answer.
+	 */
+	public void waitForConnection() throws InterruptedException {
+		for (ClientConnection group : _groups) {
+			group.waitForConnection();
+		}
+	}
+
+	/**
+	 * @return The number of consensus groups topics are partitioned across.
+	 */
+	public int getGroupCount() {
+		return _groups.length;
+	}
+
+	/**
+	 * @param index The index of the group.
+	 * @return The connection to that group (for operations, like config updates, which aren't about a topic).
+	 */
+	public ClientConnection getGroupConnection(int index) {
+		return _groups[index];
+	}
+
+	/**
+	 * @param topic A topic.
+	 * @return The connection to the group which owns the topic.
+	 */
+	public ClientConnection getConnectionForTopic(TopicName topic) {
+		return _groups[topic.getPartitionIndex(_groups.length)];
+	}
+
+	public ClientResult sendCreateTopic(TopicName topic) {
+		return getConnectionForTopic(topic).sendCreateTopic(topic);
+	}
+
+	public ClientResult sendCreateProgrammableTopic(TopicName topic, byte[] code, byte[] arguments) {
+		return getConnectionForTopic(topic).sendCreateProgrammableTopic(topic, code, arguments);
+	}
+
+	public ClientResult sendDestroyTopic(TopicName topic) {
+		return getConnectionForTopic(topic).sendDestroyTopic(topic);
+	}
+
+	public ClientResult sendPut(TopicName topic, byte[] key, byte[] value) {
+		return getConnectionForTopic(topic).sendPut(topic, key, value);
+	}
+
+	public ClientResult sendDelete(TopicName topic, byte[] key) {
+		return getConnectionForTopic(topic).sendDelete(topic, key);
+	}
+
+	public ClientResult sendBatch(TopicName topic, byte[][] keys, byte[][] values) {
+		return getConnectionForTopic(topic).sendBatch(topic, keys, values);
+	}
+
+	public TopicStateResult sendReadTopicState(TopicName topic) {
+		return getConnectionForTopic(topic).sendReadTopicState(topic);
+	}
+
+	public ValueResult sendGet(TopicName topic, byte[] key) {
+		return getConnectionForTopic(topic).sendGet(topic, key);
+	}
+
+	/**
+	 * Opens a listener on the given topic, connected to the server this client is currently using for the group which
+	 * owns the topic.
+	 *
+	 * @param topic The topic to listen to.
+	 * @param previousLocalOffset The local offset of the last event the caller already has.
+	 * @return The new listener.
+	 * @throws IOException Opening the listener failed.
+	 */
+	public ListenerConnection openListener(TopicName topic, long previousLocalOffset) throws IOException {
+		return ListenerConnection.open(getConnectionForTopic(topic).getCurrentServer(), topic, previousLocalOffset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (ClientConnection group : _groups) {
+			group.close();
+		}
+	}
+}
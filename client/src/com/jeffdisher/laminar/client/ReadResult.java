@@ -0,0 +1,16 @@
+package com.jeffdisher.laminar.client;
+
+import com.jeffdisher.laminar.types.message.ClientMessage;
+
+
+/**
+ * The common base of the results of read-only messages (READ_TOPIC_STATE and GET), which the ClientConnection queues,
+ * sends, and re-sends after a reconnect, in the same way, regardless of what they read.
+ */
+public abstract class ReadResult {
+	public final ClientMessage message;
+
+	protected ReadResult(ClientMessage message) {
+		this.message = message;
+	}
+}
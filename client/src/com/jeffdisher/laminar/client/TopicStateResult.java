@@ -0,0 +1,69 @@
+package com.jeffdisher.laminar.client;
+
+import com.jeffdisher.laminar.types.TopicState;
+import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * A TopicStateResult is used by client-side application code to wait for the answer to a READ_TOPIC_STATE.
+ * Unlike a ClientResult, this message is never written to the cluster's log so it has no RECEIVED or COMMITTED state:
+ * it is just answered by the leader once it knows that its view of the topic is current.
+ * If the connection fails over before an answer arrives, the read is transparently re-sent to the new leader.
+ */
+public class TopicStateResult extends ReadResult {
+	private TopicState _state;
+	private long _lastCommitGlobalOffset;
+
+	public TopicStateResult(ClientMessage message) {
+		super(message);
+	}
+
+	/**
+	 * Blocks the caller until the cluster leader has answered the read.
+	 *
+	 * @return The state of the topic, as of getLastCommitGlobalOffset().
+	 * @throws InterruptedException If the user code interrupted this thread.
+	 */
+	public synchronized TopicState waitForState() throws InterruptedException {
+		while (null == _state) {
+			// We allow the user to interrupt their own thread.
+			this.wait();
+		}
+		return _state;
+	}
+
+	/**
+	 * Blocks the caller until the cluster leader has answered the read.
+	 *
+	 * @return The global offset of the last mutation the leader had committed when it read the topic state.
+	 * @throws InterruptedException If the user code interrupted this thread.
+	 */
+	public synchronized long getLastCommitGlobalOffset() throws InterruptedException {
+		while (null == _state) {
+			// We allow the user to interrupt their own thread.
+			this.wait();
+		}
+		return _lastCommitGlobalOffset;
+	}
+
+	/**
+	 * Called by the lower levels of the ClientConnection when the leader answers the read.
+	 *
+	 * @param state The state of the topic.
+	 * @param lastCommitGlobalOffset The global offset of the leader's last committed mutation when it read the state.
+	 */
+	public synchronized void setState(TopicState state, long lastCommitGlobalOffset) {
+		// We can't be answered twice.
+		Assert.assertTrue(null == _state);
+
+		_state = state;
+		_lastCommitGlobalOffset = lastCommitGlobalOffset;
+		this.notifyAll();
+	}
+
+	@Override
+	public String toString() {
+		return "TopicStateResult(message=" + this.message + ", S=" + _state + ")";
+	}
+}
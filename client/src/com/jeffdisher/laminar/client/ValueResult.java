@@ -0,0 +1,70 @@
+package com.jeffdisher.laminar.client;
+
+import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * A ValueResult is used by client-side application code to wait for the answer to a GET.
+ * Like a TopicStateResult, this message is never written to the cluster's log:  it is answered by the leader, from its
+ * materialized view of the topic, once it knows that view is current.
+ * If the connection fails over before an answer arrives, the read is transparently re-sent to the new leader.
+ */
+public class ValueResult extends ReadResult {
+	private boolean _isAnswered;
+	private byte[] _value;
+	private long _lastCommitGlobalOffset;
+
+	public ValueResult(ClientMessage message) {
+		super(message);
+	}
+
+	/**
+	 * Blocks the caller until the cluster leader has answered the read.
+	 * 
+	 * @return The value of the key, as of getLastCommitGlobalOffset() (null if the key has no value).
+	 * @throws InterruptedException If the user code interrupted this thread.
+	 */
+	public synchronized byte[] waitForValue() throws InterruptedException {
+		while (!_isAnswered) {
+			// We allow the user to interrupt their own thread.
+			this.wait();
+		}
+		return _value;
+	}
+
+	/**
+	 * Blocks the caller until the cluster leader has answered the read.
+	 * 
+	 * @return The global offset of the last mutation the leader had committed when it read the value.
+	 * @throws InterruptedException If the user code interrupted this thread.
+	 */
+	public synchronized long getLastCommitGlobalOffset() throws InterruptedException {
+		while (!_isAnswered) {
+			// We allow the user to interrupt their own thread.
+			this.wait();
+		}
+		return _lastCommitGlobalOffset;
+	}
+
+	/**
+	 * Called by the lower levels of the ClientConnection when the leader answers the read.
+	 * 
+	 * @param value The value of the key (null if it has no value).
+	 * @param lastCommitGlobalOffset The global offset of the leader's last committed mutation when it read the value.
+	 */
+	public synchronized void setValue(byte[] value, long lastCommitGlobalOffset) {
+		// We can't be answered twice.
+		Assert.assertTrue(!_isAnswered);
+		
+		_isAnswered = true;
+		_value = value;
+		_lastCommitGlobalOffset = lastCommitGlobalOffset;
+		this.notifyAll();
+	}
+
+	@Override
+	public String toString() {
+		return "ValueResult(message=" + this.message + ", answered=" + _isAnswered + ")";
+	}
+}
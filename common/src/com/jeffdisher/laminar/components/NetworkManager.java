@@ -9,8 +9,10 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 import com.jeffdisher.laminar.utils.Assert;
 
@@ -96,6 +98,11 @@ public class NetworkManager {
 	private volatile NodeToken _handoff_newConnectionResponse;
 	private volatile NodeToken _handoff_closeConnection;
 
+	// While a caller is deferring write wake-ups, the connections which became writable are collected here (under
+	// monitor) instead of waking the selector on every message.
+	private boolean _isDeferringWrites;
+	private final List<NodeToken> _deferredWrites;
+
 	// We will mark this volatile since we are relying on the select, not the monitor.
 	private volatile boolean _keepRunning;
 	private Thread _background;
@@ -119,6 +126,8 @@ public class NetworkManager {
 		}
 		// We put the connected nodes in a LinkedList since we want a dense list, we rarely change it, and often need to walk, in-order.
 		_connectedNodes = new LinkedList<>();
+		_isDeferringWrites = false;
+		_deferredWrites = new ArrayList<>();
 		_callbackTarget = callbackTarget;
 	}
 
@@ -215,13 +224,18 @@ public class NetworkManager {
 				
 				// Note that we only want to enable writing if we weren't already in a writing state and if the connection hasn't closed.
 				if (willNeedWriteInterest && !state.isClosed) {
-					// If the buffer _was_ empty, we know we now need to change the interested ops.
-					// Note that it is safe to write this thread, even though the background is consuming it (according
-					// to docs).
-					// We are doing this under state lock to avoid racing problems where this write may finish before we
-					// update it (we should never attempt to write from a buffer which is empty).
-					target.actualKey.interestOps(target.actualKey.interestOps() | SelectionKey.OP_WRITE);
-					_selector.wakeup();
+					if (_isDeferringWrites) {
+						// We will enable the write when the caller flushes.
+						_deferredWrites.add(target);
+					} else {
+						// If the buffer _was_ empty, we know we now need to change the interested ops.
+						// Note that it is safe to write this thread, even though the background is consuming it (according
+						// to docs).
+						// We are doing this under state lock to avoid racing problems where this write may finish before we
+						// update it (we should never attempt to write from a buffer which is empty).
+						target.actualKey.interestOps(target.actualKey.interestOps() | SelectionKey.OP_WRITE);
+						_selector.wakeup();
+					}
 				}
 				didSend = true;
 			}
@@ -229,18 +243,48 @@ public class NetworkManager {
 		return didSend;
 	}
 
+	/**
+	 * Starts deferring the network writes of messages passed to trySendMessage():  they are still added to the outgoing
+	 * buffers but nothing is written until flushDeferredWrites() is called.  This allows a caller sending many messages
+	 * in a burst to wake the background thread once, at the end, instead of for each connection as it becomes writable.
+	 */
+	public synchronized void deferWrites() {
+		_isDeferringWrites = true;
+	}
+
+	/**
+	 * Stops deferring network writes (see deferWrites()) and starts writing all the messages buffered while deferring.
+	 */
+	public synchronized void flushDeferredWrites() {
+		_isDeferringWrites = false;
+		if (!_deferredWrites.isEmpty()) {
+			boolean shouldWakeUp = false;
+			for (NodeToken target : _deferredWrites) {
+				ConnectionState state = (ConnectionState) target.actualKey.attachment();
+				// The connection may have closed since it was deferred (or we may be shutting down).
+				if (_keepRunning && !state.isClosed && target.actualKey.isValid()) {
+					target.actualKey.interestOps(target.actualKey.interestOps() | SelectionKey.OP_WRITE);
+					shouldWakeUp = true;
+				}
+			}
+			_deferredWrites.clear();
+			if (shouldWakeUp) {
+				_selector.wakeup();
+			}
+		}
+	}
+
 	/**
 	 * Reads a message payload from the incoming buffer for the given sender.
 	 * If there is no complete message, null is returned.
+	 * Unlike the rest of the public interface, this can also be called by the callback target from within
+	 * nodeReadReady(), on the internal thread, so that it can decode messages before handing them off (no lock is held
+	 * over callbacks so this isn't a re-entrance problem).
 	 * 
 	 * @param sender The node from which the message was sent.
 	 * @return The message payload or null if a complete message wasn't available.
 	 */
 	public byte[] readWaitingMessage(NetworkManager.NodeToken sender) {
-		// We consider calls into the public interface on the internal thread to be statically incorrect re-entrance
-		// errors, so those are assertions.
-		Assert.assertTrue(Thread.currentThread() != _background);
-		
 		if (!_keepRunning) {
 			throw new IllegalStateException("Background thread not running");
 		}
@@ -26,6 +26,7 @@ public final class ClusterConfig {
 	/**
 	 * Creates a new config from a list of entries.  Note that the InetSocketAddress instances in the entries will be
 	 * cleaned of hostnames since they aren't part of serialization.
+	 * At least one of the entries must be a voting member (not a learner).
 	 * 
 	 * @param entries The entries in the config.
 	 * @return A new ClusterConfig instance.
@@ -39,7 +40,10 @@ public final class ClusterConfig {
 		for (int i = 0; i < entries.length; ++i) {
 			InetSocketAddress cluster = _cleanSocketAddress(entries[i].cluster);
 			InetSocketAddress client = _cleanSocketAddress(entries[i].client);
-			copy[i] = new ConfigEntry(entries[i].nodeUuid, cluster, client);
+			copy[i] = new ConfigEntry(entries[i].nodeUuid, cluster, client, entries[i].isLearner);
+		}
+		if (0 == _countVoters(copy)) {
+			throw _parseError();
 		}
 		return new ClusterConfig(copy);
 	}
@@ -96,14 +100,32 @@ public final class ClusterConfig {
 		for (int i = 0; i < entries.length; ++i) {
 			entries[i] = ConfigEntry.deserializeFrom(buffer);
 		}
+		if (0 == _countVoters(entries)) {
+			throw _parseError();
+		}
 		return new ClusterConfig(entries);
 	}
 
+	private static int _countVoters(ConfigEntry[] entries) {
+		int count = 0;
+		for (ConfigEntry entry : entries) {
+			if (!entry.isLearner) {
+				count += 1;
+			}
+		}
+		return count;
+	}
+
 
 	public final ConfigEntry[] entries;
+	/**
+	 * The number of entries which are voting members (not learners).  Only these nodes count toward consensus.
+	 */
+	public final int voterCount;
 
 	private ClusterConfig(ConfigEntry[] entries) {
 		this.entries = entries;
+		this.voterCount = _countVoters(entries);
 	}
 
 	/**
@@ -14,17 +14,25 @@ import com.jeffdisher.laminar.utils.Assert;
  * Note that the cluster-facing and client-facing sockets are defined independently.
  * While these instances normally appear as part of a whole ClusterConfig, there are situations where it makes sense to
  * reason about them or serialize/deserialize them, alone (where the node describes itself, for example).
+ * An entry can describe a "learner":  a node which receives full replication but doesn't count toward consensus and
+ * never votes or attempts to become leader.
  */
 public final class ConfigEntry {
 	public static final int IPV4_BYTE_SIZE = 4;
 	public static final int IPV6_BYTE_SIZE = 16;
 	public static final int MAX_PORT = (64 * 1024) - 1;
+	private static final byte ROLE_VOTER = 0;
+	private static final byte ROLE_LEARNER = 1;
 
 	public static ConfigEntry deserializeFrom(ByteBuffer buffer) {
 		UUID nodeUuid = new UUID(buffer.getLong(), buffer.getLong());
 		InetSocketAddress cluster = _readPair(buffer);
 		InetSocketAddress client = _readPair(buffer);
-		return new ConfigEntry(nodeUuid, cluster, client);
+		byte role = buffer.get();
+		if ((ROLE_VOTER != role) && (ROLE_LEARNER != role)) {
+			throw _parseError();
+		}
+		return new ConfigEntry(nodeUuid, cluster, client, (ROLE_LEARNER == role));
 	}
 
 
@@ -52,16 +60,38 @@ public final class ConfigEntry {
 	public final UUID nodeUuid;
 	public final InetSocketAddress cluster;
 	public final InetSocketAddress client;
+	public final boolean isLearner;
 	
+	/**
+	 * Creates an entry for a normal voting member of the cluster.
+	 * 
+	 * @param nodeUuid The UUID of the node.
+	 * @param cluster The cluster-facing socket of the node.
+	 * @param client The client-facing socket of the node.
+	 */
 	public ConfigEntry(UUID nodeUuid, InetSocketAddress cluster, InetSocketAddress client) {
+		this(nodeUuid, cluster, client, false);
+	}
+
+	/**
+	 * Creates an entry for a node which may be a learner (receives replication but never votes or counts toward
+	 * consensus).
+	 * 
+	 * @param nodeUuid The UUID of the node.
+	 * @param cluster The cluster-facing socket of the node.
+	 * @param client The client-facing socket of the node.
+	 * @param isLearner True if this node is a non-voting learner.
+	 */
+	public ConfigEntry(UUID nodeUuid, InetSocketAddress cluster, InetSocketAddress client, boolean isLearner) {
 		this.nodeUuid = nodeUuid;
 		this.cluster = cluster;
 		this.client = client;
+		this.isLearner = isLearner;
 	}
 
 	@Override
 	public String toString() {
-		return "(UUID: " + this.nodeUuid + ", Cluster: " + this.cluster.toString() + ", Client: " + this.client + ")";
+		return "(UUID: " + this.nodeUuid + ", Cluster: " + this.cluster.toString() + ", Client: " + this.client + (this.isLearner ? ", LEARNER" : "") + ")";
 	}
 
 	public int serializedSize() {
@@ -70,6 +100,8 @@ public final class ConfigEntry {
 		// The port is always a u16 but the IP can be 4 or 16 bytes, and each one has a byte to describe which.
 		bufferSize += Byte.BYTES + this.cluster.getAddress().getAddress().length + Short.BYTES;
 		bufferSize += Byte.BYTES + this.client.getAddress().getAddress().length + Short.BYTES;
+		// The role is a single byte.
+		bufferSize += Byte.BYTES;
 		return bufferSize;
 	}
 
@@ -78,6 +110,7 @@ public final class ConfigEntry {
 		buffer.putLong(this.nodeUuid.getLeastSignificantBits());
 		_writePair(buffer, this.cluster);
 		_writePair(buffer, this.client);
+		buffer.put(this.isLearner ? ROLE_LEARNER : ROLE_VOTER);
 	}
 
 
@@ -93,6 +93,25 @@ public final class TopicName {
 		;
 	}
 
+	/**
+	 * Finds which of partitionCount independent consensus groups owns this topic, when topics are spread across
+	 * several clusters.
+	 * Every client must agree on where a topic lives so this is a fixed hash of the name (32-bit FNV-1a over its ASCII
+	 * bytes), not hashCode().
+	 * 
+	 * @param partitionCount The number of consensus groups (must be at least 1).
+	 * @return The index of the group which owns this topic, in [0..partitionCount).
+	 */
+	public int getPartitionIndex(int partitionCount) {
+		Assert.assertTrue(partitionCount > 0);
+		int hash = 0x811c9dc5;
+		for (byte b : this.string.getBytes(StandardCharsets.US_ASCII)) {
+			hash ^= Byte.toUnsignedInt(b);
+			hash *= 0x01000193;
+		}
+		return Integer.remainderUnsigned(hash, partitionCount);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		boolean isEqual = false;
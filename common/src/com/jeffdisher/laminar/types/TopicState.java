@@ -0,0 +1,57 @@
+package com.jeffdisher.laminar.types;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * The committed state of a single topic, as observed by the cluster leader when answering a READ_TOPIC_STATE.
+ * Since this is read from the leader's executed state, and not written to the log, it describes the topic as of the
+ * lastCommitGlobalOffset of the response which carried it.
+ */
+public class TopicState {
+	public static TopicState create(boolean isActive, long lastEventLocalOffset) {
+		// Local offsets are 1-indexed so 0 means the topic has never had an event.
+		Assert.assertTrue(lastEventLocalOffset >= 0L);
+		return new TopicState(isActive, lastEventLocalOffset);
+	}
+
+	public static TopicState deserialize(ByteBuffer serialized) {
+		boolean isActive = (0 != serialized.get());
+		long lastEventLocalOffset = serialized.getLong();
+		return new TopicState(isActive, lastEventLocalOffset);
+	}
+
+
+	/**
+	 * True if the topic currently exists (was created and not since destroyed).
+	 */
+	public final boolean isActive;
+	/**
+	 * The local offset of the last committed event in the topic (0 if it has never had an event).  Note that this is
+	 * not reset when a topic is destroyed and recreated.
+	 */
+	public final long lastEventLocalOffset;
+
+	private TopicState(boolean isActive, long lastEventLocalOffset) {
+		this.isActive = isActive;
+		this.lastEventLocalOffset = lastEventLocalOffset;
+	}
+
+	public int serializedSize() {
+		return Byte.BYTES + Long.BYTES;
+	}
+
+	public void serializeInto(ByteBuffer buffer) {
+		buffer.put(this.isActive ? (byte)1 : (byte)0);
+		buffer.putLong(this.lastEventLocalOffset);
+	}
+
+	@Override
+	public String toString() {
+		return "(Active=" + this.isActive
+				+ ", LastEvent=" + this.lastEventLocalOffset
+				+ ")";
+	}
+}
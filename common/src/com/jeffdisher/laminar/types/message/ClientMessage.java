@@ -77,6 +77,18 @@ public class ClientMessage {
 		return new ClientMessage(ClientMessageType.FORCE_LEADER, -1L, ClientMessagePayload_Empty.create());
 	}
 
+	/**
+	 * Creates a message to ask the receiving node, which must be the leader, to transfer leadership to the node with
+	 * the given UUID.  This is used to move leadership off of a node before taking it down for maintenance.
+	 * Note that this message is sent on a fresh connection, not an established one (to avoid redirects).
+	 * 
+	 * @param targetNodeUuid The UUID of the node which should become leader (must be a voting member of the cluster).
+	 * @return A new ClientMessage instance.
+	 */
+	public static ClientMessage transferLeader(UUID targetNodeUuid) {
+		return new ClientMessage(ClientMessageType.TRANSFER_LEADER, -1L, ClientMessagePayload_TransferLeader.create(targetNodeUuid));
+	}
+
 	/**
 	 * Creates a message to retrieve the ConfigEntry of the contacted server.
 	 * This is only used in tools which wish to create a new cluster config.
@@ -165,6 +177,20 @@ public class ClientMessage {
 		return new ClientMessage(ClientMessageType.STUTTER, nonce, ClientMessagePayload_KeyPut.create(topic, key, value));
 	}
 
+	/**
+	 * Creates a batch message, which carries many PUT and DELETE operations for a single topic so that they are sent,
+	 * replicated, and committed as a single mutation.  Each operation still produces its own event, when committed.
+	 * 
+	 * @param nonce Per-client nonce.
+	 * @param topic The topic to which this message must be posted.
+	 * @param keys The key of each operation.
+	 * @param values The value of each PUT operation (null for a DELETE of the corresponding key).
+	 * @return A new ClientMessage instance.
+	 */
+	public static ClientMessage batch(long nonce, TopicName topic, byte[][] keys, byte[][] values) {
+		return new ClientMessage(ClientMessageType.BATCH, nonce, ClientMessagePayload_Batch.create(topic, keys, values));
+	}
+
 	/**
 	 * Creates a message to update the cluster config.  This message is different from most others in that it is never
 	 * written to a local topic and is only ever a global mutation.  This means that listeners will never see it through
@@ -181,6 +207,33 @@ public class ClientMessage {
 		return new ClientMessage(ClientMessageType.CONFIG_CHANGE, nonce, ClientMessagePayload_ConfigChange.create(config));
 	}
 
+	/**
+	 * Creates a read-only request for the committed state of a topic.  The leader answers this from its own state,
+	 * without writing anything to the log, so it has no mutation nonce.
+	 * 
+	 * @param readId Per-client identifier of the read (echoed in the response but independent of the nonce sequence).
+	 * @param topic The topic to read.
+	 * @return A new ClientMessage instance.
+	 */
+	public static ClientMessage readTopicState(long readId, TopicName topic) {
+		// Note that we overload the usual "nonce" field for the readId, since the messages are otherwise the same.
+		return new ClientMessage(ClientMessageType.READ_TOPIC_STATE, readId, ClientMessagePayload_ReadTopicState.create(topic));
+	}
+
+	/**
+	 * Creates a read-only request for the latest committed value of a key in a topic.  Like readTopicState(), this is
+	 * answered by the leader from its own state so it has no mutation nonce.
+	 * 
+	 * @param readId Per-client identifier of the read (echoed in the response but independent of the nonce sequence).
+	 * @param topic The topic to read.
+	 * @param key The key to look up.
+	 * @return A new ClientMessage instance.
+	 */
+	public static ClientMessage get(long readId, TopicName topic, byte[] key) {
+		// Note that we overload the usual "nonce" field for the readId, since the messages are otherwise the same.
+		return new ClientMessage(ClientMessageType.GET, readId, ClientMessagePayload_Get.create(topic, key));
+	}
+
 	/**
 	 * Creates a new message instance by deserializing it from a payload.
 	 * 
@@ -235,6 +288,18 @@ public class ClientMessage {
 		case CONFIG_CHANGE:
 			payload = ClientMessagePayload_ConfigChange.deserialize(buffer);
 			break;
+		case READ_TOPIC_STATE:
+			payload = ClientMessagePayload_ReadTopicState.deserialize(buffer);
+			break;
+		case TRANSFER_LEADER:
+			payload = ClientMessagePayload_TransferLeader.deserialize(buffer);
+			break;
+		case GET:
+			payload = ClientMessagePayload_Get.deserialize(buffer);
+			break;
+		case BATCH:
+			payload = ClientMessagePayload_Batch.deserialize(buffer);
+			break;
 		default:
 			throw Assert.unreachable("Unmatched deserialization type");
 		}
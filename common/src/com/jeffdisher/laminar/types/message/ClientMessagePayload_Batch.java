@@ -0,0 +1,72 @@
+package com.jeffdisher.laminar.types.message;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.utils.MiscHelpers;
+
+
+/**
+ * The BATCH message encodes a sequence of PUT and DELETE operations on a single topic.  They are passed as parallel
+ * arrays of keys and values, where a null value is a DELETE of the key (so each operation starts with a byte saying
+ * whether it is a PUT, and has a value).
+ */
+public class ClientMessagePayload_Batch implements IClientMessagePayload {
+	public static ClientMessagePayload_Batch create(TopicName topic, byte[][] keys, byte[][] values) {
+		return new ClientMessagePayload_Batch(topic, keys, values);
+	}
+
+	public static ClientMessagePayload_Batch deserialize(ByteBuffer serialized) {
+		TopicName topic = TopicName.deserializeFrom(serialized);
+		int count = Short.toUnsignedInt(serialized.getShort());
+		byte[][] keys = new byte[count][];
+		byte[][] values = new byte[count][];
+		for (int i = 0; i < count; ++i) {
+			boolean isPut = (0 != serialized.get());
+			keys[i] = MiscHelpers.readSizedBytes(serialized);
+			values[i] = isPut
+					? MiscHelpers.readSizedBytes(serialized)
+					: null;
+		}
+		return new ClientMessagePayload_Batch(topic, keys, values);
+	}
+
+
+	public final TopicName topic;
+	public final byte[][] keys;
+	public final byte[][] values;
+	
+	private ClientMessagePayload_Batch(TopicName topic, byte[][] keys, byte[][] values) {
+		this.topic = topic;
+		this.keys = keys;
+		this.values = values;
+	}
+
+	@Override
+	public int serializedSize() {
+		int size = this.topic.serializedSize() + Short.BYTES;
+		for (int i = 0; i < this.keys.length; ++i) {
+			size += Byte.BYTES + Short.BYTES + this.keys[i].length;
+			if (null != this.values[i]) {
+				size += Short.BYTES + this.values[i].length;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		this.topic.serializeInto(buffer);
+		buffer.putShort((short)this.keys.length);
+		for (int i = 0; i < this.keys.length; ++i) {
+			if (null != this.values[i]) {
+				buffer.put((byte)1);
+				MiscHelpers.writeSizedBytes(buffer, this.keys[i]);
+				MiscHelpers.writeSizedBytes(buffer, this.values[i]);
+			} else {
+				buffer.put((byte)0);
+				MiscHelpers.writeSizedBytes(buffer, this.keys[i]);
+			}
+		}
+	}
+}
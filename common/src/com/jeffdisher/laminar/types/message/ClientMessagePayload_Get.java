@@ -0,0 +1,45 @@
+package com.jeffdisher.laminar.types.message;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.utils.MiscHelpers;
+
+
+/**
+ * A payload for GET messages which pass the TopicName and the key to read, as byte[].
+ */
+public class ClientMessagePayload_Get implements IClientMessagePayload {
+	public static ClientMessagePayload_Get create(TopicName topic, byte[] key) {
+		return new ClientMessagePayload_Get(topic, key);
+	}
+
+	public static ClientMessagePayload_Get deserialize(ByteBuffer serialized) {
+		TopicName topic = TopicName.deserializeFrom(serialized);
+		byte[] key = MiscHelpers.readSizedBytes(serialized);
+		return new ClientMessagePayload_Get(topic, key);
+	}
+
+
+	public final TopicName topic;
+	public final byte[] key;
+	
+	private ClientMessagePayload_Get(TopicName topic, byte[] key) {
+		this.topic = topic;
+		this.key = key;
+	}
+
+	@Override
+	public int serializedSize() {
+		return this.topic.serializedSize()
+				+ Short.BYTES
+				+ this.key.length
+		;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		this.topic.serializeInto(buffer);
+		MiscHelpers.writeSizedBytes(buffer, this.key);
+	}
+}
@@ -0,0 +1,37 @@
+package com.jeffdisher.laminar.types.message;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.types.TopicName;
+
+
+/**
+ * A payload for READ_TOPIC_STATE messages which pass TopicName, only.
+ */
+public class ClientMessagePayload_ReadTopicState implements IClientMessagePayload {
+	public static ClientMessagePayload_ReadTopicState create(TopicName topic) {
+		return new ClientMessagePayload_ReadTopicState(topic);
+	}
+
+	public static ClientMessagePayload_ReadTopicState deserialize(ByteBuffer serialized) {
+		TopicName topic = TopicName.deserializeFrom(serialized);
+		return new ClientMessagePayload_ReadTopicState(topic);
+	}
+
+
+	public final TopicName topic;
+
+	private ClientMessagePayload_ReadTopicState(TopicName topic) {
+		this.topic = topic;
+	}
+
+	@Override
+	public int serializedSize() {
+		return this.topic.serializedSize();
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		this.topic.serializeInto(buffer);
+	}
+}
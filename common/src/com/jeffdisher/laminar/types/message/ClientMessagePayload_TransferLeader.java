@@ -0,0 +1,40 @@
+package com.jeffdisher.laminar.types.message;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+
+/**
+ * A payload for TRANSFER_LEADER messages which pass the UUID of the node which should become leader, only.
+ */
+public class ClientMessagePayload_TransferLeader implements IClientMessagePayload {
+	public static ClientMessagePayload_TransferLeader create(UUID targetNodeUuid) {
+		return new ClientMessagePayload_TransferLeader(targetNodeUuid);
+	}
+
+	public static ClientMessagePayload_TransferLeader deserialize(ByteBuffer serialized) {
+		long high = serialized.getLong();
+		long low = serialized.getLong();
+		return new ClientMessagePayload_TransferLeader(new UUID(high, low));
+	}
+
+
+	public final UUID targetNodeUuid;
+
+	private ClientMessagePayload_TransferLeader(UUID targetNodeUuid) {
+		this.targetNodeUuid = targetNodeUuid;
+	}
+
+	@Override
+	public int serializedSize() {
+		return 2 * Long.BYTES;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		buffer
+			.putLong(this.targetNodeUuid.getMostSignificantBits())
+			.putLong(this.targetNodeUuid.getLeastSignificantBits())
+			;
+	}
+}
@@ -67,4 +67,28 @@ public enum ClientMessageType {
 	 * the cluster is slower than when running the old or new config).
 	 */
 	CONFIG_CHANGE,
+	/**
+	 * A read-only request for the committed state of a topic.  This is never written to the log:  the leader answers it
+	 * directly from its executed state while it holds a lease from the cluster.  The nonce field carries a client-chosen
+	 * read identifier, not a mutation nonce, so it doesn't consume the client's nonce sequence.
+	 */
+	READ_TOPIC_STATE,
+	/**
+	 * Asks the receiving node, which must be the cluster LEADER, to hand leadership to the node named in the payload.
+	 * The leader stops accepting new client messages, brings the target fully up-to-date, and then tells it to start an
+	 * election immediately, so the cluster fails over in one round-trip instead of waiting for an election timeout.
+	 * Like FORCE_LEADER, this is sent on a fresh connection and the caller is disconnected.
+	 */
+	TRANSFER_LEADER,
+	/**
+	 * A read-only request for the latest committed value of a single key in a topic.  Like READ_TOPIC_STATE, this is
+	 * never written to the log but answered by the leader from its materialized view of the topic, while it holds a
+	 * lease, and the nonce field carries a client-chosen read identifier.
+	 */
+	GET,
+	/**
+	 * A sequence of PUT and DELETE operations on a single topic, converted into a single BATCH mutation.  The
+	 * operations are applied together, in order, and produce one event each (with consecutive local offsets).
+	 */
+	BATCH,
 }
@@ -3,9 +3,11 @@ package com.jeffdisher.laminar.types.mutation;
 import java.nio.ByteBuffer;
 import java.util.UUID;
 
+import com.jeffdisher.laminar.components.NetworkManager;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.payload.IPayload;
+import com.jeffdisher.laminar.types.payload.Payload_Batch;
 import com.jeffdisher.laminar.types.payload.Payload_ConfigChange;
 import com.jeffdisher.laminar.types.payload.Payload_TopicCreate;
 import com.jeffdisher.laminar.types.payload.Payload_KeyDelete;
@@ -32,6 +34,17 @@ import com.jeffdisher.laminar.utils.Assert;
  * serialization/deserialization logic.
  */
 public class MutationRecord {
+	/**
+	 * The bytes an APPEND_MUTATIONS message adds around the records it carries:  its message type, the term numbers,
+	 * the record count, the commit offset, the send time, and the election timeout.
+	 */
+	public static final int APPEND_MUTATIONS_OVERHEAD_BYTES = Byte.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES + Long.BYTES + Long.BYTES + Long.BYTES;
+	/**
+	 * The largest serialized mutation which can be replicated, since each must fit in an APPEND_MUTATIONS message (on
+	 * its own) and that must fit in a single network message.
+	 */
+	public static final int MAX_REPLICATED_SERIALIZED_BYTES = NetworkManager.MESSAGE_PAYLOAD_MAXIMUM_BYTES - APPEND_MUTATIONS_OVERHEAD_BYTES;
+
 	public static MutationRecord createTopic(long termNumber, long globalOffset, TopicName topic, UUID clientId, long clientNonce, byte[] code, byte[] arguments) {
 		// The offsets must be positive.
 		Assert.assertTrue(termNumber > 0L);
@@ -101,6 +114,31 @@ public class MutationRecord {
 		return new MutationRecord(MutationRecordType.STUTTER, termNumber, globalOffset, topic, clientId, clientNonce, Payload_KeyPut.create(key, value));
 	}
 
+	public static MutationRecord batch(long termNumber, long globalOffset, TopicName topic, UUID clientId, long clientNonce, byte[][] keys, byte[][] values) {
+		// The offsets must be positive.
+		Assert.assertTrue(termNumber > 0L);
+		Assert.assertTrue(globalOffset > 0L);
+		Assert.assertTrue(null != topic);
+		Assert.assertTrue(null != clientId);
+		Assert.assertTrue(clientNonce >= 0L);
+		Assert.assertTrue(null != keys);
+		Assert.assertTrue(null != values);
+		// Each key has a value (null for a DELETE).
+		Assert.assertTrue(keys.length == values.length);
+		return new MutationRecord(MutationRecordType.BATCH, termNumber, globalOffset, topic, clientId, clientNonce, Payload_Batch.create(keys, values));
+	}
+
+	public static MutationRecord rejected(long termNumber, long globalOffset, UUID clientId, long clientNonce) {
+		// The offsets must be positive.
+		Assert.assertTrue(termNumber > 0L);
+		Assert.assertTrue(globalOffset > 0L);
+		Assert.assertTrue(null != clientId);
+		Assert.assertTrue(clientNonce >= 0L);
+		// REJECTED is not posted to a topic.
+		TopicName topic = TopicName.syntheticTopic();
+		return new MutationRecord(MutationRecordType.REJECTED, termNumber, globalOffset, topic, clientId, clientNonce, Payload_Empty.create());
+	}
+
 	public static MutationRecord deserialize(byte[] serialized) {
 		ByteBuffer wrapper = ByteBuffer.wrap(serialized);
 		return _deserializeFrom(wrapper);
@@ -144,6 +182,12 @@ public class MutationRecord {
 		case STUTTER:
 			payload = Payload_KeyPut.deserialize(buffer);
 			break;
+		case BATCH:
+			payload = Payload_Batch.deserialize(buffer);
+			break;
+		case REJECTED:
+			payload = Payload_Empty.deserialize(buffer);
+			break;
 		default:
 			throw Assert.unreachable("Unmatched deserialization type");
 		}
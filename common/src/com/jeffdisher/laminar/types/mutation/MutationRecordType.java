@@ -33,4 +33,14 @@ public enum MutationRecordType {
 	 * The payload for this is the same as PUT.  The unique thing about this is that executing it creates 2 PUT events.
 	 */
 	STUTTER,
+	/**
+	 * Encodes a sequence of key PUT (key and value) and DELETE (key only) operations on one topic.  Executing it applies
+	 * them all, in order, creating one PUT or DELETE event for each, or none of them (if it fails).
+	 */
+	BATCH,
+	/**
+	 * Replaces a client message whose mutation would be too large to replicate.  It has no payload and isn't posted to
+	 * a topic.  Executing it always generates an INVALID effect (and no events).
+	 */
+	REJECTED,
 }
@@ -0,0 +1,71 @@
+package com.jeffdisher.laminar.types.payload;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.utils.MiscHelpers;
+
+
+/**
+ * Contains:
+ * -count (short)
+ * -for each operation:
+ *  -isPut (byte)
+ *  -key (byte[])
+ *  -value (byte[]) - only present for a PUT
+ * The operations are kept as parallel arrays of keys and values, where a null value is a DELETE of the key.
+ */
+public class Payload_Batch implements IPayload {
+	public static Payload_Batch create(byte[][] keys, byte[][] values) {
+		return new Payload_Batch(keys, values);
+	}
+
+	public static Payload_Batch deserialize(ByteBuffer serialized) {
+		int count = Short.toUnsignedInt(serialized.getShort());
+		byte[][] keys = new byte[count][];
+		byte[][] values = new byte[count][];
+		for (int i = 0; i < count; ++i) {
+			boolean isPut = (0 != serialized.get());
+			keys[i] = MiscHelpers.readSizedBytes(serialized);
+			values[i] = isPut
+					? MiscHelpers.readSizedBytes(serialized)
+					: null;
+		}
+		return new Payload_Batch(keys, values);
+	}
+
+
+	public final byte[][] keys;
+	public final byte[][] values;
+	
+	private Payload_Batch(byte[][] keys, byte[][] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	@Override
+	public int serializedSize() {
+		int size = Short.BYTES;
+		for (int i = 0; i < this.keys.length; ++i) {
+			size += Byte.BYTES + Short.BYTES + this.keys[i].length;
+			if (null != this.values[i]) {
+				size += Short.BYTES + this.values[i].length;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		buffer.putShort((short)this.keys.length);
+		for (int i = 0; i < this.keys.length; ++i) {
+			if (null != this.values[i]) {
+				buffer.put((byte)1);
+				MiscHelpers.writeSizedBytes(buffer, this.keys[i]);
+				MiscHelpers.writeSizedBytes(buffer, this.values[i]);
+			} else {
+				buffer.put((byte)0);
+				MiscHelpers.writeSizedBytes(buffer, this.keys[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.jeffdisher.laminar.types.program;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Assembles the code for a programmable topic (see ProgramOpcode for what the instructions do).
+ * Forward jumps are emitted before their target is known so jump() returns a handle which is later passed to
+ * setJumpTarget(), once the code for the target is reached.
+ */
+public class ProgramBuilder {
+	/**
+	 * The value LOAD_TYPE pushes when the program is run for a PUT.
+	 */
+	public static final long TYPE_PUT = 1L;
+	/**
+	 * The value LOAD_TYPE pushes when the program is run for a DELETE.
+	 */
+	public static final long TYPE_DELETE = 2L;
+	/**
+	 * The largest code (and so the largest jump target) a program can have.
+	 */
+	public static final int MAX_CODE_BYTES = 0xFFFF;
+
+	private byte[] _code;
+	private int _size;
+
+	public ProgramBuilder() {
+		_code = new byte[64];
+		_size = 0;
+	}
+
+	/**
+	 * Adds an instruction which has no immediate operand.
+	 * 
+	 * @param opcode The instruction.
+	 * @return The receiver.
+	 */
+	public ProgramBuilder op(ProgramOpcode opcode) {
+		if (0 != opcode.immediateBytes) {
+			throw new IllegalArgumentException("Instruction requires an operand: " + opcode);
+		}
+		_append((byte)opcode.ordinal());
+		return this;
+	}
+
+	/**
+	 * Adds a PUSH_BYTES of the given constant.
+	 * 
+	 * @param value The bytes to push.
+	 * @return The receiver.
+	 */
+	public ProgramBuilder pushBytes(byte[] value) {
+		if (value.length > 0xFFFF) {
+			throw new IllegalArgumentException("Constant too large");
+		}
+		_append((byte)ProgramOpcode.PUSH_BYTES.ordinal());
+		_append(ByteBuffer.allocate(Short.BYTES).putShort((short)value.length).array());
+		_append(value);
+		return this;
+	}
+
+	/**
+	 * Adds a PUSH_LONG of the given constant.
+	 * 
+	 * @param value The number to push.
+	 * @return The receiver.
+	 */
+	public ProgramBuilder pushLong(long value) {
+		_append((byte)ProgramOpcode.PUSH_LONG.ordinal());
+		_append(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+		return this;
+	}
+
+	/**
+	 * Adds a jump instruction whose target will be set later, with setJumpTarget().
+	 * 
+	 * @param opcode JUMP or JUMP_IF_ZERO.
+	 * @return The handle to pass to setJumpTarget().
+	 */
+	public int jump(ProgramOpcode opcode) {
+		return _jump(opcode, 0);
+	}
+
+	/**
+	 * Adds a jump instruction to a target which is already known (a backward jump).
+	 * 
+	 * @param opcode JUMP or JUMP_IF_ZERO.
+	 * @param target The code offset to jump to (typically a previous value of position()).
+	 * @return The receiver.
+	 */
+	public ProgramBuilder jumpTo(ProgramOpcode opcode, int target) {
+		_jump(opcode, target);
+		return this;
+	}
+
+	/**
+	 * Sets the target of a jump added by jump() to the current position.
+	 * 
+	 * @param handle The handle returned by jump().
+	 * @return The receiver.
+	 */
+	public ProgramBuilder setJumpTarget(int handle) {
+		ByteBuffer.wrap(_code, handle, Short.BYTES).putShort((short)_size);
+		return this;
+	}
+
+	/**
+	 * @return The code offset where the next instruction will be added.
+	 */
+	public int position() {
+		return _size;
+	}
+
+	/**
+	 * @return The assembled code.
+	 */
+	public byte[] build() {
+		if (_size > MAX_CODE_BYTES) {
+			throw new IllegalStateException("Program too large");
+		}
+		return Arrays.copyOf(_code, _size);
+	}
+
+
+	private int _jump(ProgramOpcode opcode, int target) {
+		if ((ProgramOpcode.JUMP != opcode) && (ProgramOpcode.JUMP_IF_ZERO != opcode)) {
+			throw new IllegalArgumentException("Not a jump: " + opcode);
+		}
+		_append((byte)opcode.ordinal());
+		int handle = _size;
+		_append(ByteBuffer.allocate(Short.BYTES).putShort((short)target).array());
+		return handle;
+	}
+
+	private void _append(byte value) {
+		_ensureCapacity(1);
+		_code[_size] = value;
+		_size += 1;
+	}
+
+	private void _append(byte[] values) {
+		_ensureCapacity(values.length);
+		System.arraycopy(values, 0, _code, _size, values.length);
+		_size += values.length;
+	}
+
+	private void _ensureCapacity(int extra) {
+		if ((_size + extra) > _code.length) {
+			_code = Arrays.copyOf(_code, Math.max(2 * _code.length, _size + extra));
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.jeffdisher.laminar.types.program;
+
+
+/**
+ * The instructions of the code run by programmable topics.  The code is a sequence of these, each encoded as its ordinal
+ * in a single byte, followed by its immediate operand (if it has one).
+ * Programs run on a stack of byte[] values.  Instructions which operate on numbers interpret a value as a big-endian
+ * long, which must be 8 bytes (or empty, which is read as 0) and they push their results as 8-byte values.  All
+ * arithmetic wraps, so every node computes the same result.
+ * A program is run for each PUT or DELETE sent to its topic and produces its events by "emitting" PUT and DELETE
+ * instructions.  It can read the current value of any key in its topic (including those emitted earlier in the same
+ * run).  If a program faults (fails a type or stack check, exceeds its budget, or runs FAIL), the mutation is an
+ * ERROR, with no events and no change to the topic.
+ */
+public enum ProgramOpcode {
+	/**
+	 * 0 is common in invalid data so it is reserved as the invalid instruction.
+	 */
+	INVALID(0),
+	/**
+	 * Ends the program, successfully (also the result of running past the end of the code).
+	 */
+	STOP(0),
+	/**
+	 * Ends the program with a fault, so the mutation is an ERROR (used to reject mutations).
+	 */
+	FAIL(0),
+	/**
+	 * Pushes a constant byte[].  The immediate is a 2-byte length followed by the bytes.
+	 */
+	PUSH_BYTES(-1),
+	/**
+	 * Pushes a constant long.  The immediate is the 8-byte value.
+	 */
+	PUSH_LONG(Long.BYTES),
+	/**
+	 * Pushes the key of the mutation.
+	 */
+	LOAD_KEY(0),
+	/**
+	 * Pushes the value of the mutation (empty, for a DELETE).
+	 */
+	LOAD_VALUE(0),
+	/**
+	 * Pushes the type of the mutation:  ProgramBuilder.TYPE_PUT or ProgramBuilder.TYPE_DELETE.
+	 */
+	LOAD_TYPE(0),
+	/**
+	 * Pushes the arguments the topic was created with.
+	 */
+	LOAD_ARGUMENTS(0),
+	/**
+	 * Pushes a copy of the top value.
+	 */
+	DUP(0),
+	/**
+	 * Discards the top value.
+	 */
+	POP(0),
+	/**
+	 * Swaps the top 2 values.
+	 */
+	SWAP(0),
+	/**
+	 * Pops a key and pushes its current value in the topic (empty, if it has none).
+	 */
+	GET(0),
+	/**
+	 * Pops a value and then a key and emits a PUT event setting the key to the value.
+	 */
+	EMIT_PUT(0),
+	/**
+	 * Pops a key and emits a DELETE event for it.
+	 */
+	EMIT_DELETE(0),
+	/**
+	 * Pops b and then a and pushes a + b.
+	 */
+	ADD(0),
+	/**
+	 * Pops b and then a and pushes a - b.
+	 */
+	SUBTRACT(0),
+	/**
+	 * Pops b and then a and pushes 1 if a < b, 0 otherwise.
+	 */
+	LESS_THAN(0),
+	/**
+	 * Pops 2 values and pushes 1 if they contain the same bytes, 0 otherwise.
+	 */
+	EQUALS(0),
+	/**
+	 * Pops a value and pushes its length.
+	 */
+	LENGTH(0),
+	/**
+	 * Pops b and then a and pushes the bytes of a followed by those of b.
+	 */
+	CONCAT(0),
+	/**
+	 * Continues at the code offset in the 2-byte immediate.
+	 */
+	JUMP(Short.BYTES),
+	/**
+	 * Pops a number and continues at the code offset in the 2-byte immediate if it is 0 (otherwise, continues with the
+	 * next instruction).
+	 */
+	JUMP_IF_ZERO(Short.BYTES),
+	;
+
+	/**
+	 * The number of bytes of the immediate operand which follows the instruction (-1 for PUSH_BYTES, where it is sized).
+	 */
+	public final int immediateBytes;
+
+	private ProgramOpcode(int immediateBytes) {
+		this.immediateBytes = immediateBytes;
+	}
+}
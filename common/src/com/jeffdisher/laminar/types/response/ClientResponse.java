@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.utils.Assert;
 
 
@@ -93,6 +94,34 @@ public class ClientResponse {
 		return new ClientResponse(ClientResponseType.REDIRECT, -1L, lastCommittedMutationOffset, ClientResponsePayload_ConfigEntry.create(clusterLeader));
 	}
 
+	/**
+	 * Creates a "topic state" response.
+	 * This is the answer to a READ_TOPIC_STATE message, sent by the leader without writing anything to the log.
+	 * 
+	 * @param readId The per-client read identifier from the READ_TOPIC_STATE message.
+	 * @param lastCommitGlobalOffset The most recent global message offset which was committed on the server (the state
+	 * describes the topic as of this offset).
+	 * @param state The committed state of the topic.
+	 * @return A new ClientResponse instance.
+	 */
+	public static ClientResponse topicState(long readId, long lastCommitGlobalOffset, TopicState state) {
+		return new ClientResponse(ClientResponseType.TOPIC_STATE, readId, lastCommitGlobalOffset, ClientResponsePayload_TopicState.create(state));
+	}
+
+	/**
+	 * Creates a "value" response.
+	 * This is the answer to a GET message, sent by the leader without writing anything to the log.
+	 * 
+	 * @param readId The per-client read identifier from the GET message.
+	 * @param lastCommitGlobalOffset The most recent global message offset which was committed on the server (the value
+	 * is the one the key had as of this offset).
+	 * @param value The value of the key (null if the key has no value).
+	 * @return A new ClientResponse instance.
+	 */
+	public static ClientResponse value(long readId, long lastCommitGlobalOffset, byte[] value) {
+		return new ClientResponse(ClientResponseType.VALUE, readId, lastCommitGlobalOffset, ClientResponsePayload_Value.create(value));
+	}
+
 	/**
 	 * Creates a new response instance by deserializing it from a payload.
 	 * 
@@ -127,6 +156,12 @@ public class ClientResponse {
 		case REDIRECT:
 			payload = ClientResponsePayload_ConfigEntry.deserialize(wrapper);
 			break;
+		case TOPIC_STATE:
+			payload = ClientResponsePayload_TopicState.deserialize(wrapper);
+			break;
+		case VALUE:
+			payload = ClientResponsePayload_Value.deserialize(wrapper);
+			break;
 		default:
 			throw Assert.unreachable("Unmatched deserialization type");
 		}
@@ -0,0 +1,37 @@
+package com.jeffdisher.laminar.types.response;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.types.TopicState;
+
+
+/**
+ * Used for the TOPIC_STATE ClientResponse, since it carries the state of the topic the client asked to read.
+ */
+public class ClientResponsePayload_TopicState implements IClientResponsePayload {
+	public static ClientResponsePayload_TopicState create(TopicState state) {
+		return new ClientResponsePayload_TopicState(state);
+	}
+
+	public static ClientResponsePayload_TopicState deserialize(ByteBuffer serialized) {
+		TopicState state = TopicState.deserialize(serialized);
+		return new ClientResponsePayload_TopicState(state);
+	}
+
+
+	public final TopicState state;
+
+	private ClientResponsePayload_TopicState(TopicState state) {
+		this.state = state;
+	}
+
+	@Override
+	public int serializedSize() {
+		return this.state.serializedSize();
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		this.state.serializeInto(buffer);
+	}
+}
@@ -0,0 +1,50 @@
+package com.jeffdisher.laminar.types.response;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.utils.MiscHelpers;
+
+
+/**
+ * Used for the VALUE ClientResponse, since it carries the value of the key the client asked to read.
+ * The value can be null (the key has no value) so it is preceded by a byte saying whether it is present.
+ */
+public class ClientResponsePayload_Value implements IClientResponsePayload {
+	public static ClientResponsePayload_Value create(byte[] value) {
+		return new ClientResponsePayload_Value(value);
+	}
+
+	public static ClientResponsePayload_Value deserialize(ByteBuffer serialized) {
+		boolean isPresent = (0 != serialized.get());
+		byte[] value = isPresent
+				? MiscHelpers.readSizedBytes(serialized)
+				: null;
+		return new ClientResponsePayload_Value(value);
+	}
+
+
+	public final byte[] value;
+
+	private ClientResponsePayload_Value(byte[] value) {
+		this.value = value;
+	}
+
+	@Override
+	public int serializedSize() {
+		return Byte.BYTES
+				+ ((null != this.value)
+						? (Short.BYTES + this.value.length)
+						: 0)
+		;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		if (null != this.value) {
+			buffer.put((byte)1);
+			MiscHelpers.writeSizedBytes(buffer, this.value);
+		} else {
+			buffer.put((byte)0);
+		}
+	}
+}
@@ -38,4 +38,14 @@ public enum ClientResponseType {
 	 * serialized ConfigEntry of the cluster leader.
 	 */
 	REDIRECT,
+	/**
+	 * The answer to a READ_TOPIC_STATE.  The nonce is the read identifier the client sent and the payload is the state of
+	 * the topic as of the lastCommitGlobalOffset.
+	 */
+	TOPIC_STATE,
+	/**
+	 * The answer to a GET.  The nonce is the read identifier the client sent and the payload is the value of the key
+	 * (or nothing, if the key has no value) as of the lastCommitGlobalOffset.
+	 */
+	VALUE,
 }
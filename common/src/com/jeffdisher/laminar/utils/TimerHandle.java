@@ -0,0 +1,25 @@
+package com.jeffdisher.laminar.utils;
+
+
+/**
+ * Returned when a command is scheduled to run after a delay, so that the caller can cancel it if it is no longer
+ * needed (a cancelled command is just dropped, without running, when its time comes).
+ * Cancelling is safe from any thread and cancelling a command which has already run has no effect.
+ */
+public class TimerHandle {
+	private volatile boolean _isCancelled;
+
+	/**
+	 * Prevents the scheduled command from running, if it hasn't already.
+	 */
+	public void cancel() {
+		_isCancelled = true;
+	}
+
+	/**
+	 * @return True if cancel() has been called.
+	 */
+	public boolean isCancelled() {
+		return _isCancelled;
+	}
+}
@@ -0,0 +1,200 @@
+package com.jeffdisher.laminar.utils;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * A hashed timer wheel:  each scheduled value is placed in the slot for the tick where it expires (modulo the number of
+ * slots) so scheduling and cancelling are constant time, no matter how many timers are pending.  Values which expire
+ * more than one revolution in the future just stay in their slot until the wheel has come around to their tick.
+ * Values are never returned before their deadline but may be returned up to one tick late.
+ * Note that this is NOT thread-safe:  it is only used by the consumer thread of the UninterruptibleQueue (although the
+ * TimerHandles can be cancelled from anywhere).
+ * 
+ * @param <V> The type of value scheduled.
+ */
+class TimerWheel<V> {
+	private final long _tickMillis;
+	// Each slot is a singly-linked list, in scheduling order, so we also track its tail for constant-time appends.
+	private final Entry<V>[] _slots;
+	private final Entry<V>[] _slotTails;
+	private final int _mask;
+	// The last tick we have processed (everything expiring on or before this tick has been moved to _expired).
+	private long _currentTick;
+	private int _pendingCount;
+	// The earliest deadline tick of the values in the slots, only valid while _isNextDeadlineKnown (it becomes unknown
+	// when a value with that deadline leaves the slots and is then found by scanning, only when it is next needed).
+	private long _nextDeadlineTick;
+	private boolean _isNextDeadlineKnown;
+	private final ArrayDeque<Entry<V>> _expired;
+
+	/**
+	 * Creates a new, empty, wheel.
+	 * 
+	 * @param slotCount The number of slots in the wheel (must be a power of 2).
+	 * @param tickMillis The number of milliseconds covered by each slot.
+	 * @param nowMillis The current time.
+	 */
+	@SuppressWarnings("unchecked")
+	public TimerWheel(int slotCount, long tickMillis, long nowMillis) {
+		Assert.assertTrue((slotCount > 0) && (0 == (slotCount & (slotCount - 1))));
+		Assert.assertTrue(tickMillis > 0L);
+		_tickMillis = tickMillis;
+		_slots = (Entry<V>[]) new Entry[slotCount];
+		_slotTails = (Entry<V>[]) new Entry[slotCount];
+		_mask = slotCount - 1;
+		_currentTick = nowMillis / tickMillis;
+		_pendingCount = 0;
+		_nextDeadlineTick = 0L;
+		_isNextDeadlineKnown = false;
+		_expired = new ArrayDeque<>();
+	}
+
+	/**
+	 * Schedules a value to be returned by pollExpired() once the given time has been reached.
+	 * 
+	 * @param value The value to schedule.
+	 * @param deadlineMillis The time when the value expires.
+	 * @param handle The handle which can be used to cancel the value.
+	 * @param nowMillis The current time (if the deadline has already passed, the value is immediately expired).
+	 */
+	public void schedule(V value, long deadlineMillis, TimerHandle handle, long nowMillis) {
+		// We round up so that we never return a value before its deadline.
+		long deadlineTick = (deadlineMillis + _tickMillis - 1) / _tickMillis;
+		Entry<V> entry = new Entry<>(value, deadlineTick, handle);
+		if ((deadlineMillis <= nowMillis) || (deadlineTick <= _currentTick)) {
+			_expired.addLast(entry);
+		} else {
+			int index = (int)(deadlineTick & _mask);
+			if (null == _slots[index]) {
+				_slots[index] = entry;
+			} else {
+				_slotTails[index].next = entry;
+			}
+			_slotTails[index] = entry;
+			// If this is the only value or we know the earliest deadline, this may now be the earliest.
+			if (0 == _pendingCount) {
+				_nextDeadlineTick = deadlineTick;
+				_isNextDeadlineKnown = true;
+			} else if (_isNextDeadlineKnown) {
+				_nextDeadlineTick = Math.min(_nextDeadlineTick, deadlineTick);
+			}
+			_pendingCount += 1;
+		}
+	}
+
+	/**
+	 * @return True if there are no values scheduled (cancelled values may still be counted until their time passes).
+	 */
+	public boolean isEmpty() {
+		return (0 == _pendingCount) && _expired.isEmpty();
+	}
+
+	/**
+	 * Advances the wheel to the given time and returns the next value which has expired and wasn't cancelled.
+	 * 
+	 * @param nowMillis The current time.
+	 * @return The next expired value or null if there are none.
+	 */
+	public V pollExpired(long nowMillis) {
+		_advanceTo(nowMillis / _tickMillis);
+		V result = null;
+		while ((null == result) && !_expired.isEmpty()) {
+			Entry<V> entry = _expired.removeFirst();
+			if (!entry.handle.isCancelled()) {
+				result = entry.value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds how long the caller can wait before the next value could expire.  This must be called after
+	 * pollExpired(), with the same time, since it assumes that the wheel has been advanced.
+	 * This is constant time unless the value with the earliest deadline has left the wheel since the last call, in
+	 * which case the slots are scanned to find the new earliest deadline.
+	 * 
+	 * @param nowMillis The current time.
+	 * @return The number of milliseconds until the next value expires (at least 1), or 0 if nothing is scheduled.
+	 */
+	public long millisUntilNextExpiry(long nowMillis) {
+		long delay = 0L;
+		if (_pendingCount > 0) {
+			if (!_isNextDeadlineKnown) {
+				_nextDeadlineTick = _findEarliestDeadlineTick();
+				_isNextDeadlineKnown = true;
+			}
+			// (a cancelled value may still hold the earliest deadline but it is cheap to wake up and re-check).
+			delay = Math.max(1L, (_nextDeadlineTick * _tickMillis) - nowMillis);
+		}
+		return delay;
+	}
+
+
+	private void _advanceTo(long nowTick) {
+		if (0 == _pendingCount) {
+			// Nothing to find so just jump ahead.
+			_currentTick = Math.max(_currentTick, nowTick);
+		} else {
+			// We only need to visit each slot once, even if we were idle for more than one revolution.
+			long lastTickToVisit = Math.min(nowTick, _currentTick + _slots.length);
+			for (long tick = _currentTick + 1; (_pendingCount > 0) && (tick <= lastTickToVisit); ++tick) {
+				_expireSlot((int)(tick & _mask), nowTick);
+			}
+			_currentTick = Math.max(_currentTick, nowTick);
+		}
+	}
+
+	private void _expireSlot(int index, long nowTick) {
+		Entry<V> previous = null;
+		Entry<V> entry = _slots[index];
+		while (null != entry) {
+			Entry<V> next = entry.next;
+			if (entry.handle.isCancelled() || (entry.deadlineTick <= nowTick)) {
+				// Unlink it.
+				if (null == previous) {
+					_slots[index] = next;
+				} else {
+					previous.next = next;
+				}
+				if (null == next) {
+					_slotTails[index] = previous;
+				}
+				entry.next = null;
+				_pendingCount -= 1;
+				if (entry.deadlineTick == _nextDeadlineTick) {
+					_isNextDeadlineKnown = false;
+				}
+				if (!entry.handle.isCancelled()) {
+					_expired.addLast(entry);
+				}
+			} else {
+				previous = entry;
+			}
+			entry = next;
+		}
+	}
+
+	private long _findEarliestDeadlineTick() {
+		long earliest = Long.MAX_VALUE;
+		for (Entry<V> head : _slots) {
+			for (Entry<V> entry = head; null != entry; entry = entry.next) {
+				earliest = Math.min(earliest, entry.deadlineTick);
+			}
+		}
+		return earliest;
+	}
+
+
+	private static class Entry<V> {
+		public final V value;
+		public final long deadlineTick;
+		public final TimerHandle handle;
+		public Entry<V> next;
+		public Entry(V value, long deadlineTick, TimerHandle handle) {
+			this.value = value;
+			this.deadlineTick = deadlineTick;
+			this.handle = handle;
+		}
+	}
+}
@@ -1,23 +1,55 @@
 package com.jeffdisher.laminar.utils;
 
-import java.util.PriorityQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 
 /**
- * Just a wrapper of a LinkedBlockingQueue to avoid the need to handle interrupted exceptions everywhere since our
- * common case (threads we create/own/hide) never uses them.
+ * A multi-producer, single-consumer queue of Consumers which avoids the need to handle interrupted exceptions
+ * everywhere since our common case (threads we create/own/hide) never uses them.
  * This also allows for a more restricted API to make sure no accidental incorrect uses happen.
- * Additionally, it is possible to priority schedule a Consumer to become available after a delay.
+ * Additionally, it is possible to priority schedule a Consumer to become available after a delay (and cancel it).
+ * 
+ * Producers never take a lock:  they append to a linked list of nodes with a single atomic swap of the tail and only
+ * unpark the consumer if it is actually parked.  The consumer drains everything which has been appended, whenever it
+ * looks at the queue, into structures only it touches (so the delayed Consumers also don't need a lock).  Delayed
+ * Consumers are kept in a TimerWheel so scheduling and cancelling them is constant time and the clock is only read
+ * when something is scheduled.  This means
+ * that a single wake-up of the consumer can hand back many Consumers.
+ * Note that only one thread may ever call blockingGet() (although which thread that is can change, over time).
  * 
  * @param <T> The type passed to the consumer.
  */
 public class UninterruptibleQueue<T> {
-	private final LinkedBlockingQueue<ConsumerWrapper<T>> _queue = new LinkedBlockingQueue<>();
-	private final PriorityQueue<DelayedConsumer<T>> _delayed = new PriorityQueue<>();
-	private final Object _priorityLock = new Object();
+	// Used in Node.scheduledTimeMillis to mark a normal (non-priority) Consumer.
+	private static final long NOT_SCHEDULED = -1L;
+	// Our delays are mostly heartbeats and timeouts in the tens or hundreds of milliseconds, so a 2 ms tick with 512
+	// slots keeps them accurate and means most of them will expire within one revolution (about 1 second).
+	private static final int TIMER_SLOT_COUNT = 512;
+	private static final long TIMER_TICK_MILLIS = 2L;
+
+	// Producer side:  the most recently appended node (we swap in our new node and then link it from the previous one).
+	private final AtomicReference<Node<T>> _tail;
+	// The consumer thread, when it is parked, so producers know who to unpark.
+	private volatile Thread _parkedConsumer;
+
+	// Consumer side:  the last node we drained (its next is the first one not yet seen by the consumer).
+	private Node<T> _head;
+	private final ArrayDeque<Consumer<T>> _ready;
+	private final TimerWheel<Consumer<T>> _delayed;
+
+	public UninterruptibleQueue() {
+		// We start with a stub node so producers always have a previous node to link from.
+		Node<T> stub = new Node<>(null, NOT_SCHEDULED, null);
+		_tail = new AtomicReference<>(stub);
+		_parkedConsumer = null;
+		_head = stub;
+		_ready = new ArrayDeque<>();
+		_delayed = new TimerWheel<>(TIMER_SLOT_COUNT, TIMER_TICK_MILLIS, System.currentTimeMillis());
+	}
 
 	/**
 	 * Adds the given Consumer to the end of the queue.
@@ -28,12 +60,7 @@ public class UninterruptibleQueue<T> {
 		if (null == input) {
 			throw new NullPointerException("Cannot enqueue null consumer");
 		}
-		try {
-			_queue.put(new ConsumerWrapper<T>(input));
-		} catch (InterruptedException e) {
-			// Only used in statically uninterruptible cases.
-			throw Assert.unexpected(e);
-		}
+		_append(new Node<>(input, NOT_SCHEDULED, null));
 	}
 
 	/**
@@ -43,8 +70,9 @@ public class UninterruptibleQueue<T> {
 	 * 
 	 * @param input The Consumer to add to the queue.
 	 * @param delayMillis The number of milliseconds from now when this Consumer becomes valid.
+	 * @return A handle which can be used to cancel the Consumer before it is returned.
 	 */
-	public void putPriority(Consumer<T> input, long delayMillis) {
+	public TimerHandle putPriority(Consumer<T> input, long delayMillis) {
 		if (null == input) {
 			throw new NullPointerException("Cannot enqueue null consumer");
 		}
@@ -54,16 +82,27 @@ public class UninterruptibleQueue<T> {
 			// We consider it invalid to have a negative time (although that could happen in the far future).
 			throw new IllegalArgumentException("Scheduled time must be positive");
 		}
-		synchronized (_priorityLock) {
-			_delayed.add(new DelayedConsumer<T>(input, validTime));
+		TimerHandle handle = new TimerHandle();
+		_append(new Node<>(input, validTime, handle));
+		return handle;
+	}
+
+	/**
+	 * Removes and returns the Consumer which blockingGet() would return, if one is available now, without blocking.
+	 * This allows the consumer to run everything which is already waiting as a batch.
+	 * 
+	 * @return The Consumer from the head of the queue or null, if nothing is available yet.
+	 */
+	public Consumer<T> poll() {
+		_drain();
+		Consumer<T> result = null;
+		if (!_delayed.isEmpty()) {
+			result = _delayed.pollExpired(System.currentTimeMillis());
 		}
-		// Drop a sentinel in here to wake up the queue.
-		try {
-			_queue.put(new ConsumerWrapper<T>(null));
-		} catch (InterruptedException e) {
-			// Only used in statically uninterruptible cases.
-			throw Assert.unexpected(e);
+		if (null == result) {
+			result = _ready.pollFirst();
 		}
+		return result;
 	}
 
 	/**
@@ -74,72 +113,91 @@ public class UninterruptibleQueue<T> {
 	 * @return The Consumer from the head of the queue.
 	 */
 	public Consumer<T> blockingGet() {
-		try {
-			Consumer<T> result = null;
-			// Note that we loop on result because our sentinel value and timeout scenarios are handled more elegantly, that way.
-			while (null == result) {
-				// Check if we have a priority element.
-				long delay = 0;
-				synchronized (_priorityLock) {
-					DelayedConsumer<T> priority = _delayed.peek();
-					if (null != priority) {
-						// Priority element so only wait until it is ready.
-						long now = System.currentTimeMillis();
-						delay = priority.scheduledTimeMillis - now;
-						if (delay <= 0L) {
-							// This is already ready so just return it.
-							result = _delayed.remove().consumer;
-						}
-					}
-				}
+		Consumer<T> result = null;
+		while (null == result) {
+			// Pull in everything the producers have appended, so we see any priority elements before choosing.
+			_drain();
+			// Check if we have a priority element (we only need the clock if something is scheduled).
+			long delay = 0L;
+			if (!_delayed.isEmpty()) {
+				long now = System.currentTimeMillis();
+				result = _delayed.pollExpired(now);
 				if (null == result) {
+					delay = _delayed.millisUntilNextExpiry(now);
+				}
+			}
+			if ((null == result) && !_ready.isEmpty()) {
+				result = _ready.removeFirst();
+			}
+			if (null == result) {
+				// There is nothing to do yet so park until a producer appends something or the next priority element is
+				// ready.  We publish that we are parked and then re-check, so a producer which appended before seeing us
+				// parked can't be missed (either we see its node or it sees us and unparks us).
+				_parkedConsumer = Thread.currentThread();
+				if (null == _head.next) {
 					if (delay > 0L) {
-						ConsumerWrapper<T> wrapper = _queue.poll(delay, TimeUnit.MILLISECONDS);
-						if (null != wrapper) {
-							result = wrapper.consumer;
-						}
+						LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delay));
 					} else {
-						// Block until there is something.
-						result = _queue.take().consumer;
+						LockSupport.park(this);
 					}
 				}
+				_parkedConsumer = null;
+				if (Thread.interrupted()) {
+					// Only used in statically uninterruptible cases.
+					throw Assert.unexpected(new InterruptedException());
+				}
+				// Otherwise, this was a normal or spurious wake-up so we just loop to check the queue again.
 			}
-			return result;
-		} catch (InterruptedException e) {
-			// Only used in statically uninterruptible cases.
-			throw Assert.unexpected(e);
 		}
+		return result;
 	}
 
 
-	/**
-	 * We use a wrapper for the Consumer in the queue since we have no safe way to interrupt a blocking take/poll
-	 * without a great deal of additional complexity.  Using a wrapper, we can drop a sentinel value into the queue
-	 * whenever we put something in the priority queue, thus allowing the take/poll to return.
-	 * We can then detect the sentinel value and use that to retry, now observing the priority queue.
-	 */
-	private static class ConsumerWrapper<T> {
-		public Consumer<T> consumer;
-		public ConsumerWrapper(Consumer<T> consumer) {
-			this.consumer = consumer;
+	private void _append(Node<T> node) {
+		Node<T> previous = _tail.getAndSet(node);
+		// Until this write, the consumer can't see the new node (or any after it) but the producer which swapped in the
+		// next node will still link from this one, so nothing is lost.
+		previous.next = node;
+		Thread consumer = _parkedConsumer;
+		if (null != consumer) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	private void _drain() {
+		// We only read the clock if we find something scheduled.
+		long now = 0L;
+		Node<T> next = _head.next;
+		while (null != next) {
+			if (NOT_SCHEDULED == next.scheduledTimeMillis) {
+				_ready.addLast(next.consumer);
+			} else {
+				if (0L == now) {
+					now = System.currentTimeMillis();
+				}
+				_delayed.schedule(next.consumer, next.scheduledTimeMillis, next.handle, now);
+			}
+			// The drained node becomes the new stub so we drop its Consumer reference.
+			next.consumer = null;
+			_head = next;
+			next = next.next;
 		}
 	}
 
 
 	/**
-	 * We just put our priority consumers into this wrapper so we can sort them by their scheduled time.
+	 * A link in the producer-side list.  Priority Consumers go through the same list, with their scheduled time, so
+	 * that only the consumer thread ever touches the TimerWheel.
 	 */
-	private static class DelayedConsumer<T> implements Comparable<DelayedConsumer<T>> {
+	private static class Node<T> {
 		public Consumer<T> consumer;
-		public long scheduledTimeMillis;
-		public DelayedConsumer(Consumer<T> consumer, long scheduledTimeMillis) {
+		public final long scheduledTimeMillis;
+		public final TimerHandle handle;
+		public volatile Node<T> next;
+		public Node(Consumer<T> consumer, long scheduledTimeMillis, TimerHandle handle) {
 			this.consumer = consumer;
-			this.scheduledTimeMillis= scheduledTimeMillis;
-		}
-		@Override
-		public int compareTo(DelayedConsumer<T> arg0) {
-			// We will collapse this to +/- 1, just to avoid potential overflow (although unlikely for this usage).
-			return Long.signum(this.scheduledTimeMillis - arg0.scheduledTimeMillis);
+			this.scheduledTimeMillis = scheduledTimeMillis;
+			this.handle = handle;
 		}
 	}
 }
@@ -44,4 +44,27 @@ public class TestClusterConfig {
 		Assert.assertEquals(config.entries[0].cluster, deserialized.entries[0].cluster);
 		Assert.assertEquals(config.entries[0].client, deserialized.entries[0].client);
 	}
+
+	@Test
+	public void testLearnerRole() throws Throwable {
+		InetAddress address = InetAddress.getLocalHost();
+		ConfigEntry voter = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(address, 2000), new InetSocketAddress(address, 2001));
+		ConfigEntry learner = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(address, 2002), new InetSocketAddress(address, 2003), true);
+		
+		ClusterConfig config = ClusterConfig.configFromEntries(new ConfigEntry[] {voter, learner});
+		Assert.assertEquals(1, config.voterCount);
+		ClusterConfig deserialized = ClusterConfig.deserialize(config.serialize());
+		Assert.assertEquals(2, deserialized.entries.length);
+		Assert.assertEquals(1, deserialized.voterCount);
+		Assert.assertFalse(deserialized.entries[0].isLearner);
+		Assert.assertTrue(deserialized.entries[1].isLearner);
+		Assert.assertEquals(learner.nodeUuid, deserialized.entries[1].nodeUuid);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOnlyLearners() throws Throwable {
+		InetAddress address = InetAddress.getLocalHost();
+		ConfigEntry learner = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(address, 2000), new InetSocketAddress(address, 2001), true);
+		ClusterConfig.configFromEntries(new ConfigEntry[] {learner});
+	}
 }
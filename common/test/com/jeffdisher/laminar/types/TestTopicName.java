@@ -49,4 +49,21 @@ public class TestTopicName {
 	public void testEmpty() throws Throwable {
 		TopicName.fromString("");
 	}
+
+	@Test
+	public void testPartitionIndex() throws Throwable {
+		// These are fixed since every client must agree on them.
+		Assert.assertEquals(0, TopicName.fromString("test").getPartitionIndex(1));
+		Assert.assertEquals(Integer.remainderUnsigned(0xafd071e5, 7), TopicName.fromString("test").getPartitionIndex(7));
+		// A reasonable spread of topics should land in every partition.
+		boolean[] didSee = new boolean[4];
+		for (int i = 0; i < 100; ++i) {
+			int index = TopicName.fromString("topic" + i).getPartitionIndex(didSee.length);
+			Assert.assertTrue((index >= 0) && (index < didSee.length));
+			didSee[index] = true;
+		}
+		for (boolean seen : didSee) {
+			Assert.assertTrue(seen);
+		}
+	}
 }
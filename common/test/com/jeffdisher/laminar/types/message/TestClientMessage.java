@@ -55,4 +55,61 @@ public class TestClientMessage {
 		Assert.assertArrayEquals(((ClientMessagePayload_KeyPut)input.payload).key, ((ClientMessagePayload_KeyPut)output.payload).key);
 		Assert.assertArrayEquals(((ClientMessagePayload_KeyPut)input.payload).value, ((ClientMessagePayload_KeyPut)output.payload).value);
 	}
+
+	@Test
+	public void testReadTopicStateMessage() throws Throwable {
+		long readId = 7L;
+		TopicName topic = TopicName.fromString("test");
+		ClientMessage input = ClientMessage.readTopicState(readId, topic);
+		byte[] serialized = input.serialize();
+		Assert.assertEquals(Byte.BYTES + Long.BYTES + topic.serializedSize(), serialized.length);
+		ClientMessage output = ClientMessage.deserialize(serialized);
+		Assert.assertEquals(ClientMessageType.READ_TOPIC_STATE, output.type);
+		Assert.assertEquals(readId, output.nonce);
+		Assert.assertEquals(topic, ((ClientMessagePayload_ReadTopicState)output.payload).topic);
+	}
+
+	@Test
+	public void testGetMessage() throws Throwable {
+		long readId = 8L;
+		TopicName topic = TopicName.fromString("test");
+		byte[] key = new byte[] {1,2,3};
+		ClientMessage input = ClientMessage.get(readId, topic, key);
+		byte[] serialized = input.serialize();
+		ClientMessage output = ClientMessage.deserialize(serialized);
+		Assert.assertEquals(ClientMessageType.GET, output.type);
+		Assert.assertEquals(readId, output.nonce);
+		Assert.assertEquals(topic, ((ClientMessagePayload_Get)output.payload).topic);
+		Assert.assertArrayEquals(key, ((ClientMessagePayload_Get)output.payload).key);
+	}
+
+	@Test
+	public void testTransferLeaderMessage() throws Throwable {
+		UUID target = UUID.randomUUID();
+		ClientMessage input = ClientMessage.transferLeader(target);
+		byte[] serialized = input.serialize();
+		ClientMessage output = ClientMessage.deserialize(serialized);
+		Assert.assertEquals(ClientMessageType.TRANSFER_LEADER, output.type);
+		Assert.assertEquals(target, ((ClientMessagePayload_TransferLeader)output.payload).targetNodeUuid);
+	}
+
+	@Test
+	public void testBatchMessage() throws Throwable {
+		long nonce = 1000;
+		TopicName topic = TopicName.fromString("test");
+		byte[][] keys = new byte[][] { new byte[] {1}, new byte[] {2}, new byte[0] };
+		byte[][] values = new byte[][] { new byte[] {1, 2, 3}, null, new byte[0] };
+		ClientMessage input = ClientMessage.batch(nonce, topic, keys, values);
+		byte[] serialized = input.serialize();
+		ClientMessage output = ClientMessage.deserialize(serialized);
+		Assert.assertEquals(ClientMessageType.BATCH, output.type);
+		Assert.assertEquals(nonce, output.nonce);
+		ClientMessagePayload_Batch payload = (ClientMessagePayload_Batch)output.payload;
+		Assert.assertEquals(topic, payload.topic);
+		Assert.assertEquals(3, payload.keys.length);
+		for (int i = 0; i < keys.length; ++i) {
+			Assert.assertArrayEquals(keys[i], payload.keys[i]);
+			Assert.assertArrayEquals(values[i], payload.values[i]);
+		}
+	}
 }
@@ -11,6 +11,7 @@ import org.junit.Test;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.payload.Payload_Batch;
 import com.jeffdisher.laminar.types.payload.Payload_ConfigChange;
 import com.jeffdisher.laminar.types.payload.Payload_KeyPut;
 
@@ -85,4 +86,29 @@ public class TestMutationRecord {
 		Assert.assertEquals(record.clientNonce, deserialized.clientNonce);
 		Assert.assertEquals(((Payload_ConfigChange)record.payload).config.entries.length, ((Payload_ConfigChange)deserialized.payload).config.entries.length);
 	}
+
+	@Test
+	public void testBatch() throws Throwable {
+		long termNumber = 1L;
+		long globalOffset = 1L;
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		long clientNonce = 1L;
+		byte[][] keys = new byte[][] { "key1".getBytes(StandardCharsets.UTF_8), "key2".getBytes(StandardCharsets.UTF_8) };
+		byte[][] values = new byte[][] { "value".getBytes(StandardCharsets.UTF_8), null };
+		MutationRecord record = MutationRecord.batch(termNumber, globalOffset, topic, clientId, clientNonce, keys, values);
+		ByteBuffer buffer = ByteBuffer.allocate(record.serializedSize());
+		record.serializeInto(buffer);
+		buffer.flip();
+		MutationRecord deserialized = MutationRecord.deserializeFrom(buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		Assert.assertEquals(MutationRecordType.BATCH, deserialized.type);
+		Assert.assertEquals(record.clientNonce, deserialized.clientNonce);
+		Payload_Batch payload = (Payload_Batch)deserialized.payload;
+		Assert.assertEquals(2, payload.keys.length);
+		Assert.assertArrayEquals(keys[0], payload.keys[0]);
+		Assert.assertArrayEquals(values[0], payload.values[0]);
+		Assert.assertArrayEquals(keys[1], payload.keys[1]);
+		Assert.assertNull(payload.values[1]);
+	}
 }
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.jeffdisher.laminar.types.CommitInfo;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.response.ClientResponsePayload_Commit;
 
 
@@ -52,4 +53,37 @@ public class TestClientResponse {
 		Assert.assertEquals(CommitInfo.Effect.VALID, ((ClientResponsePayload_Commit)output.payload).info.effect);
 		Assert.assertEquals(thisCommitOffset, ((ClientResponsePayload_Commit)output.payload).info.mutationOffset);
 	}
+
+	@Test
+	public void testTopicState() throws Throwable {
+		long readId = 3L;
+		long lastCommitGlobalOffset = 20L;
+		ClientResponse input = ClientResponse.topicState(readId, lastCommitGlobalOffset, TopicState.create(true, 12L));
+		byte[] serialized = input.serialize();
+		Assert.assertEquals(Byte.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES + Long.BYTES, serialized.length);
+		ClientResponse output = ClientResponse.deserialize(serialized);
+		Assert.assertEquals(ClientResponseType.TOPIC_STATE, output.type);
+		Assert.assertEquals(readId, output.nonce);
+		Assert.assertEquals(lastCommitGlobalOffset, output.lastCommitGlobalOffset);
+		TopicState state = ((ClientResponsePayload_TopicState)output.payload).state;
+		Assert.assertTrue(state.isActive);
+		Assert.assertEquals(12L, state.lastEventLocalOffset);
+	}
+
+	@Test
+	public void testValue() throws Throwable {
+		long readId = 4L;
+		long lastCommitGlobalOffset = 21L;
+		byte[] value = new byte[] {5,6};
+		ClientResponse output = ClientResponse.deserialize(ClientResponse.value(readId, lastCommitGlobalOffset, value).serialize());
+		Assert.assertEquals(ClientResponseType.VALUE, output.type);
+		Assert.assertEquals(readId, output.nonce);
+		Assert.assertEquals(lastCommitGlobalOffset, output.lastCommitGlobalOffset);
+		Assert.assertArrayEquals(value, ((ClientResponsePayload_Value)output.payload).value);
+		
+		// A key with no value is also a valid answer.
+		byte[] serialized = ClientResponse.value(readId, lastCommitGlobalOffset, null).serialize();
+		Assert.assertEquals(Byte.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES, serialized.length);
+		Assert.assertNull(((ClientResponsePayload_Value)ClientResponse.deserialize(serialized).payload).value);
+	}
 }
@@ -0,0 +1,263 @@
+package com.jeffdisher.laminar.utils;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Does a performance run just using JUnit as an entry-point.  This name starts with "Perf" instead of "Test" so that it
+ * can be run in a different Ant target ("perf"), since it takes a while and needs a larger heap.
+ * This compares the UninterruptibleQueue (lock-free producer list drained into a TimerWheel) against the
+ * implementation it replaced (a LinkedBlockingQueue with a lock-protected PriorityQueue for delayed Consumers), which
+ * is kept here as LegacyQueue.  We measure:
+ * -multi-producer put:  the time each put() takes while several producers race a consumer which is draining
+ * -drain throughput:  the time for the consumer to blockingGet() everything from a queue which is already full
+ * -wake-up latency:  the time from a put() until a consumer, parked in blockingGet(), runs what was put
+ */
+public class PerfUninterruptibleQueue {
+	/**
+	 * Producer thread counts to use in the multi-producer run.
+	 */
+	private static final int[] PRODUCER_COUNTS = new int[] { 1, 2, 4, 8 };
+	/**
+	 * The total number of Consumers put in each multi-producer run (split between the producers).
+	 */
+	private static final int MULTI_PRODUCER_PUTS = 1_000_000;
+	/**
+	 * The number of Consumers queued up before draining them.
+	 */
+	private static final int DRAIN_COUNT = 1_000_000;
+	/**
+	 * The number of single put() to wake-up round-trips we measure.
+	 */
+	private static final int WAKE_UP_COUNT = 10_000;
+	/**
+	 * The number of times each run is repeated before the one we measure, to warm up the JIT.
+	 */
+	private static final int WARM_UP_RUNS = 2;
+
+	@Test
+	public void perfRun() throws Throwable {
+		System.out.println("CSV OUTPUT");
+		System.out.println("producers,legacy put ns,new put ns,legacy total ns per element,new total ns per element");
+		for (int producerCount : PRODUCER_COUNTS) {
+			long[] legacy = null;
+			long[] current = null;
+			for (int i = 0; i <= WARM_UP_RUNS; ++i) {
+				legacy = _runMultiProducer(new LegacyQueue<>(), producerCount);
+				current = _runMultiProducer(_wrap(new UninterruptibleQueue<>()), producerCount);
+			}
+			System.out.println(producerCount + "," + legacy[0] + "," + current[0] + "," + legacy[1] + "," + current[1]);
+		}
+
+		System.out.println("elements,legacy drain ns,new drain ns");
+		long legacyDrain = 0L;
+		long currentDrain = 0L;
+		for (int i = 0; i <= WARM_UP_RUNS; ++i) {
+			legacyDrain = _runDrain(new LegacyQueue<>());
+			currentDrain = _runDrain(_wrap(new UninterruptibleQueue<>()));
+		}
+		System.out.println(DRAIN_COUNT + "," + legacyDrain + "," + currentDrain);
+
+		System.out.println("wake-ups,legacy p50 ns,new p50 ns,legacy p99 ns,new p99 ns");
+		long[] legacyWakeUp = null;
+		long[] currentWakeUp = null;
+		for (int i = 0; i <= WARM_UP_RUNS; ++i) {
+			legacyWakeUp = _runWakeUp(new LegacyQueue<>());
+			currentWakeUp = _runWakeUp(_wrap(new UninterruptibleQueue<>()));
+		}
+		System.out.println(WAKE_UP_COUNT + "," + legacyWakeUp[0] + "," + currentWakeUp[0] + "," + legacyWakeUp[1] + "," + currentWakeUp[1]);
+	}
+
+
+	/**
+	 * @return [nanos per put() (averaged over the producers), nanos per element until the consumer has run them all].
+	 */
+	private static long[] _runMultiProducer(IQueue<Void> queue, int producerCount) throws InterruptedException {
+		int putsPerProducer = MULTI_PRODUCER_PUTS / producerCount;
+		int total = putsPerProducer * producerCount;
+		int[] counter = new int[1];
+		Consumer<Void> increment = (ignored) -> counter[0] += 1;
+		CountDownLatch start = new CountDownLatch(1);
+		long[] producerNanos = new long[producerCount];
+		Thread[] producers = new Thread[producerCount];
+		for (int i = 0; i < producerCount; ++i) {
+			int index = i;
+			producers[i] = new Thread(() -> {
+				_await(start);
+				long begin = System.nanoTime();
+				for (int j = 0; j < putsPerProducer; ++j) {
+					queue.put(increment);
+				}
+				producerNanos[index] = System.nanoTime() - begin;
+			});
+			producers[i].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (int i = 0; i < total; ++i) {
+			queue.blockingGet().accept(null);
+		}
+		long consumerNanos = System.nanoTime() - begin;
+		long sumProducerNanos = 0L;
+		for (int i = 0; i < producerCount; ++i) {
+			producers[i].join();
+			sumProducerNanos += producerNanos[i];
+		}
+		Assert.assertEquals(total, counter[0]);
+		return new long[] { sumProducerNanos / total, consumerNanos / total };
+	}
+
+	/**
+	 * @return Nanos per blockingGet() from an already-full queue.
+	 */
+	private static long _runDrain(IQueue<Void> queue) {
+		int[] counter = new int[1];
+		Consumer<Void> increment = (ignored) -> counter[0] += 1;
+		for (int i = 0; i < DRAIN_COUNT; ++i) {
+			queue.put(increment);
+		}
+		long begin = System.nanoTime();
+		for (int i = 0; i < DRAIN_COUNT; ++i) {
+			queue.blockingGet().accept(null);
+		}
+		long nanos = System.nanoTime() - begin;
+		Assert.assertEquals(DRAIN_COUNT, counter[0]);
+		return nanos / DRAIN_COUNT;
+	}
+
+	/**
+	 * @return [median, 99th percentile] nanos from put() until the parked consumer ran the Consumer.
+	 */
+	private static long[] _runWakeUp(IQueue<Void> queue) throws InterruptedException {
+		long[] latencies = new long[WAKE_UP_COUNT];
+		Thread consumer = new Thread(() -> {
+			for (int i = 0; i < WAKE_UP_COUNT; ++i) {
+				queue.blockingGet().accept(null);
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < WAKE_UP_COUNT; ++i) {
+			// Give the consumer time to go back to sleep so that we are measuring a wake-up, not a busy consumer.
+			Thread.sleep(0L, 100_000);
+			int index = i;
+			long putNanos = System.nanoTime();
+			queue.put((ignored) -> latencies[index] = System.nanoTime() - putNanos);
+		}
+		consumer.join();
+		Arrays.sort(latencies);
+		return new long[] { latencies[WAKE_UP_COUNT / 2], latencies[(WAKE_UP_COUNT * 99) / 100] };
+	}
+
+	private static <T> IQueue<T> _wrap(UninterruptibleQueue<T> queue) {
+		return new IQueue<T>() {
+			@Override
+			public void put(Consumer<T> input) {
+				queue.put(input);
+			}
+			@Override
+			public Consumer<T> blockingGet() {
+				return queue.blockingGet();
+			}
+		};
+	}
+
+	private static void _await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw com.jeffdisher.laminar.utils.Assert.unexpected(e);
+		}
+	}
+
+
+	/**
+	 * The part of the queue interface we measure, so the same runs can drive both implementations.
+	 */
+	private static interface IQueue<T> {
+		void put(Consumer<T> input);
+		Consumer<T> blockingGet();
+	}
+
+
+	/**
+	 * The previous UninterruptibleQueue implementation (only the parts we measure are kept, but unchanged):  a
+	 * LinkedBlockingQueue of Consumers with a sentinel put in whenever a delayed Consumer is added to a PriorityQueue
+	 * under its own lock, so blockingGet() has to take both locks for every Consumer it returns.
+	 */
+	private static class LegacyQueue<T> implements IQueue<T> {
+		private final LinkedBlockingQueue<ConsumerWrapper<T>> _queue = new LinkedBlockingQueue<>();
+		private final PriorityQueue<DelayedConsumer<T>> _delayed = new PriorityQueue<>();
+		private final Object _priorityLock = new Object();
+
+		@Override
+		public void put(Consumer<T> input) {
+			if (null == input) {
+				throw new NullPointerException("Cannot enqueue null consumer");
+			}
+			try {
+				_queue.put(new ConsumerWrapper<T>(input));
+			} catch (InterruptedException e) {
+				throw com.jeffdisher.laminar.utils.Assert.unexpected(e);
+			}
+		}
+
+		@Override
+		public Consumer<T> blockingGet() {
+			try {
+				Consumer<T> result = null;
+				while (null == result) {
+					long delay = 0;
+					synchronized (_priorityLock) {
+						DelayedConsumer<T> priority = _delayed.peek();
+						if (null != priority) {
+							long now = System.currentTimeMillis();
+							delay = priority.scheduledTimeMillis - now;
+							if (delay <= 0L) {
+								result = _delayed.remove().consumer;
+							}
+						}
+					}
+					if (null == result) {
+						if (delay > 0L) {
+							ConsumerWrapper<T> wrapper = _queue.poll(delay, TimeUnit.MILLISECONDS);
+							if (null != wrapper) {
+								result = wrapper.consumer;
+							}
+						} else {
+							result = _queue.take().consumer;
+						}
+					}
+				}
+				return result;
+			} catch (InterruptedException e) {
+				throw com.jeffdisher.laminar.utils.Assert.unexpected(e);
+			}
+		}
+	}
+
+
+	private static class ConsumerWrapper<T> {
+		public Consumer<T> consumer;
+		public ConsumerWrapper(Consumer<T> consumer) {
+			this.consumer = consumer;
+		}
+	}
+
+
+	private static class DelayedConsumer<T> implements Comparable<DelayedConsumer<T>> {
+		public Consumer<T> consumer;
+		public long scheduledTimeMillis;
+		@Override
+		public int compareTo(DelayedConsumer<T> arg0) {
+			return Long.signum(this.scheduledTimeMillis - arg0.scheduledTimeMillis);
+		}
+	}
+}
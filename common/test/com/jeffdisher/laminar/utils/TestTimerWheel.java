@@ -0,0 +1,97 @@
+package com.jeffdisher.laminar.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests around TimerWheel.
+ * Unlike UninterruptibleQueue, the wheel is given the time by its caller so these don't rely on the wall clock.
+ */
+public class TestTimerWheel {
+	@Test
+	public void testExpireInOrder() throws Throwable {
+		TimerWheel<String> wheel = new TimerWheel<>(8, 10L, 1000L);
+		Assert.assertTrue(wheel.isEmpty());
+		wheel.schedule("B", 1050L, new TimerHandle(), 1000L);
+		wheel.schedule("A", 1015L, new TimerHandle(), 1000L);
+		wheel.schedule("C", 1050L, new TimerHandle(), 1000L);
+		Assert.assertFalse(wheel.isEmpty());
+		
+		// Nothing is returned early, even within the same tick.
+		Assert.assertNull(wheel.pollExpired(1014L));
+		Assert.assertEquals(6L, wheel.millisUntilNextExpiry(1014L));
+		Assert.assertEquals("A", wheel.pollExpired(1020L));
+		Assert.assertNull(wheel.pollExpired(1020L));
+		Assert.assertEquals(30L, wheel.millisUntilNextExpiry(1020L));
+		// Values expiring in the same tick come out in the order they were scheduled.
+		Assert.assertEquals("B", wheel.pollExpired(1050L));
+		Assert.assertEquals("C", wheel.pollExpired(1050L));
+		Assert.assertNull(wheel.pollExpired(1050L));
+		Assert.assertTrue(wheel.isEmpty());
+		Assert.assertEquals(0L, wheel.millisUntilNextExpiry(1050L));
+	}
+
+	@Test
+	public void testMultipleRevolutions() throws Throwable {
+		// The wheel covers 80 ms so these share slots across revolutions.
+		TimerWheel<String> wheel = new TimerWheel<>(8, 10L, 0L);
+		wheel.schedule("far", 250L, new TimerHandle(), 0L);
+		wheel.schedule("near", 70L, new TimerHandle(), 0L);
+		Assert.assertEquals(70L, wheel.millisUntilNextExpiry(0L));
+		Assert.assertNull(wheel.pollExpired(65L));
+		Assert.assertEquals("near", wheel.pollExpired(75L));
+		// "far" is more than a revolution out but we still know exactly when it expires.
+		Assert.assertNull(wheel.pollExpired(100L));
+		Assert.assertEquals(150L, wheel.millisUntilNextExpiry(100L));
+		Assert.assertNull(wheel.pollExpired(240L));
+		Assert.assertEquals(10L, wheel.millisUntilNextExpiry(240L));
+		// Jumping far ahead still finds it.
+		Assert.assertEquals("far", wheel.pollExpired(5000L));
+		Assert.assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testCancel() throws Throwable {
+		TimerWheel<String> wheel = new TimerWheel<>(8, 10L, 0L);
+		TimerHandle first = new TimerHandle();
+		wheel.schedule("first", 20L, first, 0L);
+		wheel.schedule("second", 20L, new TimerHandle(), 0L);
+		TimerHandle alreadyDue = new TimerHandle();
+		wheel.schedule("due", 0L, alreadyDue, 0L);
+		first.cancel();
+		alreadyDue.cancel();
+		Assert.assertEquals("second", wheel.pollExpired(30L));
+		Assert.assertNull(wheel.pollExpired(30L));
+		Assert.assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testNextExpiryAfterCancel() throws Throwable {
+		// The earliest deadline is tracked as values come and go, including a cancelled value which held it.
+		TimerWheel<String> wheel = new TimerWheel<>(8, 10L, 0L);
+		TimerHandle first = new TimerHandle();
+		wheel.schedule("first", 20L, first, 0L);
+		wheel.schedule("second", 50L, new TimerHandle(), 0L);
+		Assert.assertEquals(20L, wheel.millisUntilNextExpiry(0L));
+		wheel.schedule("third", 10L, new TimerHandle(), 0L);
+		Assert.assertEquals(10L, wheel.millisUntilNextExpiry(0L));
+		Assert.assertEquals("third", wheel.pollExpired(10L));
+		Assert.assertEquals(10L, wheel.millisUntilNextExpiry(10L));
+		// The cancelled value still costs a wake-up but then we find the next one.
+		first.cancel();
+		Assert.assertNull(wheel.pollExpired(20L));
+		Assert.assertEquals(30L, wheel.millisUntilNextExpiry(20L));
+		Assert.assertEquals("second", wheel.pollExpired(50L));
+		Assert.assertEquals(0L, wheel.millisUntilNextExpiry(50L));
+	}
+
+	@Test
+	public void testAlreadyDue() throws Throwable {
+		// A value whose deadline has passed is expired right away, even if it rounds up to a tick we haven't reached.
+		TimerWheel<String> wheel = new TimerWheel<>(8, 10L, 1000L);
+		wheel.schedule("late", 1005L, new TimerHandle(), 1005L);
+		Assert.assertEquals("late", wheel.pollExpired(1005L));
+		Assert.assertTrue(wheel.isEmpty());
+	}
+}
@@ -54,11 +54,13 @@ public class TestUninterruptibleQueue {
 	@Test
 	public void testPriority() throws Throwable {
 		Throwable[] error = new Throwable[1];
+		CountDownLatch firstTaken = new CountDownLatch(1);
 		CountDownLatch latch = new CountDownLatch(1);
 		UninterruptibleQueue<Integer> queue = new UninterruptibleQueue<>();
 		Thread thread = new Thread(() -> {
 			try {
 				queue.blockingGet().accept(0);
+				firstTaken.countDown();
 				try {
 					latch.await();
 				} catch (InterruptedException e) {
@@ -73,6 +75,8 @@ public class TestUninterruptibleQueue {
 		thread.start();
 		queue.put((i) -> org.junit.Assert.assertEquals(0, i.intValue()));
 		queue.put((i) -> org.junit.Assert.assertEquals(2, i.intValue()));
+		// We wait for the first element to be taken so that the priority element can't be seen before it.
+		firstTaken.await();
 		queue.putPriority((i) -> org.junit.Assert.assertEquals(1, i.intValue()), 0L);
 		latch.countDown();
 		thread.join();
@@ -165,4 +169,68 @@ public class TestUninterruptibleQueue {
 		thread.join();
 		org.junit.Assert.assertNull(error[0]);
 	}
+
+	/**
+	 * Tests that many producers can add to the queue concurrently, without losing anything or reordering any single
+	 * producer's elements, while the consumer is parking and waking.
+	 */
+	@Test
+	public void testManyProducers() throws Throwable {
+		int producerCount = 4;
+		int perProducer = 10000;
+		UninterruptibleQueue<int[]> queue = new UninterruptibleQueue<>();
+		Thread[] producers = new Thread[producerCount];
+		for (int i = 0; i < producerCount; ++i) {
+			int producer = i;
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < perProducer; ++j) {
+					int value = j;
+					queue.put((lastSeen) -> {
+						org.junit.Assert.assertEquals(lastSeen[producer] + 1, value);
+						lastSeen[producer] = value;
+					});
+				}
+			});
+			producers[i].start();
+		}
+		int[] lastSeen = new int[producerCount];
+		java.util.Arrays.fill(lastSeen, -1);
+		for (int i = 0; i < (producerCount * perProducer); ++i) {
+			queue.blockingGet().accept(lastSeen);
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		for (int last : lastSeen) {
+			org.junit.Assert.assertEquals(perProducer - 1, last);
+		}
+	}
+
+	/**
+	 * Tests that a cancelled priority element is never returned.
+	 * Note that this test takes 50ms due to relying on the wall clock.
+	 */
+	@Test
+	public void testCancelPriority() throws Throwable {
+		UninterruptibleQueue<Integer> queue = new UninterruptibleQueue<>();
+		TimerHandle handle = queue.putPriority((i) -> org.junit.Assert.fail(), 10L);
+		queue.putPriority((i) -> org.junit.Assert.assertEquals(0, i.intValue()), 50L);
+		handle.cancel();
+		queue.blockingGet().accept(0);
+	}
+
+	/**
+	 * Tests that poll returns what is available, in the same order as blockingGet, but doesn't wait for anything.
+	 */
+	@Test
+	public void testPoll() throws Throwable {
+		UninterruptibleQueue<Integer> queue = new UninterruptibleQueue<>();
+		org.junit.Assert.assertNull(queue.poll());
+		queue.put((i) -> org.junit.Assert.assertEquals(1, i.intValue()));
+		queue.putPriority((i) -> org.junit.Assert.assertEquals(0, i.intValue()), 0L);
+		queue.putPriority((i) -> org.junit.Assert.fail(), 10000L);
+		queue.poll().accept(0);
+		queue.poll().accept(1);
+		org.junit.Assert.assertNull(queue.poll());
+	}
 }
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.jeffdisher.laminar.client.ClientConnection;
 import com.jeffdisher.laminar.client.ClientResult;
@@ -17,30 +19,42 @@ import com.jeffdisher.laminar.utils.Assert;
 /**
  * A tool to build and post a config to a cluster.
  * Args:
- * -(ip port)+ - each entry is 2 args: client ip and client port
+ * -(ip port [--learner])+ - each entry is 2 args: client ip and client port, optionally followed by "--learner" to add
+ *  that node as a non-voting learner
  * 
  * Contacts each of the listed nodes as a client, requesting their own config descriptions.
  */
 public class ConfigBuilder {
+	private static final String LEARNER_FLAG = "--learner";
+
 	public static void main(String[] args) throws Throwable {
 		// Do basic validation.
-		if (0 != (args.length % 2)) {
-			_usageAndExit();
-		}
 		if (args.length < 2) {
 			_usageAndExit();
 		}
 		
 		// Parse arguments.
-		InetSocketAddress[] peers = new InetSocketAddress[args.length / 2];
-		for (int i = 0; i < args.length; i += 2) {
-			peers[i / 2] = new InetSocketAddress(args[i], Integer.parseInt(args[i + 1]));
+		List<InetSocketAddress> peerList = new ArrayList<>();
+		List<Boolean> learnerList = new ArrayList<>();
+		int index = 0;
+		while (index < args.length) {
+			if ((index + 1) >= args.length) {
+				_usageAndExit();
+			}
+			peerList.add(new InetSocketAddress(args[index], Integer.parseInt(args[index + 1])));
+			index += 2;
+			boolean isLearner = (index < args.length) && LEARNER_FLAG.equals(args[index]);
+			if (isLearner) {
+				index += 1;
+			}
+			learnerList.add(isLearner);
 		}
+		InetSocketAddress[] peers = peerList.toArray(new InetSocketAddress[peerList.size()]);
 		
 		// Print out plan.
 		System.out.println("Creating config of peers:");
-		for (InetSocketAddress peer : peers) {
-			System.out.println("\t" + peer);
+		for (int i = 0; i < peers.length; ++i) {
+			System.out.println("\t" + peers[i] + (learnerList.get(i) ? " (learner)" : ""));
 		}
 		
 		// Fetch ConfigEntry from each peer.
@@ -49,7 +63,8 @@ public class ConfigBuilder {
 		for (int i = 0; i < peers.length; ++i) {
 			InetSocketAddress peer = peers[i];
 			System.out.println("\t" + peer + "...");
-			entries[i] = _getConfigEntry(peer);
+			ConfigEntry self = _getConfigEntry(peer);
+			entries[i] = new ConfigEntry(self.nodeUuid, self.cluster, self.client, learnerList.get(i));
 			System.out.println("\t\t" + entries[i]);
 		}
 		
@@ -105,8 +120,8 @@ public class ConfigBuilder {
 	}
 
 	private static void _usageAndExit() {
-		System.err.println("Usage: ConfigBuilder (<ip> <port>)+");
-		System.err.println("\tAt least 1 pair must be specified.");
+		System.err.println("Usage: ConfigBuilder (<ip> <port> [" + LEARNER_FLAG + "])+");
+		System.err.println("\tAt least 1 pair must be specified and at least 1 node must not be a learner.");
 		System.exit(1);
 	}
 }
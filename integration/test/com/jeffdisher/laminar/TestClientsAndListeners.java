@@ -18,15 +18,21 @@ import org.junit.Test;
 import com.jeffdisher.laminar.client.ClientConnection;
 import com.jeffdisher.laminar.client.ClientResult;
 import com.jeffdisher.laminar.client.ListenerConnection;
+import com.jeffdisher.laminar.client.PartitionedClientConnection;
+import com.jeffdisher.laminar.client.ValueResult;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.event.EventRecordType;
 import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.types.payload.Payload_KeyDelete;
 import com.jeffdisher.laminar.types.payload.Payload_KeyPut;
+import com.jeffdisher.laminar.types.program.ProgramBuilder;
+import com.jeffdisher.laminar.types.program.ProgramOpcode;
 import com.jeffdisher.laminar.types.response.ClientResponse;
 import com.jeffdisher.laminar.types.response.ClientResponseType;
 import com.jeffdisher.laminar.utils.TestingHelpers;
@@ -56,6 +62,110 @@ public class TestClientsAndListeners {
 		Assert.assertEquals(0, wrapper.stop());
 	}
 
+	@Test
+	public void testGet() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		byte[] key = "key".getBytes();
+		// Here, we put, replace, and delete a key, reading it with GET after each change (no listener is needed).
+		ServerWrapper wrapper = ServerWrapper.startedServerWrapper("testGet", 2003, 2002, new File("/tmp/laminar"));
+		
+		try (ClientConnection client = ClientConnection.open(new InetSocketAddress(InetAddress.getLocalHost(), 2002))) {
+			Assert.assertNull(client.sendGet(topic, key).waitForValue());
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateTopic(topic).waitForCommitted().effect);
+			client.sendPut(topic, key, "one".getBytes());
+			long putOffset = client.sendPut(topic, key, "two".getBytes()).waitForCommitted().mutationOffset;
+			ValueResult read = client.sendGet(topic, key);
+			Assert.assertArrayEquals("two".getBytes(), read.waitForValue());
+			Assert.assertTrue(read.getLastCommitGlobalOffset() >= putOffset);
+			Assert.assertNull(client.sendGet(topic, "other".getBytes()).waitForValue());
+			
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendDelete(topic, key).waitForCommitted().effect);
+			Assert.assertNull(client.sendGet(topic, key).waitForValue());
+		}
+		Assert.assertEquals(0, wrapper.stop());
+	}
+
+	@Test
+	public void testProgrammableTopic() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		byte[] total = "total".getBytes();
+		// The program keeps a running total of the numbers PUT to the topic (without writing the PUTs themselves).
+		byte[] code = new ProgramBuilder()
+				.pushBytes(total)
+				.pushBytes(total).op(ProgramOpcode.GET)
+				.op(ProgramOpcode.LOAD_VALUE).op(ProgramOpcode.ADD)
+				.op(ProgramOpcode.EMIT_PUT)
+				.build();
+		ServerWrapper wrapper = ServerWrapper.startedServerWrapper("testProgrammableTopic", 2003, 2002, new File("/tmp/laminar"));
+		
+		try (ClientConnection client = ClientConnection.open(new InetSocketAddress(InetAddress.getLocalHost(), 2002))) {
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateProgrammableTopic(topic, code, new byte[0]).waitForCommitted().effect);
+			for (long i = 1L; i <= 10L; ++i) {
+				client.sendPut(topic, new byte[0], ByteBuffer.allocate(Long.BYTES).putLong(i).array());
+			}
+			// A value which isn't a number makes the program fault.
+			Assert.assertEquals(CommitInfo.Effect.ERROR, client.sendPut(topic, new byte[0], new byte[] {1}).waitForCommitted().effect);
+			Assert.assertEquals(55L, ByteBuffer.wrap(client.sendGet(topic, total).waitForValue()).getLong());
+			// Every PUT produced one event (the new total), after the creation.
+			Assert.assertEquals(11L, client.sendReadTopicState(topic).waitForState().lastEventLocalOffset);
+		}
+		Assert.assertEquals(0, wrapper.stop());
+	}
+
+	@Test
+	public void testBatch() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		// We send a thousand PUTs (and a DELETE of the first key) as one message and see them committed as one mutation.
+		int count = 1000;
+		byte[][] keys = new byte[count + 1][];
+		byte[][] values = new byte[count + 1][];
+		for (int i = 0; i < count; ++i) {
+			keys[i] = ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+			values[i] = ByteBuffer.allocate(Long.BYTES).putLong(i).array();
+		}
+		keys[count] = keys[0];
+		values[count] = null;
+		ServerWrapper wrapper = ServerWrapper.startedServerWrapper("testBatch", 2003, 2002, new File("/tmp/laminar"));
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLocalHost(), 2002);
+		
+		try (ClientConnection client = ClientConnection.open(address)) {
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateTopic(topic).waitForCommitted().effect);
+			CommitInfo info = client.sendBatch(topic, keys, values).waitForCommitted();
+			Assert.assertEquals(CommitInfo.Effect.VALID, info.effect);
+			Assert.assertEquals(2L, info.mutationOffset);
+			Assert.assertNull(client.sendGet(topic, keys[0]).waitForValue());
+			Assert.assertArrayEquals(values[count - 1], client.sendGet(topic, keys[count - 1]).waitForValue());
+			Assert.assertEquals(2L + count, client.sendReadTopicState(topic).waitForState().lastEventLocalOffset);
+			
+			// A batch as large as a replicated mutation can be is committed but the client refuses one a byte larger.
+			byte[][] oneKey = new byte[][] { new byte[0] };
+			int emptySize = MutationRecord.batch(1L, 1L, topic, UUID.randomUUID(), 1L, oneKey, new byte[][] { new byte[0] }).serializedSize();
+			int largestValue = MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES - emptySize;
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendBatch(topic, oneKey, new byte[][] { new byte[largestValue] }).waitForCommitted().effect);
+			boolean didThrow = false;
+			try {
+				client.sendBatch(topic, oneKey, new byte[][] { new byte[largestValue + 1] });
+			} catch (IllegalArgumentException e) {
+				didThrow = true;
+			}
+			Assert.assertTrue(didThrow);
+		}
+		
+		// A listener sees one event per operation, all from the same mutation, with consecutive local offsets.
+		try (ListenerConnection listener = ListenerConnection.open(address, topic, 1L)) {
+			for (int i = 0; i < count; ++i) {
+				EventRecord event = listener.pollForNextEvent();
+				_checkRecord(event, 2L, EventRecordType.KEY_PUT, keys[i], values[i]);
+				Assert.assertEquals(2L + i, event.localOffset);
+			}
+			EventRecord delete = listener.pollForNextEvent();
+			Assert.assertEquals(2L, delete.globalOffset);
+			Assert.assertEquals(2L + count, delete.localOffset);
+			Assert.assertEquals(EventRecordType.KEY_DELETE, delete.type);
+		}
+		Assert.assertEquals(0, wrapper.stop());
+	}
+
 	@Test
 	public void testSimpleClientAndListeners() throws Throwable {
 		TopicName topic = TopicName.fromString("test");
@@ -568,6 +678,53 @@ public class TestClientsAndListeners {
 	/**
 	 * Tests that a STUTTER message will generate 2 PUT events which a listener can observe.
 	 */
+	/**
+	 * Tests that a PartitionedClientConnection spreads topics across independent clusters (here, 2 single-node
+	 * clusters) and that each topic only exists in the cluster which owns it.
+	 */
+	@Test
+	public void testPartitionedTopics() throws Throwable {
+		ServerWrapper server1 = ServerWrapper.startedServerWrapper("testPartitionedTopics-1", 2003, 2002, new File("/tmp/laminar"));
+		ServerWrapper server2 = ServerWrapper.startedServerWrapper("testPartitionedTopics-2", 2005, 2004, new File("/tmp/laminar2"));
+		InetSocketAddress[] groupServers = new InetSocketAddress[] {
+				new InetSocketAddress(InetAddress.getLocalHost(), 2002),
+				new InetSocketAddress(InetAddress.getLocalHost(), 2004),
+		};
+		
+		// Find a topic owned by each group.
+		TopicName[] topics = new TopicName[groupServers.length];
+		for (int i = 0; (null == topics[0]) || (null == topics[1]); ++i) {
+			TopicName topic = TopicName.fromString("topic" + i);
+			int index = topic.getPartitionIndex(groupServers.length);
+			if (null == topics[index]) {
+				topics[index] = topic;
+			}
+		}
+		
+		try (PartitionedClientConnection client = PartitionedClientConnection.open(groupServers)) {
+			client.waitForConnection();
+			for (TopicName topic : topics) {
+				Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateTopic(topic).waitForCommitted().effect);
+				Assert.assertEquals(CommitInfo.Effect.VALID, client.sendPut(topic, new byte[0], new byte[] {1}).waitForCommitted().effect);
+			}
+			for (int i = 0; i < topics.length; ++i) {
+				// The owning group has the topic and the other doesn't know about it.
+				TopicState state = client.sendReadTopicState(topics[i]).waitForState();
+				Assert.assertTrue(state.isActive);
+				Assert.assertEquals(2L, state.lastEventLocalOffset);
+				Assert.assertFalse(client.getGroupConnection((i + 1) % topics.length).sendReadTopicState(topics[i]).waitForState().isActive);
+				Assert.assertEquals(groupServers[i], client.getConnectionForTopic(topics[i]).getCurrentServer());
+			}
+			ListenerConnection listener = client.openListener(topics[1], 1L);
+			_checkRecord(listener.pollForNextEvent(), 2L, EventRecordType.KEY_PUT, new byte[0], new byte[] {1});
+			listener.close();
+		}
+		
+		// Shut down.
+		Assert.assertEquals(0, server1.stop());
+		Assert.assertEquals(0, server2.stop());
+	}
+
 	@Test
 	public void testStutterAndListener() throws Throwable {
 		TopicName topic = TopicName.fromString("test");
@@ -13,10 +13,12 @@ import org.junit.Test;
 import com.jeffdisher.laminar.client.ClientConnection;
 import com.jeffdisher.laminar.client.ClientResult;
 import com.jeffdisher.laminar.client.ListenerConnection;
+import com.jeffdisher.laminar.client.TopicStateResult;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.event.EventRecordType;
 import com.jeffdisher.laminar.types.message.ClientMessage;
@@ -506,6 +508,53 @@ public class TestCluster {
 		}
 	}
 
+	/**
+	 * Tests that asking the leader to transfer leadership moves it to the chosen follower and the client follows it there
+	 * without losing anything.
+	 */
+	@Test
+	public void testTransferLeader() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		UUID server1Uuid = UUID.randomUUID();
+		UUID server2Uuid = UUID.randomUUID();
+		ServerWrapper server1 = ServerWrapper.startedServerWrapperWithUuid("testTransferLeader-1", server1Uuid, 2003, 2002, new File("/tmp/laminar"));
+		InetSocketAddress server1Address = new InetSocketAddress(InetAddress.getLocalHost(), 2002);
+		ServerWrapper server2 = ServerWrapper.startedServerWrapperWithUuid("testTransferLeader-2", server2Uuid, 2005, 2004, new File("/tmp/laminar2"));
+		InetSocketAddress server2Address= new InetSocketAddress(InetAddress.getLocalHost(), 2004);
+		
+		ClientConnection client = ClientConnection.open(server1Address);
+		ClusterConfig config = ClusterConfig.configFromEntries(new ConfigEntry[] {
+				new ConfigEntry(server1Uuid, new InetSocketAddress(InetAddress.getLocalHost(), 2003), server1Address),
+				new ConfigEntry(server2Uuid, new InetSocketAddress(InetAddress.getLocalHost(), 2005), server2Address),
+		});
+		
+		try {
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendUpdateConfig(config).waitForCommitted().effect);
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateTopic(topic).waitForCommitted().effect);
+			ClientResult put1 = client.sendPut(topic, new byte[0], new byte[] {1});
+			
+			// Ask the leader to hand off to server2, without waiting for the put to commit.
+			try (Socket adhoc = new Socket(server1Address.getAddress(), server1Address.getPort())) {
+				OutputStream toServer = adhoc.getOutputStream();
+				TestingHelpers.writeMessageInFrame(toServer, ClientMessage.transferLeader(server2Uuid).serialize());
+				// Read until disconnect.
+				adhoc.getInputStream().read();
+			}
+			
+			// The client should be redirected to the new leader and everything it sent should commit.
+			ClientResult put2 = client.sendPut(topic, new byte[0], new byte[] {2});
+			Assert.assertEquals(CommitInfo.Effect.VALID, put1.waitForCommitted().effect);
+			Assert.assertEquals(CommitInfo.Effect.VALID, put2.waitForCommitted().effect);
+			Assert.assertEquals(server2Address, client.getCurrentServer());
+			Assert.assertEquals(3L, client.sendReadTopicState(topic).waitForState().lastEventLocalOffset);
+		} finally {
+			// Shut down.
+			client.close();
+			Assert.assertEquals(0, server1.stop());
+			Assert.assertEquals(0, server2.stop());
+		}
+	}
+
 	/**
 	 * Stress tests reconnection to a server by forcing the connection to close while many messages are in-flight.
 	 */
@@ -770,6 +819,54 @@ public class TestCluster {
 		}
 	}
 
+	/**
+	 * Tests that a leader in a cluster answers READ_TOPIC_STATE from its lease, observing committed changes to a topic.
+	 */
+	@Test
+	public void testReadTopicState() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		UUID leaderUuid = UUID.randomUUID();
+		ServerWrapper leader = ServerWrapper.startedServerWrapperWithUuid("testReadTopicState-LEADER", leaderUuid, 3001, 2001, new File("/tmp/laminar1"));
+		InetSocketAddress leaderClientAddress = new InetSocketAddress(InetAddress.getLocalHost(), 2001);
+		UUID followerUuid = UUID.randomUUID();
+		ServerWrapper follower = ServerWrapper.startedServerWrapperWithUuid("testReadTopicState-FOLLOWER", followerUuid, 3002, 2002, new File("/tmp/laminar2"));
+		InetSocketAddress followerClientAddress= new InetSocketAddress(InetAddress.getLocalHost(), 2002);
+		
+		try(ClientConnection client = ClientConnection.open(leaderClientAddress)) {
+			ClusterConfig config = ClusterConfig.configFromEntries(new ConfigEntry[] {
+					new ConfigEntry(leaderUuid, new InetSocketAddress(InetAddress.getLocalHost(), 3001), leaderClientAddress),
+					new ConfigEntry(followerUuid, new InetSocketAddress(InetAddress.getLocalHost(), 3002), followerClientAddress),
+			});
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendUpdateConfig(config).waitForCommitted().effect);
+			
+			// A topic which doesn't exist is just inactive.
+			Assert.assertFalse(client.sendReadTopicState(topic).waitForState().isActive);
+			
+			// Create it and put 2 values, then read (the reads don't consume nonces).
+			long nonceBeforeRead = client.getNextNonce();
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendCreateTopic(topic).waitForCommitted().effect);
+			client.sendPut(topic, new byte[0], new byte[] {1});
+			ClientResult put = client.sendPut(topic, new byte[0], new byte[] {2});
+			long putOffset = put.waitForCommitted().mutationOffset;
+			TopicStateResult read = client.sendReadTopicState(topic);
+			TopicState state = read.waitForState();
+			Assert.assertTrue(state.isActive);
+			Assert.assertEquals(3L, state.lastEventLocalOffset);
+			Assert.assertTrue(read.getLastCommitGlobalOffset() >= putOffset);
+			Assert.assertEquals(nonceBeforeRead + 3L, client.getNextNonce());
+			
+			// Destroy it and see that the read observes this.
+			Assert.assertEquals(CommitInfo.Effect.VALID, client.sendDestroyTopic(topic).waitForCommitted().effect);
+			state = client.sendReadTopicState(topic).waitForState();
+			Assert.assertFalse(state.isActive);
+			Assert.assertEquals(4L, state.lastEventLocalOffset);
+		} finally {
+			// Shut down.
+			Assert.assertEquals(0, leader.stop());
+			Assert.assertEquals(0, follower.stop());
+		}
+	}
+
 	/**
 	 * Tests that downstream connections are automatically re-established when broken.
 	 */
@@ -27,6 +27,10 @@ import com.jeffdisher.laminar.types.ConfigEntry;
  * -"--data" - the directory which will be used for storing incoming and committed stream files
  * Optional arguments:
  * -"--uuid" &lt;UUID&gt; - forces the UUID of the server to be this instead of randomly generated on start-up
+ * -"--replicationWindow" &lt;count&gt; - the number of un-acknowledged APPEND_MUTATIONS which can be sent to each
+ *  follower (defaults to ClusterManager.DEFAULT_REPLICATION_WINDOW_SIZE)
+ * -"--maxListenerLag" &lt;count&gt; - the number of committed mutations this node can be behind the leader, as a
+ *  FOLLOWER, before it stops serving listeners (defaults to unbounded)
  * NOTE:  Port settings will be made optional in the future (mostly just for testing multiple nodes on one machine).
  */
 public class Laminar {
@@ -42,6 +46,8 @@ public class Laminar {
 		String clusterPortString = parseOption(args, "--clusterPort");
 		String dataDirectoryName = parseOption(args, "--data");
 		String uuidString = parseOption(args, "--uuid");
+		String replicationWindowString = parseOption(args, "--replicationWindow");
+		String maxListenerLagString = parseOption(args, "--maxListenerLag");
 		
 		// Create the UUID this node will use (in config, etc).
 		UUID serverUuid = (null == uuidString)
@@ -58,6 +64,20 @@ public class Laminar {
 		InetSocketAddress clientSocketAddress = _parseIpAndPort(clientIpString, clientPortString);
 		InetSocketAddress clusterSocketAddress = _parseIpAndPort(clusterIpString, clusterPortString);
 		
+		// Parse tuning options.
+		int replicationWindowSize = (null == replicationWindowString)
+				? ClusterManager.DEFAULT_REPLICATION_WINDOW_SIZE
+				: Integer.parseInt(replicationWindowString);
+		if (replicationWindowSize < 1) {
+			failStart("Replication window must be at least 1: " + replicationWindowSize);
+		}
+		long maxListenerLag = (null == maxListenerLagString)
+				? ClientManager.UNBOUNDED_LISTENER_LAG
+				: Long.parseLong(maxListenerLagString);
+		if (maxListenerLag < 0L) {
+			failStart("Max listener lag cannot be negative: " + maxListenerLag);
+		}
+		
 		// Bind ports.
 		ServerSocketChannel clientSocket = null;
 		ServerSocketChannel clusterSocket = null;
@@ -104,14 +124,14 @@ public class Laminar {
 		// Now, create the managers.
 		ClientManager clientManager = null;
 		try {
-			clientManager = new ClientManager(self, clientSocket, thisNodeState);
+			clientManager = new ClientManager(self, clientSocket, thisNodeState, maxListenerLag);
 		} catch (IOException e1) {
 			// Not sure how creating the Selector would fail but we can handle it since we haven't started, yet.
 			failStart("Failure creating ClientManager: " + e1.getLocalizedMessage());
 		}
 		ClusterManager clulsterManager = null;
 		try {
-			clulsterManager = new ClusterManager(self, clusterSocket, thisNodeState);
+			clulsterManager = new ClusterManager(self, clusterSocket, thisNodeState, replicationWindowSize);
 		} catch (IOException e1) {
 			// Not sure how creating the Selector would fail but we can handle it since we haven't started, yet.
 			failStart("Failure creating ClusterManager: " + e1.getLocalizedMessage());
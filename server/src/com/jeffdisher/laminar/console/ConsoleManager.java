@@ -6,6 +6,7 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Scanner;
+import java.util.UUID;
 
 import com.jeffdisher.laminar.utils.Assert;
 
@@ -103,9 +104,18 @@ public class ConsoleManager implements IConsoleManager {
 		try (Scanner scanner = new Scanner(line)) {
 			if (scanner.hasNext()) {
 				String next = scanner.next();
-				// We only understand "stop".
+				// We only understand "stop", "stats", and "transfer <node UUID>".
 				if (next.equalsIgnoreCase("stop")) {
 					_callbacks.ioEnqueueConsoleCommandForMainThread((snapshot) -> _callbacks.mainHandleStopCommand());
+				} else if (next.equalsIgnoreCase("stats")) {
+					_callbacks.ioEnqueueConsoleCommandForMainThread((snapshot) -> _callbacks.mainHandleStatsCommand());
+				} else if (next.equalsIgnoreCase("transfer")) {
+					UUID target = _parseUuidOrNull(scanner);
+					if (null != target) {
+						_callbacks.ioEnqueueConsoleCommandForMainThread((snapshot) -> _callbacks.mainHandleTransferLeaderCommand(target));
+					} else {
+						_out.println("Usage:  transfer <node UUID>");
+					}
 				} else {
 					_out.println("Command \"" + next + "\" not understood");
 				}
@@ -113,6 +123,18 @@ public class ConsoleManager implements IConsoleManager {
 		}
 	}
 
+	private static UUID _parseUuidOrNull(Scanner scanner) {
+		UUID uuid = null;
+		if (scanner.hasNext()) {
+			try {
+				uuid = UUID.fromString(scanner.next());
+			} catch (IllegalArgumentException e) {
+				// We just treat this as missing.
+			}
+		}
+		return uuid;
+	}
+
 	private synchronized boolean _shouldRunAfterWait() {
 		// We don't worry about spurious wake-up since we will just check the buffer and wait again.
 		// (this is just for throttling, not for logic).
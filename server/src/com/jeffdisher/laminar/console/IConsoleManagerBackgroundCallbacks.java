@@ -1,5 +1,6 @@
 package com.jeffdisher.laminar.console;
 
+import java.util.UUID;
 import java.util.function.Consumer;
 
 import com.jeffdisher.laminar.state.StateSnapshot;
@@ -15,4 +16,17 @@ public interface IConsoleManagerBackgroundCallbacks {
 	 * Called when a "stop" is issued on the console.
 	 */
 	void mainHandleStopCommand();
+
+	/**
+	 * Called when a "stats" is issued on the console, to print the main thread's batching statistics.
+	 */
+	void mainHandleStatsCommand();
+
+	/**
+	 * Called when a "transfer" is issued on the console, to move leadership of the cluster to another node (typically
+	 * before taking this one down for maintenance).
+	 * 
+	 * @param targetNodeUuid The UUID of the node which should become leader.
+	 */
+	void mainHandleTransferLeaderCommand(UUID targetNodeUuid);
 }
@@ -2,6 +2,7 @@ package com.jeffdisher.laminar.disk;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.Map;
 
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.utils.Assert;
 
 
@@ -30,14 +32,18 @@ public class DiskManager implements IDiskManager {
 
 	// These are all accessed under monitor.
 	private boolean _keepRunning;
-	// We track the incoming commits in 2 lists:  one for the "global" mutations and one for the "local" events.
-	private final List<CommittedMutationRecord> _incomingCommitMutations;
-	private final List<EventCommitTuple> _incomingCommitEvents;
+	// We track the incoming writes, the appended and committed "global" mutations and the "local" events, in a single
+	// list so that their relative order is preserved (listeners must not see an event before the mutation commit which
+	// precedes it and an append must be durable before the commit of the same mutation).
+	private final List<Work> _incomingCommits;
 	// We track fetch requests in 2 lists:  one for the "global" mutations and one for the "local" events.
 	private final List<Long> _incomingFetchMutationRequests;
+	private final List<MutationRangeFetchTuple> _incomingFetchMutationRangeRequests;
 	private final List<EventFetchTuple> _incomingFetchEventRequests;
 
 	// Only accessed by background thread (current virtual "disk").
+	// Mutations which have been appended but not yet committed, keyed by global offset.
+	private final Map<Long, MutationRecord> _appendedMutationVirtualDisk;
 	private final List<CommittedMutationRecord> _committedMutationVirtualDisk;
 	private final Map<TopicName, List<EventRecord>> _committedEventVirtualDisk;
 
@@ -58,11 +64,13 @@ public class DiskManager implements IDiskManager {
 		};
 		
 		_keepRunning = false;
-		_incomingCommitMutations = new LinkedList<>();
-		_incomingCommitEvents = new LinkedList<>();
+		_incomingCommits = new LinkedList<>();
 		_incomingFetchMutationRequests = new LinkedList<>();
+		_incomingFetchMutationRangeRequests = new LinkedList<>();
 		_incomingFetchEventRequests = new LinkedList<>();
-		_committedMutationVirtualDisk = new LinkedList<>();
+		_appendedMutationVirtualDisk = new HashMap<>();
+		// (this is indexed by global offset on every fetch so it must be random-access).
+		_committedMutationVirtualDisk = new ArrayList<>();
 		_committedEventVirtualDisk = new HashMap<>();
 		
 		// (we introduce a null to all virtual disk extents since they must be 1-indexed)
@@ -94,11 +102,19 @@ public class DiskManager implements IDiskManager {
 		}
 	}
 
+	@Override
+	public synchronized void appendMutation(MutationRecord mutation) {
+		// Make sure this isn't reentrant.
+		Assert.assertTrue(Thread.currentThread() != _background);
+		_incomingCommits.add(Work.appendMutation(mutation));
+		this.notifyAll();
+	}
+
 	@Override
 	public synchronized void commitMutation(CommittedMutationRecord mutation) {
 		// Make sure this isn't reentrant.
 		Assert.assertTrue(Thread.currentThread() != _background);
-		_incomingCommitMutations.add(mutation);
+		_incomingCommits.add(Work.commitMutation(mutation));
 		this.notifyAll();
 	}
 
@@ -106,7 +122,7 @@ public class DiskManager implements IDiskManager {
 	public synchronized void commitEvent(TopicName topic, EventRecord event) {
 		// Make sure this isn't reentrant.
 		Assert.assertTrue(Thread.currentThread() != _background);
-		_incomingCommitEvents.add(new EventCommitTuple(topic, event));
+		_incomingCommits.add(Work.commitEvent(new EventCommitTuple(topic, event)));
 		this.notifyAll();
 	}
 
@@ -118,6 +134,15 @@ public class DiskManager implements IDiskManager {
 		this.notifyAll();
 	}
 
+	@Override
+	public synchronized void fetchMutationRange(long firstMutationOffset, int maxCount) {
+		// Make sure this isn't reentrant.
+		Assert.assertTrue(Thread.currentThread() != _background);
+		Assert.assertTrue(maxCount > 0);
+		_incomingFetchMutationRangeRequests.add(new MutationRangeFetchTuple(firstMutationOffset, maxCount));
+		this.notifyAll();
+	}
+
 	@Override
 	public synchronized void fetchEvent(TopicName topic, long localOffset) {
 		// Make sure this isn't reentrant.
@@ -128,11 +153,19 @@ public class DiskManager implements IDiskManager {
 
 
 	private void _backgroundThreadMain() throws IOException {
-		// TODO:  This design should probably be changed to UninterruptibleQueue in order to maintain commit order.
+		// TODO:  This design should probably be changed to UninterruptibleQueue.
 		// (this would also avoiding needing multiple intermediary containers and structures)
 		Work work = _backgroundWaitForWork();
 		while (null != work) {
-			if (null != work.commitMutation) {
+			if (null != work.appendMutation) {
+				// Note that this may replace a previous append at this offset (if it was reverted).
+				MutationRecord record = work.appendMutation;
+				_appendedMutationVirtualDisk.put(record.globalOffset, record);
+				_callbackTarget.ioEnqueueDiskCommandForMainThread((snapshot) -> _callbackTarget.mainMutationWasAppended(record));
+			}
+			else if (null != work.commitMutation) {
+				// Once committed, the mutation is stored in the committed extent so we can drop the appended copy.
+				_appendedMutationVirtualDisk.remove(work.commitMutation.record.globalOffset);
 				_committedMutationVirtualDisk.add(work.commitMutation);
 				CommittedMutationRecord record = work.commitMutation;
 				_callbackTarget.ioEnqueueDiskCommandForMainThread((snapshot) -> _callbackTarget.mainMutationWasCommitted(record));
@@ -160,6 +193,18 @@ public class DiskManager implements IDiskManager {
 						: 0L;
 				_callbackTarget.ioEnqueueDiskCommandForMainThread((snapshot) -> _callbackTarget.mainMutationWasFetched(snapshot, previousMutationTermNumber, record));
 			}
+			else if (null != work.fetchMutationRange) {
+				// We read as much of the requested range as has been committed (commits are always processed before
+				// fetches so anything the caller knows to be committed is already here).
+				int first = (int)work.fetchMutationRange.firstOffset;
+				Assert.assertTrue(first < _committedMutationVirtualDisk.size());
+				int end = (int)Math.min((long)first + work.fetchMutationRange.maxCount, (long)_committedMutationVirtualDisk.size());
+				CommittedMutationRecord[] records = _committedMutationVirtualDisk.subList(first, end).toArray(new CommittedMutationRecord[end - first]);
+				long previousMutationTermNumber = (first > 1)
+						? _committedMutationVirtualDisk.get(first - 1).record.termNumber
+						: 0L;
+				_callbackTarget.ioEnqueueDiskCommandForMainThread((snapshot) -> _callbackTarget.mainMutationRangeWasFetched(snapshot, previousMutationTermNumber, records));
+			}
 			else if (null != work.fetchEvent) {
 				TopicName topic = work.fetchEvent.topic;
 				int offset = (int) work.fetchEvent.offset;
@@ -174,7 +219,7 @@ public class DiskManager implements IDiskManager {
 	}
 
 	private synchronized Work _backgroundWaitForWork() {
-		while (_keepRunning && _incomingCommitEvents.isEmpty() && _incomingCommitMutations.isEmpty() && _incomingFetchEventRequests.isEmpty() && _incomingFetchMutationRequests.isEmpty()) {
+		while (_keepRunning && _incomingCommits.isEmpty() && _incomingFetchEventRequests.isEmpty() && _incomingFetchMutationRequests.isEmpty() && _incomingFetchMutationRangeRequests.isEmpty()) {
 			try {
 				this.wait();
 			} catch (InterruptedException e) {
@@ -184,14 +229,14 @@ public class DiskManager implements IDiskManager {
 		}
 		Work todo = null;
 		if (_keepRunning) {
-			if (!_incomingCommitEvents.isEmpty()) {
-				todo = Work.commitEvent(_incomingCommitEvents.remove(0));
-			} else if (!_incomingCommitMutations.isEmpty()) {
-				todo = Work.commitMutation(_incomingCommitMutations.remove(0));
+			if (!_incomingCommits.isEmpty()) {
+				todo = _incomingCommits.remove(0);
 			} else if (!_incomingFetchEventRequests.isEmpty()) {
 				todo = Work.fetchEvent(_incomingFetchEventRequests.remove(0));
 			} else if (!_incomingFetchMutationRequests.isEmpty()) {
 				todo = Work.fetchMutation(_incomingFetchMutationRequests.remove(0));
+			} else if (!_incomingFetchMutationRangeRequests.isEmpty()) {
+				todo = Work.fetchMutationRange(_incomingFetchMutationRangeRequests.remove(0));
 			}
 		}
 		return todo;
@@ -214,33 +259,54 @@ public class DiskManager implements IDiskManager {
 	 * A simple tuple used to pass back work from the synchronized wait loop.
 	 */
 	private static class Work {
+		public static Work appendMutation(MutationRecord toAppend) {
+			return new Work(toAppend, null, null, 0L, null, null);
+		}
 		public static Work commitMutation(CommittedMutationRecord toCommit) {
-			return new Work(toCommit, null, 0L, null);
+			return new Work(null, toCommit, null, 0L, null, null);
 		}
 		public static Work commitEvent(EventCommitTuple toCommit) {
-			return new Work(null, toCommit, 0L, null);
+			return new Work(null, null, toCommit, 0L, null, null);
 		}
 		public static Work fetchMutation(long toFetch) {
-			return new Work(null, null, toFetch, null);
+			return new Work(null, null, null, toFetch, null, null);
+		}
+		public static Work fetchMutationRange(MutationRangeFetchTuple toFetch) {
+			return new Work(null, null, null, 0L, toFetch, null);
 		}
 		public static Work fetchEvent(EventFetchTuple toFetch) {
-			return new Work(null, null, 0L, toFetch);
+			return new Work(null, null, null, 0L, null, toFetch);
 		}
 		
+		public final MutationRecord appendMutation;
 		public final CommittedMutationRecord commitMutation;
 		public final EventCommitTuple commitEvent;
 		public final long fetchMutation;
+		public final MutationRangeFetchTuple fetchMutationRange;
 		public final EventFetchTuple fetchEvent;
 		
-		private Work(CommittedMutationRecord commitMutation, EventCommitTuple commitEvent, long fetchMutation, EventFetchTuple fetchEvent) {
+		private Work(MutationRecord appendMutation, CommittedMutationRecord commitMutation, EventCommitTuple commitEvent, long fetchMutation, MutationRangeFetchTuple fetchMutationRange, EventFetchTuple fetchEvent) {
+			this.appendMutation = appendMutation;
 			this.commitMutation = commitMutation;
 			this.commitEvent = commitEvent;
 			this.fetchMutation = fetchMutation;
+			this.fetchMutationRange = fetchMutationRange;
 			this.fetchEvent = fetchEvent;
 		}
 	}
 
 
+	private static class MutationRangeFetchTuple {
+		public final long firstOffset;
+		public final int maxCount;
+		
+		public MutationRangeFetchTuple(long firstOffset, int maxCount) {
+			this.firstOffset = firstOffset;
+			this.maxCount = maxCount;
+		}
+	}
+
+
 	private static class EventFetchTuple {
 		public final TopicName topic;
 		public final long offset;
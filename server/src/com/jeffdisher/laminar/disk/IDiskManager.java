@@ -2,6 +2,7 @@ package com.jeffdisher.laminar.disk;
 
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 
 
 /**
@@ -25,6 +26,15 @@ public interface IDiskManager {
 	 */
 	void commitEvent(TopicName topic, EventRecord event);
 
+	/**
+	 * Request that the given mutation be asynchronously appended to the local log, before it is known to be committed.
+	 * This allows the local durable write to proceed in parallel with replication.  Appending a mutation at an offset
+	 * which was previously appended replaces the earlier one (this happens when a FOLLOWER reverts in-flight mutations).
+	 * 
+	 * @param mutation The mutation to append.
+	 */
+	void appendMutation(MutationRecord mutation);
+
 	/**
 	 * Request that the given mutation be asynchronously committed.
 	 * 
@@ -38,4 +48,15 @@ public interface IDiskManager {
 	 * @param globalOffset The offset of the mutation to load.
 	 */
 	void fetchMutation(long mutationOffset);
+
+	/**
+	 * Requests that a contiguous range of committed mutations, starting at firstMutationOffset, be asynchronously fetched
+	 * in a single read.  This is used when syncing a downstream peer which is far behind, where fetching each mutation
+	 * individually would dominate the cost.
+	 * Note that the range returned may be shorter than maxCount if fewer mutations have been committed.
+	 * 
+	 * @param firstMutationOffset The offset of the first mutation to load.
+	 * @param maxCount The maximum number of mutations to load.
+	 */
+	void fetchMutationRange(long firstMutationOffset, int maxCount);
 }
@@ -5,6 +5,7 @@ import java.util.function.Consumer;
 import com.jeffdisher.laminar.state.StateSnapshot;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 
 
 /**
@@ -13,6 +14,13 @@ import com.jeffdisher.laminar.types.event.EventRecord;
 public interface IDiskManagerBackgroundCallbacks {
 	void ioEnqueueDiskCommandForMainThread(Consumer<StateSnapshot> command);
 
+	/**
+	 * A previously requested mutation append operation has completed.
+	 * 
+	 * @param completed The record which is now durable in the local log.
+	 */
+	void mainMutationWasAppended(MutationRecord completed);
+
 	/**
 	 * A previously requested mutation commit operation has completed.
 	 * 
@@ -37,6 +45,16 @@ public interface IDiskManagerBackgroundCallbacks {
 	 */
 	void mainMutationWasFetched(StateSnapshot snapshot, long previousMutationTermNumber, CommittedMutationRecord record);
 
+	/**
+	 * A previously requested range of mutation records has been fetched.
+	 * 
+	 * @param snapshot The state created when this event started.
+	 * @param previousMutationTermNumber The term number of the mutation before the first in the range (0 if the range
+	 * starts at the first mutation).
+	 * @param records The records which were fetched from storage, in order (never empty).
+	 */
+	void mainMutationRangeWasFetched(StateSnapshot snapshot, long previousMutationTermNumber, CommittedMutationRecord[] records);
+
 	/**
 	 * A previously requested event record has been fetched.
 	 * 
@@ -12,6 +12,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import com.jeffdisher.laminar.components.INetworkManagerBackgroundCallbacks;
@@ -22,11 +23,14 @@ import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.message.ClientMessage;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_Handshake;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_Listen;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_Reconnect;
+import com.jeffdisher.laminar.types.message.ClientMessagePayload_TransferLeader;
+import com.jeffdisher.laminar.types.message.ClientMessageType;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.types.response.ClientResponse;
 import com.jeffdisher.laminar.utils.Assert;
@@ -40,8 +44,24 @@ import com.jeffdisher.laminar.utils.Assert;
  * only hand-off to the coordination thread, outside.
  */
 public class ClientManager implements IClientManager, INetworkManagerBackgroundCallbacks {
+	/**
+	 * The value to pass as maxListenerLag to allow listeners to attach to a FOLLOWER, no matter how far behind it is.
+	 */
+	public static final long UNBOUNDED_LISTENER_LAG = Long.MAX_VALUE;
+	/**
+	 * The most messages from one connection which we will decode, on the IO thread, before the main thread has handled
+	 * them.  Past this, the main thread reads each message from the connection's buffer when it gets to it so a client
+	 * sending faster than we can handle fills that buffer and is stopped by TCP flow control, instead of growing our
+	 * command queue.
+	 */
+	public static final int MAX_DECODED_MESSAGES_PER_CONNECTION = 64;
+
 	private final Thread _mainThread;
 	private final ConfigEntry _selfConfig;
+	// The number of committed mutations this node can be behind the leader before it stops serving listeners.
+	private final long _maxListenerLag;
+	// True if we are a FOLLOWER which has fallen further behind the leader than _maxListenerLag.
+	private boolean _isTooStaleForListeners;
 	private final NetworkManager _networkManager;
 	private final IClientManagerCallbacks _callbacks;
 
@@ -64,10 +84,16 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 	private final Set<NetworkManager.NodeToken> _closingClients;
 	private final Map<Long, List<ReconnectingClientState>> _reconnectingClientsByGlobalOffset;
 	private final ListenerManager _listenerManager;
+	// The read backlog of each open connection (created and removed by the IO thread on connect/disconnect, or by the
+	// main thread when it closes a connection).
+	private final Map<NetworkManager.NodeToken, ReadBacklog> _readBacklogs;
 
-	public ClientManager(ConfigEntry selfConfig, ServerSocketChannel serverSocket, IClientManagerCallbacks callbacks) throws IOException {
+	public ClientManager(ConfigEntry selfConfig, ServerSocketChannel serverSocket, IClientManagerCallbacks callbacks, long maxListenerLag) throws IOException {
+		Assert.assertTrue(maxListenerLag >= 0L);
 		_mainThread = Thread.currentThread();
 		_selfConfig = selfConfig;
+		_maxListenerLag = maxListenerLag;
+		_isTooStaleForListeners = false;
 		// This is really just a high-level wrapper over the common NetworkManager so create that here.
 		_networkManager = NetworkManager.bidirectional(serverSocket, this);
 		_callbacks = callbacks;
@@ -80,6 +106,7 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		_closingClients = new HashSet<>();
 		_reconnectingClientsByGlobalOffset = new HashMap<>();
 		_listenerManager = new ListenerManager();
+		_readBacklogs = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -96,36 +123,21 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		_networkManager.stopAndWaitForTermination();
 	}
 
-	/**
-	 * Reads and deserializes a message waiting from the given client.
-	 * Note that this asserts that there was a message waiting.
-	 * 
-	 * @param client The client from which to read the message.
-	 * @return The message.
-	 */
-	public ClientMessage receive(NetworkManager.NodeToken client) {
-		Assert.assertTrue(Thread.currentThread() == _mainThread);
-		byte[] serialized = _networkManager.readWaitingMessage(client);
-		// We only read when data is available.
-		Assert.assertTrue(null != serialized);
-		return ClientMessage.deserialize(serialized);
-	}
-
 	@Override
 	public void mainDisconnectAllClientsAndListeners() {
 		// Called on main thread.
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		for (NetworkManager.NodeToken node : _newClients) {
-			_networkManager.closeConnection(node);
+			_mainCloseConnection(node);
 		}
 		_newClients.clear();
 		for (NetworkManager.NodeToken node : _normalClientsByToken.keySet()) {
-			_networkManager.closeConnection(node);
+			_mainCloseConnection(node);
 		}
 		_normalClientsByToken.clear();
 		_normalClientsById.clear();
 		for (NetworkManager.NodeToken node : _listenerClients.keySet()) {
-			_networkManager.closeConnection(node);
+			_mainCloseConnection(node);
 		}
 		_listenerClients.clear();
 		_listenerManager.removeAllWritableListeners();
@@ -204,6 +216,8 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		Assert.assertTrue(null != _suspendedClientReadsDuringCandidate);
 		_clusterLeader = null;
+		// The LEADER is, by definition, never behind.
+		_isTooStaleForListeners = false;
 		for (Consumer<StateSnapshot> clientRead : _suspendedClientReadsDuringCandidate) {
 			clientRead.accept(snapshot);
 		}
@@ -220,6 +234,46 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		}
 	}
 
+	@Override
+	public void mainFollowerCommitLagDidChange(long mutationsBehindLeader) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		boolean isTooStale = (mutationsBehindLeader > _maxListenerLag);
+		if (isTooStale && !_isTooStaleForListeners) {
+			// We just fell too far behind so drop our listeners so they can find a fresher node.
+			System.out.println("Listeners disconnected:  " + mutationsBehindLeader + " mutations behind leader");
+			for (ListenerState listener : _listenerClients.values()) {
+				_listenerManager.removeDisconnectedListener(listener);
+				_mainCloseConnection(listener.token);
+			}
+			_listenerClients.clear();
+		}
+		_isTooStaleForListeners = isTooStale;
+	}
+
+	@Override
+	public void mainSendTopicState(UUID clientId, long readId, long lastCommittedMutationOffset, TopicState state) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_mainEnqueueMessageToClient(clientId, ClientResponse.topicState(readId, lastCommittedMutationOffset, state));
+	}
+
+	@Override
+	public void mainSendValue(UUID clientId, long readId, long lastCommittedMutationOffset, byte[] value) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_mainEnqueueMessageToClient(clientId, ClientResponse.value(readId, lastCommittedMutationOffset, value));
+	}
+
+	@Override
+	public void mainStartBatch() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_networkManager.deferWrites();
+	}
+
+	@Override
+	public void mainFlushBatch() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_networkManager.flushDeferredWrites();
+	}
+
 	/**
 	 * This helper exists purely for testing purposes.  It will assert if there are more than 1 connected clients in new
 	 * state.
@@ -235,6 +289,19 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		return toReturn;
 	}
 
+	/**
+	 * This helper exists purely for testing purposes.
+	 * 
+	 * @param node A connected client.
+	 * @return The number of messages from this client which have been decoded but not yet handled.
+	 */
+	public int testingGetDecodedMessageCount(NetworkManager.NodeToken node) {
+		ReadBacklog backlog = _readBacklogs.get(node);
+		synchronized (backlog) {
+			return backlog.decodedCount;
+		}
+	}
+
 	@Override
 	public void mainEnterFollowerState(ConfigEntry clusterLeader, StateSnapshot snapshot) {
 		// Set the config entry for future connection redirects.
@@ -257,6 +324,8 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 
 	@Override
 	public void nodeDidConnect(NetworkManager.NodeToken node) {
+		// This must exist before we get any read callbacks.
+		_readBacklogs.put(node, new ReadBacklog());
 		// We handle this here but we ask to handle this on a main thread callback.
 		_callbacks.ioEnqueueClientCommandForMainThread(new Consumer<StateSnapshot>() {
 			@Override
@@ -269,6 +338,8 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 
 	@Override
 	public void nodeDidDisconnect(NetworkManager.NodeToken node, IOException cause) {
+		// We won't get any more read callbacks (anything already enqueued holds its own reference to the backlog).
+		_readBacklogs.remove(node);
 		// We handle this here but we ask to handle this on a main thread callback.
 		_callbacks.ioEnqueueClientCommandForMainThread(new Consumer<StateSnapshot>() {
 			@Override
@@ -353,7 +424,7 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 					}
 				} else if (isClosing) {
 					// We were just waiting for this to be write-ready (since that means the write-buffer was flushed so close this).
-					_networkManager.closeConnection(node);
+					_mainCloseConnection(node);
 					_closingClients.remove(node);
 				} else {
 					// This appears to have disconnected before we processed it.
@@ -366,16 +437,34 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 	public void nodeReadReady(NetworkManager.NodeToken node) {
 		// Called on an IO thread.
 		Assert.assertTrue(Thread.currentThread() != _mainThread);
+		ReadBacklog backlog = _readBacklogs.get(node);
+		Assert.assertTrue(null != backlog);
+		// We read and decode the message here, so the main thread only needs to act on it, unless the main thread is
+		// too far behind on this connection (or there are earlier messages still waiting for it to read) in which case
+		// we leave it in the buffer for the main thread to read.
+		// (callbacks for a given node are sent in order so the main thread still sees its messages in order)
+		ClientMessage decoded = null;
+		synchronized (backlog) {
+			if ((0 == backlog.undecodedCount) && (backlog.decodedCount < MAX_DECODED_MESSAGES_PER_CONNECTION)) {
+				decoded = _ioReceive(node);
+				backlog.decodedCount += 1;
+			} else {
+				backlog.undecodedCount += 1;
+			}
+		}
+		ClientMessage preDecoded = decoded;
 		_callbacks.ioEnqueueClientCommandForMainThread(new Consumer<StateSnapshot>() {
 			@Override
 			public void accept(StateSnapshot arg) {
 				// See if we need to suspend this until an election is over.
 				if (null != _suspendedClientReadsDuringCandidate) {
 					// Wrap this in a new Consumer and save it for later.
-					_suspendedClientReadsDuringCandidate.add((snapshot) -> _mainHandleReadableClient(node, snapshot));
+					// Note that an undecoded message is only read once it is replayed so that, while we are suspended,
+					// it stays in the connection's buffer and the client is still held back by TCP flow control.
+					_suspendedClientReadsDuringCandidate.add((snapshot) -> _mainReceiveAndHandleClientMessage(node, backlog, preDecoded, snapshot));
 				} else {
 					// We are in a normal running state so just run it.
-					_mainHandleReadableClient(node, arg);
+					_mainReceiveAndHandleClientMessage(node, backlog, preDecoded, arg);
 				}
 			}});
 	}
@@ -440,7 +529,7 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 					// They are from the future so this probably means we just started and haven't yet found the leader.  Just disconnect them.
 					boolean didRemove = _newClients.remove(client);
 					Assert.assertTrue(didRemove);
-					_networkManager.closeConnection(client);
+					_mainCloseConnection(client);
 				} else {
 					mutationOffsetToFetch = _mainHandleReconnectMessageWithNoLeader(client, incoming, lastReceivedMutationOffset, lastCommittedMutationOffset, currentConfig, mutationOffsetToFetch, reconnect);
 				}
@@ -465,31 +554,48 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 				Assert.unimplemented("This listener is invalid so disconnect it");
 			}
 			
-			// Create the new state and change the connection state in the maps.
-			ListenerState state = new ListenerState(client, listen.topic, lastReceivedLocalOffset);
 			boolean didRemove = _newClients.remove(client);
 			Assert.assertTrue(didRemove);
-			_listenerClients.put(client, state);
-			
 			// In this case, we will synthesize the current config as an EventRecord (we have a special type for config
 			// changes), send them that message, and then we will wait for the socket to become writable, again, where
 			// we will begin streaming EventRecords to them.
 			EventRecord initialConfig = EventRecord.synthesizeRecordForConfig(currentConfig);
-			// This is the only message we send on this socket which isn't specifically related to the
-			// "fetch+send+repeat" cycle so we will send it directly, waiting for the writable callback from the socket
-			// to start the initial fetch.
-			// If we weren't sending a message here, we would start the cycle by calling _backgroundSetupListenerForNextEvent(), given that the socket starts writable.
-			_sendEventToListener(client, initialConfig);
+			if (_isTooStaleForListeners) {
+				// We are too far behind the leader to serve this listener so just send them the config (so they know
+				// where else to look) and close the connection once it is flushed.
+				System.out.println("LISTEN refused:  too far behind leader");
+				_sendEventToListener(client, initialConfig);
+				_closingClients.add(client);
+			} else {
+				// Create the new state and change the connection state in the maps.
+				ListenerState state = new ListenerState(client, listen.topic, lastReceivedLocalOffset);
+				_listenerClients.put(client, state);
+				
+				// This is the only message we send on this socket which isn't specifically related to the
+				// "fetch+send+repeat" cycle so we will send it directly, waiting for the writable callback from the socket
+				// to start the initial fetch.
+				// If we weren't sending a message here, we would start the cycle by calling _backgroundSetupListenerForNextEvent(), given that the socket starts writable.
+				_sendEventToListener(client, initialConfig);
+			}
 			break;
 		}
 		case FORCE_LEADER: {
 			// Message only exists to tell this node to become leader.
 			boolean didRemove = _newClients.remove(client);
 			Assert.assertTrue(didRemove);
-			_networkManager.closeConnection(client);
+			_mainCloseConnection(client);
 			_callbacks.mainForceLeader();
 			break;
 		}
+		case TRANSFER_LEADER: {
+			// Message only exists to tell this node to hand leadership to another node.
+			ClientMessagePayload_TransferLeader transfer = (ClientMessagePayload_TransferLeader)incoming.payload;
+			boolean didRemove = _newClients.remove(client);
+			Assert.assertTrue(didRemove);
+			_mainCloseConnection(client);
+			_callbacks.mainTransferLeader(transfer.targetNodeUuid);
+			break;
+		}
 		case GET_SELF_CONFIG: {
 			// Send them the ConfigEntry and close this as soon as they become writable, again.
 			boolean didRemove = _newClients.remove(client);
@@ -558,7 +664,7 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		if (_normalClientsById.containsKey(clientId)) {
 			ClientState oldState = _normalClientsById.remove(clientId);
 			_normalClientsByToken.remove(oldState.token);
-			_networkManager.closeConnection(oldState.token);
+			_mainCloseConnection(oldState.token);
 		}
 		_normalClientsByToken.put(client, state);
 		_normalClientsById.put(clientId, state);
@@ -647,13 +753,50 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		return nextToProcess;
 	}
 
-	private void _mainHandleReadableClient(NetworkManager.NodeToken node, StateSnapshot arg) {
+	private ClientMessage _ioReceive(NetworkManager.NodeToken client) {
+		Assert.assertTrue(Thread.currentThread() != _mainThread);
+		byte[] serialized = _networkManager.readWaitingMessage(client);
+		// We are only called when a message is available.
+		Assert.assertTrue(null != serialized);
+		return ClientMessage.deserialize(serialized);
+	}
+
+	private ClientMessage _mainReceiveUndecoded(NetworkManager.NodeToken client, ReadBacklog backlog) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		byte[] serialized;
+		synchronized (backlog) {
+			// This message was left in the buffer by the IO thread and any earlier ones have already been read.
+			serialized = _networkManager.readWaitingMessage(client);
+			Assert.assertTrue(null != serialized);
+			backlog.undecodedCount -= 1;
+			backlog.decodedCount += 1;
+		}
+		return ClientMessage.deserialize(serialized);
+	}
+
+	private void _mainReceiveAndHandleClientMessage(NetworkManager.NodeToken node, ReadBacklog backlog, ClientMessage preDecoded, StateSnapshot arg) {
+		ClientMessage incoming = (null != preDecoded)
+				? preDecoded
+				: _mainReceiveUndecoded(node, backlog);
+		_mainHandleReadableClient(node, incoming, arg);
+		synchronized (backlog) {
+			backlog.decodedCount -= 1;
+		}
+	}
+
+	private void _mainCloseConnection(NetworkManager.NodeToken node) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_networkManager.closeConnection(node);
+		// Locally closed connections get no disconnect callback so we drop the backlog here.
+		_readBacklogs.remove(node);
+	}
+
+	private void _mainHandleReadableClient(NetworkManager.NodeToken node, ClientMessage incoming, StateSnapshot arg) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		// Check what state the client is in.
 		boolean isNew = _newClients.contains(node);
 		ClientState normalState = _normalClientsByToken.get(node);
 		ListenerState listenerState = _listenerClients.get(node);
-		ClientMessage incoming = receive(node);
 		
 		if (isNew) {
 			Assert.assertTrue(null == normalState);
@@ -673,8 +816,15 @@ public class ClientManager implements IClientManager, INetworkManagerBackgroundC
 		} else if (null != normalState) {
 			Assert.assertTrue(null == listenerState);
 			
-			// We can do the nonce check here, before we enter the state machine for the specific message type/contents.
-			if (normalState.nextNonce == incoming.nonce) {
+			// If we are no longer the leader (this message may have been suspended while we handed off leadership), we
+			// drop it:  the client has been sent a redirect and will re-send anything uncommitted to the new leader.
+			if (null != _clusterLeader) {
+				System.out.println("NOTE: Dropped message from normal client while FOLLOWER: " + normalState.clientId);
+			} else if ((ClientMessageType.READ_TOPIC_STATE == incoming.type) || (ClientMessageType.GET == incoming.type)) {
+				// Reads don't have a nonce (they aren't written to the log) so they bypass the nonce check and ack entirely.
+				_callbacks.mainHandleReadOnlyClientMessage(normalState.clientId, incoming);
+			} else if (normalState.nextNonce == incoming.nonce) {
+				// We can do the nonce check here, before we enter the state machine for the specific message type/contents.
 				normalState.nextNonce += 1;
 				long globalMutationOffsetOfAcceptedMessage = _callbacks.mainHandleValidClientMessage(normalState.clientId, incoming);
 				Assert.assertTrue(globalMutationOffsetOfAcceptedMessage > 0L);
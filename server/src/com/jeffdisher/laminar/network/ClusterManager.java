@@ -3,17 +3,26 @@ package com.jeffdisher.laminar.network;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import com.jeffdisher.laminar.components.INetworkManagerBackgroundCallbacks;
 import com.jeffdisher.laminar.components.NetworkManager;
 import com.jeffdisher.laminar.network.p2p.DownstreamMessage;
 import com.jeffdisher.laminar.network.p2p.DownstreamPayload_AppendMutations;
+import com.jeffdisher.laminar.network.p2p.DownstreamPayload_CommitAdvance;
 import com.jeffdisher.laminar.network.p2p.DownstreamPayload_Identity;
 import com.jeffdisher.laminar.network.p2p.DownstreamPayload_RequestVotes;
+import com.jeffdisher.laminar.network.p2p.DownstreamPayload_TimeoutNow;
 import com.jeffdisher.laminar.network.p2p.UpstreamPayload_CastVote;
+import com.jeffdisher.laminar.network.p2p.UpstreamPayload_HeartbeatAck;
 import com.jeffdisher.laminar.network.p2p.UpstreamPayload_PeerState;
 import com.jeffdisher.laminar.network.p2p.UpstreamPayload_ReceivedMutations;
 import com.jeffdisher.laminar.network.p2p.UpstreamResponse;
@@ -21,6 +30,7 @@ import com.jeffdisher.laminar.state.StateSnapshot;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.utils.Assert;
+import com.jeffdisher.laminar.utils.TimerHandle;
 
 
 /**
@@ -28,15 +38,66 @@ import com.jeffdisher.laminar.utils.Assert;
  */
 public class ClusterManager implements IClusterManager, INetworkManagerBackgroundCallbacks {
 	private static final long MILLIS_BETWEEN_CONNECTION_ATTEMPTS = 100L;
-	private static final long MILLIS_BETWEEN_HEARTBEATS = 100L;
 	/**
-	 * The baseline minimum timeout for starting an election when no message from upstream (any upstream node).
+	 * The baseline election timeout we use before we have measured anything (or heard from a leader who has).  The
+	 * randomized timeout for starting an election, when nothing is heard from upstream, is between this base and twice
+	 * the base.
 	 */
-	private static final long MILLIS_MINIMUM_ELECTION_TIMEOUT = 500L;
+	private static final long MILLIS_DEFAULT_ELECTION_TIMEOUT = 500L;
 	/**
-	 * The maximum timeout increase to add to minimum when randomly setting election timeout.
+	 * The lower bound on the baseline election timeout, no matter how fast the network looks (we still need to allow for
+	 * scheduling and GC pauses on the nodes).
 	 */
-	private static final long MILLIS_ELECTION_TIMEOUT_RANDOM_SCALE = 500L;
+	private static final long MILLIS_MINIMUM_ELECTION_TIMEOUT = 150L;
+	/**
+	 * The upper bound on the baseline election timeout, no matter how slow the network looks (past this, we would rather
+	 * fail over than wait).
+	 */
+	private static final long MILLIS_MAXIMUM_ELECTION_TIMEOUT = 5000L;
+	/**
+	 * The leader sets the baseline election timeout to this multiple of the round-trip timeout of its slowest voter.
+	 */
+	private static final long ELECTION_TIMEOUT_ROUND_TRIP_MULTIPLE = 10L;
+	/**
+	 * The leader only changes the election timeout it advertises when the new value is more than this percentage away
+	 * from the current one, so that normal jitter doesn't constantly change it.
+	 */
+	private static final long ELECTION_TIMEOUT_CHANGE_PERCENT = 20L;
+	/**
+	 * The number of heartbeats a leader sends within one baseline election timeout.
+	 */
+	private static final long HEARTBEATS_PER_ELECTION_TIMEOUT = 5L;
+	private static final long MILLIS_MINIMUM_HEARTBEAT_INTERVAL = 20L;
+	private static final long MILLIS_MAXIMUM_HEARTBEAT_INTERVAL = 1000L;
+	/**
+	 * How long after sending a message, which a majority of the cluster has since acknowledged, that a leader can
+	 * assume no other leader can have been elected, as a percentage of the baseline election timeout.  Followers won't
+	 * start or vote in an election for the baseline election timeout after hearing from their leader so this is
+	 * somewhat less than that, to allow for clock rate drift between the nodes.
+	 */
+	private static final long LEADER_LEASE_PERCENT = 80L;
+	/**
+	 * The most mutations we will send to a downstream peer in a single APPEND_MUTATIONS message.
+	 */
+	private static final int MAX_MUTATIONS_PER_APPEND = DownstreamPayload_AppendMutations.MAX_RECORDS_PER_MESSAGE;
+	/**
+	 * The most bytes we will put in a single APPEND_MUTATIONS message (this is the largest message the network layer
+	 * can frame).
+	 */
+	private static final int MAX_BYTES_PER_APPEND = NetworkManager.MESSAGE_PAYLOAD_MAXIMUM_BYTES;
+	/**
+	 * The default number of APPEND_MUTATIONS messages which can be sent to a downstream peer before we hear an ack.
+	 */
+	public static final int DEFAULT_REPLICATION_WINDOW_SIZE = 8;
+	/**
+	 * The most committed mutations we will keep cached, after reading them from disk in bulk, to sync downstream peers
+	 * which are behind.
+	 */
+	private static final int MAX_CATCH_UP_CACHE_MUTATIONS = 4096;
+	/**
+	 * The number of committed mutations we ask to be read from disk, at once, when a peer needs one we don't have.
+	 */
+	private static final int CATCH_UP_FETCH_MUTATION_COUNT = 1024;
 
 	private final Thread _mainThread;
 	private final ConfigEntry _self;
@@ -44,9 +105,26 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	private final IClusterManagerCallbacks _callbacks;
 	private boolean _isLeader;
 
-	private boolean _isTimeoutCheckScheduled;
+	// The pending election timeout check, null if there isn't one.
+	private TimerHandle _electionTimer;
+	// The pending heartbeat, null if there isn't one (cancelled when we stop being LEADER so it can't be duplicated).
+	private TimerHandle _heartbeatTimer;
+	// True if we, as LEADER, have scheduled a pass to tell caught-up peers about our new commit offset.
+	private boolean _isCommitAdvanceScheduled;
 	private long _lastUpstreamMessageMillisTime;
 	private long _currentElectionTimeoutMillisInterval;
+	// The last time we received APPEND_MUTATIONS from a leader of at least our own term (a recent leader means we ignore votes).
+	private long _lastLeaderMessageMillisTime;
+	// The time when we most recently became leader (echoes of messages sent before this can't contribute to our lease).
+	private long _leaderSinceMillisTime;
+	// The baseline election timeout:  as LEADER, this is what we advertise in every APPEND_MUTATIONS; otherwise, it is
+	// what we last heard from a leader.
+	private long _electionTimeoutMillis;
+	// The time when we, as LEADER, last changed _electionTimeoutMillis.
+	private long _electionTimeoutChangeMillisTime;
+	// The lowest election timeout we, as LEADER, advertised within MILLIS_MAXIMUM_ELECTION_TIMEOUT of the last change
+	// (some followers may still be using it so our lease must be based on it).
+	private long _lowestRecentElectionTimeoutMillis;
 
 	// These elements are relevant when _THIS_ node is the LEADER.
 	private final DownstreamPeerManager _downstreamPeers;
@@ -54,11 +132,27 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	private long _lastReceivedMutationOffset = DownstreamPeerState.NO_NEXT_MUTATION;
 	// The last mutation offset committed on _THIS_ node.
 	private long _lastCommittedMutationOffset = DownstreamPeerState.NO_NEXT_MUTATION;
+	// Committed mutations read from disk in bulk, kept in insertion order so the oldest can be evicted first.
+	// (committed mutations can never change so these never need to be invalidated, only bounded).
+	private final Map<Long, IClusterManagerCallbacks.MutationWrapper> _catchUpCache;
+	// The ranges of mutations we asked to be read from disk but haven't yet received, keyed by the first offset and
+	// holding the offset after the last (so peers waiting on the same range don't each cause another read).
+	private final NavigableMap<Long, Long> _catchUpFetchesInFlight;
 
 	// These elements are relevant when _THIS_ node is a FOLLOWER.
 	private final UpstreamPeerManager _upstreamPeers;
 
-	public ClusterManager(ConfigEntry self, ServerSocketChannel serverSocket, IClusterManagerCallbacks callbacks) throws IOException {
+	/**
+	 * Creates the ClusterManager.
+	 * 
+	 * @param self The description of this node.
+	 * @param serverSocket The socket where upstream peers will connect to this node.
+	 * @param callbacks The interface to the NodeState.
+	 * @param replicationWindowSize The number of APPEND_MUTATIONS which can be outstanding (sent without an ack) to
+	 * each downstream peer.  1 means that each peer is synchronized in lock-step with its acks.
+	 * @throws IOException Failure in creating the underlying NetworkManager.
+	 */
+	public ClusterManager(ConfigEntry self, ServerSocketChannel serverSocket, IClusterManagerCallbacks callbacks, int replicationWindowSize) throws IOException {
 		_mainThread = Thread.currentThread();
 		_self = self;
 		// This is really just a high-level wrapper over the common NetworkManager so create that here.
@@ -66,8 +160,12 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		_callbacks = callbacks;
 		// We start assuming that we are the leader until told otherwise.
 		_isLeader = true;
-		_downstreamPeers = new DownstreamPeerManager();
+		_electionTimeoutMillis = MILLIS_DEFAULT_ELECTION_TIMEOUT;
+		_lowestRecentElectionTimeoutMillis = MILLIS_DEFAULT_ELECTION_TIMEOUT;
+		_downstreamPeers = new DownstreamPeerManager(replicationWindowSize);
 		_upstreamPeers = new UpstreamPeerManager();
+		_catchUpCache = new LinkedHashMap<>();
+		_catchUpFetchesInFlight = new TreeMap<>();
 	}
 
 	public void startAndWaitForReady() {
@@ -109,7 +207,7 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 			long nowMillis = System.currentTimeMillis();
 			// Get only the downstream peers which can receive this mutation.
 			for (ReadOnlyDownstreamPeerState state : _downstreamPeers.immutablePeersReadyToReceiveMutation(mutationOffset)) {
-				_sendMutationToPeer(state, snapshot.currentTermNumber, previousMutationTermNumber, mutation, nowMillis);
+				_sendMutationsToPeer(state, snapshot.currentTermNumber, previousMutationTermNumber, new MutationRecord[] { mutation }, nowMillis);
 				didSend = true;
 			}
 		}
@@ -119,6 +217,39 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		return didSend;
 	}
 
+	@Override
+	public void mainCommittedMutationsWereFetched(StateSnapshot snapshot, long previousMutationTermNumber, MutationRecord[] mutations) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Fetches always return at least the first mutation requested (they are only issued for mutations we have).
+		Assert.assertTrue(mutations.length > 0);
+		
+		long firstOffset = mutations[0].globalOffset;
+		long endOffset = mutations[mutations.length - 1].globalOffset + 1;
+		Long fetchEndOffset = _catchUpFetchesInFlight.remove(firstOffset);
+		if (null != fetchEndOffset) {
+			endOffset = Math.max(endOffset, fetchEndOffset);
+		}
+		// This is only useful if we are still the leader.
+		if (_isLeader) {
+			// Cache all of these so we can build full batches from them without going back to disk.
+			long previousTermNumber = previousMutationTermNumber;
+			for (MutationRecord mutation : mutations) {
+				_catchUpCache.put(mutation.globalOffset, new IClusterManagerCallbacks.MutationWrapper(previousTermNumber, mutation));
+				previousTermNumber = mutation.termNumber;
+			}
+			Iterator<Long> eldest = _catchUpCache.keySet().iterator();
+			while (_catchUpCache.size() > MAX_CATCH_UP_CACHE_MUTATIONS) {
+				eldest.next();
+				eldest.remove();
+			}
+			// Send to any peers which were waiting for something in the range we asked for.  This includes peers waiting
+			// for mutations after those which were read (committed after the read started) so they start another read.
+			for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyToReceiveMutationInRange(firstOffset, endOffset)) {
+				_sendReadyMutationNow(peer, snapshot.currentTermNumber);
+			}
+		}
+	}
+
 	@Override
 	public void mainMutationWasCommitted(long mutationOffset) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
@@ -126,12 +257,29 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		// This should never skip a value.
 		Assert.assertTrue((_lastCommittedMutationOffset + 1) == mutationOffset);
 		_lastCommittedMutationOffset = mutationOffset;
+		// Peers which are still receiving appends will see this in the next one but we want the others to hear about
+		// it right away, not at the next heartbeat.  We defer this so that a run of commits only sends one message.
+		if (_isLeader && !_isCommitAdvanceScheduled) {
+			_callbacks.mainEnqueuePriorityClusterCommandForMainThread((snapshot) -> {
+				_isCommitAdvanceScheduled = false;
+				if (_isLeader) {
+					for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyForCommitAdvance(_lastCommittedMutationOffset)) {
+						_tryFetchOrSend(peer, snapshot.currentTermNumber);
+					}
+				}
+			}, 0L);
+			_isCommitAdvanceScheduled = true;
+		}
 	}
 
 	@Override
 	public void mainEnterFollowerState() {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		_isLeader = false;
+		_mainCancelHeartbeat();
+		// We no longer sync anyone so drop our cache (and forget our fetches since we will ignore their results).
+		_catchUpCache.clear();
+		_catchUpFetchesInFlight.clear();
 		// Initialize our upstream state, since we haven't heard anything from them, yet.
 		_upstreamPeers.initializeForFollowerState(_lastReceivedMutationOffset);
 		// Schedule a timeout in case the leader disappears.
@@ -163,6 +311,15 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	public void mainEnterLeaderState(StateSnapshot snapshot) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		_isLeader = true;
+		// We won't need the election timeout check (which would otherwise wake up just to see that we are LEADER).
+		if (null != _electionTimer) {
+			_electionTimer.cancel();
+			_electionTimer = null;
+		}
+		_leaderSinceMillisTime = System.currentTimeMillis();
+		// We start by advertising the timeout we last heard as a follower (nobody can be relying on an older one from us).
+		_electionTimeoutChangeMillisTime = _leaderSinceMillisTime;
+		_lowestRecentElectionTimeoutMillis = _electionTimeoutMillis;
 		// We will start by sending them the most recent mutation we received and let them walk back from that.
 		_downstreamPeers.setAllNextMutationToSend(_lastReceivedMutationOffset + 1);
 		for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyToReceiveMutation(_lastReceivedMutationOffset)) {
@@ -172,12 +329,14 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	}
 
 	@Override
-	public void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMutationOffset) {
+	public void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMutationOffset, boolean isLeadershipTransfer) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		// We want to unset our leader flag and set a requirement for REQUEST_VOTES to be sent to all downstream peers.
 		// (this will be easier once there is buffering on inter-node communication but for now we store this information in DownstreamPeerState).
 		_isLeader = false;
-		DownstreamMessage request = DownstreamMessage.requestVotes(newTermNumber, previousMutationTerm, previousMutationOffset);
+		_mainCancelHeartbeat();
+		boolean isPreVote = false;
+		DownstreamMessage request = DownstreamMessage.requestVotes(newTermNumber, previousMutationTerm, previousMutationOffset, isPreVote, isLeadershipTransfer);
 		_downstreamPeers.setAllRequestForVotes(request);
 		for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyToReceiveVoteRequest()) {
 			_sendReadyVoteRequestNow(peer);
@@ -185,6 +344,67 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		_mainStartNewElectionTimeout();
 	}
 
+	@Override
+	public void mainStartPreVote(long proposedTermNumber, long previousMutationTerm, long previousMutationOffset) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Only a node which lost its leader should be asking this.
+		Assert.assertTrue(!_isLeader);
+		// This is sent just like a real request for votes but doesn't change any of our state (if it fails, the election
+		// timeout will just ask us to try again).
+		boolean isPreVote = true;
+		boolean isLeadershipTransfer = false;
+		DownstreamMessage request = DownstreamMessage.requestVotes(proposedTermNumber, previousMutationTerm, previousMutationOffset, isPreVote, isLeadershipTransfer);
+		_downstreamPeers.setAllRequestForVotes(request);
+		for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyToReceiveVoteRequest()) {
+			_sendReadyVoteRequestNow(peer);
+		}
+	}
+
+	@Override
+	public boolean mainHasLeaderLease() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		
+		boolean hasLease = false;
+		if (_isLeader) {
+			long nowMillis = System.currentTimeMillis();
+			long oldestSendMillis = Math.max(_leaderSinceMillisTime, nowMillis - _mainGetLeaderLeaseMillis(nowMillis));
+			hasLease = _downstreamPeers.isMajorityOfVotersHeardSince(oldestSendMillis);
+		}
+		return hasLease;
+	}
+
+	@Override
+	public long mainGetElectionTimeoutMillis() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		return _electionTimeoutMillis;
+	}
+
+	@Override
+	public boolean mainSendTimeoutNow(ConfigEntry target, long currentTermNumber) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Only the leader can hand off leadership.
+		Assert.assertTrue(_isLeader);
+		
+		ReadOnlyDownstreamPeerState peer = _downstreamPeers.setTimeoutNowForPeer(target.nodeUuid, DownstreamMessage.timeoutNow(currentTermNumber));
+		if (null != peer) {
+			// If they aren't writable, this will be sent when they become writable.
+			_tryFetchOrSend(peer, currentTermNumber);
+		}
+		return (null != peer);
+	}
+
+	@Override
+	public void mainStartBatch() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_networkManager.deferWrites();
+	}
+
+	@Override
+	public void mainFlushBatch() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_networkManager.flushDeferredWrites();
+	}
+
 	@Override
 	public void nodeDidConnect(NetworkManager.NodeToken node) {
 		Assert.assertTrue(Thread.currentThread() != _mainThread);
@@ -269,20 +489,29 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 						// See if we can send them anything or just fetch, if they are writable.
 						_tryFetchOrSend(peer, arg0.currentTermNumber);
 					} else if (UpstreamResponse.Type.RECEIVED_MUTATIONS == response.type) {
-						long lastReceivedMutationOffset = ((UpstreamPayload_ReceivedMutations)response.payload).lastReceivedMutationOffset;
+						UpstreamPayload_ReceivedMutations received = (UpstreamPayload_ReceivedMutations)response.payload;
+						long lastReceivedMutationOffset = received.lastReceivedMutationOffset;
 						
-						// Internally, we don't actually use this value (we stream the mutations independent of acks, so
-						// long as the network is writable) but the NodeState uses it for consensus offset.
+						// Internally, we only use this value to open up the replication window (we stream the mutations
+						// ahead of the acks, so long as the network is writable) but the NodeState uses it for consensus offset.
 						ReadOnlyDownstreamPeerState peer = _downstreamPeers.nodeDidAckMutation(node, lastReceivedMutationOffset);
 						_callbacks.mainReceivedAckFromDownstream(peer.entry, lastReceivedMutationOffset);
+						_mainPeerDidEchoSendTime(node, received.leaderSendMillis, System.currentTimeMillis());
 						
-						// See if we can send them anything right away.
+						// See if we can send them anything right away (the window may have just opened).
 						_tryFetchOrSend(peer, arg0.currentTermNumber);
 					} else if (UpstreamResponse.Type.CAST_VOTE == response.type) {
-						// We got a vote from this peer.
-						long termNumber = ((UpstreamPayload_CastVote)response.payload).termNumber;
-						ReadOnlyDownstreamPeerState peer = _downstreamPeers.nodeDidVote(node, termNumber);
-						_callbacks.mainReceivedVoteFromFollower(peer.entry, termNumber);
+						// We got a vote (or pre-vote) from this peer.
+						UpstreamPayload_CastVote vote = (UpstreamPayload_CastVote)response.payload;
+						ReadOnlyDownstreamPeerState peer = _downstreamPeers.nodeDidVote(node, vote.termNumber);
+						if (vote.isPreVote) {
+							_callbacks.mainReceivedPreVoteFromPeer(peer.entry, vote.termNumber);
+						} else {
+							_callbacks.mainReceivedVoteFromFollower(peer.entry, vote.termNumber);
+						}
+					} else if (UpstreamResponse.Type.HEARTBEAT_ACK == response.type) {
+						// They had nothing new to ack but this tells us when they last heard from us.
+						_mainPeerDidEchoSendTime(node, ((UpstreamPayload_HeartbeatAck)response.payload).leaderSendMillis, System.currentTimeMillis());
 					} else {
 						Assert.unreachable("Unknown response type");
 					}
@@ -305,25 +534,73 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 					byte[] raw = _networkManager.readWaitingMessage(node);
 					DownstreamMessage message = DownstreamMessage.deserializeFrom(ByteBuffer.wrap(raw));
 					
-					// There are 2 messages which come from upstream peers:  APPEND_MUTATIONS and REQUEST_VOTES.
+					// There are 4 messages which come from upstream peers:  APPEND_MUTATIONS, REQUEST_VOTES, COMMIT_ADVANCE, and TIMEOUT_NOW.
+					// (a pre-vote request is the only message which doesn't count as hearing from the cluster, since it
+					// doesn't mean an election has started, so it must not hold back our own election timeout).
+					boolean isUpstreamActivity = true;
 					if (DownstreamMessage.Type.APPEND_MUTATIONS == message.type) {
 						DownstreamPayload_AppendMutations payload = (DownstreamPayload_AppendMutations)message.payload;
-						_mainHandleAppendMutations(node, entry, payload);
+						// A leader which is at least as current as we are is holding back elections so note the time and
+						// echo back when it sent this (we don't do this for a stale leader since it can't hold a lease).
+						if (payload.termNumber >= arg0.currentTermNumber) {
+							_upstreamPeers.didReceiveFromLeader(node, payload.leaderSendMillis);
+							_lastLeaderMessageMillisTime = System.currentTimeMillis();
+							// The leader tells us how long to wait for it, based on what it has measured of the network.
+							_electionTimeoutMillis = _clamp(payload.electionTimeoutMillis, MILLIS_MINIMUM_ELECTION_TIMEOUT, MILLIS_MAXIMUM_ELECTION_TIMEOUT);
+						}
+						// If we asked the upstream to rewind, ignore anything it pipelined to us before it saw that request.
+						boolean isStale = (payload.records.length > 0) && _upstreamPeers.shouldIgnoreAppend(node, payload.records[0].globalOffset);
+						if (!isStale) {
+							_mainHandleAppendMutations(node, entry, payload);
+						}
 					} else if (DownstreamMessage.Type.REQUEST_VOTES == message.type) {
 						DownstreamPayload_RequestVotes payload = (DownstreamPayload_RequestVotes)message.payload;
-						boolean shouldVote = _callbacks.mainReceivedRequestForVotes(entry, payload.newTermNumber, payload.previousMutationTerm, payload.previousMuationOffset);
-						if (shouldVote) {
-							// We should now be in the follower state.
-							Assert.assertTrue(!_isLeader);
-							_upstreamPeers.prepareToCastVote(node, payload.newTermNumber);
+						// If we heard from a leader within the minimum election timeout, we ignore the request entirely
+						// (the leader may be relying on us in its lease and this is likely a disconnected node rejoining).
+						// The exception is an election the leader itself asked for, when transferring leadership (it
+						// stopped serving from its lease before asking).
+						boolean isLeaderActive = !_isLeader
+								&& !payload.isLeadershipTransfer
+								&& ((System.currentTimeMillis() - _lastLeaderMessageMillisTime) < _electionTimeoutMillis);
+						if (payload.isPreVote) {
+							isUpstreamActivity = false;
+							if (!isLeaderActive) {
+								boolean wouldVote = _callbacks.mainReceivedRequestForPreVote(entry, payload.newTermNumber, payload.previousMutationTerm, payload.previousMuationOffset);
+								if (wouldVote) {
+									_upstreamPeers.prepareToCastVote(node, payload.newTermNumber, true);
+								}
+							}
+						} else if (!isLeaderActive) {
+							boolean shouldVote = _callbacks.mainReceivedRequestForVotes(entry, payload.newTermNumber, payload.previousMutationTerm, payload.previousMuationOffset);
+							if (shouldVote) {
+								// We should now be in the follower state.
+								Assert.assertTrue(!_isLeader);
+								_upstreamPeers.prepareToCastVote(node, payload.newTermNumber, false);
+							}
 						}
+					} else if (DownstreamMessage.Type.COMMIT_ADVANCE == message.type) {
+						// The leader committed more of what it already sent us.  A stale leader can't tell us to commit
+						// anything (and isn't holding back elections).
+						DownstreamPayload_CommitAdvance payload = (DownstreamPayload_CommitAdvance)message.payload;
+						if (payload.termNumber >= arg0.currentTermNumber) {
+							_lastLeaderMessageMillisTime = System.currentTimeMillis();
+							_callbacks.mainCommittedMutationOffsetFromUpstream(entry, payload.termNumber, payload.lastCommittedMutationOffset);
+						} else {
+							isUpstreamActivity = false;
+						}
+					} else if (DownstreamMessage.Type.TIMEOUT_NOW == message.type) {
+						// The leader is handing leadership to us so the callbacks will decide whether to start an election.
+						DownstreamPayload_TimeoutNow payload = (DownstreamPayload_TimeoutNow)message.payload;
+						_callbacks.mainReceivedTimeoutNow(entry, payload.termNumber);
 					} else {
 						throw Assert.unreachable("Unknown message type from upstream");
 					}
 					// We either want to ack or send back the reset.
 					_trySendUpstream(node);
 					// Update our last message time to avoid election.
-					_lastUpstreamMessageMillisTime = System.currentTimeMillis();
+					if (isUpstreamActivity) {
+						_lastUpstreamMessageMillisTime = System.currentTimeMillis();
+					}
 				} else {
 					// This happens in cases where we explicitly disconnected this peer but they may still have readable messages pending.
 					System.out.println("NOTE: Processed read ready from disconnected peer");
@@ -369,6 +646,16 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	}
 
 
+	private void _mainPeerDidEchoSendTime(NetworkManager.NodeToken node, long leaderSendMillis, long nowMillis) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		
+		_downstreamPeers.nodeDidEchoSendTime(node, leaderSendMillis, nowMillis);
+		// This may have been what renewed our lease so tell the callbacks (they may have reads waiting on it).
+		if (mainHasLeaderLease()) {
+			_callbacks.mainLeaderLeaseWasRenewed();
+		}
+	}
+
 	private void _mainRemoveAndReconnectOutboundConnection(NetworkManager.NodeToken node) throws AssertionError {
 		// We will be creating a new connection so we need to modify the underlying states and one of the mappings.
 		// (make sure we didn't already disconnect this).
@@ -395,8 +682,16 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		// This path is used when something _may_ have made this peer writable so verify all those cases.
 		if (peer.isReadyForSend()) {
 			// However, even in that writable state, we need to see if there is something we can send, based on our current state.
-			if (_isLeader && peer.hasMutationToSend()) {
-				_sendReadyMutationNow(peer, currentTermNumber);
+			// A pending TIMEOUT_NOW goes first since the peer already has everything we would send.
+			if (_isLeader && peer.hasTimeoutNowToSend()) {
+				long nowMillis = System.currentTimeMillis();
+				_sendDownstreamMessage(peer.token, peer.commitToSendTimeoutNow(nowMillis));
+			} else if (_isLeader) {
+				// Every append carries our commit offset so we only need a COMMIT_ADVANCE if there is nothing to append.
+				boolean didSend = peer.hasMutationToSend() && _sendReadyMutationNow(peer, currentTermNumber);
+				if (!didSend && peer.hasCommitAdvanceToSend(_lastCommittedMutationOffset)) {
+					_sendDownstreamMessage(peer.token, peer.commitToSendCommitAdvance(currentTermNumber, _lastCommittedMutationOffset));
+				}
 			} else if (!_isLeader && peer.hasVoteToSend()) {
 				_sendReadyVoteRequestNow(peer);
 			}
@@ -416,12 +711,12 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		}
 	}
 
-	private void _sendMutationToPeer(ReadOnlyDownstreamPeerState peer, long currentTermNumber, long previousMutationTermNumber, MutationRecord mutation, long nowMillis) {
+	private void _sendMutationsToPeer(ReadOnlyDownstreamPeerState peer, long currentTermNumber, long previousMutationTermNumber, MutationRecord[] mutations, long nowMillis) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		// We can only call this path if leader.
 		Assert.assertTrue(_isLeader);
 		
-		DownstreamMessage message = peer.commitToSendMutations(currentTermNumber, previousMutationTermNumber, mutation, _lastCommittedMutationOffset, nowMillis);
+		DownstreamMessage message = peer.commitToSendMutations(currentTermNumber, previousMutationTermNumber, mutations, _lastCommittedMutationOffset, nowMillis, _electionTimeoutMillis);
 		_sendDownstreamMessage(peer.token, message);
 	}
 
@@ -438,28 +733,74 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 	private void _mainRegisterHeartbeat(long nowMillis) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		
-		_callbacks.mainEnqueuePriorityClusterCommandForMainThread((snapshot) -> {
+		// Make sure that we never have more than one heartbeat chain running.
+		_mainCancelHeartbeat();
+		_heartbeatTimer = _callbacks.mainEnqueuePriorityClusterCommandForMainThread((snapshot) -> {
+			_heartbeatTimer = null;
 			// We will only do the work or reschedule if we are leader.
 			if (_isLeader) {
 				long now = System.currentTimeMillis();
+				_mainUpdateElectionTimeout(now);
 				_mainRegisterHeartbeat(now);
 				_mainSendHeartbeat(snapshot.currentTermNumber, now);
 			}
-		}, MILLIS_BETWEEN_HEARTBEATS);
+		}, _mainGetHeartbeatIntervalMillis());
+	}
+
+	private void _mainCancelHeartbeat() {
+		if (null != _heartbeatTimer) {
+			_heartbeatTimer.cancel();
+			_heartbeatTimer = null;
+		}
 	}
 
 	private void _mainSendHeartbeat(long currentTermNumber, long nowMillis) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		
 		if (_isLeader && _downstreamPeers.hasPeers()) {
-			long thresholdForHeartbeat = nowMillis - MILLIS_BETWEEN_HEARTBEATS;
+			long thresholdForHeartbeat = nowMillis - _mainGetHeartbeatIntervalMillis();
 			for (ReadOnlyDownstreamPeerState peer : _downstreamPeers.immutablePeersReadyForHearbeat(thresholdForHeartbeat)) {
-				DownstreamMessage heartbeat = peer.commitToSendHeartbeat(currentTermNumber, _lastCommittedMutationOffset, nowMillis);
+				DownstreamMessage heartbeat = peer.commitToSendHeartbeat(currentTermNumber, _lastCommittedMutationOffset, nowMillis, _electionTimeoutMillis);
 				_sendDownstreamMessage(peer.token, heartbeat);
 			}
 		}
 	}
 
+	private void _mainUpdateElectionTimeout(long nowMillis) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		Assert.assertTrue(_isLeader);
+		
+		// We can only adapt once we have measured at least one voter (otherwise, we keep what we have).
+		long roundTripTimeoutMillis = _downstreamPeers.getLargestVoterRoundTripTimeoutMillis();
+		if (roundTripTimeoutMillis >= 0L) {
+			long target = _clamp(ELECTION_TIMEOUT_ROUND_TRIP_MULTIPLE * roundTripTimeoutMillis, MILLIS_MINIMUM_ELECTION_TIMEOUT, MILLIS_MAXIMUM_ELECTION_TIMEOUT);
+			long allowedChange = (_electionTimeoutMillis * ELECTION_TIMEOUT_CHANGE_PERCENT) / 100L;
+			if (Math.abs(target - _electionTimeoutMillis) > allowedChange) {
+				// Followers which haven't heard the new value will still use the old one so we remember the lowest value
+				// we have advertised until every follower could have timed-out on it.
+				boolean isRecentChange = ((nowMillis - _electionTimeoutChangeMillisTime) < MILLIS_MAXIMUM_ELECTION_TIMEOUT);
+				_lowestRecentElectionTimeoutMillis = isRecentChange
+						? Math.min(_lowestRecentElectionTimeoutMillis, _electionTimeoutMillis)
+						: _electionTimeoutMillis;
+				_electionTimeoutMillis = target;
+				_electionTimeoutChangeMillisTime = nowMillis;
+			}
+		}
+	}
+
+	private long _mainGetHeartbeatIntervalMillis() {
+		return _clamp(_electionTimeoutMillis / HEARTBEATS_PER_ELECTION_TIMEOUT, MILLIS_MINIMUM_HEARTBEAT_INTERVAL, MILLIS_MAXIMUM_HEARTBEAT_INTERVAL);
+	}
+
+	private long _mainGetLeaderLeaseMillis(long nowMillis) {
+		// If we recently changed the election timeout, some followers may still be using the older value.
+		boolean isRecentChange = ((nowMillis - _electionTimeoutChangeMillisTime) < MILLIS_MAXIMUM_ELECTION_TIMEOUT);
+		long baseMillis = isRecentChange
+				? Math.min(_lowestRecentElectionTimeoutMillis, _electionTimeoutMillis)
+				: _electionTimeoutMillis;
+		return (baseMillis * LEADER_LEASE_PERCENT) / 100L;
+	}
+
 	private void _mainHandleAppendMutations(NetworkManager.NodeToken node, ConfigEntry entry, DownstreamPayload_AppendMutations payload) {
 		// If there were no mutations, this is a heart-beat, and they are implicitly "applied".
 		boolean didApplyMutation = (0 == payload.records.length);
@@ -502,14 +843,14 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		
 		// Multiple paths can cause this to start so make sure we never double-up.
-		if (!_isTimeoutCheckScheduled) {
+		if (null == _electionTimer) {
 			long nextScheduledCheckMillisTime = _lastUpstreamMessageMillisTime + _currentElectionTimeoutMillisInterval;
 			long millisToWaitForNextCheck = (nowMillisTime > nextScheduledCheckMillisTime)
 					? 0L
 					: (nextScheduledCheckMillisTime - nowMillisTime);
-			_callbacks.mainEnqueuePriorityClusterCommandForMainThread((snapshot) -> {
+			_electionTimer = _callbacks.mainEnqueuePriorityClusterCommandForMainThread((snapshot) -> {
 				// Check no longer scheduled.
-				_isTimeoutCheckScheduled = false;
+				_electionTimer = null;
 				// We will only reschedule if we are NOT the leader (allows this to shut down when we aren't leader).
 				if (!_isLeader) {
 					long now = System.currentTimeMillis();
@@ -524,29 +865,78 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 					_mainRegisterElectionTimer(now);
 				}
 			}, millisToWaitForNextCheck);
-			// Check has now been scheduled.
-			_isTimeoutCheckScheduled = true;
 		}
 	}
 
 	private void _mainStartNewElectionTimeout() {
-		_currentElectionTimeoutMillisInterval = MILLIS_MINIMUM_ELECTION_TIMEOUT + (long)(Math.random() * MILLIS_ELECTION_TIMEOUT_RANDOM_SCALE);
+		_currentElectionTimeoutMillisInterval = _electionTimeoutMillis + (long)(Math.random() * _electionTimeoutMillis);
 		long now = System.currentTimeMillis();
 		_lastUpstreamMessageMillisTime = now;
 		_mainRegisterElectionTimer(now);
 	}
 
-	private void _sendReadyMutationNow(ReadOnlyDownstreamPeerState peer, long currentTermNumber) {
+	private boolean _sendReadyMutationNow(ReadOnlyDownstreamPeerState peer, long currentTermNumber) {
 		Assert.assertTrue(_isLeader);
 		Assert.assertTrue(peer.hasMutationToSend());
 		
-		IClusterManagerCallbacks.MutationWrapper wrapper = _callbacks.mainClusterFetchMutationIfAvailable(peer.getNextMutationOffsetToSend());
+		boolean didSend = false;
+		long mutationOffset = peer.getNextMutationOffsetToSend();
+		IClusterManagerCallbacks.MutationWrapper wrapper = _catchUpCache.get(mutationOffset);
+		if (null == wrapper) {
+			wrapper = _mainFetchMutationIfAvailable(mutationOffset);
+		}
 		if (null != wrapper) {
+			MutationRecord[] batch = _mainBuildBatchStartingWith(wrapper.record);
 			long nowMillis = System.currentTimeMillis();
-			_sendMutationToPeer(peer, currentTermNumber, wrapper.previousMutationTermNumber, wrapper.record, nowMillis);
+			_sendMutationsToPeer(peer, currentTermNumber, wrapper.previousMutationTermNumber, batch, nowMillis);
+			didSend = true;
 		} else {
 			// We will try to send once the mutation we wanted is fetched.
 		}
+		return didSend;
+	}
+
+	private MutationRecord[] _mainBuildBatchStartingWith(MutationRecord first) {
+		// We always send the first mutation but then we will greedily add any following mutations which are already
+		// in-memory (either in our catch-up cache or in-flight), until we hit the limit of the message.
+		// Since in-flight mutations are a contiguous range ending with the most recently received, once the first one
+		// was available, the following ones will also be available up to the end of what we have received.  We only
+		// ask the callbacks for mutations after our commit offset since those are in-flight (so this never causes a
+		// fetch from disk).
+		List<MutationRecord> batch = new ArrayList<>();
+		batch.add(first);
+		int batchBytes = Byte.BYTES + DownstreamPayload_AppendMutations.SERIALIZED_SIZE_WITHOUT_RECORDS + first.serializedSize();
+		MutationRecord previous = first;
+		while ((batch.size() < MAX_MUTATIONS_PER_APPEND) && (previous.globalOffset < _lastReceivedMutationOffset)) {
+			long nextOffset = previous.globalOffset + 1;
+			IClusterManagerCallbacks.MutationWrapper next = _catchUpCache.get(nextOffset);
+			if ((null == next) && (nextOffset > _lastCommittedMutationOffset)) {
+				next = _mainFetchMutationIfAvailable(nextOffset);
+			}
+			if ((null == next) || ((batchBytes + next.record.serializedSize()) > MAX_BYTES_PER_APPEND)) {
+				break;
+			}
+			Assert.assertTrue(previous.termNumber == next.previousMutationTermNumber);
+			batch.add(next.record);
+			batchBytes += next.record.serializedSize();
+			previous = next.record;
+		}
+		return batch.toArray(new MutationRecord[batch.size()]);
+	}
+
+	private IClusterManagerCallbacks.MutationWrapper _mainFetchMutationIfAvailable(long mutationOffset) {
+		// If we are already reading this from disk, we just wait for that to arrive.
+		Map.Entry<Long, Long> fetch = _catchUpFetchesInFlight.floorEntry(mutationOffset);
+		boolean isFetchInFlight = (null != fetch) && (mutationOffset < fetch.getValue());
+		IClusterManagerCallbacks.MutationWrapper wrapper = null;
+		if (!isFetchInFlight) {
+			wrapper = _callbacks.mainClusterFetchMutationIfAvailable(mutationOffset, CATCH_UP_FETCH_MUTATION_COUNT);
+			if ((null == wrapper) && (mutationOffset <= _lastCommittedMutationOffset)) {
+				// Committed mutations are never in-memory so the callbacks started reading this, and those after it, from disk.
+				_catchUpFetchesInFlight.put(mutationOffset, mutationOffset + CATCH_UP_FETCH_MUTATION_COUNT);
+			}
+		}
+		return wrapper;
 	}
 
 	private void _sendReadyVoteRequestNow(ReadOnlyDownstreamPeerState peer) {
@@ -558,4 +948,8 @@ public class ClusterManager implements IClusterManager, INetworkManagerBackgroun
 		DownstreamMessage voteRequest = peer.commitToSendVoteRequest(nowMillis);
 		_sendDownstreamMessage(peer.token, voteRequest);
 	}
+
+	private static long _clamp(long value, long minimum, long maximum) {
+		return Math.max(minimum, Math.min(maximum, value));
+	}
 }
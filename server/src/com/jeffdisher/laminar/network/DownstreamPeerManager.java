@@ -23,10 +23,18 @@ import com.jeffdisher.laminar.utils.Assert;
 public class DownstreamPeerManager {
 	private final Map<UUID, DownstreamPeerState> _downstreamPeerByUuid;
 	private final Map<NetworkManager.NodeToken, DownstreamPeerState> _downstreamPeerByNode;
+	private final int _replicationWindowSize;
 
-	public DownstreamPeerManager() {
+	/**
+	 * Creates a new empty manager.
+	 * 
+	 * @param replicationWindowSize The number of APPEND_MUTATIONS messages each peer can have outstanding, at once.
+	 */
+	public DownstreamPeerManager(int replicationWindowSize) {
+		Assert.assertTrue(replicationWindowSize > 0);
 		_downstreamPeerByUuid = new HashMap<>();
 		_downstreamPeerByNode = new HashMap<>();
+		_replicationWindowSize = replicationWindowSize;
 	}
 
 	/**
@@ -36,7 +44,7 @@ public class DownstreamPeerManager {
 	 * @param token The abstraction of the connection for use with the NetworkManager.
 	 */
 	public void createNewPeer(ConfigEntry entry, NetworkManager.NodeToken token) {
-		DownstreamPeerState peer = new DownstreamPeerState(entry, token);
+		DownstreamPeerState peer = new DownstreamPeerState(entry, token, _replicationWindowSize);
 		DownstreamPeerState stale = _downstreamPeerByUuid.put(entry.nodeUuid, peer);
 		Assert.assertTrue(null == stale);
 		stale = _downstreamPeerByNode.put(token, peer);
@@ -87,17 +95,33 @@ public class DownstreamPeerManager {
 
 	/**
 	 * Returns a set of read-only peers which are ready to receive the given mutationOffset.
-	 * A "ready" node is connected, writable, has completed a handshake, and it waiting for this mutation.
+	 * A "ready" node is connected, writable, has completed a handshake, has space in its replication window, and it
+	 * waiting for this mutation.
 	 * 
 	 * @param mutationOffset The offset of the mutation we want to send.
 	 * @return A set of the peers which are ready to receive this.
 	 */
 	public Set<ReadOnlyDownstreamPeerState> immutablePeersReadyToReceiveMutation(long mutationOffset) {
+		return immutablePeersReadyToReceiveMutationInRange(mutationOffset, mutationOffset + 1);
+	}
+
+	/**
+	 * Returns a set of read-only peers which are ready to receive any mutation in the given range.
+	 * A "ready" node is connected, writable, has completed a handshake, has space in its replication window, and it
+	 * waiting for a mutation in this range.
+	 * 
+	 * @param firstMutationOffset The offset of the first mutation in the range.
+	 * @param endMutationOffset The offset after the last mutation in the range.
+	 * @return A set of the peers which are ready to receive a mutation in this range.
+	 */
+	public Set<ReadOnlyDownstreamPeerState> immutablePeersReadyToReceiveMutationInRange(long firstMutationOffset, long endMutationOffset) {
 		return _downstreamPeerByNode.values().stream()
 				.filter((state) -> (state.isConnectionUp
 						&& state.isWritable
 						&& state.didHandshake
-						&& (state.nextMutationOffsetToSend == mutationOffset)
+						&& (state.nextMutationOffsetToSend >= firstMutationOffset)
+						&& (state.nextMutationOffsetToSend < endMutationOffset)
+						&& state.isReplicationWindowOpen()
 				))
 				.map((state) -> new ReadOnlyDownstreamPeerState(state))
 				.collect(Collectors.toSet());
@@ -138,6 +162,25 @@ public class DownstreamPeerManager {
 				.collect(Collectors.toSet());
 	}
 
+	/**
+	 * Returns a set of read-only peers which are ready to be told about a commit offset they haven't yet been sent.
+	 * A "ready" node is connected, writable, has completed a handshake, and has been sent mutations up to a point
+	 * where lastCommittedMutationOffset tells it something new.
+	 * 
+	 * @param lastCommittedMutationOffset The last mutation this node has committed.
+	 * @return A set of the peers which are ready to be told about the commit offset.
+	 */
+	public Set<ReadOnlyDownstreamPeerState> immutablePeersReadyForCommitAdvance(long lastCommittedMutationOffset) {
+		return _downstreamPeerByNode.values().stream()
+				.filter((state) -> (state.isConnectionUp
+						&& state.isWritable
+						&& state.didHandshake
+						&& (state.getSendableCommitOffset(lastCommittedMutationOffset) > state.lastCommittedOffsetSent)
+				))
+				.map((state) -> new ReadOnlyDownstreamPeerState(state))
+				.collect(Collectors.toSet());
+	}
+
 	/**
 	 * @return A set of the peers which are connected.
 	 */
@@ -158,7 +201,10 @@ public class DownstreamPeerManager {
 	public void setAllNextMutationToSend(long nextMutationToSend) {
 		for (DownstreamPeerState peer : _downstreamPeerByNode.values()) {
 			peer.nextMutationOffsetToSend = nextMutationToSend;
+			peer.lastCommittedOffsetSent = DownstreamPeerState.NO_NEXT_MUTATION;
+			peer.unacknowledgedAppendLastOffsets.clear();
 			peer.pendingVoteRequest = null;
+			peer.pendingTimeoutNow = null;
 		}
 	}
 
@@ -171,8 +217,27 @@ public class DownstreamPeerManager {
 	public void setAllRequestForVotes(DownstreamMessage request) {
 		for (DownstreamPeerState peer : _downstreamPeerByNode.values()) {
 			peer.nextMutationOffsetToSend = DownstreamPeerState.NO_NEXT_MUTATION;
+			peer.unacknowledgedAppendLastOffsets.clear();
 			peer.pendingVoteRequest = request;
+			peer.pendingTimeoutNow = null;
+		}
+	}
+
+	/**
+	 * Sets the peer with the given nodeUuid to prepare to send the given TIMEOUT_NOW message.
+	 * 
+	 * @param nodeUuid The UUID of the peer which should receive the message.
+	 * @param timeoutNow The TIMEOUT_NOW message to send.
+	 * @return A read-only wrapper of the peer or null, if there is no such peer.
+	 */
+	public ReadOnlyDownstreamPeerState setTimeoutNowForPeer(UUID nodeUuid, DownstreamMessage timeoutNow) {
+		DownstreamPeerState peer = _downstreamPeerByUuid.get(nodeUuid);
+		ReadOnlyDownstreamPeerState readOnly = null;
+		if (null != peer) {
+			peer.pendingTimeoutNow = timeoutNow;
+			readOnly = new ReadOnlyDownstreamPeerState(peer);
 		}
+		return readOnly;
 	}
 
 	/**
@@ -192,7 +257,8 @@ public class DownstreamPeerManager {
 	/**
 	 * Sets the handshake flag on the given node and sets it to be ready to receiver the mutation after
 	 * lastReceivedMutationOffset.
-	 * Note that this is used for both initial handshake but also "resets" or "rewinds" in the sync flow.
+	 * Note that this is used for both initial handshake but also "resets" or "rewinds" in the sync flow.  In the rewind
+	 * case, any appends still in the replication window are abandoned (the peer will ignore them).
 	 * 
 	 * @param node The node which completed the handshake.
 	 * @param lastReceivedMutationOffset The last mutation this node says it received.
@@ -203,14 +269,16 @@ public class DownstreamPeerManager {
 		Assert.assertTrue(peer.isConnectionUp);
 		// Note that "handshake" is also how the downstream asks to rewind a request so a peer may send this after it actually _did_ "handshake".
 		peer.didHandshake = true;
-		Assert.assertTrue(DownstreamPeerState.NO_NEXT_MUTATION == peer.nextMutationOffsetToSend);
 		peer.nextMutationOffsetToSend = lastReceivedMutationOffset + 1;
+		peer.lastCommittedOffsetSent = DownstreamPeerState.NO_NEXT_MUTATION;
+		peer.unacknowledgedAppendLastOffsets.clear();
 		Assert.assertTrue(null == peer.pendingVoteRequest);
 		return new ReadOnlyDownstreamPeerState(peer);
 	}
 
 	/**
-	 * Updates the next mutation to send to the given node to be the one after lastReceivedMutationOffset.
+	 * Releases any appends in the replication window which were fully covered by this ack.
+	 * Note that acks can be coalesced by the peer so one ack may release several appends.
 	 * 
 	 * @param node The node which sent the ack.
 	 * @param lastReceivedMutationOffset The last mutation offset they are acknowledging.
@@ -218,12 +286,74 @@ public class DownstreamPeerManager {
 	 */
 	public ReadOnlyDownstreamPeerState nodeDidAckMutation(NetworkManager.NodeToken node, long lastReceivedMutationOffset) {
 		DownstreamPeerState peer = _downstreamPeerByNode.get(node);
-		Assert.assertTrue(DownstreamPeerState.NO_NEXT_MUTATION == peer.nextMutationOffsetToSend);
-		peer.nextMutationOffsetToSend = lastReceivedMutationOffset + 1;
+		while (!peer.unacknowledgedAppendLastOffsets.isEmpty() && (peer.unacknowledgedAppendLastOffsets.getFirst() <= lastReceivedMutationOffset)) {
+			peer.unacknowledgedAppendLastOffsets.removeFirst();
+		}
 		Assert.assertTrue(null == peer.pendingVoteRequest);
 		return new ReadOnlyDownstreamPeerState(peer);
 	}
 
+	/**
+	 * Records that a node has echoed back the send time of a message we sent it.
+	 * If this is the first time the peer has echoed this send time, it is also taken as a round-trip sample.
+	 * 
+	 * @param node The node which sent the ack.
+	 * @param leaderSendMillis The time, on our clock, when we sent the message they are echoing.
+	 * @param nowMillis The current time, on our clock.
+	 * @return A read-only wrapper of the peer.
+	 */
+	public ReadOnlyDownstreamPeerState nodeDidEchoSendTime(NetworkManager.NodeToken node, long leaderSendMillis, long nowMillis) {
+		DownstreamPeerState peer = _downstreamPeerByNode.get(node);
+		// Acks can be reordered relative to each other across reconnects so only move this forward.
+		// (a peer may also echo the same send time more than once, if it acks several times between our messages, and
+		// only the first of those is a measure of the round-trip).
+		if (leaderSendMillis > peer.lastEchoedSendMillis) {
+			peer.addRoundTripSample(Math.max(0L, nowMillis - leaderSendMillis));
+			peer.lastEchoedSendMillis = leaderSendMillis;
+		}
+		return new ReadOnlyDownstreamPeerState(peer);
+	}
+
+	/**
+	 * Finds the slowest voting peer, in terms of its round-trip timeout (smoothed round-trip plus 4 times its variance),
+	 * since that is the peer whose acks our heartbeat and election timing must allow for.
+	 * Learners are ignored since they don't participate in elections.
+	 * 
+	 * @return The largest round-trip timeout of any voting peer, or -1 if no voting peer has been sampled.
+	 */
+	public long getLargestVoterRoundTripTimeoutMillis() {
+		long largest = -1L;
+		for (DownstreamPeerState peer : _downstreamPeerByUuid.values()) {
+			if (!peer.entry.isLearner && peer.hasRoundTripSample) {
+				largest = Math.max(largest, peer.getRoundTripTimeoutMillis());
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * Checks if a majority of the voting nodes (all voting downstream peers, plus this node) have echoed a message we
+	 * sent after oldestSendMillis.  This is the check for whether or not a leader still holds its lease.
+	 * Learners are ignored since they don't participate in elections.
+	 * 
+	 * @param oldestSendMillis The send time which echoes must be later than.
+	 * @return True if a majority of voters, counting ourself, have heard from us after oldestSendMillis.
+	 */
+	public boolean isMajorityOfVotersHeardSince(long oldestSendMillis) {
+		// We count ourself as a voter which has heard from us.
+		int voterCount = 1;
+		int heardCount = 1;
+		for (DownstreamPeerState peer : _downstreamPeerByUuid.values()) {
+			if (!peer.entry.isLearner) {
+				voterCount += 1;
+				if (peer.lastEchoedSendMillis > oldestSendMillis) {
+					heardCount += 1;
+				}
+			}
+		}
+		return (heardCount > (voterCount / 2));
+	}
+
 	/**
 	 * Called when a node sends us a vote for the given termNumber.
 	 * 
@@ -1,5 +1,7 @@
 package com.jeffdisher.laminar.network;
 
+import java.util.LinkedList;
+
 import com.jeffdisher.laminar.components.NetworkManager;
 import com.jeffdisher.laminar.network.p2p.DownstreamMessage;
 import com.jeffdisher.laminar.types.ConfigEntry;
@@ -25,6 +27,11 @@ public class DownstreamPeerState {
 
 	public final ConfigEntry entry;
 	public final NetworkManager.NodeToken token;
+	/**
+	 * The maximum number of APPEND_MUTATIONS messages we will allow to be outstanding (sent but not acknowledged) to
+	 * this peer at any one time.  A size of 1 means that sync is lock-stepped on the acks.
+	 */
+	public final int replicationWindowSize;
 	/**
 	 * Whether or not our downstream connection to this node is active.
 	 * Starts false since this is created before the connection is open.
@@ -43,9 +50,10 @@ public class DownstreamPeerState {
 	public boolean isWritable = false;
 	/**
 	 * The next mutation offset we need to send them.
-	 * When a downstream peer is first connected, we base this on the PEER_STATE they send us.  After that, we increment
-	 * it whenever we send them a mutation.  Once the peer becomes writable, we will ask the NodeState to fetch this for
-	 * us.
+	 * When a downstream peer is first connected, we base this on the PEER_STATE they send us.  After that, we advance
+	 * it past the mutations in each APPEND_MUTATIONS we send them (not waiting for the ack, so long as the replication
+	 * window has space).  If they send us another PEER_STATE, due to an inconsistency, we rewind this to what they
+	 * asked for.  Once the peer becomes writable, we will ask the NodeState to fetch this for us.
 	 * Since this mutation may be returned immediately, may be asynchronously fetched from disk, or may not appear until
 	 * a client produces it, the ClusterManager listens to fetched and new mutations and consults this number to see if
 	 * it should send a copy to the peer.
@@ -56,14 +64,99 @@ public class DownstreamPeerState {
 	 * The millisecond clock the last time we sent a message to this peer.  This is tracked for heartbeat.
 	 */
 	public long lastSentMessageMillis = 0L;
+	/**
+	 * The last commit offset we told this peer about, in any APPEND_MUTATIONS, heartbeat, or COMMIT_ADVANCE.  We use
+	 * this to avoid sending a COMMIT_ADVANCE which wouldn't tell them anything new.
+	 * This is reset whenever the sync is rewound or restarted since we can't be sure what they have seen.
+	 */
+	public long lastCommittedOffsetSent = NO_NEXT_MUTATION;
+	/**
+	 * The latest leaderSendMillis this peer has echoed back to us in an ack.  Since the peer can only echo a time once
+	 * it received the message sent at that time, this is a lower bound on when the peer last heard from us (and
+	 * therefore when it last reset its election timeout).  This is on our own clock so it is only compared against our
+	 * own clock.
+	 */
+	public long lastEchoedSendMillis = 0L;
+	/**
+	 * True once we have taken at least one round-trip sample from this peer (before that, the smoothed values below are
+	 * meaningless).
+	 */
+	public boolean hasRoundTripSample = false;
+	/**
+	 * The smoothed round-trip time to this peer, measured from when we sent a message to when the peer echoed its send
+	 * time back to us in an ack.  This is updated with the usual 1/8 gain so one slow ack doesn't swing it.
+	 */
+	public long smoothedRoundTripMillis = 0L;
+	/**
+	 * The smoothed mean deviation of the round-trip samples from smoothedRoundTripMillis, updated with a 1/4 gain.
+	 */
+	public long roundTripVarianceMillis = 0L;
+	/**
+	 * The last mutation offset in each APPEND_MUTATIONS message we have sent but which the peer hasn't yet
+	 * acknowledged, in the order they were sent.  The size of this list is the number of appends currently occupying
+	 * the replication window.
+	 * This is cleared whenever the sync is rewound or restarted since any acks still in-flight no longer matter.
+	 */
+	public final LinkedList<Long> unacknowledgedAppendLastOffsets = new LinkedList<>();
 	/**
 	 * If we are trying to start an election, we need to send REQUEST_VOTE messages to all downstream peers.  That
 	 * message is stored here until the socket is writable.  Once sent, this is set to null.
 	 */
 	public DownstreamMessage pendingVoteRequest = null;
+	/**
+	 * If we are transferring leadership to this peer, and it has everything we have, the TIMEOUT_NOW message telling it
+	 * to start an election is stored here until the socket is writable.  Once sent, this is set to null.
+	 */
+	public DownstreamMessage pendingTimeoutNow = null;
 
-	public DownstreamPeerState(ConfigEntry entry, NetworkManager.NodeToken token) {
+	public DownstreamPeerState(ConfigEntry entry, NetworkManager.NodeToken token, int replicationWindowSize) {
 		this.entry = entry;
 		this.token = token;
+		this.replicationWindowSize = replicationWindowSize;
+	}
+
+	/**
+	 * @return True if there is space in the replication window to send another APPEND_MUTATIONS.
+	 */
+	public boolean isReplicationWindowOpen() {
+		return (this.unacknowledgedAppendLastOffsets.size() < this.replicationWindowSize);
+	}
+
+	/**
+	 * Finds the commit offset we could tell this peer about.  This is our own commit offset but limited to the last
+	 * mutation we have sent them, since we can't ask them to commit something they might not have.
+	 * 
+	 * @param lastCommittedMutationOffset The last mutation this node has committed.
+	 * @return The commit offset we can send, or NO_NEXT_MUTATION if we don't know where they are.
+	 */
+	public long getSendableCommitOffset(long lastCommittedMutationOffset) {
+		return (NO_NEXT_MUTATION != this.nextMutationOffsetToSend)
+				? Math.min(lastCommittedMutationOffset, this.nextMutationOffsetToSend - 1L)
+				: NO_NEXT_MUTATION;
+	}
+
+	/**
+	 * Folds a new round-trip sample into the smoothed round-trip time and variance.
+	 * 
+	 * @param sampleMillis The measured time between sending a message and seeing it echoed back.
+	 */
+	public void addRoundTripSample(long sampleMillis) {
+		if (this.hasRoundTripSample) {
+			// The variance is updated against the old smoothed value, before that is moved toward the sample.
+			this.roundTripVarianceMillis = (3L * this.roundTripVarianceMillis + Math.abs(this.smoothedRoundTripMillis - sampleMillis)) / 4L;
+			this.smoothedRoundTripMillis = (7L * this.smoothedRoundTripMillis + sampleMillis) / 8L;
+		} else {
+			this.smoothedRoundTripMillis = sampleMillis;
+			this.roundTripVarianceMillis = sampleMillis / 2L;
+			this.hasRoundTripSample = true;
+		}
+	}
+
+	/**
+	 * @return The longest we would expect to wait for this peer to echo a message, given the samples so far (smoothed
+	 * round-trip plus 4 times its variance).
+	 */
+	public long getRoundTripTimeoutMillis() {
+		return this.smoothedRoundTripMillis + 4L * this.roundTripVarianceMillis;
 	}
 }
@@ -1,10 +1,13 @@
 package com.jeffdisher.laminar.network;
 
+import java.util.UUID;
+
 import com.jeffdisher.laminar.disk.CommittedMutationRecord;
 import com.jeffdisher.laminar.state.StateSnapshot;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 
 
@@ -76,4 +79,47 @@ public interface IClientManager {
 	 * The ClientManager is expected to suspend all incoming readable messages from clients while in this state.
 	 */
 	void mainEnterCandidateState();
+
+	/**
+	 * Called when a FOLLOWER learns how far its committed mutations are behind those committed by the LEADER.
+	 * If this exceeds the configured limit, listeners are disconnected and new listeners refused until the node catches
+	 * up, so that they can find a node with fresher data.
+	 * 
+	 * @param mutationsBehindLeader The number of mutations the LEADER has committed which we have not.
+	 */
+	void mainFollowerCommitLagDidChange(long mutationsBehindLeader);
+
+	/**
+	 * Sends the answer to a READ_TOPIC_STATE back to the client which asked for it.  Answers for clients which are no
+	 * longer connected are dropped (they will re-send the read when they reconnect).
+	 * 
+	 * @param clientId The UUID of the client which sent the read.
+	 * @param readId The read identifier the client sent.
+	 * @param lastCommittedMutationOffset The commit offset the state describes.
+	 * @param state The state of the topic.
+	 */
+	void mainSendTopicState(UUID clientId, long readId, long lastCommittedMutationOffset, TopicState state);
+
+	/**
+	 * Sends the answer to a GET back to the client which asked for it.  Answers for clients which are no longer
+	 * connected are dropped (they will re-send the read when they reconnect).
+	 * 
+	 * @param clientId The UUID of the client which sent the read.
+	 * @param readId The read identifier the client sent.
+	 * @param lastCommittedMutationOffset The commit offset the value describes.
+	 * @param value The value of the key (null if it has no value).
+	 */
+	void mainSendValue(UUID clientId, long readId, long lastCommittedMutationOffset, byte[] value);
+
+	/**
+	 * Called by the NodeState before it runs a batch of main thread commands.  Messages sent to clients and listeners
+	 * during the batch are buffered but not written to the network until mainFlushBatch().
+	 */
+	void mainStartBatch();
+
+	/**
+	 * Called by the NodeState once it has run a batch of main thread commands, to write all the messages sent to clients
+	 * and listeners during the batch.
+	 */
+	void mainFlushBatch();
 }
@@ -24,6 +24,16 @@ public interface IClientManagerCallbacks {
 	 */
 	long mainHandleValidClientMessage(UUID clientId, ClientMessage incoming);
 
+	/**
+	 * Called to provide a read-only message which arrived from a normal client.  These have no nonce and are never
+	 * written to the log so the callee answers them, through IClientManager.mainSendTopicState or mainSendValue, either
+	 * immediately or once it can do so safely.
+	 * 
+	 * @param clientId The UUID of the client which send the message.
+	 * @param incoming The message received.
+	 */
+	void mainHandleReadOnlyClientMessage(UUID clientId, ClientMessage incoming);
+
 	/**
 	 * Called when the ClientManager wishes to use a mutation in client reconnect and needs it to be loaded.
 	 * Note that the receiver can respond to this in 2 different ways:
@@ -41,4 +51,11 @@ public interface IClientManagerCallbacks {
 	 * A testing method to force the node to start an election in response to a testing message.
 	 */
 	void mainForceLeader();
+
+	/**
+	 * Called when a TRANSFER_LEADER message asks this node to hand leadership to another node.
+	 * 
+	 * @param targetNodeUuid The UUID of the node which should become leader.
+	 */
+	void mainTransferLeader(UUID targetNodeUuid);
 }
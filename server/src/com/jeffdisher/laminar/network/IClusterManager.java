@@ -42,6 +42,16 @@ public interface IClusterManager {
 	 */
 	boolean mainMutationWasReceivedOrFetched(StateSnapshot snapshot, long previousMutationTermNumber, MutationRecord mutation);
 
+	/**
+	 * Called by the NodeState when a contiguous range of committed mutations was fetched from disk to sync downstream
+	 * peers which are behind.
+	 * 
+	 * @param snapshot The state of the node during this invocation.
+	 * @param previousMutationTermNumber The term number of the mutation before the first one in the range.
+	 * @param mutations The mutations, in order.
+	 */
+	void mainCommittedMutationsWereFetched(StateSnapshot snapshot, long previousMutationTermNumber, MutationRecord[] mutations);
+
 	/**
 	 * Requests that a downstream connection be created to the peer identified by entry.
 	 * Note that the receiver will keep trying to establish or reestablish this connection if it drops or encounters an
@@ -74,6 +84,55 @@ public interface IClusterManager {
 	 * @param newTermNumber The term number where the election is happening.
 	 * @param previousMutationTerm The term number of the most recently RECEIVED mutation on this node.
 	 * @param previousMuationOffset The mutation offset of the most recently RECEIVED mutation on this node.
+	 * @param isLeadershipTransfer True if the previous leader asked us to start this election (peers must then consider
+	 * it even if they recently heard from that leader).
+	 */
+	void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMuationOffset, boolean isLeadershipTransfer);
+
+	/**
+	 * Called to tell the ClusterManager that the node wants to run a pre-vote before starting an election.  This means it
+	 * must send pre-vote requests to all downstream peers, without changing its own state.
+	 * 
+	 * @param proposedTermNumber The term number where the election would happen.
+	 * @param previousMutationTerm The term number of the most recently RECEIVED mutation on this node.
+	 * @param previousMutationOffset The mutation offset of the most recently RECEIVED mutation on this node.
+	 */
+	void mainStartPreVote(long proposedTermNumber, long previousMutationTerm, long previousMutationOffset);
+
+	/**
+	 * Checks if this node is the LEADER and a majority of the voting nodes in the cluster have recently acknowledged a
+	 * message from it, such that no other node can have been elected leader, yet.  While this is true, the node can
+	 * answer reads of its committed state without a quorum round-trip.
+	 * Note that this doesn't account for joint consensus (the caller must not rely on it while a config is pending).
+	 * 
+	 * @return True if this node currently holds the leader lease.
+	 */
+	boolean mainHasLeaderLease();
+
+	/**
+	 * @return The election timeout, in milliseconds, which the cluster is currently using (as LEADER, the one this node
+	 * advertises to its followers).
+	 */
+	long mainGetElectionTimeoutMillis();
+
+	/**
+	 * Called by a LEADER which is transferring leadership, once the target has received everything the leader has, to
+	 * tell that target to start an election immediately.  The message is sent as soon as the peer is writable.
+	 * 
+	 * @param target The downstream peer which should become leader.
+	 * @param currentTermNumber The current term of this node.
+	 * @return True if the target is a known downstream peer, false if there is nobody to send this to.
+	 */
+	boolean mainSendTimeoutNow(ConfigEntry target, long currentTermNumber);
+
+	/**
+	 * Called by the NodeState before it runs a batch of main thread commands, so that messages sent to peers during the
+	 * batch are coalesced into one network wake-up when the batch is flushed.
+	 */
+	void mainStartBatch();
+
+	/**
+	 * Called by the NodeState at the end of a batch of main thread commands to write everything sent to peers during it.
 	 */
-	void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMuationOffset);
+	void mainFlushBatch();
 }
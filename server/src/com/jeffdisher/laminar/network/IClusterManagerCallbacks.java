@@ -5,6 +5,7 @@ import java.util.function.Consumer;
 import com.jeffdisher.laminar.state.StateSnapshot;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
+import com.jeffdisher.laminar.utils.TimerHandle;
 
 
 public interface IClusterManagerCallbacks {
@@ -22,8 +23,9 @@ public interface IClusterManagerCallbacks {
 	 * 
 	 * @param command A command to run on the main thread.
 	 * @param delayMillis The number of milliseconds before this command will be run.
+	 * @return A handle which can be used to cancel the command before it runs.
 	 */
-	void ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis);
+	TimerHandle ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis);
 
 	/**
 	 * Allows main thread operations in the ClusterManager to schedule priority tasks on the NodeState's thread after a
@@ -33,8 +35,9 @@ public interface IClusterManagerCallbacks {
 	 * 
 	 * @param command A command to run on the main thread.
 	 * @param delayMillis The number of milliseconds before this command will be run.
+	 * @return A handle which can be used to cancel the command before it runs.
 	 */
-	void mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis);
+	TimerHandle mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis);
 
 	/**
 	 * Called when a new mutation arrives from an upstream peer.
@@ -43,8 +46,9 @@ public interface IClusterManagerCallbacks {
 	 * The potential return value from this is somewhat complex so here is a break-down of the cases which may happen:
 	 * -the next mutation - this is the most common case and happens if this mutation was applied or it matches one we
 	 *  already had.
-	 * -the previous mutation - if we already had this mutation but there was a term mismatch, so we want to search back
-	 *  in the leader's history to get the correct sequence of mutations.
+	 * -the first mutation of the conflicting term - if there was a term mismatch with the mutation before this one, so we
+	 *  want the leader to rewind past every mutation we received in that term (this skips a whole term per round-trip,
+	 *  instead of walking back one mutation at a time).
 	 * -a much earlier mutation - if the leader is far ahead of us, this is just to tell them to rewind to the next
 	 *  mutation we need.
 	 * 
@@ -75,13 +79,15 @@ public interface IClusterManagerCallbacks {
 	 * Called when the ClusterManager wishes to send a mutation to a downstream peer and needs it to be loaded.
 	 * Note that the receiver can respond to this in 3 different ways:
 	 * 1) return immediately if this is in-memory.
-	 * 2) schedule that it be fetched from disk.
+	 * 2) schedule that it, and up to diskFetchCount mutations starting with it, be fetched from disk (the ClusterManager
+	 * won't ask for anything in that range again until it receives them via mainCommittedMutationsWereFetched()).
 	 * 3) wait until a client sends this mutation.
 	 * 
 	 * @param mutationOffset The offset to fetch/return/await.
+	 * @param diskFetchCount The maximum number of mutations to read, if this needs to be fetched from disk.
 	 * @return The mutation wrapper, only if it was immediately available, in-memory (not yet committed).
 	 */
-	MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset);
+	MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset, int diskFetchCount);
 
 	/**
 	 * Sent by the ClusterManager whenever a new acknowledgement arrives from a downstream peer.
@@ -114,12 +120,45 @@ public interface IClusterManagerCallbacks {
 	 */
 	void mainReceivedVoteFromFollower(ConfigEntry peer, long newTermNumber);
 
+	/**
+	 * Called when an upstream peer is running a pre-vote:  it wants to know if we would vote for it in newTermNumber,
+	 * before it actually starts that election.  The receiver must not change its state in response.
+	 * 
+	 * @param peer The upstream peer who wants to start the election.
+	 * @param newTermNumber The term number of the election it wants to start.
+	 * @param candidateLastReceivedMutationTerm The term number of the last mutation the candidate RECEIVED.
+	 * @param candidateLastReceivedMutation The mutation offset of the last mutation the candidate RECEIVED.
+	 * @return True if the receiver would vote for the peer in that election.
+	 */
+	boolean mainReceivedRequestForPreVote(ConfigEntry peer, long newTermNumber, long candidateLastReceivedMutationTerm, long candidateLastReceivedMutation);
+
+	/**
+	 * Called when a downstream peer said that it would vote for the receiver if it started an election in newTermNumber.
+	 * 
+	 * @param peer The downstream peer who sent the pre-vote.
+	 * @param newTermNumber The term number of the proposed election.
+	 */
+	void mainReceivedPreVoteFromPeer(ConfigEntry peer, long newTermNumber);
+
+	/**
+	 * Called when the upstream peer, which is transferring leadership to us, tells us to start an election right away.
+	 * 
+	 * @param peer The upstream peer which is giving up leadership.
+	 * @param upstreamTermNumber The term number of the upstream peer.
+	 */
+	void mainReceivedTimeoutNow(ConfigEntry peer, long upstreamTermNumber);
+
 	/**
 	 * Called when we have gone too long without a message from the cluster leader, meaning we probably need to start an
 	 * election.
 	 */
 	void mainUpstreamMessageDidTimeout();
 
+	/**
+	 * Called when a downstream peer acknowledged a message from this LEADER and the leader lease is now held.
+	 */
+	void mainLeaderLeaseWasRenewed();
+
 
 	/**
 	 * Just a container for returning a tuple in this interface.
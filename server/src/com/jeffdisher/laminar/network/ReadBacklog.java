@@ -0,0 +1,19 @@
+package com.jeffdisher.laminar.network;
+
+
+/**
+ * Tracks the messages which have arrived on a single client connection but which the main thread hasn't yet handled,
+ * so that the IO thread can stop decoding them once the main thread falls too far behind.
+ * Note that this is shared between the IO thread and the main thread so all access must be done under its monitor.
+ */
+public class ReadBacklog {
+	/**
+	 * The number of messages which have been decoded but not yet handled by the main thread (including any suspended
+	 * during an election).
+	 */
+	public int decodedCount;
+	/**
+	 * The number of messages the IO thread left in the connection's buffer for the main thread to read.
+	 */
+	public int undecodedCount;
+}
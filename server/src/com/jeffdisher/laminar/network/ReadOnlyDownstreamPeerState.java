@@ -42,11 +42,13 @@ public class ReadOnlyDownstreamPeerState {
 	}
 
 	/**
-	 * @return True if the peer has a mutation it could send.
+	 * @return True if the peer has a mutation it could send and there is space in its replication window.
 	 */
 	public boolean hasMutationToSend() {
 		Assert.assertTrue(_isValid);
-		return (DownstreamPeerState.NO_NEXT_MUTATION != _original.nextMutationOffsetToSend);
+		return (DownstreamPeerState.NO_NEXT_MUTATION != _original.nextMutationOffsetToSend)
+				&& _original.isReplicationWindowOpen()
+		;
 	}
 
 	/**
@@ -57,6 +59,23 @@ public class ReadOnlyDownstreamPeerState {
 		return (null != _original.pendingVoteRequest);
 	}
 
+	/**
+	 * @return True if the peer has a TIMEOUT_NOW it could send.
+	 */
+	public boolean hasTimeoutNowToSend() {
+		Assert.assertTrue(_isValid);
+		return (null != _original.pendingTimeoutNow);
+	}
+
+	/**
+	 * @param lastCommittedMutationOffset The last mutation this node has committed.
+	 * @return True if lastCommittedMutationOffset would tell the peer about a commit it hasn't been sent.
+	 */
+	public boolean hasCommitAdvanceToSend(long lastCommittedMutationOffset) {
+		Assert.assertTrue(_isValid);
+		return (_original.getSendableCommitOffset(lastCommittedMutationOffset) > _original.lastCommittedOffsetSent);
+	}
+
 	/**
 	 * @return The next mutation offset the receiver could send.
 	 */
@@ -88,30 +107,36 @@ public class ReadOnlyDownstreamPeerState {
 	}
 
 	/**
-	 * Called when the caller has decided to send a mutation to the peer.
+	 * Called when the caller has decided to send a batch of mutations to the peer.
 	 * Mutative operation which invalidates the receiver.
-	 * Note that this assumes the receiver was already ready to send this mutation.
+	 * Note that this assumes the receiver was already ready to send the first of these mutations.
 	 * 
 	 * @param currentTermNumber The current term of this node.
-	 * @param previousMutationTermNumber The term number of the mutation before this one.
-	 * @param mutation The mutation to send.
+	 * @param previousMutationTermNumber The term number of the mutation before the first in the batch.
+	 * @param mutations The contiguous mutations to send (must be at least 1).
 	 * @param lastCommittedMutationOffset The last mutation this node has committed.
 	 * @param nowMillis The time of the send.
+	 * @param electionTimeoutMillis The election timeout the peer should use.
 	 * @return The message which now MUST be sent to the peer.
 	 */
-	public DownstreamMessage commitToSendMutations(long currentTermNumber, long previousMutationTermNumber, MutationRecord mutation, long lastCommittedMutationOffset, long nowMillis) {
+	public DownstreamMessage commitToSendMutations(long currentTermNumber, long previousMutationTermNumber, MutationRecord[] mutations, long lastCommittedMutationOffset, long nowMillis, long electionTimeoutMillis) {
 		Assert.assertTrue(_isValid);
 		Assert.assertTrue(_original.isConnectionUp);
 		Assert.assertTrue(_original.isWritable);
 		Assert.assertTrue(_original.didHandshake);
-		Assert.assertTrue(_original.nextMutationOffsetToSend == mutation.globalOffset);
+		Assert.assertTrue(mutations.length > 0);
+		Assert.assertTrue(_original.nextMutationOffsetToSend == mutations[0].globalOffset);
+		Assert.assertTrue(_original.isReplicationWindowOpen());
 		Assert.assertTrue(null == _original.pendingVoteRequest);
 		
-		DownstreamMessage message = DownstreamMessage.appendMutations(currentTermNumber, previousMutationTermNumber, mutation, lastCommittedMutationOffset);
+		DownstreamMessage message = DownstreamMessage.appendMutations(currentTermNumber, previousMutationTermNumber, mutations, lastCommittedMutationOffset, nowMillis, electionTimeoutMillis);
 		_original.isWritable = false;
 		_original.lastSentMessageMillis = nowMillis;
-		// Clear the next mutation until they ack it.
-		_original.nextMutationOffsetToSend = DownstreamPeerState.NO_NEXT_MUTATION;
+		_original.lastCommittedOffsetSent = Math.max(_original.lastCommittedOffsetSent, lastCommittedMutationOffset);
+		// We don't wait for the ack before moving on to the next mutation, but this append now occupies the window.
+		long lastOffsetSent = mutations[mutations.length - 1].globalOffset;
+		_original.nextMutationOffsetToSend = lastOffsetSent + 1;
+		_original.unacknowledgedAppendLastOffsets.add(lastOffsetSent);
 		_isValid = false;
 		return message;
 	}
@@ -123,18 +148,47 @@ public class ReadOnlyDownstreamPeerState {
 	 * @param currentTermNumber The current term of this node.
 	 * @param lastCommittedMutationOffset The last mutation this node has committed.
 	 * @param nowMillis The time of the send.
+	 * @param electionTimeoutMillis The election timeout the peer should use.
 	 * @return The message which now MUST be sent to the peer.
 	 */
-	public DownstreamMessage commitToSendHeartbeat(long currentTermNumber, long lastCommittedMutationOffset, long nowMillis) {
+	public DownstreamMessage commitToSendHeartbeat(long currentTermNumber, long lastCommittedMutationOffset, long nowMillis, long electionTimeoutMillis) {
 		Assert.assertTrue(_isValid);
 		Assert.assertTrue(_original.isConnectionUp);
 		Assert.assertTrue(_original.isWritable);
 		Assert.assertTrue(_original.didHandshake);
 		Assert.assertTrue(null == _original.pendingVoteRequest);
 		
-		DownstreamMessage message = DownstreamMessage.heartbeat(currentTermNumber, lastCommittedMutationOffset);
+		DownstreamMessage message = DownstreamMessage.heartbeat(currentTermNumber, lastCommittedMutationOffset, nowMillis, electionTimeoutMillis);
 		_original.isWritable = false;
 		_original.lastSentMessageMillis = nowMillis;
+		_original.lastCommittedOffsetSent = Math.max(_original.lastCommittedOffsetSent, lastCommittedMutationOffset);
+		_isValid = false;
+		return message;
+	}
+
+	/**
+	 * Called when the caller has decided to tell the peer about a commit offset it hasn't been sent.
+	 * Mutative operation which invalidates the receiver.
+	 * Note that this doesn't count as a message for heartbeat purposes since it doesn't carry a send time for the peer
+	 * to echo.
+	 * 
+	 * @param currentTermNumber The current term of this node.
+	 * @param lastCommittedMutationOffset The last mutation this node has committed (will be limited to what the peer
+	 * has been sent).
+	 * @return The message which now MUST be sent to the peer.
+	 */
+	public DownstreamMessage commitToSendCommitAdvance(long currentTermNumber, long lastCommittedMutationOffset) {
+		Assert.assertTrue(_isValid);
+		Assert.assertTrue(_original.isConnectionUp);
+		Assert.assertTrue(_original.isWritable);
+		Assert.assertTrue(_original.didHandshake);
+		Assert.assertTrue(null == _original.pendingVoteRequest);
+		long commitOffsetToSend = _original.getSendableCommitOffset(lastCommittedMutationOffset);
+		Assert.assertTrue(commitOffsetToSend > _original.lastCommittedOffsetSent);
+		
+		DownstreamMessage message = DownstreamMessage.commitAdvance(currentTermNumber, commitOffsetToSend);
+		_original.isWritable = false;
+		_original.lastCommittedOffsetSent = commitOffsetToSend;
 		_isValid = false;
 		return message;
 	}
@@ -161,4 +215,27 @@ public class ReadOnlyDownstreamPeerState {
 		_isValid = false;
 		return message;
 	}
+
+	/**
+	 * Called when the caller has decided to send the pending TIMEOUT_NOW to the peer.
+	 * Mutative operation which invalidates the receiver.
+	 * Note that this assumes they already had a pending TIMEOUT_NOW set.
+	 * 
+	 * @param nowMillis The time of the send.
+	 * @return The message which now MUST be sent to the peer.
+	 */
+	public DownstreamMessage commitToSendTimeoutNow(long nowMillis) {
+		Assert.assertTrue(_isValid);
+		Assert.assertTrue(_original.isConnectionUp);
+		Assert.assertTrue(_original.isWritable);
+		Assert.assertTrue(_original.didHandshake);
+		Assert.assertTrue(null != _original.pendingTimeoutNow);
+		
+		DownstreamMessage message = _original.pendingTimeoutNow;
+		_original.isWritable = false;
+		_original.lastSentMessageMillis = nowMillis;
+		_original.pendingTimeoutNow = null;
+		_isValid = false;
+		return message;
+	}
 }
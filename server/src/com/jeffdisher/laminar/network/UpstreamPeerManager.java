@@ -45,6 +45,7 @@ public class UpstreamPeerManager {
 		for (UpstreamPeerState peer : _upstreamPeerByNode.values()) {
 			peer.lastMutationOffsetReceived = lastReceivedMutationOffset;
 			peer.lastMutationOffsetAcknowledged = lastReceivedMutationOffset;
+			peer.expectedRewindMutationOffset = -1L;
 		}
 	}
 
@@ -161,11 +162,12 @@ public class UpstreamPeerManager {
 	 * 
 	 * @param node The token of the upstream node.
 	 * @param newTermNumber The term number where the election is taking place.
+	 * @param isPreVote True if this is only a pre-vote (the election hasn't actually started).
 	 */
-	public void prepareToCastVote(NetworkManager.NodeToken node, long newTermNumber) {
+	public void prepareToCastVote(NetworkManager.NodeToken node, long newTermNumber, boolean isPreVote) {
 		// This MUST be an established peer.
 		Assert.assertTrue(_upstreamPeerByNode.containsKey(node));
-		_upstreamPeerByNode.get(node).pendingVoteToSend = UpstreamResponse.castVote(newTermNumber);
+		_upstreamPeerByNode.get(node).pendingVoteToSend = UpstreamResponse.castVote(newTermNumber, isPreVote);
 	}
 
 	/**
@@ -184,6 +186,20 @@ public class UpstreamPeerManager {
 		state.lastMutationOffsetAcknowledged = lastMutationOffsetAcknowledged;
 	}
 
+	/**
+	 * Records the send time of a message we received from the given established node while it is acting as our leader,
+	 * so that we will echo it back to them.
+	 * 
+	 * @param node The token for the upstream node.
+	 * @param leaderSendMillis The leaderSendMillis from the APPEND_MUTATIONS we received.
+	 */
+	public void didReceiveFromLeader(NetworkManager.NodeToken node, long leaderSendMillis) {
+		// This MUST be an established peer.
+		Assert.assertTrue(_upstreamPeerByNode.containsKey(node));
+		UpstreamPeerState state = _upstreamPeerByNode.get(node);
+		state.lastLeaderSendMillisReceived = Math.max(state.lastLeaderSendMillisReceived, leaderSendMillis);
+	}
+
 	/**
 	 * Updates the internal state for the given established node to prepare to send a new PEER_STATE message as we
 	 * failed to apply the most recent mutation it sent.
@@ -196,7 +212,35 @@ public class UpstreamPeerManager {
 		// This MUST be an established peer.
 		Assert.assertTrue(_upstreamPeerByNode.containsKey(node));
 		// We failed to apply so send a new PEER_STATE to tell them what we actually need.
-		_upstreamPeerByNode.get(node).pendingPeerStateMutationOffsetReceived = lastReceivedMutationOffset;
+		UpstreamPeerState state = _upstreamPeerByNode.get(node);
+		state.pendingPeerStateMutationOffsetReceived = lastReceivedMutationOffset;
+		// Anything they already sent us, before seeing this, is now stale.
+		state.expectedRewindMutationOffset = lastReceivedMutationOffset + 1;
+	}
+
+	/**
+	 * Checks if an APPEND_MUTATIONS from the given established node, starting at firstMutationOffset, should be ignored
+	 * because it was sent before the upstream peer observed the PEER_STATE we sent to rewind it.
+	 * Once the append we asked for arrives, this stops ignoring appends from the node.
+	 * 
+	 * @param node The token for the upstream node.
+	 * @param firstMutationOffset The offset of the first mutation in the append.
+	 * @return True if the append is stale and should be ignored.
+	 */
+	public boolean shouldIgnoreAppend(NetworkManager.NodeToken node, long firstMutationOffset) {
+		// This MUST be an established peer.
+		Assert.assertTrue(_upstreamPeerByNode.containsKey(node));
+		UpstreamPeerState state = _upstreamPeerByNode.get(node);
+		boolean shouldIgnore = false;
+		if (state.expectedRewindMutationOffset > -1L) {
+			if (firstMutationOffset == state.expectedRewindMutationOffset) {
+				// This is the rewind we were waiting for.
+				state.expectedRewindMutationOffset = -1L;
+			} else {
+				shouldIgnore = true;
+			}
+		}
+		return shouldIgnore;
 	}
 
 	/**
@@ -219,13 +263,20 @@ public class UpstreamPeerManager {
 				// Send the PEER_STATE.
 				messageToSend = UpstreamResponse.peerState(state.pendingPeerStateMutationOffsetReceived);
 				state.pendingPeerStateMutationOffsetReceived = -1L;
+				// The leader is about to resync us so we don't bother echoing the send time of what we rejected.
+				state.lastLeaderSendMillisAcknowledged = state.lastLeaderSendMillisReceived;
 			} else if (!isLeader && (state.lastMutationOffsetAcknowledged < state.lastMutationOffsetReceived)) {
 				// Send the ack.
-				messageToSend = UpstreamResponse.receivedMutations(state.lastMutationOffsetReceived);
+				messageToSend = UpstreamResponse.receivedMutations(state.lastMutationOffsetReceived, state.lastLeaderSendMillisReceived);
 				state.lastMutationOffsetAcknowledged = state.lastMutationOffsetReceived;
+				state.lastLeaderSendMillisAcknowledged = state.lastLeaderSendMillisReceived;
 			} else if (!isLeader && (null != state.pendingVoteToSend)) {
 				messageToSend = state.pendingVoteToSend;
 				state.pendingVoteToSend = null;
+			} else if (!isLeader && (state.lastLeaderSendMillisAcknowledged < state.lastLeaderSendMillisReceived)) {
+				// Nothing new to ack but we still echo the time so the leader can renew its lease.
+				messageToSend = UpstreamResponse.heartbeatAck(state.lastLeaderSendMillisReceived);
+				state.lastLeaderSendMillisAcknowledged = state.lastLeaderSendMillisReceived;
 			}
 			
 			if (null != messageToSend) {
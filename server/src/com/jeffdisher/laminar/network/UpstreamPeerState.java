@@ -35,6 +35,15 @@ public class UpstreamPeerState {
 	 * This value starts at 0L since we haven't received a mutation from them.
 	 */
 	public long lastMutationOffsetAcknowledged = 0L;
+	/**
+	 * The leaderSendMillis of the most recent APPEND_MUTATIONS (or heartbeat) we received from them.
+	 */
+	public long lastLeaderSendMillisReceived = 0L;
+	/**
+	 * The most recent leaderSendMillis we echoed back to them.  When the peer is writable and this value is less than
+	 * lastLeaderSendMillisReceived, we send them a HEARTBEAT_ACK (if there is no mutation ack to carry it).
+	 */
+	public long lastLeaderSendMillisAcknowledged = 0L;
 	/**
 	 * Defaults to -1 when nothing needs to happen but set to a different value when we need to send a PEER_STATE
 	 * message to the upstream peer.  Usually, this is only set for a moment during start-up, directly in response to an
@@ -44,6 +53,12 @@ public class UpstreamPeerState {
 	 * (0L is a valid starting point so -1L is the default).
 	 */
 	public long pendingPeerStateMutationOffsetReceived = -1L;
+	/**
+	 * Defaults to -1 but, after we send a PEER_STATE to rewind the upstream peer, this is set to the offset of the
+	 * mutation we asked them to send next.  Since the upstream peer may have several APPEND_MUTATIONS in-flight, we
+	 * ignore any which don't start at this offset, until it arrives.
+	 */
+	public long expectedRewindMutationOffset = -1L;
 	/**
 	 * If an election is in-progress and we want to vote for an upstream peer, we need to send CAST_VOTE up to it. That
 	 * response is stored here until the socket is writable.  Once sent, this is set to null.
@@ -16,16 +16,24 @@ public class DownstreamMessage {
 		return new DownstreamMessage(Type.IDENTITY, DownstreamPayload_Identity.create(self));
 	}
 
-	public static DownstreamMessage appendMutations(long termNumber, long previousMutationTermNumber, MutationRecord mutation, long lastCommittedMutationOffset) {
-		return new DownstreamMessage(Type.APPEND_MUTATIONS, DownstreamPayload_AppendMutations.create(termNumber, previousMutationTermNumber, new MutationRecord[] { mutation }, lastCommittedMutationOffset));
+	public static DownstreamMessage appendMutations(long termNumber, long previousMutationTermNumber, MutationRecord[] mutations, long lastCommittedMutationOffset, long leaderSendMillis, long electionTimeoutMillis) {
+		return new DownstreamMessage(Type.APPEND_MUTATIONS, DownstreamPayload_AppendMutations.create(termNumber, previousMutationTermNumber, mutations, lastCommittedMutationOffset, leaderSendMillis, electionTimeoutMillis));
 	}
 
-	public static DownstreamMessage heartbeat(long termNumber, long lastCommittedMutationOffset) {
-		return new DownstreamMessage(Type.APPEND_MUTATIONS, DownstreamPayload_AppendMutations.create(termNumber, 0L, new MutationRecord[0], lastCommittedMutationOffset));
+	public static DownstreamMessage heartbeat(long termNumber, long lastCommittedMutationOffset, long leaderSendMillis, long electionTimeoutMillis) {
+		return new DownstreamMessage(Type.APPEND_MUTATIONS, DownstreamPayload_AppendMutations.create(termNumber, 0L, new MutationRecord[0], lastCommittedMutationOffset, leaderSendMillis, electionTimeoutMillis));
 	}
 
-	public static DownstreamMessage requestVotes(long newTermNumber, long previousMutationTerm, long previousMuationOffset) {
-		return new DownstreamMessage(Type.REQUEST_VOTES, DownstreamPayload_RequestVotes.create(newTermNumber, previousMutationTerm, previousMuationOffset));
+	public static DownstreamMessage requestVotes(long newTermNumber, long previousMutationTerm, long previousMuationOffset, boolean isPreVote, boolean isLeadershipTransfer) {
+		return new DownstreamMessage(Type.REQUEST_VOTES, DownstreamPayload_RequestVotes.create(newTermNumber, previousMutationTerm, previousMuationOffset, isPreVote, isLeadershipTransfer));
+	}
+
+	public static DownstreamMessage timeoutNow(long termNumber) {
+		return new DownstreamMessage(Type.TIMEOUT_NOW, DownstreamPayload_TimeoutNow.create(termNumber));
+	}
+
+	public static DownstreamMessage commitAdvance(long termNumber, long lastCommittedMutationOffset) {
+		return new DownstreamMessage(Type.COMMIT_ADVANCE, DownstreamPayload_CommitAdvance.create(termNumber, lastCommittedMutationOffset));
 	}
 
 	public static DownstreamMessage deserializeFrom(ByteBuffer buffer) {
@@ -45,6 +53,12 @@ public class DownstreamMessage {
 		case REQUEST_VOTES:
 			payload = DownstreamPayload_RequestVotes.deserializeFrom(buffer);
 			break;
+		case TIMEOUT_NOW:
+			payload = DownstreamPayload_TimeoutNow.deserializeFrom(buffer);
+			break;
+		case COMMIT_ADVANCE:
+			payload = DownstreamPayload_CommitAdvance.deserializeFrom(buffer);
+			break;
 		case INVALID:
 			throw _parseError();
 		default:
@@ -87,5 +101,7 @@ public class DownstreamMessage {
 		IDENTITY,
 		APPEND_MUTATIONS,
 		REQUEST_VOTES,
+		TIMEOUT_NOW,
+		COMMIT_ADVANCE,
 	}
 }
@@ -1,19 +1,35 @@
 package com.jeffdisher.laminar.network.p2p;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.utils.Assert;
 
 
 public class DownstreamPayload_AppendMutations implements IDownstreamPayload {
-	public static DownstreamPayload_AppendMutations create(long termNumber, long previousMutationTermNumber, MutationRecord[] records, long lastCommittedMutationOffset) {
+	/**
+	 * The record count is serialized as a single unsigned byte so this is the most records we can send in one message.
+	 */
+	public static final int MAX_RECORDS_PER_MESSAGE = 255;
+	/**
+	 * The size of the serialized payload, not counting the records (this is the size of a heartbeat).
+	 */
+	public static final int SERIALIZED_SIZE_WITHOUT_RECORDS = Long.BYTES + Long.BYTES + Byte.BYTES + Long.BYTES + Long.BYTES + Long.BYTES;
+
+	public static DownstreamPayload_AppendMutations create(long termNumber, long previousMutationTermNumber, MutationRecord[] records, long lastCommittedMutationOffset, long leaderSendMillis, long electionTimeoutMillis) {
 		// No mutations can be sent in term 0.
 		Assert.assertTrue(termNumber > 0L);
 		Assert.assertTrue(lastCommittedMutationOffset >= 0L);
-		// Note that, to keep things simple, we currently allow only 0 or 1 record.
-		Assert.assertTrue(records.length < 2);
-		return new DownstreamPayload_AppendMutations(termNumber, previousMutationTermNumber, records, lastCommittedMutationOffset);
+		// The count is serialized as an unsigned byte.
+		Assert.assertTrue(records.length <= MAX_RECORDS_PER_MESSAGE);
+		// The records must be a contiguous sequence of mutations.
+		for (int i = 1; i < records.length; ++i) {
+			Assert.assertTrue((records[i - 1].globalOffset + 1) == records[i].globalOffset);
+		}
+		// Followers use this as their election timeout so it must be positive.
+		Assert.assertTrue(electionTimeoutMillis > 0L);
+		return new DownstreamPayload_AppendMutations(termNumber, previousMutationTermNumber, records, lastCommittedMutationOffset, leaderSendMillis, electionTimeoutMillis);
 	}
 
 	public static DownstreamPayload_AppendMutations deserializeFrom(ByteBuffer buffer) {
@@ -25,7 +41,9 @@ public class DownstreamPayload_AppendMutations implements IDownstreamPayload {
 			records[i] = MutationRecord.deserializeFrom(buffer);
 		}
 		long lastCommittedMutationOffset = buffer.getLong();
-		return new DownstreamPayload_AppendMutations(termNumber, previousMutationTermNumber, records, lastCommittedMutationOffset);
+		long leaderSendMillis = buffer.getLong();
+		long electionTimeoutMillis = buffer.getLong();
+		return new DownstreamPayload_AppendMutations(termNumber, previousMutationTermNumber, records, lastCommittedMutationOffset, leaderSendMillis, electionTimeoutMillis);
 	}
 
 
@@ -33,24 +51,33 @@ public class DownstreamPayload_AppendMutations implements IDownstreamPayload {
 	public final long previousMutationTermNumber;
 	public final MutationRecord[] records;
 	public final long lastCommittedMutationOffset;
+	/**
+	 * The leader's millisecond clock when it sent this message.  The follower echoes this back in its ack so that the
+	 * leader knows the follower heard from it no earlier than this time (used to maintain the leader's read lease).
+	 */
+	public final long leaderSendMillis;
+	/**
+	 * The minimum election timeout the leader wants its followers to use, derived from the round-trip times it measured
+	 * to them.  The follower also ignores vote requests for this long after hearing from the leader (which is what
+	 * allows the leader to hold its read lease).
+	 */
+	public final long electionTimeoutMillis;
 
-	private DownstreamPayload_AppendMutations(long termNumber, long previousMutationTermNumber, MutationRecord[] records, long lastCommittedMutationOffset) {
+	private DownstreamPayload_AppendMutations(long termNumber, long previousMutationTermNumber, MutationRecord[] records, long lastCommittedMutationOffset, long leaderSendMillis, long electionTimeoutMillis) {
 		this.termNumber = termNumber;
 		this.previousMutationTermNumber = previousMutationTermNumber;
 		this.records = records;
 		this.lastCommittedMutationOffset = lastCommittedMutationOffset;
+		this.leaderSendMillis = leaderSendMillis;
+		this.electionTimeoutMillis = electionTimeoutMillis;
 	}
 
 	@Override
 	public int serializedSize() {
-		int size = 0;
-		size += Long.BYTES;
-		size += Long.BYTES;
-		size += Byte.BYTES;
+		int size = SERIALIZED_SIZE_WITHOUT_RECORDS;
 		for (MutationRecord record : this.records) {
 			size += record.serializedSize();
 		}
-		size += Long.BYTES;
 		return size;
 	}
 
@@ -64,10 +91,12 @@ public class DownstreamPayload_AppendMutations implements IDownstreamPayload {
 			record.serializeInto(buffer);
 		}
 		buffer.putLong(this.lastCommittedMutationOffset);
+		buffer.putLong(this.leaderSendMillis);
+		buffer.putLong(this.electionTimeoutMillis);
 	}
 
 	@Override
 	public String toString() {
-		return this.records.toString();
+		return Arrays.toString(this.records);
 	}
 }
@@ -0,0 +1,53 @@
+package com.jeffdisher.laminar.network.p2p;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * Sent by a LEADER when its commit offset has moved forward but it has no mutations to append to the follower, so the
+ * follower can commit right away instead of waiting for the next APPEND_MUTATIONS or heartbeat.
+ * This is much smaller than an empty APPEND_MUTATIONS and carries no send time, so the follower doesn't ack it (it
+ * doesn't contribute to the leader's lease).
+ */
+public class DownstreamPayload_CommitAdvance implements IDownstreamPayload {
+	public static DownstreamPayload_CommitAdvance create(long termNumber, long lastCommittedMutationOffset) {
+		// A commit can only advance once something was committed.
+		Assert.assertTrue(lastCommittedMutationOffset > 0L);
+		return new DownstreamPayload_CommitAdvance(termNumber, lastCommittedMutationOffset);
+	}
+
+	public static DownstreamPayload_CommitAdvance deserializeFrom(ByteBuffer buffer) {
+		long termNumber = buffer.getLong();
+		long lastCommittedMutationOffset = buffer.getLong();
+		return new DownstreamPayload_CommitAdvance(termNumber, lastCommittedMutationOffset);
+	}
+
+
+	public final long termNumber;
+	public final long lastCommittedMutationOffset;
+
+	private DownstreamPayload_CommitAdvance(long termNumber, long lastCommittedMutationOffset) {
+		this.termNumber = termNumber;
+		this.lastCommittedMutationOffset = lastCommittedMutationOffset;
+	}
+
+	@Override
+	public int serializedSize() {
+		return Long.BYTES
+				+ Long.BYTES
+		;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		buffer.putLong(this.termNumber);
+		buffer.putLong(this.lastCommittedMutationOffset);
+	}
+
+	@Override
+	public String toString() {
+		return "(Term: " + this.termNumber + ", Committed: " + this.lastCommittedMutationOffset + ")";
+	}
+}
@@ -5,38 +5,53 @@ import java.nio.ByteBuffer;
 import com.jeffdisher.laminar.utils.Assert;
 
 
+/**
+ * Sent by a CANDIDATE to request votes in an election for newTermNumber.
+ * If isPreVote is set, this is only asking if the peer WOULD vote for us in newTermNumber (the Raft "pre-vote"):  the
+ * sender hasn't actually moved to that term and the receiver doesn't change its state, only answers.
+ * If isLeadershipTransfer is set, the candidate started this election because the leader asked it to take over, so
+ * receivers must not ignore it just because they recently heard from that leader.
+ */
 public class DownstreamPayload_RequestVotes implements IDownstreamPayload {
-	public static DownstreamPayload_RequestVotes create(long newTermNumber, long previousMutationTerm, long previousMuationOffset) {
+	public static DownstreamPayload_RequestVotes create(long newTermNumber, long previousMutationTerm, long previousMuationOffset, boolean isPreVote, boolean isLeadershipTransfer) {
 		// There is no election for term 0 since that is the bootstrap term.
 		Assert.assertTrue(newTermNumber > 0L);
 		// There are no mutations in term 0.
 		Assert.assertTrue(previousMutationTerm > 0L);
 		// There can be no election with 0 mutations since that would be the identity config.
 		Assert.assertTrue(previousMuationOffset > 0L);
-		return new DownstreamPayload_RequestVotes(newTermNumber, previousMutationTerm, previousMuationOffset);
+		// A transfer always starts a real election.
+		Assert.assertTrue(!isPreVote || !isLeadershipTransfer);
+		return new DownstreamPayload_RequestVotes(newTermNumber, previousMutationTerm, previousMuationOffset, isPreVote, isLeadershipTransfer);
 	}
 
 	public static DownstreamPayload_RequestVotes deserializeFrom(ByteBuffer buffer) {
 		long newTermNumber = buffer.getLong();
 		long previousMutationTerm = buffer.getLong();
 		long previousMuationOffset = buffer.getLong();
-		return new DownstreamPayload_RequestVotes(newTermNumber, previousMutationTerm, previousMuationOffset);
+		boolean isPreVote = (0 != buffer.get());
+		boolean isLeadershipTransfer = (0 != buffer.get());
+		return new DownstreamPayload_RequestVotes(newTermNumber, previousMutationTerm, previousMuationOffset, isPreVote, isLeadershipTransfer);
 	}
 
 
 	public final long newTermNumber;
 	public final long previousMutationTerm;
 	public final long previousMuationOffset;
+	public final boolean isPreVote;
+	public final boolean isLeadershipTransfer;
 
-	private DownstreamPayload_RequestVotes(long newTermNumber, long previousMutationTerm, long previousMuationOffset) {
+	private DownstreamPayload_RequestVotes(long newTermNumber, long previousMutationTerm, long previousMuationOffset, boolean isPreVote, boolean isLeadershipTransfer) {
 		this.newTermNumber = newTermNumber;
 		this.previousMutationTerm = previousMutationTerm;
 		this.previousMuationOffset = previousMuationOffset;
+		this.isPreVote = isPreVote;
+		this.isLeadershipTransfer = isLeadershipTransfer;
 	}
 
 	@Override
 	public int serializedSize() {
-		return Long.BYTES + Long.BYTES + Long.BYTES;
+		return Long.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES + Byte.BYTES;
 	}
 
 	@Override
@@ -44,10 +59,12 @@ public class DownstreamPayload_RequestVotes implements IDownstreamPayload {
 		buffer.putLong(this.newTermNumber);
 		buffer.putLong(this.previousMutationTerm);
 		buffer.putLong(this.previousMuationOffset);
+		buffer.put(this.isPreVote ? (byte)1 : (byte)0);
+		buffer.put(this.isLeadershipTransfer ? (byte)1 : (byte)0);
 	}
 
 	@Override
 	public String toString() {
-		return "(Term: " + this.newTermNumber + ", Last mutation: (" + this.previousMutationTerm + "-" + this.previousMuationOffset + "))";
+		return (this.isPreVote ? "(Pre-vote term: " : "(Term: ") + this.newTermNumber + ", Last mutation: (" + this.previousMutationTerm + "-" + this.previousMuationOffset + "))";
 	}
 }
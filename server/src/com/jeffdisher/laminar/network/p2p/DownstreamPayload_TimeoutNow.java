@@ -0,0 +1,46 @@
+package com.jeffdisher.laminar.network.p2p;
+
+import java.nio.ByteBuffer;
+
+import com.jeffdisher.laminar.utils.Assert;
+
+
+/**
+ * Sent by a LEADER which is transferring leadership, once the target follower has received every mutation the leader
+ * has.  It tells the follower to start an election right away, instead of waiting for its election timeout.
+ * The termNumber is the leader's current term so a follower can ignore this if it arrives from a stale leader.
+ */
+public class DownstreamPayload_TimeoutNow implements IDownstreamPayload {
+	public static DownstreamPayload_TimeoutNow create(long termNumber) {
+		// A bootstrap leader has no followers to transfer to.
+		Assert.assertTrue(termNumber > 0L);
+		return new DownstreamPayload_TimeoutNow(termNumber);
+	}
+
+	public static DownstreamPayload_TimeoutNow deserializeFrom(ByteBuffer buffer) {
+		long termNumber = buffer.getLong();
+		return new DownstreamPayload_TimeoutNow(termNumber);
+	}
+
+
+	public final long termNumber;
+
+	private DownstreamPayload_TimeoutNow(long termNumber) {
+		this.termNumber = termNumber;
+	}
+
+	@Override
+	public int serializedSize() {
+		return Long.BYTES;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		buffer.putLong(this.termNumber);
+	}
+
+	@Override
+	public String toString() {
+		return "(Term: " + this.termNumber + ")";
+	}
+}
@@ -3,35 +3,44 @@ package com.jeffdisher.laminar.network.p2p;
 import java.nio.ByteBuffer;
 
 
+/**
+ * Sent by a node to vote for the CANDIDATE in termNumber.
+ * If isPreVote is set, this is only a statement that the node WOULD vote for it in termNumber, if it started that
+ * election (the sender has not changed its term or cast a real vote).
+ */
 public class UpstreamPayload_CastVote implements IUpstreamPayload {
-	public static UpstreamPayload_CastVote create(long termNumber) {
-		return new UpstreamPayload_CastVote(termNumber);
+	public static UpstreamPayload_CastVote create(long termNumber, boolean isPreVote) {
+		return new UpstreamPayload_CastVote(termNumber, isPreVote);
 	}
 
 	public static UpstreamPayload_CastVote deserializeFrom(ByteBuffer buffer) {
 		long termNumber = buffer.getLong();
-		return new UpstreamPayload_CastVote(termNumber);
+		boolean isPreVote = (0 != buffer.get());
+		return new UpstreamPayload_CastVote(termNumber, isPreVote);
 	}
 
 
 	public final long termNumber;
+	public final boolean isPreVote;
 
-	private UpstreamPayload_CastVote(long termNumber) {
+	private UpstreamPayload_CastVote(long termNumber, boolean isPreVote) {
 		this.termNumber = termNumber;
+		this.isPreVote = isPreVote;
 	}
 
 	@Override
 	public int serializedSize() {
-		return Long.BYTES;
+		return Long.BYTES + Byte.BYTES;
 	}
 
 	@Override
 	public void serializeInto(ByteBuffer buffer) {
 		buffer.putLong(this.termNumber);
+		buffer.put(this.isPreVote ? (byte)1 : (byte)0);
 	}
 
 	@Override
 	public String toString() {
-		return "VOTE";
+		return this.isPreVote ? "PRE-VOTE" : "VOTE";
 	}
 }
@@ -0,0 +1,42 @@
+package com.jeffdisher.laminar.network.p2p;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Sent by a follower when it has heard from the leader but has no new mutations to acknowledge (typically, in response
+ * to a heartbeat).  It only echoes the leaderSendMillis of the most recent APPEND_MUTATIONS so the leader can renew its
+ * read lease.
+ */
+public class UpstreamPayload_HeartbeatAck implements IUpstreamPayload {
+	public static UpstreamPayload_HeartbeatAck create(long leaderSendMillis) {
+		return new UpstreamPayload_HeartbeatAck(leaderSendMillis);
+	}
+
+	public static UpstreamPayload_HeartbeatAck deserializeFrom(ByteBuffer buffer) {
+		long leaderSendMillis = buffer.getLong();
+		return new UpstreamPayload_HeartbeatAck(leaderSendMillis);
+	}
+
+
+	public final long leaderSendMillis;
+
+	private UpstreamPayload_HeartbeatAck(long leaderSendMillis) {
+		this.leaderSendMillis = leaderSendMillis;
+	}
+
+	@Override
+	public int serializedSize() {
+		return Long.BYTES;
+	}
+
+	@Override
+	public void serializeInto(ByteBuffer buffer) {
+		buffer.putLong(this.leaderSendMillis);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(this.leaderSendMillis);
+	}
+}
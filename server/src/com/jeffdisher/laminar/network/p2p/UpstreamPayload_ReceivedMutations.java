@@ -4,30 +4,37 @@ import java.nio.ByteBuffer;
 
 
 public class UpstreamPayload_ReceivedMutations implements IUpstreamPayload {
-	public static UpstreamPayload_ReceivedMutations create(long lastReceivedMutationOffset) {
-		return new UpstreamPayload_ReceivedMutations(lastReceivedMutationOffset);
+	public static UpstreamPayload_ReceivedMutations create(long lastReceivedMutationOffset, long leaderSendMillis) {
+		return new UpstreamPayload_ReceivedMutations(lastReceivedMutationOffset, leaderSendMillis);
 	}
 
 	public static UpstreamPayload_ReceivedMutations deserializeFrom(ByteBuffer buffer) {
 		long lastReceivedMutationOffset = buffer.getLong();
-		return new UpstreamPayload_ReceivedMutations(lastReceivedMutationOffset);
+		long leaderSendMillis = buffer.getLong();
+		return new UpstreamPayload_ReceivedMutations(lastReceivedMutationOffset, leaderSendMillis);
 	}
 
 
 	public final long lastReceivedMutationOffset;
+	/**
+	 * The leaderSendMillis of the most recent APPEND_MUTATIONS the follower received from the leader.
+	 */
+	public final long leaderSendMillis;
 
-	private UpstreamPayload_ReceivedMutations(long lastReceivedMutationOffset) {
+	private UpstreamPayload_ReceivedMutations(long lastReceivedMutationOffset, long leaderSendMillis) {
 		this.lastReceivedMutationOffset = lastReceivedMutationOffset;
+		this.leaderSendMillis = leaderSendMillis;
 	}
 
 	@Override
 	public int serializedSize() {
-		return Long.BYTES;
+		return Long.BYTES + Long.BYTES;
 	}
 
 	@Override
 	public void serializeInto(ByteBuffer buffer) {
 		buffer.putLong(this.lastReceivedMutationOffset);
+		buffer.putLong(this.leaderSendMillis);
 	}
 
 	@Override
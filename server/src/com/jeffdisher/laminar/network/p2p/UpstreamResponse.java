@@ -14,12 +14,16 @@ public class UpstreamResponse {
 		return new UpstreamResponse(Type.PEER_STATE, UpstreamPayload_PeerState.create(lastReceivedMutationOffset));
 	}
 
-	public static UpstreamResponse receivedMutations(long lastReceivedMutationOffset) {
-		return new UpstreamResponse(Type.RECEIVED_MUTATIONS, UpstreamPayload_ReceivedMutations.create(lastReceivedMutationOffset));
+	public static UpstreamResponse receivedMutations(long lastReceivedMutationOffset, long leaderSendMillis) {
+		return new UpstreamResponse(Type.RECEIVED_MUTATIONS, UpstreamPayload_ReceivedMutations.create(lastReceivedMutationOffset, leaderSendMillis));
 	}
 
-	public static UpstreamResponse castVote(long termNumber) {
-		return new UpstreamResponse(Type.CAST_VOTE, UpstreamPayload_CastVote.create(termNumber));
+	public static UpstreamResponse castVote(long termNumber, boolean isPreVote) {
+		return new UpstreamResponse(Type.CAST_VOTE, UpstreamPayload_CastVote.create(termNumber, isPreVote));
+	}
+
+	public static UpstreamResponse heartbeatAck(long leaderSendMillis) {
+		return new UpstreamResponse(Type.HEARTBEAT_ACK, UpstreamPayload_HeartbeatAck.create(leaderSendMillis));
 	}
 
 	public static UpstreamResponse deserializeFrom(ByteBuffer buffer) {
@@ -39,6 +43,9 @@ public class UpstreamResponse {
 		case CAST_VOTE:
 			payload = UpstreamPayload_CastVote.deserializeFrom(buffer);
 			break;
+		case HEARTBEAT_ACK:
+			payload = UpstreamPayload_HeartbeatAck.deserializeFrom(buffer);
+			break;
 		case INVALID:
 			throw _parseError();
 		default:
@@ -81,5 +88,6 @@ public class UpstreamResponse {
 		PEER_STATE,
 		RECEIVED_MUTATIONS,
 		CAST_VOTE,
+		HEARTBEAT_ACK,
 	}
 }
@@ -0,0 +1,88 @@
+package com.jeffdisher.laminar.state;
+
+import java.util.Locale;
+
+
+/**
+ * Accumulates timing of the batches of commands run by the NodeState main thread:  each time it wakes up, it runs all
+ * the commands which are already waiting (up to a limit) as one batch.  This allows us to see how much batching we
+ * actually get, under load, and how long the main thread spends on each wake-up.
+ * Note that this is only used on the main thread.
+ */
+public class BatchStatistics {
+	private long _batchCount;
+	private long _commandCount;
+	private int _largestBatchCommands;
+	private long _totalNanos;
+	private long _longestBatchNanos;
+
+	/**
+	 * Records a completed batch.
+	 * 
+	 * @param commandCount The number of commands run in the batch (must be at least 1).
+	 * @param elapsedNanos The time spent running the batch, including the flush at the end.
+	 */
+	public void recordBatch(int commandCount, long elapsedNanos) {
+		_batchCount += 1;
+		_commandCount += commandCount;
+		_largestBatchCommands = Math.max(_largestBatchCommands, commandCount);
+		_totalNanos += elapsedNanos;
+		_longestBatchNanos = Math.max(_longestBatchNanos, elapsedNanos);
+	}
+
+	/**
+	 * @return The number of batches run.
+	 */
+	public long getBatchCount() {
+		return _batchCount;
+	}
+
+	/**
+	 * @return The number of commands run, across all batches.
+	 */
+	public long getCommandCount() {
+		return _commandCount;
+	}
+
+	/**
+	 * @return The largest number of commands run in a single batch.
+	 */
+	public int getLargestBatchCommands() {
+		return _largestBatchCommands;
+	}
+
+	/**
+	 * @return The average number of commands run per batch (0.0 if no batches have run).
+	 */
+	public double getAverageCommandsPerBatch() {
+		return (_batchCount > 0L)
+				? ((double)_commandCount / (double)_batchCount)
+				: 0.0;
+	}
+
+	/**
+	 * @return The average time spent running a batch, in microseconds (0 if no batches have run).
+	 */
+	public long getAverageBatchMicros() {
+		return (_batchCount > 0L)
+				? ((_totalNanos / _batchCount) / 1_000L)
+				: 0L;
+	}
+
+	/**
+	 * @return The longest time spent running a single batch, in microseconds.
+	 */
+	public long getLongestBatchMicros() {
+		return _longestBatchNanos / 1_000L;
+	}
+
+	@Override
+	public String toString() {
+		return "Batches=" + _batchCount
+				+ ", commands=" + _commandCount
+				+ String.format(Locale.ROOT, ", commands/batch=%.2f", getAverageCommandsPerBatch())
+				+ " (max " + _largestBatchCommands + ")"
+				+ ", time/batch=" + getAverageBatchMicros() + " us"
+				+ " (max " + getLongestBatchMicros() + " us)";
+	}
+}
@@ -8,6 +8,7 @@ import com.jeffdisher.laminar.types.ConfigEntry;
  * leader sync but also candidate election.
  * The LEADER uses lastMutationOffsetReceived to determine how this downstream peer contributes to cluster consensus.
  * The CANDIDATE uses termOfLastCastVote to determine if this peer is a supporter of the node to become LEADER.
+ * A node running a pre-vote uses termOfLastPreVote to determine if this peer would support it, if it started an election.
  */
 public class DownstreamPeerSyncState {
 	/**
@@ -24,6 +25,11 @@ public class DownstreamPeerSyncState {
 	 */
 	public long termOfLastCastVote = 0L;
 
+	/**
+	 * The term number of the last pre-vote this downstream peer sent us.
+	 */
+	public long termOfLastPreVote = 0L;
+
 	/**
 	 * Creates a new sync state for the downstream peer addressed by configEntry.
 	 * 
@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.types.message.ClientMessagePayload_Batch;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_TopicCreate;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_KeyDelete;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_KeyPut;
@@ -26,7 +27,7 @@ public class Helpers {
 	 * @param termNumber The current term number of the cluster.
 	 * @param clientId The client who sent the message.
 	 * @param mutationOffsetToAssign The global mutation offset to assign to the created mutation.
-	 * @return The MutationRecord for this ClientMessage.
+	 * @return The MutationRecord for this ClientMessage (a REJECTED record, if it would be too large to replicate).
 	 */
 	public static MutationRecord convertClientMessageToMutation(ClientMessage message, long termNumber, UUID clientId, long mutationOffsetToAssign) {
 		MutationRecord converted = null;
@@ -71,6 +72,11 @@ public class Helpers {
 			converted = MutationRecord.stutter(termNumber, mutationOffsetToAssign, payload.topic, clientId, message.nonce, key, value);
 		}
 			break;
+		case BATCH: {
+			ClientMessagePayload_Batch payload = (ClientMessagePayload_Batch)message.payload;
+			converted = MutationRecord.batch(termNumber, mutationOffsetToAssign, payload.topic, clientId, message.nonce, payload.keys, payload.values);
+		}
+			break;
 		case CONFIG_CHANGE: {
 			// Eventually, this will kick-off the joint consensus where we change to having 2 active configs until this commits on all nodes and the local disk.
 			// For now, however, we just send the received ack and enqueue this for commit (note that it DOES NOT generate an event - only a mutation).
@@ -83,6 +89,11 @@ public class Helpers {
 			Assert.unimplemented("This is an invalid message for this client type and should be disconnected");
 			break;
 		}
+		// A mutation we can't fit in a single APPEND_MUTATIONS message can never be replicated so we reject the message:
+		// it still takes its offset (and the client's nonce) but it commits with an INVALID effect.
+		if (converted.serializedSize() > MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES) {
+			converted = MutationRecord.rejected(termNumber, mutationOffsetToAssign, clientId, message.nonce);
+		}
 		return converted;
 	}
 }
@@ -1,6 +1,6 @@
 package com.jeffdisher.laminar.state;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.utils.Assert;
@@ -13,16 +13,28 @@ import com.jeffdisher.laminar.utils.Assert;
  * etc.  This means that indexing exceptions will be thrown if it is asked to provide data it was never given.
  */
 public class InFlightMutations {
+	private static final int INITIAL_CAPACITY = 16;
+
 	// Tracking of in-flight mutations ready to be committed when the cluster agrees.
 	// These must be committed in-order, so they are a queue with a base offset bias.
-	// Note that we use a LinkedList since we want this to be addressable but also implement Queue.
-	private LinkedList<MutationRecord> _inFlightMutations;
+	// We store them in a power-of-2 ring buffer so that a mutation can be found directly from (offset - bias), instead
+	// of walking a list, while still allowing removal from either end.
+	private MutationRecord[] _ring;
+	private int _headIndex;
+	private int _size;
 	private long _inFlightMutationOffsetBias;
+	// The first in-flight mutation of each run of mutations sharing a term number, in log order.  Since terms only
+	// increase through the log, this is typically only 1 or 2 elements, so term-based queries don't need to walk the
+	// mutations.
+	private ArrayDeque<MutationRecord> _termStarts;
 
 	public InFlightMutations() {
 		// The first mutation has offset 1L so we use that as the initial bias.
-		_inFlightMutations = new LinkedList<>();
+		_ring = new MutationRecord[INITIAL_CAPACITY];
+		_headIndex = 0;
+		_size = 0;
 		_inFlightMutationOffsetBias = 1L;
+		_termStarts = new ArrayDeque<>();
 	}
 
 	/**
@@ -36,7 +48,7 @@ public class InFlightMutations {
 	 * @return True if there are no in-flight mutations (used in some checks to make sure commits can proceed).
 	 */
 	public boolean isEmpty() {
-		return _inFlightMutations.isEmpty();
+		return (0 == _size);
 	}
 
 	/**
@@ -47,7 +59,14 @@ public class InFlightMutations {
 	public void add(MutationRecord mutation) {
 		// Make sure that our offsets are consistent.
 		Assert.assertTrue(_getNextMutationOffset() == mutation.globalOffset);
-		_inFlightMutations.add(mutation);
+		if (_size == _ring.length) {
+			_grow();
+		}
+		if ((0 == _size) || (_getAtIndex(_size - 1).termNumber != mutation.termNumber)) {
+			_termStarts.addLast(mutation);
+		}
+		_ring[_physicalIndex(_size)] = mutation;
+		_size += 1;
 	}
 
 	/**
@@ -60,11 +79,12 @@ public class InFlightMutations {
 	 * @return True if the mutations up to and including mutationOffset can be committed.
 	 */
 	public boolean canCommitUpToMutation(long mutationOffset, long currentTermNumber) {
+		// We only need to look at the first mutation of each term run:  if the run for the current term starts within the
+		// extent which can be committed, all previous mutations can be committed.
 		boolean canCommit = false;
-		for (MutationRecord mutation : _inFlightMutations) {
-			if (mutation.globalOffset <= mutationOffset) {
-				if (currentTermNumber == mutation.termNumber) {
-					// We found a match for this term, so all previous mutations can be committed.
+		for (MutationRecord start : _termStarts) {
+			if (start.globalOffset <= mutationOffset) {
+				if (currentTermNumber == start.termNumber) {
 					canCommit = true;
 					break;
 				}
@@ -85,10 +105,20 @@ public class InFlightMutations {
 	 */
 	public MutationRecord removeFirstElementLessThanOrEqualTo(long mutationOffset) {
 		MutationRecord removed = null;
-		if ((_inFlightMutationOffsetBias <= mutationOffset) && !_inFlightMutations.isEmpty()) {
-			removed = _inFlightMutations.remove();
+		if ((_inFlightMutationOffsetBias <= mutationOffset) && (_size > 0)) {
+			removed = _ring[_headIndex];
+			_ring[_headIndex] = null;
+			_headIndex = (_headIndex + 1) & (_ring.length - 1);
+			_size -= 1;
 			_inFlightMutationOffsetBias += 1;
 			Assert.assertTrue(removed.globalOffset <= mutationOffset);
+			// If this started a term run, the run now starts at the new head (if it is still in the same term).
+			if (removed == _termStarts.peekFirst()) {
+				_termStarts.removeFirst();
+				if ((_size > 0) && (_ring[_headIndex].termNumber == removed.termNumber)) {
+					_termStarts.addFirst(_ring[_headIndex]);
+				}
+			}
 		}
 		return removed;
 	}
@@ -102,9 +132,15 @@ public class InFlightMutations {
 	 */
 	public MutationRecord removeLastElementGreaterThanOrEqualTo(long mutationOffset) {
 		MutationRecord removed = null;
-		if (!_inFlightMutations.isEmpty() && (_inFlightMutations.getLast().globalOffset >= mutationOffset)) {
-			removed = _inFlightMutations.removeLast();
+		if ((_size > 0) && (_getAtIndex(_size - 1).globalOffset >= mutationOffset)) {
+			int index = _physicalIndex(_size - 1);
+			removed = _ring[index];
+			_ring[index] = null;
+			_size -= 1;
 			Assert.assertTrue(removed.globalOffset >= mutationOffset);
+			if (removed == _termStarts.peekLast()) {
+				_termStarts.removeLast();
+			}
 		}
 		return removed;
 	}
@@ -119,7 +155,8 @@ public class InFlightMutations {
 		MutationRecord mutation = null;
 		if (mutationOffset >= _inFlightMutationOffsetBias) {
 			int index = (int)(mutationOffset - _inFlightMutationOffsetBias);
-			mutation = _inFlightMutations.get(index);
+			Assert.assertTrue(index < _size);
+			mutation = _getAtIndex(index);
 			Assert.assertTrue(mutationOffset == mutation.globalOffset);
 		}
 		return mutation;
@@ -134,19 +171,52 @@ public class InFlightMutations {
 	 */
 	public void updateBiasForDirectCommit(long mutationOffset) {
 		Assert.assertTrue(_getNextMutationOffset() == mutationOffset);
-		Assert.assertTrue(_inFlightMutations.isEmpty());
+		Assert.assertTrue(0 == _size);
 		_inFlightMutationOffsetBias += 1;
 	}
 
+	/**
+	 * Finds the start of the run of in-flight mutations, ending at the last in-flight mutation, which all share the term
+	 * number of that last mutation.
+	 * This is used when an upstream append doesn't match the term of our last mutation:  every in-flight mutation in
+	 * that term is equally suspect so we can ask the leader to rewind past all of them in one step.
+	 * Asserts that there is at least one in-flight mutation.
+	 * 
+	 * @return The offset of the earliest in-flight mutation in the term of the last in-flight mutation.
+	 */
+	public long getFirstOffsetOfLastTerm() {
+		Assert.assertTrue(_size > 0);
+		return _termStarts.peekLast().globalOffset;
+	}
+
 	/**
 	 * @return The term number of the last mutation in-flight.
 	 */
 	public long getLastTermNumber() {
-		return _inFlightMutations.getLast().termNumber;
+		Assert.assertTrue(_size > 0);
+		return _getAtIndex(_size - 1).termNumber;
 	}
 
 
 	private long _getNextMutationOffset() {
-		return _inFlightMutationOffsetBias + _inFlightMutations.size();
+		return _inFlightMutationOffsetBias + _size;
+	}
+
+	private int _physicalIndex(int logicalIndex) {
+		return (_headIndex + logicalIndex) & (_ring.length - 1);
+	}
+
+	private MutationRecord _getAtIndex(int logicalIndex) {
+		return _ring[_physicalIndex(logicalIndex)];
+	}
+
+	private void _grow() {
+		// Unroll the ring into the front of a new array of double the size.
+		MutationRecord[] newRing = new MutationRecord[_ring.length * 2];
+		for (int i = 0; i < _size; ++i) {
+			newRing[i] = _getAtIndex(i);
+		}
+		_ring = newRing;
+		_headIndex = 0;
 	}
 }
@@ -1,8 +1,10 @@
 package com.jeffdisher.laminar.state;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,11 +27,14 @@ import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.types.message.ClientMessagePayload_Get;
+import com.jeffdisher.laminar.types.message.ClientMessagePayload_ReadTopicState;
 import com.jeffdisher.laminar.types.message.ClientMessageType;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.types.mutation.MutationRecordType;
 import com.jeffdisher.laminar.types.payload.Payload_ConfigChange;
 import com.jeffdisher.laminar.utils.Assert;
+import com.jeffdisher.laminar.utils.TimerHandle;
 import com.jeffdisher.laminar.utils.UninterruptibleQueue;
 
 
@@ -44,6 +49,9 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	// Note that we treat the initial state of a node as LEADER of term 0 but switch this to 1 as soon as we receive our first mutation from the client.
 	// This avoids any special-case in the LEADER->FOLLOWER transition, which is more complicated, as it will follow the general rule of demoting when a higher term number is seen.
 	private static final long BOOTSTRAP_TERM = 0L;
+	// The most commands we will run in one batch before flushing the network writes they made (this bounds how long a
+	// burst of commands can delay the messages sent by the first of them).
+	private static final int MAX_COMMANDS_PER_BATCH = 64;
 
 	// We keep the main thread for asserting no re-entrance bugs or invalid interface uses.
 	private final Thread _mainThread;
@@ -58,9 +66,14 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	private ConfigEntry _clusterLeader;
 	private long _currentTermNumber;
 	private long _mostRecentVoteTerm;
+	// The term we are running a pre-vote for, before starting an election in it (0 if we aren't running a pre-vote).
+	private long _preVoteTermNumber;
 	private long _clusterLeaderCommitOffset;
 	private final ConfigEntry _self;
-	// We keep an image of ourself as a downstream peer state to avoid special-cases in looking at clusters so we will need to update it with latest mutation offset as soon as we assign one.
+	// The offset of the last mutation we have received (either from a client or upstream) - this is the end of our local log.
+	private long _lastReceivedMutationOffset;
+	// We keep an image of ourself as a downstream peer state to avoid special-cases in looking at clusters.
+	// Note that its mutation offset is only advanced once the mutation has been durably appended to our local log (so our own write counts as one of the acks).
 	private final DownstreamPeerSyncState _selfState;
 	// The union of all config entries we are currently monitoring (normally just from the current config but could be all in joint consensus).
 	private final Map<UUID, DownstreamPeerSyncState> _unionOfDownstreamNodes;
@@ -75,10 +88,22 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	// Tracking of in-flight mutations ready to be committed when the cluster agrees.
 	// (note that the Events are synthesized from these mutations at the point of commit and _nextLocalEventOffset is updated then)
 	private InFlightMutations _inFlightMutations;
+	// The offset of the last mutation run through the _mutationExecutor (since it runs at consensus, this can be ahead of _lastCommittedMutationOffset).
+	private long _lastExecutedMutationOffset;
+	// Read-only client requests which arrived while we couldn't prove that we are still the leader (served when we can).
+	private final List<PendingRead> _readsWaitingForLease;
+	// The node we are handing leadership to, while we are a LEADER transferring leadership (null otherwise).
+	// While this is set, client messages are suspended and we don't serve reads from our lease.
+	private DownstreamPeerSyncState _transferTarget;
+	// The timeout which aborts the transfer if the target doesn't take over (cancelled if the transfer ends first).
+	private TimerHandle _transferTimeout;
+	// True once we have told the _transferTarget to start its election.
+	private boolean _isTransferTimeoutNowSent;
 
 	// Information related to the state of the main execution thread.
 	private boolean _keepRunning;
 	private final UninterruptibleQueue<StateSnapshot> _commandQueue;
+	private final BatchStatistics _batchStatistics;
 
 	public NodeState(ClusterConfig initialConfig) {
 		// We define the thread which instantiates us as "main".
@@ -99,8 +124,10 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		_mutationExecutor = new MutationExecutor();
 		
 		_inFlightMutations = new InFlightMutations();
+		_readsWaitingForLease = new LinkedList<>();
 		
 		_commandQueue = new UninterruptibleQueue<>();
+		_batchStatistics = new BatchStatistics();
 	}
 
 	public void runUntilShutdown() {
@@ -118,13 +145,30 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		// The Runnables are inner classes which are allowed full access to the NodeState's internal state.  Aside from
 		// construction, and the queue, no other thread interacts with these state variables.
 		// (note that the global running flag is modified by a command to shutdown).
+		// Each time we wake up, we run everything already waiting as a batch (up to a limit):  the messages sent by the
+		// managers are only written to the network once the batch is done and commands share a state snapshot until
+		// something in it changes.
 		_keepRunning = true;
 		while (_keepRunning) {
-			// Poll for the next work item.
+			// Wait for the next work item.
 			Consumer<StateSnapshot> next = _commandQueue.blockingGet();
-			// Create the state snapshot and pass it to the consumer.
-			StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _selfState.lastMutationOffsetReceived, _currentTermNumber);
-			next.accept(snapshot);
+			long batchStartNanos = System.nanoTime();
+			_clientManager.mainStartBatch();
+			_clusterManager.mainStartBatch();
+			int commandsInBatch = 0;
+			StateSnapshot snapshot = null;
+			while (null != next) {
+				// Create the state snapshot (if the last one is stale) and pass it to the consumer.
+				snapshot = _currentSnapshot(snapshot);
+				next.accept(snapshot);
+				commandsInBatch += 1;
+				next = (_keepRunning && (commandsInBatch < MAX_COMMANDS_PER_BATCH))
+						? _commandQueue.poll()
+						: null;
+			}
+			_clientManager.mainFlushBatch();
+			_clusterManager.mainFlushBatch();
+			_batchStatistics.recordBatch(commandsInBatch, System.nanoTime() - batchStartNanos);
 		}
 		_mutationExecutor.stop();
 	}
@@ -195,6 +239,8 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	public long mainHandleValidClientMessage(UUID clientId, ClientMessage incoming) {
 		// Called on main thread.
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Client messages are suspended while we transfer leadership so the target can catch up with us.
+		Assert.assertTrue(null == _transferTarget);
 		// Handle the special-case of the initial mutation.
 		if (BOOTSTRAP_TERM == _currentTermNumber) {
 			_currentTermNumber += 1;
@@ -213,11 +259,26 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		return mutationOffsetToAssign;
 	}
 
+	@Override
+	public void mainHandleReadOnlyClientMessage(UUID clientId, ClientMessage incoming) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// The only read-only messages are READ_TOPIC_STATE and GET.
+		Assert.assertTrue((ClientMessageType.READ_TOPIC_STATE == incoming.type) || (ClientMessageType.GET == incoming.type));
+		// These don't go through the log so we can only answer if we know that our executed state is the latest in the
+		// cluster.  Otherwise, we hold them until we can (or until we stop being leader, when the client will resend).
+		PendingRead read = new PendingRead(clientId, incoming);
+		if (_mainCanServeLeaseRead()) {
+			_mainServeRead(read);
+		} else {
+			_readsWaitingForLease.add(read);
+		}
+	}
+
 	@Override
 	public MutationRecord mainClientFetchMutationIfAvailable(long mutationOffset) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		// It is invalid to request a mutation from the future.
-		Assert.assertTrue(mutationOffset <= _selfState.lastMutationOffsetReceived);
+		Assert.assertTrue(mutationOffset <= _lastReceivedMutationOffset);
 		return _mainFetchMutationIfAvailable(mutationOffset);
 	}
 
@@ -235,7 +296,13 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	@Override
 	public void mainForceLeader() {
 		System.out.println("CANDIDATE(forced): " + (_currentTermNumber + 1));
-		_mainStartElection(_currentTermNumber + 1);
+		_mainStartElection(_currentTermNumber + 1, false);
+	}
+
+	@Override
+	public void mainTransferLeader(UUID targetNodeUuid) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_mainStartLeadershipTransfer(targetNodeUuid);
 	}
 	// </IClientManagerCallbacks>
 
@@ -248,17 +315,17 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	}
 
 	@Override
-	public void ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
+	public TimerHandle ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
 		// Called on an IO thread.
 		Assert.assertTrue(Thread.currentThread() != _mainThread);
-		_commandQueue.putPriority(command, delayMillis);
+		return _commandQueue.putPriority(command, delayMillis);
 	}
 
 	@Override
-	public void mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
+	public TimerHandle mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
 		// Called on main thread.
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
-		_commandQueue.putPriority(command, delayMillis);
+		return _commandQueue.putPriority(command, delayMillis);
 	}
 
 	@Override
@@ -268,7 +335,7 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		_considerBecomingFollower(peer, upstreamTermNumber);
 		long nextMutationToRequest;
 		// We can only append mutations if we are a follower and this mutation is either from the past or is the next mutation we were waiting for.
-		if ((RaftState.FOLLOWER == _currentState) && (record.globalOffset <= (_selfState.lastMutationOffsetReceived + 1))) {
+		if ((RaftState.FOLLOWER == _currentState) && (record.globalOffset <= (_lastReceivedMutationOffset + 1))) {
 			// We will never receive a mutation from before our commit offset (but it could be _at_ the commit offset if the leader was behind us yet still up-to-date with the majority).
 			Assert.assertTrue(record.globalOffset >= _lastCommittedMutationOffset);
 			if (record.globalOffset == _lastCommittedMutationOffset) {
@@ -282,7 +349,7 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			}
 		} else {
 			// They are ahead of us so tell them to wind back and give us the next mutation we are waiting for.
-			nextMutationToRequest = (_selfState.lastMutationOffsetReceived + 1);
+			nextMutationToRequest = (_lastReceivedMutationOffset + 1);
 		}
 		return nextMutationToRequest;
 	}
@@ -300,13 +367,15 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			// (we don't do a term check when the leader tells us to commit).
 			boolean requireTermCheck = false;
 			_mainCommitValidInFlightTuples(requireTermCheck);
+			// This also may have changed how far behind the leader we are.
+			_mainUpdateFollowerCommitLag();
 		}
 	}
 
 	@Override
-	public IClusterManagerCallbacks.MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset) {
+	public IClusterManagerCallbacks.MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset, int diskFetchCount) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
-		return _mainFetchMutationWrapperIfAvailable(mutationOffset);
+		return _mainFetchMutationWrapperIfAvailable(mutationOffset, diskFetchCount);
 	}
 
 	@Override
@@ -322,6 +391,8 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		// (we are the leader so we need to do a term check).
 		boolean requireTermCheck = true;
 		_mainCommitValidInFlightTuples(requireTermCheck);
+		// This may be the ack which means our transfer target is caught up.
+		_mainSendTimeoutNowIfTransferTargetCaughtUp();
 	}
 
 	@Override
@@ -330,20 +401,17 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		// We can only vote at most once in a given term.
 		boolean shouldVote = false;
 		if ((newTermNumber > _mostRecentVoteTerm) && (newTermNumber > _currentTermNumber)) {
-			// Rules here defined in section 5.4.1 of Raft paper.
-			// Check if their last received mutation term is greater than ours.
-			long mostRecentMutationTerm = _getPreviousMutationTermNumber();
-			if ((candidateLastReceivedMutationTerm > mostRecentMutationTerm) || ((candidateLastReceivedMutationTerm == mostRecentMutationTerm) && (candidateLastReceivedMutation >= _selfState.lastMutationOffsetReceived))) {
+			if (_isCandidateLogUpToDate(candidateLastReceivedMutationTerm, candidateLastReceivedMutation)) {
 				// They are more up-to-date so we presume they are the leader.
 				_enterFollowerState(peer, newTermNumber);
-				// Send them our vote.
-				shouldVote = true;
+				// Send them our vote (unless we are a learner, since we don't participate in elections).
+				shouldVote = !_isSelfLearner();
 				_mostRecentVoteTerm = newTermNumber;
 			} else if (newTermNumber > _currentTermNumber) {
 				// Even if we don't want to vote for someone, the fact that an election started means we need to participate.
 				// Otherwise, it is possible for this rogue server to never sync back up with the cluster.
 				System.out.println("CANDIDATE(stale peer request): " + newTermNumber);
-				_mainStartElection(newTermNumber);
+				_mainStartElection(newTermNumber, false);
 			}
 		}
 		return shouldVote;
@@ -362,11 +430,50 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		}
 	}
 
+	@Override
+	public boolean mainReceivedRequestForPreVote(ConfigEntry peer, long newTermNumber, long candidateLastReceivedMutationTerm, long candidateLastReceivedMutation) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// We answer as we would for a real vote but don't change any state (not even our term).
+		// A LEADER never grants these since it is clearly still running (the peer is probably just partitioned from it).
+		return (RaftState.LEADER != _currentState)
+				&& (newTermNumber > _currentTermNumber)
+				&& !_isSelfLearner()
+				&& _isCandidateLogUpToDate(candidateLastReceivedMutationTerm, candidateLastReceivedMutation);
+	}
+
+	@Override
+	public void mainReceivedPreVoteFromPeer(ConfigEntry peer, long newTermNumber) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Ignore this if we are no longer running this pre-vote (we may have already started the election or found a leader).
+		if ((RaftState.LEADER != _currentState) && (0L != _preVoteTermNumber) && (_preVoteTermNumber == newTermNumber)) {
+			_unionOfDownstreamNodes.get(peer.nodeUuid).termOfLastPreVote = newTermNumber;
+			_mainStartElectionIfPreVoteWon();
+		}
+	}
+
+	@Override
+	public void mainReceivedTimeoutNow(ConfigEntry peer, long upstreamTermNumber) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// Only the leader of our current term can hand leadership to us (this could be a stale message from an old leader).
+		// We skip the pre-vote since the leader already checked that we have everything it has.
+		if ((RaftState.FOLLOWER == _currentState) && (upstreamTermNumber == _currentTermNumber) && peer.nodeUuid.equals(_clusterLeader.nodeUuid)) {
+			System.out.println("CANDIDATE(leadership transfer): " + (_currentTermNumber + 1));
+			_mainStartElection(_currentTermNumber + 1, true);
+		}
+	}
+
 	@Override
 	public void mainUpstreamMessageDidTimeout() {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
-		System.out.println("CANDIDATE(leader timeout): " + (_currentTermNumber + 1));
-		_mainStartElection(_currentTermNumber + 1);
+		// We don't want to disrupt the cluster by raising our term unless we can win so we start with a pre-vote.
+		System.out.println("PRE-VOTE(leader timeout): " + (_currentTermNumber + 1));
+		_mainStartPreVote(_currentTermNumber + 1);
+	}
+
+	@Override
+	public void mainLeaderLeaseWasRenewed() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_mainServeReadsWaitingForLease();
 	}
 	// </IClusterManagerCallbacks>
 
@@ -385,16 +492,23 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		// We setup this commit so it must be sequential (this is a good check to make sure the commits aren't being re-ordered in the disk layer, too).
 		Assert.assertTrue((_lastCommittedMutationOffset + 1) == completed.record.globalOffset);
 		_lastCommittedMutationOffset = completed.record.globalOffset;
+		// Anything committed is durable in our log, even if we never appended it (a FOLLOWER can commit directly when behind).
+		if (_lastCommittedMutationOffset > _selfState.lastMutationOffsetReceived) {
+			_selfState.lastMutationOffsetReceived = _lastCommittedMutationOffset;
+		}
 		// Only notify clients if we are the LEADER.
 		if (RaftState.LEADER == _currentState) {
 			_clientManager.mainProcessingPendingMessageForRecord(completed);
+		} else if (RaftState.FOLLOWER == _currentState) {
+			// As a FOLLOWER, we are catching up to the leader so update our listeners' view of how far behind we are.
+			_mainUpdateFollowerCommitLag();
 		}
 		
 		// The mutation is only committed to disk when it is committed to the joint consensus so we can advance this now.
 		SyncProgress newConfigProgress = _configsPendingCommit.remove(completed.record.globalOffset);
 		if (null != newConfigProgress) {
 			// We need a new snapshot since we just changed state in this command, above.
-			StateSnapshot newSnapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _selfState.lastMutationOffsetReceived, _currentTermNumber);
+			StateSnapshot newSnapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber);
 			// This requires that we broadcast the config update to the connected clients and listeners.
 			_clientManager.mainBroadcastConfigUpdate(newSnapshot, newConfigProgress.config);
 			// We change the config but this would render the snapshot stale so we do it last, to make that clear.
@@ -405,6 +519,25 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		_clusterManager.mainMutationWasCommitted(completed.record.globalOffset);
 	}
 
+	@Override
+	public void mainMutationWasAppended(MutationRecord completed) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		// The append was requested when we received the mutation but it may have since been reverted (and possibly
+		// replaced by a mutation from a different term) so only count it if it is still what is in our log.
+		if ((completed.globalOffset > _selfState.lastMutationOffsetReceived) && (completed.globalOffset <= _lastReceivedMutationOffset)) {
+			MutationRecord inFlight = _getInFlightMutation(completed.globalOffset);
+			// (if it isn't in-flight, it was already committed, which also makes it durable).
+			if ((null == inFlight) || (inFlight.termNumber == completed.termNumber)) {
+				_selfState.lastMutationOffsetReceived = completed.globalOffset;
+				// If we are the leader, our own write counts toward consensus so see if this allows a commit.
+				if (RaftState.LEADER == _currentState) {
+					boolean requireTermCheck = true;
+					_mainCommitValidInFlightTuples(requireTermCheck);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void mainEventWasCommitted(TopicName topic, EventRecord completed) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
@@ -423,6 +556,18 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		_clusterManager.mainMutationWasReceivedOrFetched(snapshot, previousMutationTermNumber, record.record);
 	}
 
+	@Override
+	public void mainMutationRangeWasFetched(StateSnapshot snapshot, long previousMutationTermNumber, CommittedMutationRecord[] records) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		
+		// Range fetches are only used to sync downstream peers so this only goes to the cluster.
+		MutationRecord[] mutations = new MutationRecord[records.length];
+		for (int i = 0; i < records.length; ++i) {
+			mutations[i] = records[i].record;
+		}
+		_clusterManager.mainCommittedMutationsWereFetched(snapshot, previousMutationTermNumber, mutations);
+	}
+
 	@Override
 	public void mainEventWasFetched(TopicName topic, EventRecord record) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
@@ -443,6 +588,18 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		_keepRunning = false;
 	}
+
+	@Override
+	public void mainHandleStatsCommand() {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		System.out.println("STATS: " + _batchStatistics);
+	}
+
+	@Override
+	public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+		Assert.assertTrue(Thread.currentThread() == _mainThread);
+		_mainStartLeadershipTransfer(targetNodeUuid);
+	}
 	// </IConsoleManagerBackgroundCallbacks>
 
 
@@ -487,7 +644,10 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 					_clusterManager.mainOpenDownstreamConnection(entry);
 					_unionOfDownstreamNodes.put(entry.nodeUuid, peer);
 				}
-				nodesInConfig.add(peer);
+				// Learners are replicated to, like any other peer, but don't contribute to consensus.
+				if (!entry.isLearner) {
+					nodesInConfig.add(peer);
+				}
 			}
 			// Add this to our pending map of commits so we know when to exit joint consensus.
 			SyncProgress overwrite = _configsPendingCommit.put(mutation.globalOffset, new SyncProgress(newConfig, nodesInConfig));
@@ -499,6 +659,14 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			// No state change on RECEIVE of this message type.
 		}
 			break;
+		case BATCH: {
+			// No state change on RECEIVE of this message type.
+		}
+			break;
+		case REJECTED: {
+			// No state change on RECEIVE of this message type.
+		}
+			break;
 		default:
 			throw Assert.unimplemented("Case missing in mutation processing");
 		}
@@ -519,9 +687,12 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		} else {
 			// Store in list for later commit.
 			_inFlightMutations.add(mutation);
+			// Start the durable write to our local log now, in parallel with replication, instead of after consensus.
+			// (our self state only counts this mutation once the disk tells us it was appended).
+			_diskManager.appendMutation(mutation);
 			// Notify anyone downstream about this.
 			long previousMutationTermNumber = _getPreviousMutationTermNumber();
-			_clusterManager.mainMutationWasReceivedOrFetched(new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _selfState.lastMutationOffsetReceived, _currentTermNumber), previousMutationTermNumber, mutation);
+			_clusterManager.mainMutationWasReceivedOrFetched(new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber), previousMutationTermNumber, mutation);
 		}
 	}
 
@@ -544,8 +715,8 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	}
 
 	private long _getAndUpdateNextMutationOffset() {
-		_selfState.lastMutationOffsetReceived += 1;
-		return _selfState.lastMutationOffsetReceived;
+		_lastReceivedMutationOffset += 1;
+		return _lastReceivedMutationOffset;
 	}
 
 	private void _commit(MutationRecord mutation, CommitInfo.Effect effect, TopicName topic, List<EventRecord> events) {
@@ -595,16 +766,32 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			canCommit = true;
 		}
 		if (canCommit) {
+			// We execute everything which just reached consensus as one batch (so mutations for different topics can
+			// run concurrently) and then commit the results in order.
+			List<MutationRecord> toCommit = new ArrayList<>();
 			MutationRecord mutation = _inFlightMutations.removeFirstElementLessThanOrEqualTo(consensusOffset);
 			while (null != mutation) {
-				_executeAndCommit(mutation);
+				toCommit.add(mutation);
 				mutation = _inFlightMutations.removeFirstElementLessThanOrEqualTo(consensusOffset);
 			}
+			if (!toCommit.isEmpty()) {
+				List<MutationExecutor.ExecutionResult> results = _mutationExecutor.executeBatch(toCommit);
+				for (int i = 0; i < toCommit.size(); ++i) {
+					MutationRecord committing = toCommit.get(i);
+					MutationExecutor.ExecutionResult result = results.get(i);
+					_lastExecutedMutationOffset = committing.globalOffset;
+					_commit(committing, result.effect, committing.topic, result.events);
+				}
+			}
+			// Committing in our own term may be what was holding back any waiting reads.
+			if (RaftState.LEADER == _currentState) {
+				_mainServeReadsWaitingForLease();
+			}
 		}
 	}
 
 	private MutationRecord _getInFlightMutation(long mutationOffsetToFetch) {
-		Assert.assertTrue(mutationOffsetToFetch <= _selfState.lastMutationOffsetReceived);
+		Assert.assertTrue(mutationOffsetToFetch <= _lastReceivedMutationOffset);
 		
 		return _inFlightMutations.getMutationAtOffset(mutationOffsetToFetch);
 	}
@@ -616,7 +803,7 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 		
 		// See if this could be on-disk or if we are waiting for something new from the client.
 		MutationRecord inlineResponse = null;
-		if (mutationOffset <= _selfState.lastMutationOffsetReceived) {
+		if (mutationOffset <= _lastReceivedMutationOffset) {
 			// See if this is in-memory.
 			MutationRecord inFlight = _getInFlightMutation(mutationOffset);
 			if (null != inFlight) {
@@ -627,19 +814,19 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			}
 		} else {
 			// They are waiting for the next, just as we are.
-			Assert.assertTrue(mutationOffset == (_selfState.lastMutationOffsetReceived + 1));
+			Assert.assertTrue(mutationOffset == (_lastReceivedMutationOffset + 1));
 		}
 		return inlineResponse;
 	}
 
-	private IClusterManagerCallbacks.MutationWrapper _mainFetchMutationWrapperIfAvailable(long mutationOffset) {
+	private IClusterManagerCallbacks.MutationWrapper _mainFetchMutationWrapperIfAvailable(long mutationOffset, int diskFetchCount) {
 		Assert.assertTrue(Thread.currentThread() == _mainThread);
 		// The mutations are 1-indexed so this must be a positive number.
 		Assert.assertTrue(mutationOffset > 0L);
 		
 		// See if this could be on-disk or if we are waiting for something new from the client.
 		IClusterManagerCallbacks.MutationWrapper inlineResponse = null;
-		if (mutationOffset <= _selfState.lastMutationOffsetReceived) {
+		if (mutationOffset <= _lastReceivedMutationOffset) {
 			// See if this is in-memory.
 			MutationRecord inFlight = _getInFlightMutation(mutationOffset);
 			if (null != inFlight) {
@@ -656,16 +843,27 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 				Assert.assertTrue(null != inFlight);
 				inlineResponse = new IClusterManagerCallbacks.MutationWrapper(previousMutationTermNumber, inFlight);
 			} else {
-				// We should have this.
-				_diskManager.fetchMutation(mutationOffset);
+				// We should have this so read it, and the committed mutations after it, since the peer will need those next.
+				_diskManager.fetchMutationRange(mutationOffset, diskFetchCount);
 			}
 		} else {
 			// They are waiting for the next, just as we are.
-			Assert.assertTrue(mutationOffset == (_selfState.lastMutationOffsetReceived + 1));
+			Assert.assertTrue(mutationOffset == (_lastReceivedMutationOffset + 1));
 		}
 		return inlineResponse;
 	}
 
+	private StateSnapshot _currentSnapshot(StateSnapshot previous) {
+		// The snapshot is immutable so we can reuse the previous one if nothing it captures has changed.
+		return ((null != previous)
+				&& (_currentConfig.config == previous.currentConfig)
+				&& (_lastCommittedMutationOffset == previous.lastCommittedMutationOffset)
+				&& (_lastReceivedMutationOffset == previous.lastReceivedMutationOffset)
+				&& (_currentTermNumber == previous.currentTermNumber))
+				? previous
+				: new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber);
+	}
+
 	private long _getPreviousMutationTermNumber() {
 		return _inFlightMutations.isEmpty()
 				? _lastTermNumberRemovedFromInFlight
@@ -675,7 +873,11 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	private void _reverseInFlightMutationsBefore(long globalOffset) {
 		MutationRecord removed = _inFlightMutations.removeLastElementGreaterThanOrEqualTo(globalOffset);
 		while (null != removed) {
-			_selfState.lastMutationOffsetReceived -= 1;
+			_lastReceivedMutationOffset -= 1;
+			// If this was already durable, that append is now gone from our log.
+			if (_selfState.lastMutationOffsetReceived > _lastReceivedMutationOffset) {
+				_selfState.lastMutationOffsetReceived = _lastReceivedMutationOffset;
+			}
 			// Only CONFIG_UPDATE results in a change to our own state so revert that change if this is what we removed.
 			if (MutationRecordType.CONFIG_CHANGE == removed.type) {
 				SyncProgress reverted = _configsPendingCommit.remove(removed.globalOffset);
@@ -689,47 +891,187 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 
 	private void _enterFollowerState(ConfigEntry peer, long termNumber) {
 		_currentState = RaftState.FOLLOWER;
+		// We can no longer answer reads but the clients will resend them to the new leader.
+		_readsWaitingForLease.clear();
+		_mainEndLeadershipTransfer();
 		_clusterLeader = peer;
 		_currentTermNumber = termNumber;
+		_preVoteTermNumber = 0L;
 		System.out.println("FOLLOWER(" + peer.nodeUuid + "): " + termNumber);
-		StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _selfState.lastMutationOffsetReceived, _currentTermNumber);
+		StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber);
 		_clientManager.mainEnterFollowerState(_clusterLeader, snapshot);
 		_clusterManager.mainEnterFollowerState();
 	}
 
-	private void _mainStartElection(long termNumber) {
+	private void _mainStartElection(long termNumber, boolean isLeadershipTransfer) {
 		// We cannot become a candidate if we have no downstream peers.
 		// This is to handle a rare case where we become FOLLOWER in an unsatisfied election before we have any data and
 		// therefore can't properly build the REQUEST_VOTES message (since we don't allow a previous mutation term of 0).
-		if (_unionOfDownstreamNodes.size() > 1) {
+		// Learners never attempt to become leader.
+		if ((_unionOfDownstreamNodes.size() > 1) && !_isSelfLearner()) {
 			// Change mode and increment term number, clearing any existing leader.
 			_currentState = RaftState.CANDIDATE;
 			_currentTermNumber = termNumber;
+			_preVoteTermNumber = 0L;
+			_readsWaitingForLease.clear();
+			_mainEndLeadershipTransfer();
 			_clusterLeader = null;
 			
 			// Vote for ourselves, pause client interactions, and request downstream votes.
 			_selfState.termOfLastCastVote = _currentTermNumber;
 			_clientManager.mainEnterCandidateState();
-			_clusterManager.mainEnterCandidateState(_currentTermNumber, _getPreviousMutationTermNumber(), _selfState.lastMutationOffsetReceived);
+			_clusterManager.mainEnterCandidateState(_currentTermNumber, _getPreviousMutationTermNumber(), _lastReceivedMutationOffset, isLeadershipTransfer);
+		}
+	}
+
+	private void _mainStartPreVote(long termNumber) {
+		// We have the same requirements as _mainStartElection() since this is the first step of that.
+		if ((_unionOfDownstreamNodes.size() > 1) && !_isSelfLearner()) {
+			_preVoteTermNumber = termNumber;
+			// We would vote for ourselves.
+			_selfState.termOfLastPreVote = termNumber;
+			_clusterManager.mainStartPreVote(termNumber, _getPreviousMutationTermNumber(), _lastReceivedMutationOffset);
+			// (we may be the only voter so check right away).
+			_mainStartElectionIfPreVoteWon();
+		}
+	}
+
+	private void _mainStartElectionIfPreVoteWon() {
+		// Like an election, we need a majority in all currently active configs.
+		boolean wouldWin = _currentConfig.isPreElectedInTerm(_preVoteTermNumber);
+		for (SyncProgress pending : _configsPendingCommit.values()) {
+			wouldWin &= pending.isPreElectedInTerm(_preVoteTermNumber);
+		}
+		if (wouldWin) {
+			System.out.println("CANDIDATE(pre-vote won): " + _preVoteTermNumber);
+			_mainStartElection(_preVoteTermNumber, false);
+		}
+	}
+
+	private void _mainStartLeadershipTransfer(UUID targetNodeUuid) {
+		// We can only hand off leadership if we have it, aren't already doing so, and the target could win the election.
+		DownstreamPeerSyncState target = _unionOfDownstreamNodes.get(targetNodeUuid);
+		if (RaftState.LEADER != _currentState) {
+			System.out.println("TRANSFER ignored:  not leader");
+		} else if (null != _transferTarget) {
+			System.out.println("TRANSFER ignored:  already transferring to " + _transferTarget.configEntry.nodeUuid);
+		} else if ((null == target) || (_selfState == target) || !_isVoterInAllConfigs(targetNodeUuid)) {
+			System.out.println("TRANSFER ignored:  " + targetNodeUuid + " is not a voting peer");
+		} else {
+			System.out.println("TRANSFER(start): " + targetNodeUuid);
+			_transferTarget = target;
+			_isTransferTimeoutNowSent = false;
+			// Suspend client messages (just as we do during an election) so our log stops growing and the target can
+			// catch up.  We also can't serve reads from our lease since the target's election will ignore it.
+			_clientManager.mainEnterCandidateState();
+			_mainSendTimeoutNowIfTransferTargetCaughtUp();
+			// If the target hasn't taken over within an election timeout, we give up and resume as leader (by then, the
+			// cluster would have replaced an unresponsive leader anyway).  This adapts with the cluster's timing.
+			long transferTimeoutMillis = _clusterManager.mainGetElectionTimeoutMillis();
+			_transferTimeout = _commandQueue.putPriority((snapshot) -> _mainAbortLeadershipTransferIfTimedOut(), transferTimeoutMillis);
 		}
 	}
 
+	private void _mainSendTimeoutNowIfTransferTargetCaughtUp() {
+		if ((null != _transferTarget) && !_isTransferTimeoutNowSent && (_transferTarget.lastMutationOffsetReceived >= _lastReceivedMutationOffset)) {
+			System.out.println("TRANSFER(timeout now): " + _transferTarget.configEntry.nodeUuid);
+			_isTransferTimeoutNowSent = _clusterManager.mainSendTimeoutNow(_transferTarget.configEntry, _currentTermNumber);
+		}
+	}
+
+	private void _mainAbortLeadershipTransferIfTimedOut() {
+		// If we are still transferring, the target didn't take over in time so resume as leader.
+		// (if the transfer ended, this was cancelled so it can never apply to a later transfer).
+		_transferTimeout = null;
+		if ((RaftState.LEADER == _currentState) && (null != _transferTarget)) {
+			System.out.println("TRANSFER(aborted): " + _transferTarget.configEntry.nodeUuid);
+			_transferTarget = null;
+			StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber);
+			_clientManager.mainEnterLeaderState(snapshot);
+			_mainServeReadsWaitingForLease();
+		}
+	}
+
+	private void _mainEndLeadershipTransfer() {
+		_transferTarget = null;
+		if (null != _transferTimeout) {
+			_transferTimeout.cancel();
+			_transferTimeout = null;
+		}
+	}
+
+	private boolean _isVoterInAllConfigs(UUID nodeUuid) {
+		// A node can only win an election if all currently active configs count its vote.
+		boolean isVoter = _isVoterInConfig(_currentConfig.config, nodeUuid);
+		for (SyncProgress pending : _configsPendingCommit.values()) {
+			isVoter &= _isVoterInConfig(pending.config, nodeUuid);
+		}
+		return isVoter;
+	}
+
+	private static boolean _isVoterInConfig(ClusterConfig config, UUID nodeUuid) {
+		boolean isVoter = false;
+		for (ConfigEntry entry : config.entries) {
+			if (entry.nodeUuid.equals(nodeUuid)) {
+				isVoter = !entry.isLearner;
+			}
+		}
+		return isVoter;
+	}
+
+	private boolean _isCandidateLogUpToDate(long candidateLastReceivedMutationTerm, long candidateLastReceivedMutation) {
+		// Rules here defined in section 5.4.1 of Raft paper.
+		// Check if their last received mutation term is greater than ours.
+		long mostRecentMutationTerm = _getPreviousMutationTermNumber();
+		return (candidateLastReceivedMutationTerm > mostRecentMutationTerm)
+				|| ((candidateLastReceivedMutationTerm == mostRecentMutationTerm) && (candidateLastReceivedMutation >= _lastReceivedMutationOffset));
+	}
+
+	private void _mainUpdateFollowerCommitLag() {
+		// The leader's commit offset is only what it last told us so it is possible for us to be slightly ahead of that.
+		long lag = Math.max(0L, _clusterLeaderCommitOffset - _lastCommittedMutationOffset);
+		_clientManager.mainFollowerCommitLagDidChange(lag);
+	}
+
+	private boolean _isSelfLearner() {
+		// We are a learner if the current config lists us as one and no pending config is promoting us to a voter.
+		boolean isLearner = false;
+		for (ConfigEntry entry : _currentConfig.config.entries) {
+			if (entry.nodeUuid.equals(_self.nodeUuid)) {
+				isLearner = entry.isLearner;
+			}
+		}
+		for (SyncProgress pending : _configsPendingCommit.values()) {
+			for (ConfigEntry entry : pending.config.entries) {
+				if (entry.nodeUuid.equals(_self.nodeUuid) && !entry.isLearner) {
+					isLearner = false;
+				}
+			}
+		}
+		return isLearner;
+	}
+
 	private long _mainProcessValidMutationFromUpstream(long previousMutationTermNumber, MutationRecord record) {
 		long nextMutationToRequest;
 		// It is possible that this record requires that we drop some in-flight mutations, though (could happen to fix a term inconsistency shortly after a new election).
 		_reverseInFlightMutationsBefore(record.globalOffset);
-		Assert.assertTrue((_selfState.lastMutationOffsetReceived + 1) == record.globalOffset);
+		Assert.assertTrue((_lastReceivedMutationOffset + 1) == record.globalOffset);
 		// We now want to make sure that the term numbers are consistent (otherwise, we can fail here and the next data will do the revert).
 		if (_getPreviousMutationTermNumber() == previousMutationTermNumber) {
 			// This is good so we can apply the mutation.
-			_selfState.lastMutationOffsetReceived = record.globalOffset;
+			_lastReceivedMutationOffset = record.globalOffset;
 			_processReceivedMutation(record);
 			_enqueueForCommit(record);
 			// We just want the next one.
 			nextMutationToRequest = (record.globalOffset + 1);
 		} else {
-			// This is inconsistent so there is something wrong - re-fetch the previous mutation since that might fix the inconsistency (the reverse will already have updated this)
-			nextMutationToRequest = (record.globalOffset - 1);
+			// This is inconsistent so there is something wrong.  Rather than walking back one mutation per round-trip, we
+			// ask the leader to rewind to the first in-flight mutation in the term of the conflicting mutation since that
+			// entire term is suspect (the reverse will happen when they send it).
+			// If nothing is in-flight, the conflict is with a committed mutation so we just step back to it.
+			nextMutationToRequest = _inFlightMutations.isEmpty()
+					? (record.globalOffset - 1)
+					: _inFlightMutations.getFirstOffsetOfLastTerm();
 		}
 		return nextMutationToRequest;
 	}
@@ -747,7 +1089,7 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 			// We won the election so enter the leader state.
 			_currentState = RaftState.LEADER;
 			System.out.println("LEADER: " + _currentTermNumber);
-			StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _selfState.lastMutationOffsetReceived, _currentTermNumber);
+			StateSnapshot snapshot = new StateSnapshot(_currentConfig.config, _lastCommittedMutationOffset, _lastReceivedMutationOffset, _currentTermNumber);
 			_clientManager.mainEnterLeaderState(snapshot);
 			_clusterManager.mainEnterLeaderState(snapshot);
 		}
@@ -766,6 +1108,50 @@ public class NodeState implements IClientManagerCallbacks, IClusterManagerCallba
 	private void _executeAndCommit(MutationRecord mutation) {
 		TopicName topic = mutation.topic;
 		MutationExecutor.ExecutionResult result = _mutationExecutor.execute(mutation);
+		_lastExecutedMutationOffset = mutation.globalOffset;
 		_commit(mutation, result.effect, topic, result.events);
 	}
+
+	private boolean _mainCanServeLeaseRead() {
+		// We can only serve a read if:
+		// -we are the leader and not changing config (since the majority is then ambiguous) or handing off leadership
+		// -we have executed everything committed by previous leaders (proven by committing something in our own term or having nothing in-flight)
+		// -a majority of the cluster has heard from us recently enough that no other leader could have been elected
+		return (RaftState.LEADER == _currentState)
+				&& (null == _transferTarget)
+				&& _configsPendingCommit.isEmpty()
+				&& ((_lastTermNumberRemovedFromInFlight == _currentTermNumber) || _inFlightMutations.isEmpty())
+				&& _clusterManager.mainHasLeaderLease();
+	}
+
+	private void _mainServeReadsWaitingForLease() {
+		if (!_readsWaitingForLease.isEmpty() && _mainCanServeLeaseRead()) {
+			for (PendingRead read : _readsWaitingForLease) {
+				_mainServeRead(read);
+			}
+			_readsWaitingForLease.clear();
+		}
+	}
+
+	private void _mainServeRead(PendingRead read) {
+		// The read ID is passed in the nonce field.
+		if (ClientMessageType.GET == read.message.type) {
+			ClientMessagePayload_Get payload = (ClientMessagePayload_Get)read.message.payload;
+			_clientManager.mainSendValue(read.clientId, read.message.nonce, _lastExecutedMutationOffset, _mutationExecutor.readValue(payload.topic, payload.key));
+		} else {
+			ClientMessagePayload_ReadTopicState payload = (ClientMessagePayload_ReadTopicState)read.message.payload;
+			_clientManager.mainSendTopicState(read.clientId, read.message.nonce, _lastExecutedMutationOffset, _mutationExecutor.readTopicState(payload.topic));
+		}
+	}
+
+
+	private static class PendingRead {
+		public final UUID clientId;
+		public final ClientMessage message;
+		
+		public PendingRead(UUID clientId, ClientMessage message) {
+			this.clientId = clientId;
+			this.message = message;
+		}
+	}
 }
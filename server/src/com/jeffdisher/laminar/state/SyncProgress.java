@@ -15,6 +15,8 @@ import com.jeffdisher.laminar.utils.Assert;
  * determine how far they have progressed into the mutation stream.
  * Currently, this is done based on unanimous progress but will later be majority-based.
  * Note that the receiver doesn't know anything about whether or not the current node is within the cluster.
+ * Only the voting members of the config are given to the receiver:  learners receive replication but never contribute
+ * to consensus or elections.
  */
 public class SyncProgress {
 	public final ClusterConfig config;
@@ -22,14 +24,15 @@ public class SyncProgress {
 
 	public SyncProgress(ClusterConfig config, Set<DownstreamPeerSyncState> downstreamConnections) {
 		Assert.assertTrue(config.entries.length > 0);
-		Assert.assertTrue(config.entries.length == downstreamConnections.size());
+		// Learners are not part of the consensus calculation so we should only be given the voters.
+		Assert.assertTrue(config.voterCount == downstreamConnections.size());
 		
 		this.config = config;
 		_downstreamConnections = downstreamConnections;
 	}
 
 	/**
-	 * @return The highest mutation offset observed by a majority of the cluster.
+	 * @return The highest mutation offset observed by a majority of the voting members of the cluster.
 	 */
 	public long checkCurrentProgress() {
 		// We want the majority (floor(count/2) + 1) so sort the responses strip off the low minority.
@@ -62,4 +65,22 @@ public class SyncProgress {
 		int majority = (_downstreamConnections.size() / 2) + 1;
 		return (tally >= majority);
 	}
+
+	/**
+	 * The same as isElectedInTerm, above, but counts pre-votes:  If this is a majority, we would win an election in the
+	 * given term so it is safe to start it.
+	 * 
+	 * @param term The term where the election is proposed.
+	 * @return True if a majority have sent a pre-vote for the given term.
+	 */
+	public boolean isPreElectedInTerm(long term) {
+		int tally = 0;
+		for (DownstreamPeerSyncState state : _downstreamConnections) {
+			if (term == state.termOfLastPreVote) {
+				tally += 1;
+			}
+		}
+		int majority = (_downstreamConnections.size() / 2) + 1;
+		return (tally >= majority);
+	}
 }
@@ -4,6 +4,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 import org.junit.Assert;
@@ -37,6 +38,16 @@ public class TestConsoleManager {
 			public void mainHandleStopCommand() {
 				out[0] = true;
 			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
 		});
 		manager.startAndWaitForReady();
 		stream.unblock();
@@ -59,6 +70,16 @@ public class TestConsoleManager {
 			public void mainHandleStopCommand() {
 				out[0] = true;
 			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
 		});
 		manager.startAndWaitForReady();
 		stream.unblock();
@@ -81,6 +102,16 @@ public class TestConsoleManager {
 				// We shouldn't see this.
 				Assert.fail();
 			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
 		});
 		manager.startAndWaitForReady();
 		stream.unblock();
@@ -103,6 +134,16 @@ public class TestConsoleManager {
 			public void mainHandleStopCommand() {
 				out[0] = true;
 			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
 		});
 		manager.startAndWaitForReady();
 		stream.unblock();
@@ -130,6 +171,82 @@ public class TestConsoleManager {
 			public void mainHandleStopCommand() {
 				out[0] = true;
 			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+		});
+		manager.startAndWaitForReady();
+		stream.unblock();
+		wrapper.get().accept(null);
+		Assert.assertTrue(out[0]);
+		manager.stopAndWaitForTermination();
+	}
+
+	@Test
+	public void testTransferParse() throws Throwable {
+		UUID target = UUID.randomUUID();
+		// The malformed command should be rejected before the valid one is seen.
+		FakeStream stream = new FakeStream("transfer\ntransfer bogus\ntransfer " + target + "\n");
+		F<Consumer<StateSnapshot>> wrapper = new F<>();
+		UUID[] out = new UUID[1];
+		ConsoleManager manager = new ConsoleManager(_fakeOut, stream, new IConsoleManagerBackgroundCallbacks() {
+			@Override
+			public void ioEnqueueConsoleCommandForMainThread(Consumer<StateSnapshot> command) {
+				wrapper.put(command);
+			}
+			@Override
+			public void mainHandleStopCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleStatsCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				out[0] = targetNodeUuid;
+			}
+		});
+		manager.startAndWaitForReady();
+		stream.unblock();
+		wrapper.get().accept(null);
+		Assert.assertEquals(target, out[0]);
+		manager.stopAndWaitForTermination();
+	}
+
+	@Test
+	public void testStatsParse() throws Throwable {
+		FakeStream stream = new FakeStream("stats\n");
+		F<Consumer<StateSnapshot>> wrapper = new F<>();
+		boolean[] out = new boolean[1];
+		ConsoleManager manager = new ConsoleManager(_fakeOut, stream, new IConsoleManagerBackgroundCallbacks() {
+			@Override
+			public void ioEnqueueConsoleCommandForMainThread(Consumer<StateSnapshot> command) {
+				wrapper.put(command);
+			}
+			@Override
+			public void mainHandleStopCommand() {
+				// We shouldn't see this.
+				Assert.fail();
+			}
+			@Override
+			public void mainHandleStatsCommand() {
+				out[0] = true;
+			}
+			@Override
+			public void mainHandleTransferLeaderCommand(UUID targetNodeUuid) {
+				// We shouldn't see this.
+				Assert.fail();
+			}
 		});
 		manager.startAndWaitForReady();
 		stream.unblock();
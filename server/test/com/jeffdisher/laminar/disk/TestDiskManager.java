@@ -80,6 +80,70 @@ public class TestDiskManager {
 		manager.stopAndWaitForTermination();
 	}
 
+	/**
+	 * Append a mutation, replace it at the same offset, and then commit it, verifying the callbacks arrive in order.
+	 */
+	@Test
+	public void testAppendThenCommit() throws Throwable {
+		TopicName topic = TopicName.fromString("fake");
+		MutationRecord mutation1 = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {1});
+		MutationRecord mutation1_fix = MutationRecord.put(2L, 1L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {2});
+		
+		LatchedCallbacks callbacks = new LatchedCallbacks();
+		DiskManager manager = new DiskManager(null, callbacks);
+		manager.startAndWaitForReady();
+		
+		manager.appendMutation(mutation1);
+		manager.appendMutation(mutation1_fix);
+		manager.commitMutation(CommittedMutationRecord.create(mutation1_fix, CommitInfo.Effect.VALID));
+		callbacks.runOneCommand();
+		callbacks.runOneCommand();
+		Assert.assertEquals(2, callbacks.appendMutationCount);
+		Assert.assertEquals(0, callbacks.commitMutationCount);
+		callbacks.runOneCommand();
+		Assert.assertEquals(1, callbacks.commitMutationCount);
+		
+		callbacks.expectedMutation = mutation1_fix;
+		manager.fetchMutation(1L);
+		while (callbacks.fetchMutationCount < 1) { callbacks.runOneCommand(); }
+		
+		manager.stopAndWaitForTermination();
+	}
+
+
+	/**
+	 * Commit a few mutations and fetch them as a range, verifying that the range is clamped to what was committed.
+	 */
+	@Test
+	public void testFetchMutationRange() throws Throwable {
+		TopicName topic = TopicName.fromString("fake");
+		MutationRecord mutation1 = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {1});
+		MutationRecord mutation2 = MutationRecord.put(1L, 2L, topic, UUID.randomUUID(), 2L, new byte[0], new byte[] {2});
+		MutationRecord mutation3 = MutationRecord.put(2L, 3L, topic, UUID.randomUUID(), 3L, new byte[0], new byte[] {3});
+		
+		LatchedCallbacks callbacks = new LatchedCallbacks();
+		DiskManager manager = new DiskManager(null, callbacks);
+		manager.startAndWaitForReady();
+		
+		manager.commitMutation(CommittedMutationRecord.create(mutation1, CommitInfo.Effect.VALID));
+		manager.commitMutation(CommittedMutationRecord.create(mutation2, CommitInfo.Effect.VALID));
+		manager.commitMutation(CommittedMutationRecord.create(mutation3, CommitInfo.Effect.VALID));
+		while (callbacks.commitMutationCount < 3) { callbacks.runOneCommand(); }
+		
+		manager.fetchMutationRange(2L, 10);
+		callbacks.runOneCommand();
+		Assert.assertEquals(2, callbacks.fetchedMutationRange.length);
+		Assert.assertEquals(mutation2, callbacks.fetchedMutationRange[0].record);
+		Assert.assertEquals(mutation3, callbacks.fetchedMutationRange[1].record);
+		
+		manager.fetchMutationRange(1L, 1);
+		callbacks.runOneCommand();
+		Assert.assertEquals(1, callbacks.fetchedMutationRange.length);
+		Assert.assertEquals(mutation1, callbacks.fetchedMutationRange[0].record);
+		
+		manager.stopAndWaitForTermination();
+	}
+
 
 	/**
 	 * Used for simple cases where the external test only wants to verify that a call was made when expected.
@@ -87,8 +151,10 @@ public class TestDiskManager {
 	private static class LatchedCallbacks implements IDiskManagerBackgroundCallbacks {
 		public MutationRecord expectedMutation;
 		public EventRecord expectedEvent;
+		public int appendMutationCount;
 		public int commitMutationCount;
 		public int fetchMutationCount;
+		public CommittedMutationRecord[] fetchedMutationRange;
 		public int commitEventCount;
 		public int fetchEventCount;
 		private Consumer<StateSnapshot> _nextCommand;
@@ -124,6 +190,11 @@ public class TestDiskManager {
 			this.notifyAll();
 		}
 		
+		@Override
+		public void mainMutationWasAppended(MutationRecord completed) {
+			this.appendMutationCount += 1;
+		}
+		
 		@Override
 		public void mainMutationWasCommitted(CommittedMutationRecord completed) {
 			this.commitMutationCount += 1;
@@ -141,6 +212,11 @@ public class TestDiskManager {
 			this.fetchMutationCount += 1;
 		}
 		
+		@Override
+		public void mainMutationRangeWasFetched(StateSnapshot snapshot, long previousMutationTermNumber, CommittedMutationRecord[] records) {
+			this.fetchedMutationRange = records;
+		}
+		
 		@Override
 		public void mainEventWasFetched(TopicName topic, EventRecord record) {
 			// We currently just support a single match.
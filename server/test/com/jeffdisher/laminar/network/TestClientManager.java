@@ -5,6 +5,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.channels.ServerSocketChannel;
+import java.util.LinkedList;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -20,6 +21,7 @@ import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
+import com.jeffdisher.laminar.types.event.EventRecordType;
 import com.jeffdisher.laminar.types.message.ClientMessage;
 import com.jeffdisher.laminar.types.message.ClientMessagePayload_KeyPut;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
@@ -48,7 +50,7 @@ public class TestClientManager {
 		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		LatchedCallbacks callbacks = new LatchedCallbacks();
-		ClientManager manager = new ClientManager(self, socket, callbacks);
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
 		manager.startAndWaitForReady();
 		
 		// Create the connection and send the "temp" message through, directly.
@@ -109,7 +111,7 @@ public class TestClientManager {
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		LatchedCallbacks callbacks = new LatchedCallbacks();
 		UUID clientId = UUID.randomUUID();
-		ClientManager manager = new ClientManager(self, socket, callbacks);
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
 		manager.startAndWaitForReady();
 		
 		// Create the connection, send the commit message, and read it, directly.
@@ -176,7 +178,7 @@ public class TestClientManager {
 		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		LatchedCallbacks callbacks = new LatchedCallbacks();
-		ClientManager manager = new ClientManager(self, socket, callbacks);
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
 		manager.startAndWaitForReady();
 		
 		// Create the connection, send the commit message, and read it, directly.
@@ -225,7 +227,7 @@ public class TestClientManager {
 		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		LatchedCallbacks callbacks = new LatchedCallbacks();
-		ClientManager manager = new ClientManager(self, socket, callbacks);
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
 		manager.startAndWaitForReady();
 		
 		// Create the connection, send the commit message, and read it, directly.
@@ -273,7 +275,7 @@ public class TestClientManager {
 		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		LatchedCallbacks callbacks = new LatchedCallbacks();
-		ClientManager manager = new ClientManager(self, socket, callbacks);
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
 		manager.startAndWaitForReady();
 		
 		// Now, tell the ClientManager to enter the follower state.
@@ -306,6 +308,210 @@ public class TestClientManager {
 		socket.close();
 	}
 
+	/**
+	 * Tests that a message suspended while the node was a candidate (or transferring leadership) is dropped, not
+	 * handled, if the node then becomes a FOLLOWER:  the client is sent a redirect, instead.
+	 */
+	@Test
+	public void testSuspendedMessageDroppedAfterStepDown() throws Throwable {
+		// Create a server.
+		int port = PORT_BASE + 7;
+		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
+		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
+		LatchedCallbacks callbacks = new LatchedCallbacks();
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
+		manager.startAndWaitForReady();
+		
+		try (Socket client = new Socket("localhost", port)) {
+			// Send the HANDSHAKE and wait for the CLIENT_READY.
+			UUID clientId = UUID.randomUUID();
+			// -nodeDidConnect
+			callbacks.runAndGetNextMessage();
+			TestingHelpers.writeMessageInFrame(client.getOutputStream(), ClientMessage.handshake(clientId).serialize());
+			// -nodeReadReady
+			callbacks.runAndGetNextMessage();
+			// -nodeWriteReady
+			callbacks.runAndGetNextMessage();
+			InputStream fromServer = client.getInputStream();
+			ClientResponse ready = ClientResponse.deserialize(TestingHelpers.readMessageInFrame(fromServer));
+			Assert.assertEquals(ClientResponseType.CLIENT_READY, ready.type);
+			
+			// Suspend client messages, as we do when starting an election or a leadership transfer, and send a message.
+			manager.mainEnterCandidateState();
+			ClientMessage message = ClientMessage.put(1L, TopicName.fromString("test"), new byte[0], new byte[] {1});
+			TestingHelpers.writeMessageInFrame(client.getOutputStream(), message.serialize());
+			// -nodeReadReady (suspended)
+			Assert.assertNull(callbacks.runAndGetNextMessage());
+			
+			// Now, step down:  the suspended message is replayed but must be dropped, since we are no longer leader.
+			ConfigEntry entry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port+1));
+			manager.mainEnterFollowerState(entry, new StateSnapshot(null, 0L, 0L, 2L));
+			Assert.assertNull(callbacks.recentMessage);
+			// -nodeWriteReady
+			callbacks.runAndGetNextMessage();
+			ClientResponse redirect = ClientResponse.deserialize(TestingHelpers.readMessageInFrame(fromServer));
+			Assert.assertEquals(ClientResponseType.REDIRECT, redirect.type);
+			Assert.assertEquals(entry.nodeUuid, ((ClientResponsePayload_ConfigEntry)redirect.payload).entry.nodeUuid);
+		}
+		NetworkManager.NodeToken noNode = callbacks.runRunnableAndGetNewClientNode(manager);
+		Assert.assertNull(noNode);
+		
+		manager.stopAndWaitForTermination();
+		socket.close();
+	}
+
+
+	/**
+	 * Tests that a FOLLOWER which is too far behind the leader sends a new listener the config but then closes it.
+	 */
+	@Test
+	public void testStaleFollowerRefusesListener() throws Throwable {
+		// Create a server which allows listeners up to 5 mutations behind the leader.
+		TopicName topic = TopicName.fromString("test");
+		int port = PORT_BASE + 6;
+		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
+		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
+		LatchedCallbacks callbacks = new LatchedCallbacks();
+		ClientManager manager = new ClientManager(self, socket, callbacks, 5L);
+		manager.startAndWaitForReady();
+		
+		// Enter the follower state and say that we are too far behind.
+		ConfigEntry entry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port+1));
+		manager.mainEnterFollowerState(entry, new StateSnapshot(null, 0L, 0L, 1L));
+		manager.mainFollowerCommitLagDidChange(6L);
+		
+		try (Socket client = new Socket("localhost", port)) {
+			// -nodeDidConnect
+			callbacks.runRunnableAndGetNewClientNode(manager);
+			TestingHelpers.writeMessageInFrame(client.getOutputStream(), ClientMessage.listen(topic, 0L).serialize());
+			// -nodeReadReady
+			callbacks.runRunnableAndGetNewClientNode(manager);
+			// -nodeWriteReady (closes the connection)
+			callbacks.runRunnableAndGetNewClientNode(manager);
+			
+			// We should see the config and then the connection should be closed.
+			InputStream fromServer = client.getInputStream();
+			EventRecord config = EventRecord.deserialize(TestingHelpers.readMessageInFrame(fromServer));
+			Assert.assertEquals(EventRecordType.CONFIG_CHANGE, config.type);
+			Assert.assertEquals(-1, fromServer.read());
+		}
+		
+		manager.stopAndWaitForTermination();
+		socket.close();
+	}
+
+	/**
+	 * Tests that messages which arrive while client reads are suspended (as during an election) are still bounded:  the
+	 * ones past the limit are left in the connection's buffer until the suspended reads are replayed.
+	 */
+	@Test
+	public void testDecodedMessagesBoundedWhileSuspended() throws Throwable {
+		// Create a server.
+		int port = PORT_BASE + 9;
+		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
+		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
+		QueuedCallbacks callbacks = new QueuedCallbacks();
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
+		manager.startAndWaitForReady();
+		
+		int messageCount = ClientManager.MAX_DECODED_MESSAGES_PER_CONNECTION + 10;
+		try (Socket client = new Socket("localhost", port)) {
+			// -nodeDidConnect
+			callbacks.runNext();
+			NetworkManager.NodeToken node = manager.testingGetOneClientNode();
+			Assert.assertNotNull(node);
+			OutputStream toServer = client.getOutputStream();
+			TestingHelpers.writeMessageInFrame(toServer, ClientMessage.handshake(UUID.randomUUID()).serialize());
+			// -nodeReadReady
+			callbacks.runNext();
+			// -nodeWriteReady
+			callbacks.runNext();
+			ClientResponse ready = ClientResponse.deserialize(TestingHelpers.readMessageInFrame(client.getInputStream()));
+			Assert.assertEquals(ClientResponseType.CLIENT_READY, ready.type);
+			
+			// Suspend reads and send more messages than will be decoded ahead of the main thread.
+			manager.mainEnterCandidateState();
+			for (int i = 1; i <= messageCount; ++i) {
+				TestingHelpers.writeMessageInFrame(toServer, ClientMessage.put(i, TopicName.fromString("test"), new byte[0], new byte[] {(byte)i}).serialize());
+			}
+			callbacks.waitForPendingCount(messageCount);
+			// Running all of the callbacks only suspends them:  nothing is handled and the undecoded ones aren't read.
+			for (int i = 0; i < messageCount; ++i) {
+				Assert.assertNull(callbacks.runNext());
+			}
+			Assert.assertEquals(ClientManager.MAX_DECODED_MESSAGES_PER_CONNECTION, manager.testingGetDecodedMessageCount(node));
+			
+			// Once we are leader, they are all replayed, in order (an out-of-order nonce wouldn't reach the callbacks).
+			manager.mainEnterLeaderState(new StateSnapshot(null, 0L, 0L, 1L));
+			Assert.assertEquals((long)messageCount, callbacks.recentMessage.nonce);
+			Assert.assertEquals(0, manager.testingGetDecodedMessageCount(node));
+		}
+		
+		manager.stopAndWaitForTermination();
+		socket.close();
+	}
+
+	/**
+	 * Tests that a client sending faster than the main thread handles its messages only has a bounded number of them
+	 * decoded ahead of the main thread, and that the rest are still handled, in order, once it catches up.
+	 */
+	@Test
+	public void testDecodedMessagesBoundedPerConnection() throws Throwable {
+		// Create a server.
+		int port = PORT_BASE + 8;
+		ConfigEntry self = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(9999), new InetSocketAddress(port));
+		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
+		QueuedCallbacks callbacks = new QueuedCallbacks();
+		ClientManager manager = new ClientManager(self, socket, callbacks, ClientManager.UNBOUNDED_LISTENER_LAG);
+		manager.startAndWaitForReady();
+		
+		int messageCount = ClientManager.MAX_DECODED_MESSAGES_PER_CONNECTION + 10;
+		try (Socket client = new Socket("localhost", port)) {
+			// -nodeDidConnect
+			callbacks.runNext();
+			NetworkManager.NodeToken node = manager.testingGetOneClientNode();
+			Assert.assertNotNull(node);
+			OutputStream toServer = client.getOutputStream();
+			TestingHelpers.writeMessageInFrame(toServer, ClientMessage.handshake(UUID.randomUUID()).serialize());
+			// -nodeReadReady
+			callbacks.runNext();
+			// -nodeWriteReady
+			callbacks.runNext();
+			ClientResponse ready = ClientResponse.deserialize(TestingHelpers.readMessageInFrame(client.getInputStream()));
+			Assert.assertEquals(ClientResponseType.CLIENT_READY, ready.type);
+			
+			// Send more messages than will be decoded ahead of the main thread and wait for all of their callbacks.
+			for (int i = 1; i <= messageCount; ++i) {
+				TestingHelpers.writeMessageInFrame(toServer, ClientMessage.put(i, TopicName.fromString("test"), new byte[0], new byte[] {(byte)i}).serialize());
+			}
+			callbacks.waitForPendingCount(messageCount);
+			Assert.assertEquals(ClientManager.MAX_DECODED_MESSAGES_PER_CONNECTION, manager.testingGetDecodedMessageCount(node));
+			
+			// Handle them all (interleaved with the write-ready callbacks from the acks) and make sure they are in order.
+			long expectedNonce = 1L;
+			while (expectedNonce <= messageCount) {
+				ClientMessage message = callbacks.runNext();
+				if (null != message) {
+					Assert.assertEquals(expectedNonce, message.nonce);
+					expectedNonce += 1;
+				}
+			}
+			Assert.assertEquals(0, manager.testingGetDecodedMessageCount(node));
+			
+			// Once caught up, the next message is still handled.
+			TestingHelpers.writeMessageInFrame(toServer, ClientMessage.put(expectedNonce, TopicName.fromString("test"), new byte[0], new byte[] {1}).serialize());
+			ClientMessage message = null;
+			while (null == message) {
+				message = callbacks.runNext();
+			}
+			Assert.assertEquals(expectedNonce, message.nonce);
+			Assert.assertEquals(0, manager.testingGetDecodedMessageCount(node));
+		}
+		
+		manager.stopAndWaitForTermination();
+		socket.close();
+	}
+
 
 	/**
 	 * Used for simple cases where the external test only wants to verify that a call was made when expected.
@@ -348,6 +554,11 @@ public class TestClientManager {
 			return 1L;
 		}
 
+		@Override
+		public void mainHandleReadOnlyClientMessage(UUID clientId, ClientMessage incoming) {
+			this.recentMessage = incoming;
+		}
+
 		@Override
 		public MutationRecord mainClientFetchMutationIfAvailable(long mutationOffset) {
 			Assert.fail("Not used in test");
@@ -364,6 +575,11 @@ public class TestClientManager {
 			Assert.fail("Not used in test");
 		}
 
+		@Override
+		public void mainTransferLeader(UUID targetNodeUuid) {
+			Assert.fail("Not used in test");
+		}
+
 		private void _lockedRunOnce() throws InterruptedException {
 			while (null == _pendingConsumer) {
 				this.wait();
@@ -373,4 +589,35 @@ public class TestClientManager {
 			this.notifyAll();
 		}
 	}
+
+
+	/**
+	 * Unlike LatchedCallbacks, this queues up every command so the IO thread never waits for the test to run them.
+	 */
+	private static class QueuedCallbacks extends LatchedCallbacks {
+		private final ClusterConfig _dummyConfig = ClusterConfig.configFromEntries(new ConfigEntry[] {new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(5), new InetSocketAddress(6))});
+		private final LinkedList<Consumer<StateSnapshot>> _pending = new LinkedList<>();
+		
+		public synchronized void waitForPendingCount(int count) throws InterruptedException {
+			while (_pending.size() < count) {
+				this.wait();
+			}
+		}
+		
+		public synchronized ClientMessage runNext() throws InterruptedException {
+			while (_pending.isEmpty()) {
+				this.wait();
+			}
+			_pending.removeFirst().accept(new StateSnapshot(_dummyConfig, 0L, 0L, 1L));
+			ClientMessage message = this.recentMessage;
+			this.recentMessage = null;
+			return message;
+		}
+		
+		@Override
+		public synchronized void ioEnqueueClientCommandForMainThread(Consumer<StateSnapshot> command) {
+			_pending.add(command);
+			this.notifyAll();
+		}
+	}
 }
@@ -23,10 +23,15 @@ import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
 import com.jeffdisher.laminar.types.payload.Payload_KeyPut;
 import com.jeffdisher.laminar.utils.TestingHelpers;
+import com.jeffdisher.laminar.utils.TimerHandle;
 
 
 public class TestClusterManager {
 	private static final int PORT_BASE = 3100;
+	/**
+	 * These tests step through the sync between peers, one message at a time, so they lock-step on the acks.
+	 */
+	private static final int REPLICATION_WINDOW_SIZE = 1;
 
 	@Test
 	public void testStartStop() throws Throwable {
@@ -34,7 +39,7 @@ public class TestClusterManager {
 		ConfigEntry self = _buildSelf();
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(port);
 		TestClusterCallbacks callbacks = new TestClusterCallbacks();
-		ClusterManager manager = new ClusterManager(self, socket, callbacks);
+		ClusterManager manager = new ClusterManager(self, socket, callbacks, REPLICATION_WINDOW_SIZE);
 		manager.startAndWaitForReady();
 		manager.stopAndWaitForTermination();
 		socket.close();
@@ -54,7 +59,7 @@ public class TestClusterManager {
 		ConfigEntry self = _buildSelf();
 		ServerSocketChannel socket = TestingHelpers.createServerSocket(managerPort);
 		TestClusterCallbacks callbacks = new TestClusterCallbacks();
-		ClusterManager manager = new ClusterManager(self, socket, callbacks);
+		ClusterManager manager = new ClusterManager(self, socket, callbacks, REPLICATION_WINDOW_SIZE);
 		manager.startAndWaitForReady();
 		
 		// Issue the open connection request, wait for the command that we failed to run, and verify it wasn't connected.
@@ -95,8 +100,9 @@ public class TestClusterManager {
 		ByteBuffer mutation = ByteBuffer.wrap(TestingHelpers.readMessageInFrame(fakePeerSocket.getInputStream()));
 		message = DownstreamMessage.deserializeFrom(mutation);
 		Assert.assertEquals(DownstreamMessage.Type.APPEND_MUTATIONS, message.type);
-		long mutationToAck = ((DownstreamPayload_AppendMutations)message.payload).lastCommittedMutationOffset;
-		UpstreamResponse ack = UpstreamResponse.receivedMutations(mutationToAck);
+		DownstreamPayload_AppendMutations append = (DownstreamPayload_AppendMutations)message.payload;
+		long mutationToAck = append.lastCommittedMutationOffset;
+		UpstreamResponse ack = UpstreamResponse.receivedMutations(mutationToAck, append.leaderSendMillis);
 		ByteBuffer ackBuffer = ByteBuffer.allocate(ack.serializedSize());
 		ack.serializeInto(ackBuffer);
 		ackBuffer.flip();
@@ -127,8 +133,8 @@ public class TestClusterManager {
 		ConfigEntry downstreamEntry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(downstreamPort), new InetSocketAddress(9999));
 		TestClusterCallbacks upstreamCallbacks = new TestClusterCallbacks();
 		TestClusterCallbacks downstreamCallbacks = new TestClusterCallbacks();
-		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks);
-		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks);
+		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks, REPLICATION_WINDOW_SIZE);
+		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks, REPLICATION_WINDOW_SIZE);
 		upstreamManager.startAndWaitForReady();
 		downstreamManager.startAndWaitForReady();
 		
@@ -176,8 +182,8 @@ public class TestClusterManager {
 		ConfigEntry downstreamEntry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(downstreamPort), new InetSocketAddress(9999));
 		TestClusterCallbacks upstreamCallbacks = new TestClusterCallbacks();
 		TestClusterCallbacks downstreamCallbacks = new TestClusterCallbacks();
-		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks);
-		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks);
+		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks, REPLICATION_WINDOW_SIZE);
+		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks, REPLICATION_WINDOW_SIZE);
 		upstreamManager.startAndWaitForReady();
 		downstreamManager.startAndWaitForReady();
 		
@@ -234,8 +240,8 @@ public class TestClusterManager {
 	/**
 	 * Creates 2 ClusterManagers and demonstrates what happens if the upstream attempts to send 2 mutations before the
 	 * downstream can ack either of them.
-	 * We expect that only the first will be sent since the upstream should lock-step on the mutation acks before
-	 * sending another.  It will do this by deciding that the downstream wasn't yet available to receive the mutation
+	 * We expect that only the first will be sent since, with a replication window of 1, the upstream should lock-step
+	 * on the mutation acks before sending another.  It will do this by deciding that the downstream wasn't yet available to receive the mutation
 	 * being offered.
 	 * Reason why this is important:  The state machines related to how both sides synchronize is not currently able to
 	 * handle multiple in-flight in the case where they are sending contradictory information:  move forward and move
@@ -253,8 +259,8 @@ public class TestClusterManager {
 		ConfigEntry downstreamEntry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(downstreamPort), new InetSocketAddress(9999));
 		TestClusterCallbacks upstreamCallbacks = new TestClusterCallbacks();
 		TestClusterCallbacks downstreamCallbacks = new TestClusterCallbacks();
-		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks);
-		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks);
+		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks, REPLICATION_WINDOW_SIZE);
+		ClusterManager downstreamManager = new ClusterManager(downstreamEntry, downstreamSocket, downstreamCallbacks, REPLICATION_WINDOW_SIZE);
 		upstreamManager.startAndWaitForReady();
 		downstreamManager.startAndWaitForReady();
 		
@@ -287,6 +293,78 @@ public class TestClusterManager {
 	}
 
 
+	/**
+	 * Creates an upstream ClusterManager with a committed mutation, which isn't in memory, and 2 downstream
+	 * ClusterManagers which both need it.
+	 * We expect that the upstream only asks for it to be read from disk once, even though both peers are waiting for it,
+	 * and that both peers are sent the mutation when that read completes.
+	 */
+	@Test
+	public void testSingleFetchForPeersAwaitingSameMutation() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		int upstreamPort = PORT_BASE + 12;
+		int downstreamPort1 = PORT_BASE + 13;
+		int downstreamPort2 = PORT_BASE + 14;
+		ServerSocketChannel upstreamSocket = TestingHelpers.createServerSocket(upstreamPort);
+		ServerSocketChannel downstreamSocket1 = TestingHelpers.createServerSocket(downstreamPort1);
+		ServerSocketChannel downstreamSocket2 = TestingHelpers.createServerSocket(downstreamPort2);
+		ConfigEntry upstreamEntry = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(upstreamPort), new InetSocketAddress(9999));
+		ConfigEntry downstreamEntry1 = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(downstreamPort1), new InetSocketAddress(9999));
+		ConfigEntry downstreamEntry2 = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(downstreamPort2), new InetSocketAddress(9999));
+		TestClusterCallbacks upstreamCallbacks = new TestClusterCallbacks();
+		TestClusterCallbacks downstreamCallbacks1 = new TestClusterCallbacks();
+		TestClusterCallbacks downstreamCallbacks2 = new TestClusterCallbacks();
+		ClusterManager upstreamManager = new ClusterManager(upstreamEntry, upstreamSocket, upstreamCallbacks, REPLICATION_WINDOW_SIZE);
+		ClusterManager downstreamManager1 = new ClusterManager(downstreamEntry1, downstreamSocket1, downstreamCallbacks1, REPLICATION_WINDOW_SIZE);
+		ClusterManager downstreamManager2 = new ClusterManager(downstreamEntry2, downstreamSocket2, downstreamCallbacks2, REPLICATION_WINDOW_SIZE);
+		upstreamManager.startAndWaitForReady();
+		downstreamManager1.startAndWaitForReady();
+		downstreamManager2.startAndWaitForReady();
+		
+		// The upstream received and committed the mutation before either peer connected.
+		MutationRecord record1 = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {1,2,3});
+		Assert.assertFalse(upstreamManager.mainMutationWasReceivedOrFetched(new StateSnapshot(null, 0L, 1L, 1L), 0L, record1));
+		upstreamManager.mainMutationWasCommitted(record1.globalOffset);
+		
+		// Initial handshakes.
+		TestingCommands.openConnectionAndSendIdentity(upstreamManager, upstreamCallbacks, downstreamEntry1);
+		TestingCommands.openConnectionAndSendIdentity(upstreamManager, upstreamCallbacks, downstreamEntry2);
+		TestingCommands.acceptConnectionAndSendState(downstreamManager1, downstreamCallbacks1);
+		TestingCommands.acceptConnectionAndSendState(downstreamManager2, downstreamCallbacks2);
+		downstreamManager1.mainEnterFollowerState();
+		downstreamManager2.mainEnterFollowerState();
+		
+		// -1 nodeReadReady (reads each PEER_STATE - both peers want the mutation, which isn't in memory).
+		upstreamCallbacks.runOneCommand();
+		upstreamCallbacks.runOneCommand();
+		Assert.assertEquals(1, upstreamCallbacks.diskFetchCount);
+		
+		// When the read completes, it is sent to both peers.
+		upstreamManager.mainCommittedMutationsWereFetched(new StateSnapshot(null, 1L, 1L, 1L), 0L, new MutationRecord[] { record1 });
+		// -1 nodeWriteReady (once for each peer).
+		upstreamCallbacks.runOneCommand();
+		upstreamCallbacks.runOneCommand();
+		Assert.assertEquals(1, upstreamCallbacks.diskFetchCount);
+		Assert.assertEquals(record1.globalOffset, TestingCommands.readIncomingMutation(downstreamManager1, downstreamCallbacks1, upstreamEntry).globalOffset);
+		Assert.assertEquals(record1.globalOffset, TestingCommands.readIncomingMutation(downstreamManager2, downstreamCallbacks2, upstreamEntry).globalOffset);
+		
+		// -1 nodeReadReady (the ack from each peer).
+		upstreamCallbacks.runOneCommand();
+		upstreamCallbacks.downstreamReceivedMutation = 0L;
+		upstreamCallbacks.downstreamPeer = null;
+		upstreamCallbacks.runOneCommand();
+		Assert.assertEquals(record1.globalOffset, upstreamCallbacks.downstreamReceivedMutation);
+		
+		// (stop the upstream first since it would otherwise be told about 2 disconnects, which this test doesn't process).
+		upstreamManager.stopAndWaitForTermination();
+		downstreamManager2.stopAndWaitForTermination();
+		downstreamManager1.stopAndWaitForTermination();
+		upstreamSocket.close();
+		downstreamSocket2.close();
+		downstreamSocket1.close();
+	}
+
+
 	private static ConfigEntry _buildSelf() throws UnknownHostException {
 		InetAddress localhost = InetAddress.getLocalHost();
 		InetSocketAddress cluster = ClusterConfig.cleanSocketAddress(new InetSocketAddress(localhost, 1000));
@@ -304,6 +382,7 @@ public class TestClusterManager {
 		public long downstreamReceivedMutation;
 		public long nextPreviousTermNumberToReturn;
 		public MutationRecord nextMutationToReturn;
+		public int diskFetchCount;
 		private long _previousTermNumber;
 		
 		public synchronized void runOneCommand() throws InterruptedException {
@@ -321,17 +400,19 @@ public class TestClusterManager {
 		}
 		
 		@Override
-		public void ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
+		public TimerHandle ioEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
 			// For the purposes of the test, we just treat this like a normal command.
 			_blockToStoreCommand(command);
+			return new TimerHandle();
 		}
 		
 		@Override
-		public void mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
+		public TimerHandle mainEnqueuePriorityClusterCommandForMainThread(Consumer<StateSnapshot> command, long delayMillis) {
 			// WARNING:  We explicitly drop this for our current tests.
 			// Part of this is because it would require changing the message hand-off (this is a reentrant call so it breaks this locked single hand-off design).
 			// The other part is that we know that this is used for scheduling heartbeats which we don't currently test and relies on wall clock time.
 			// TODO:  Redesign this along with a way to inject a time source to ClusterManager.
+			return new TimerHandle();
 		}
 		
 		@Override
@@ -366,12 +447,15 @@ public class TestClusterManager {
 		}
 		
 		@Override
-		public IClusterManagerCallbacks.MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset) {
+		public IClusterManagerCallbacks.MutationWrapper mainClusterFetchMutationIfAvailable(long mutationOffset, int diskFetchCount) {
 			IClusterManagerCallbacks.MutationWrapper wrapperToReturn = null;
 			if (null != this.nextMutationToReturn) {
 				Assert.assertEquals(this.nextMutationToReturn.globalOffset, mutationOffset);
 				wrapperToReturn = new IClusterManagerCallbacks.MutationWrapper(this.nextPreviousTermNumberToReturn, this.nextMutationToReturn);
 				this.nextMutationToReturn = null;
+			} else {
+				// Not having it in-memory means that it would be read from disk.
+				this.diskFetchCount += 1;
 			}
 			return wrapperToReturn;
 		}
@@ -415,6 +499,23 @@ public class TestClusterManager {
 		public void mainUpstreamMessageDidTimeout() {
 			Assert.fail("Not used");
 		}
+		@Override
+		public void mainReceivedTimeoutNow(ConfigEntry peer, long upstreamTermNumber) {
+			Assert.fail("Not used");
+		}
+		@Override
+		public boolean mainReceivedRequestForPreVote(ConfigEntry peer, long newTermNumber, long candidateLastReceivedMutationTerm, long candidateLastReceivedMutation) {
+			Assert.fail("Not used");
+			return false;
+		}
+		@Override
+		public void mainReceivedPreVoteFromPeer(ConfigEntry peer, long newTermNumber) {
+			Assert.fail("Not used");
+		}
+		@Override
+		public void mainLeaderLeaseWasRenewed() {
+			// We don't serve reads in these tests so there is nothing to do.
+		}
 	}
 
 
@@ -6,6 +6,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.jeffdisher.laminar.components.NetworkManager;
+import com.jeffdisher.laminar.network.p2p.DownstreamMessage;
+import com.jeffdisher.laminar.network.p2p.DownstreamPayload_CommitAdvance;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
@@ -17,7 +19,7 @@ public class TestDownstreamPeerManager {
 	 */
 	@Test
 	public void testCommonSyncFlow() throws Throwable {
-		DownstreamPeerManager manager = new DownstreamPeerManager();
+		DownstreamPeerManager manager = new DownstreamPeerManager(1);
 		ConfigEntry self = _createEntry();
 		ConfigEntry entry1 = _createEntry();
 		TestingToken token1 = new TestingToken();
@@ -46,11 +48,13 @@ public class TestDownstreamPeerManager {
 		Assert.assertEquals(0, manager.immutablePeersReadyToReceiveMutation(5L).size());
 		manager.setNodeWritable(token2);
 		Assert.assertEquals(1, manager.immutablePeersReadyToReceiveMutation(5L).size());
+		Assert.assertEquals(2, manager.immutablePeersReadyToReceiveMutationInRange(4L, 6L).size());
+		Assert.assertEquals(1, manager.immutablePeersReadyToReceiveMutationInRange(5L, 6L).size());
 		
 		// Use one of these and see that it is no longer here.
 		TopicName topic = TopicName.fromString("test");
 		MutationRecord mutation = MutationRecord.put(1L, 4L, topic, UUID.randomUUID(), 1, new byte[0], new byte[0]);
-		manager.immutablePeersReadyToReceiveMutation(4L).iterator().next().commitToSendMutations(1L, 1L, mutation, 1L, 1L);
+		manager.immutablePeersReadyToReceiveMutation(4L).iterator().next().commitToSendMutations(1L, 1L, new MutationRecord[] { mutation }, 1L, 1L, 500L);
 		Assert.assertEquals(0, manager.immutablePeersReadyToReceiveMutation(4L).size());
 		
 		// Check the case where it acks and both nodes are now at the same point.
@@ -59,6 +63,163 @@ public class TestDownstreamPeerManager {
 		Assert.assertEquals(2, manager.immutablePeersReadyToReceiveMutation(5L).size());
 	}
 
+	/**
+	 * Tests that a replication window allows several appends to be sent before an ack and that a rewind abandons them.
+	 */
+	@Test
+	public void testPipelinedWindow() throws Throwable {
+		DownstreamPeerManager manager = new DownstreamPeerManager(2);
+		ConfigEntry self = _createEntry();
+		ConfigEntry entry = _createEntry();
+		TestingToken token = new TestingToken();
+		manager.createNewPeer(entry, token);
+		manager.nodeDidConnect(token).commitToSendIdentity(self, 1L);
+		manager.nodeDidHandshake(token, 0L);
+		manager.setNodeWritable(token);
+		
+		// We can send 2 appends, without an ack, but not a third.
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		MutationRecord mutation1 = MutationRecord.put(1L, 1L, topic, clientId, 1L, new byte[0], new byte[0]);
+		MutationRecord mutation2 = MutationRecord.put(1L, 2L, topic, clientId, 2L, new byte[0], new byte[0]);
+		MutationRecord mutation3 = MutationRecord.put(1L, 3L, topic, clientId, 3L, new byte[0], new byte[0]);
+		manager.immutablePeersReadyToReceiveMutation(1L).iterator().next().commitToSendMutations(1L, 0L, new MutationRecord[] { mutation1 }, 0L, 1L, 500L);
+		manager.setNodeWritable(token);
+		manager.immutablePeersReadyToReceiveMutation(2L).iterator().next().commitToSendMutations(1L, 1L, new MutationRecord[] { mutation2 }, 0L, 1L, 500L);
+		ReadOnlyDownstreamPeerState peer = manager.setNodeWritable(token);
+		Assert.assertTrue(peer.isReadyForSend());
+		Assert.assertFalse(peer.hasMutationToSend());
+		Assert.assertEquals(0, manager.immutablePeersReadyToReceiveMutation(3L).size());
+		
+		// Acking the first opens the window for the third.
+		peer = manager.nodeDidAckMutation(token, 1L);
+		Assert.assertTrue(peer.hasMutationToSend());
+		Assert.assertEquals(3L, peer.getNextMutationOffsetToSend());
+		manager.immutablePeersReadyToReceiveMutation(3L).iterator().next().commitToSendMutations(1L, 1L, new MutationRecord[] { mutation3 }, 0L, 1L, 500L);
+		manager.setNodeWritable(token);
+		Assert.assertEquals(0, manager.immutablePeersReadyToReceiveMutation(4L).size());
+		
+		// A rewind to before the outstanding appends empties the window and restarts from what they asked for.
+		peer = manager.nodeDidHandshake(token, 1L);
+		Assert.assertEquals(2L, peer.getNextMutationOffsetToSend());
+		Assert.assertEquals(1, manager.immutablePeersReadyToReceiveMutation(2L).size());
+		
+		// A late ack, from before the rewind, doesn't change where we are sending.
+		peer = manager.nodeDidAckMutation(token, 2L);
+		Assert.assertEquals(2L, peer.getNextMutationOffsetToSend());
+		Assert.assertTrue(peer.hasMutationToSend());
+	}
+
+	/**
+	 * Tests that the leader lease check requires a majority of voters, counting ourself but not learners, to have
+	 * echoed a recent send time.
+	 */
+	@Test
+	public void testLeaseMajority() throws Throwable {
+		DownstreamPeerManager manager = new DownstreamPeerManager(1);
+		ConfigEntry entry1 = _createEntry();
+		TestingToken token1 = new TestingToken();
+		ConfigEntry entry2 = _createEntry();
+		TestingToken token2 = new TestingToken();
+		ConfigEntry learner = new ConfigEntry(UUID.randomUUID(), null, null, true);
+		TestingToken learnerToken = new TestingToken();
+		manager.createNewPeer(entry1, token1);
+		manager.createNewPeer(entry2, token2);
+		manager.createNewPeer(learner, learnerToken);
+		
+		// Nobody has heard from us so we can't be sure of anything.
+		Assert.assertFalse(manager.isMajorityOfVotersHeardSince(100L));
+		// A learner doesn't count.
+		manager.nodeDidEchoSendTime(learnerToken, 200L, 300L);
+		Assert.assertFalse(manager.isMajorityOfVotersHeardSince(100L));
+		// One voter, plus ourself, is a majority of 3.
+		manager.nodeDidEchoSendTime(token1, 200L, 300L);
+		Assert.assertTrue(manager.isMajorityOfVotersHeardSince(100L));
+		Assert.assertFalse(manager.isMajorityOfVotersHeardSince(200L));
+		// A late echo of an older message doesn't move us backward.
+		manager.nodeDidEchoSendTime(token1, 50L, 300L);
+		Assert.assertTrue(manager.isMajorityOfVotersHeardSince(100L));
+	}
+
+	/**
+	 * Tests that echoed send times are folded into a smoothed round-trip estimate and that only voters with samples
+	 * contribute to the largest round-trip timeout.
+	 */
+	@Test
+	public void testRoundTripSmoothing() throws Throwable {
+		DownstreamPeerManager manager = new DownstreamPeerManager(1);
+		ConfigEntry entry1 = _createEntry();
+		TestingToken token1 = new TestingToken();
+		ConfigEntry entry2 = _createEntry();
+		TestingToken token2 = new TestingToken();
+		ConfigEntry learner = new ConfigEntry(UUID.randomUUID(), null, null, true);
+		TestingToken learnerToken = new TestingToken();
+		manager.createNewPeer(entry1, token1);
+		manager.createNewPeer(entry2, token2);
+		manager.createNewPeer(learner, learnerToken);
+		
+		// Nothing measured, yet, and a slow learner doesn't count.
+		Assert.assertEquals(-1L, manager.getLargestVoterRoundTripTimeoutMillis());
+		manager.nodeDidEchoSendTime(learnerToken, 100L, 1100L);
+		Assert.assertEquals(-1L, manager.getLargestVoterRoundTripTimeoutMillis());
+		
+		// The first sample is taken directly, with half of it as variance.
+		manager.nodeDidEchoSendTime(token1, 100L, 180L);
+		Assert.assertEquals(80L + 4L * 40L, manager.getLargestVoterRoundTripTimeoutMillis());
+		// Echoing the same send time again isn't a new sample.
+		manager.nodeDidEchoSendTime(token1, 100L, 500L);
+		Assert.assertEquals(80L + 4L * 40L, manager.getLargestVoterRoundTripTimeoutMillis());
+		// A later sample moves the estimate by 1/8 and the variance by 1/4.
+		manager.nodeDidEchoSendTime(token1, 200L, 360L);
+		// variance = (3*40 + |80-160|) / 4 = 50, smoothed = (7*80 + 160) / 8 = 90.
+		Assert.assertEquals(90L + 4L * 50L, manager.getLargestVoterRoundTripTimeoutMillis());
+		
+		// A slower voter takes over.
+		manager.nodeDidEchoSendTime(token2, 100L, 400L);
+		Assert.assertEquals(300L + 4L * 150L, manager.getLargestVoterRoundTripTimeoutMillis());
+	}
+
+	/**
+	 * Tests that a peer is only ready for a COMMIT_ADVANCE when our commit offset tells it something new, limited to
+	 * what we have sent it.
+	 */
+	@Test
+	public void testCommitAdvance() throws Throwable {
+		DownstreamPeerManager manager = new DownstreamPeerManager(2);
+		ConfigEntry self = _createEntry();
+		ConfigEntry entry1 = _createEntry();
+		TestingToken token1 = new TestingToken();
+		manager.createNewPeer(entry1, token1);
+		manager.nodeDidConnect(token1).commitToSendIdentity(self, 1L);
+		manager.nodeDidHandshake(token1, 0L);
+		manager.setNodeWritable(token1);
+		
+		// Nothing committed or sent so there is nothing to tell them.
+		Assert.assertEquals(0, manager.immutablePeersReadyForCommitAdvance(0L).size());
+		Assert.assertEquals(0, manager.immutablePeersReadyForCommitAdvance(1L).size());
+		
+		// Send them 2 mutations, while we have committed nothing.
+		MutationRecord mutation1 = MutationRecord.put(1L, 1L, TopicName.fromString("fake"), UUID.randomUUID(), 1L, new byte[0], new byte[0]);
+		MutationRecord mutation2 = MutationRecord.put(1L, 2L, TopicName.fromString("fake"), UUID.randomUUID(), 2L, new byte[0], new byte[0]);
+		manager.immutablePeersReadyToReceiveMutation(1L).iterator().next().commitToSendMutations(1L, 0L, new MutationRecord[] { mutation1, mutation2 }, 0L, 1L, 500L);
+		manager.setNodeWritable(token1);
+		
+		// Committing the first is news to them.
+		ReadOnlyDownstreamPeerState peer = manager.immutablePeersReadyForCommitAdvance(1L).iterator().next();
+		Assert.assertTrue(peer.hasCommitAdvanceToSend(1L));
+		DownstreamMessage message = peer.commitToSendCommitAdvance(1L, 1L);
+		Assert.assertEquals(DownstreamMessage.Type.COMMIT_ADVANCE, message.type);
+		Assert.assertEquals(1L, ((DownstreamPayload_CommitAdvance)message.payload).lastCommittedMutationOffset);
+		manager.setNodeWritable(token1);
+		Assert.assertEquals(0, manager.immutablePeersReadyForCommitAdvance(1L).size());
+		
+		// Committing past what we sent them is limited to what they have.
+		message = manager.immutablePeersReadyForCommitAdvance(5L).iterator().next().commitToSendCommitAdvance(1L, 5L);
+		Assert.assertEquals(2L, ((DownstreamPayload_CommitAdvance)message.payload).lastCommittedMutationOffset);
+		manager.setNodeWritable(token1);
+		Assert.assertEquals(0, manager.immutablePeersReadyForCommitAdvance(5L).size());
+	}
+
 
 	private static ConfigEntry _createEntry() {
 		return new ConfigEntry(UUID.randomUUID(), null, null);
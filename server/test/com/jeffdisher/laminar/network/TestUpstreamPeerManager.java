@@ -6,6 +6,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.jeffdisher.laminar.components.NetworkManager;
+import com.jeffdisher.laminar.network.p2p.UpstreamPayload_HeartbeatAck;
+import com.jeffdisher.laminar.network.p2p.UpstreamPayload_ReceivedMutations;
 import com.jeffdisher.laminar.network.p2p.UpstreamResponse;
 import com.jeffdisher.laminar.types.ConfigEntry;
 
@@ -49,6 +51,37 @@ public class TestUpstreamPeerManager {
 		Assert.assertEquals(UpstreamResponse.Type.PEER_STATE, ack.type);
 	}
 
+	@Test
+	public void testHeartbeatAck() throws Throwable {
+		UpstreamPeerManager manager = new UpstreamPeerManager();
+		ConfigEntry entry = _createEntry();
+		TestingToken upstream = new TestingToken();
+		
+		// Connect them.
+		manager.newUpstreamConnected(upstream);
+		manager.establishPeer(entry, upstream, 3L);
+		UpstreamResponse peerState = manager.commitToSendNextMessage(upstream, false);
+		Assert.assertEquals(UpstreamResponse.Type.PEER_STATE, peerState.type);
+		manager.setNodeWritable(upstream);
+		
+		// A heartbeat, with nothing new to ack, still echoes the send time.
+		manager.didReceiveFromLeader(upstream, 100L);
+		UpstreamResponse ack = manager.commitToSendNextMessage(upstream, false);
+		Assert.assertEquals(UpstreamResponse.Type.HEARTBEAT_ACK, ack.type);
+		Assert.assertEquals(100L, ((UpstreamPayload_HeartbeatAck)ack.payload).leaderSendMillis);
+		manager.setNodeWritable(upstream);
+		Assert.assertNull(manager.commitToSendNextMessage(upstream, false));
+		
+		// A mutation is acked with the send time of the message which carried it.
+		manager.didReceiveFromLeader(upstream, 200L);
+		manager.didApplyReceivedMutation(upstream, 4L, 3L);
+		ack = manager.commitToSendNextMessage(upstream, false);
+		Assert.assertEquals(UpstreamResponse.Type.RECEIVED_MUTATIONS, ack.type);
+		Assert.assertEquals(200L, ((UpstreamPayload_ReceivedMutations)ack.payload).leaderSendMillis);
+		manager.setNodeWritable(upstream);
+		Assert.assertNull(manager.commitToSendNextMessage(upstream, false));
+	}
+
 
 	private static ConfigEntry _createEntry() {
 		return new ConfigEntry(UUID.randomUUID(), null, null);
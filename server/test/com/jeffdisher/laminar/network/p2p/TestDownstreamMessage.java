@@ -8,6 +8,7 @@ import java.util.UUID;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.jeffdisher.laminar.components.NetworkManager;
 import com.jeffdisher.laminar.network.p2p.DownstreamMessage;
 import com.jeffdisher.laminar.network.p2p.DownstreamPayload_Identity;
 import com.jeffdisher.laminar.types.ClusterConfig;
@@ -40,7 +41,9 @@ public class TestDownstreamMessage {
 		TopicName topic = TopicName.fromString("test");
 		MutationRecord mutation = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {1,2,3});
 		long lastCommittedMutationOffset = 1L;
-		DownstreamMessage message = DownstreamMessage.appendMutations(1L, 0L, mutation, lastCommittedMutationOffset);
+		long leaderSendMillis = 12345L;
+		long electionTimeoutMillis = 250L;
+		DownstreamMessage message = DownstreamMessage.appendMutations(1L, 0L, new MutationRecord[] { mutation }, lastCommittedMutationOffset, leaderSendMillis, electionTimeoutMillis);
 		int size = message.serializedSize();
 		ByteBuffer buffer = ByteBuffer.allocate(size);
 		message.serializeInto(buffer);
@@ -50,14 +53,58 @@ public class TestDownstreamMessage {
 		DownstreamPayload_AppendMutations payload = (DownstreamPayload_AppendMutations)test.payload;
 		Assert.assertEquals(1L, payload.termNumber);
 		Assert.assertEquals(lastCommittedMutationOffset, payload.lastCommittedMutationOffset);
+		Assert.assertEquals(leaderSendMillis, payload.leaderSendMillis);
+		Assert.assertEquals(electionTimeoutMillis, payload.electionTimeoutMillis);
 		Assert.assertArrayEquals(((Payload_KeyPut)mutation.payload).key, ((Payload_KeyPut)payload.records[0].payload).key);
 		Assert.assertArrayEquals(((Payload_KeyPut)mutation.payload).value, ((Payload_KeyPut)payload.records[0].payload).value);
 	}
 
+	@Test
+	public void testAppendMutationsBatch() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		MutationRecord[] mutations = new MutationRecord[DownstreamPayload_AppendMutations.MAX_RECORDS_PER_MESSAGE];
+		for (int i = 0; i < mutations.length; ++i) {
+			long offset = (long)(i + 1);
+			mutations[i] = MutationRecord.put(1L, offset, topic, clientId, offset, new byte[0], new byte[] {(byte)i});
+		}
+		long lastCommittedMutationOffset = 1L;
+		DownstreamMessage message = DownstreamMessage.appendMutations(1L, 0L, mutations, lastCommittedMutationOffset, 1L, 500L);
+		int size = message.serializedSize();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		message.serializeInto(buffer);
+		buffer.flip();
+		
+		DownstreamMessage test = DownstreamMessage.deserializeFrom(buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		DownstreamPayload_AppendMutations payload = (DownstreamPayload_AppendMutations)test.payload;
+		Assert.assertEquals(lastCommittedMutationOffset, payload.lastCommittedMutationOffset);
+		Assert.assertEquals(mutations.length, payload.records.length);
+		for (int i = 0; i < mutations.length; ++i) {
+			Assert.assertEquals(mutations[i].globalOffset, payload.records[i].globalOffset);
+			Assert.assertArrayEquals(((Payload_KeyPut)mutations[i].payload).value, ((Payload_KeyPut)payload.records[i].payload).value);
+		}
+	}
+
+	/**
+	 * A mutation as large as MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES exactly fills an APPEND_MUTATIONS message.
+	 */
+	@Test
+	public void testLargestReplicatedMutation() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		int emptySize = MutationRecord.put(1L, 1L, topic, clientId, 1L, new byte[0], new byte[0]).serializedSize();
+		MutationRecord mutation = MutationRecord.put(1L, 1L, topic, clientId, 1L, new byte[0], new byte[MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES - emptySize]);
+		Assert.assertEquals(MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES, mutation.serializedSize());
+		DownstreamMessage message = DownstreamMessage.appendMutations(1L, 0L, new MutationRecord[] { mutation }, 0L, 1L, 500L);
+		Assert.assertEquals(NetworkManager.MESSAGE_PAYLOAD_MAXIMUM_BYTES, message.serializedSize());
+	}
+
 	@Test
 	public void testHeartbeat() throws Throwable {
 		long lastCommittedMutationOffset = 1L;
-		DownstreamMessage message = DownstreamMessage.heartbeat(1L, lastCommittedMutationOffset);
+		long leaderSendMillis = 12345L;
+		DownstreamMessage message = DownstreamMessage.heartbeat(1L, lastCommittedMutationOffset, leaderSendMillis, 500L);
 		int size = message.serializedSize();
 		ByteBuffer buffer = ByteBuffer.allocate(size);
 		message.serializeInto(buffer);
@@ -67,6 +114,7 @@ public class TestDownstreamMessage {
 		DownstreamPayload_AppendMutations payload = (DownstreamPayload_AppendMutations)test.payload;
 		Assert.assertEquals(1L, payload.termNumber);
 		Assert.assertEquals(lastCommittedMutationOffset, payload.lastCommittedMutationOffset);
+		Assert.assertEquals(leaderSendMillis, payload.leaderSendMillis);
 		Assert.assertEquals(0, payload.records.length);
 	}
 
@@ -75,7 +123,9 @@ public class TestDownstreamMessage {
 		long newTermNumber = 2L;
 		long previousMutationTerm = 1L;
 		long previousMuationOffset = 3L;
-		DownstreamMessage message = DownstreamMessage.requestVotes(newTermNumber, previousMutationTerm, previousMuationOffset);
+		boolean isPreVote = true;
+		boolean isLeadershipTransfer = false;
+		DownstreamMessage message = DownstreamMessage.requestVotes(newTermNumber, previousMutationTerm, previousMuationOffset, isPreVote, isLeadershipTransfer);
 		int size = message.serializedSize();
 		ByteBuffer buffer = ByteBuffer.allocate(size);
 		message.serializeInto(buffer);
@@ -86,5 +136,40 @@ public class TestDownstreamMessage {
 		Assert.assertEquals(newTermNumber, payload.newTermNumber);
 		Assert.assertEquals(previousMutationTerm, payload.previousMutationTerm);
 		Assert.assertEquals(previousMuationOffset, payload.previousMuationOffset);
+		Assert.assertEquals(isPreVote, payload.isPreVote);
+		Assert.assertEquals(isLeadershipTransfer, payload.isLeadershipTransfer);
+	}
+
+	@Test
+	public void testTimeoutNow() throws Throwable {
+		long termNumber = 3L;
+		DownstreamMessage message = DownstreamMessage.timeoutNow(termNumber);
+		int size = message.serializedSize();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		message.serializeInto(buffer);
+		buffer.flip();
+		
+		DownstreamMessage test = DownstreamMessage.deserializeFrom(buffer);
+		Assert.assertEquals(DownstreamMessage.Type.TIMEOUT_NOW, test.type);
+		Assert.assertEquals(termNumber, ((DownstreamPayload_TimeoutNow)test.payload).termNumber);
+	}
+
+	@Test
+	public void testCommitAdvance() throws Throwable {
+		long termNumber = 2L;
+		long lastCommittedMutationOffset = 5L;
+		DownstreamMessage message = DownstreamMessage.commitAdvance(termNumber, lastCommittedMutationOffset);
+		int size = message.serializedSize();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		message.serializeInto(buffer);
+		buffer.flip();
+		
+		DownstreamMessage test = DownstreamMessage.deserializeFrom(buffer);
+		Assert.assertEquals(DownstreamMessage.Type.COMMIT_ADVANCE, test.type);
+		DownstreamPayload_CommitAdvance payload = (DownstreamPayload_CommitAdvance)test.payload;
+		Assert.assertEquals(termNumber, payload.termNumber);
+		Assert.assertEquals(lastCommittedMutationOffset, payload.lastCommittedMutationOffset);
+		// This should be much smaller than even an empty APPEND_MUTATIONS.
+		Assert.assertTrue(size < DownstreamMessage.heartbeat(termNumber, lastCommittedMutationOffset, 1L, 500L).serializedSize());
 	}
 }
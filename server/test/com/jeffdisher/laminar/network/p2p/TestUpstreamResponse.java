@@ -27,7 +27,8 @@ public class TestUpstreamResponse {
 	@Test
 	public void testReceivedMutations() throws Throwable {
 		long lastReceivedMutationOffset = 10001L;
-		UpstreamResponse response = UpstreamResponse.receivedMutations(lastReceivedMutationOffset);
+		long leaderSendMillis = 12345L;
+		UpstreamResponse response = UpstreamResponse.receivedMutations(lastReceivedMutationOffset, leaderSendMillis);
 		int size = response.serializedSize();
 		ByteBuffer buffer = ByteBuffer.allocate(size);
 		response.serializeInto(buffer);
@@ -36,12 +37,14 @@ public class TestUpstreamResponse {
 		UpstreamResponse test = UpstreamResponse.deserializeFrom(buffer);
 		UpstreamPayload_ReceivedMutations payload = (UpstreamPayload_ReceivedMutations)test.payload;
 		Assert.assertEquals(lastReceivedMutationOffset, payload.lastReceivedMutationOffset);
+		Assert.assertEquals(leaderSendMillis, payload.leaderSendMillis);
 	}
 
 	@Test
 	public void testCastVote() throws Throwable {
 		long termNumber = 2L;
-		UpstreamResponse response = UpstreamResponse.castVote(termNumber);
+		boolean isPreVote = true;
+		UpstreamResponse response = UpstreamResponse.castVote(termNumber, isPreVote);
 		int size = response.serializedSize();
 		ByteBuffer buffer = ByteBuffer.allocate(size);
 		response.serializeInto(buffer);
@@ -50,5 +53,21 @@ public class TestUpstreamResponse {
 		UpstreamResponse test = UpstreamResponse.deserializeFrom(buffer);
 		UpstreamPayload_CastVote payload = (UpstreamPayload_CastVote)test.payload;
 		Assert.assertEquals(termNumber, payload.termNumber);
+		Assert.assertEquals(isPreVote, payload.isPreVote);
+	}
+
+	@Test
+	public void testHeartbeatAck() throws Throwable {
+		long leaderSendMillis = 12345L;
+		UpstreamResponse response = UpstreamResponse.heartbeatAck(leaderSendMillis);
+		int size = response.serializedSize();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		response.serializeInto(buffer);
+		buffer.flip();
+		
+		UpstreamResponse test = UpstreamResponse.deserializeFrom(buffer);
+		Assert.assertEquals(UpstreamResponse.Type.HEARTBEAT_ACK, test.type);
+		UpstreamPayload_HeartbeatAck payload = (UpstreamPayload_HeartbeatAck)test.payload;
+		Assert.assertEquals(leaderSendMillis, payload.leaderSendMillis);
 	}
 }
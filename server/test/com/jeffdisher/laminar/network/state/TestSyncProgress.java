@@ -85,6 +85,30 @@ public class TestSyncProgress {
 		Assert.assertFalse(progress.isElectedInTerm(6L));
 	}
 
+	@Test
+	public void testLearnersIgnored() throws Throwable {
+		// 2 voters and 2 learners:  only the voters are given to the progress and only they count.
+		ConfigEntry[] entries = new ConfigEntry[] {
+				new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(1000), new InetSocketAddress(1001)),
+				new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(1002), new InetSocketAddress(1003)),
+				new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(1004), new InetSocketAddress(1005), true),
+				new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(1006), new InetSocketAddress(1007), true),
+		};
+		ClusterConfig config = ClusterConfig.configFromEntries(entries);
+		Assert.assertEquals(2, config.voterCount);
+		DownstreamPeerSyncState state1 = new DownstreamPeerSyncState(entries[0]);
+		DownstreamPeerSyncState state2 = new DownstreamPeerSyncState(entries[1]);
+		SyncProgress progress = new SyncProgress(config, new HashSet<>(Arrays.asList(state1, state2)));
+		state1.lastMutationOffsetReceived = 10L;
+		Assert.assertEquals(0L, progress.checkCurrentProgress());
+		state2.lastMutationOffsetReceived = 10L;
+		Assert.assertEquals(10L, progress.checkCurrentProgress());
+		state1.termOfLastCastVote = 2L;
+		Assert.assertFalse(progress.isElectedInTerm(2L));
+		state2.termOfLastCastVote = 2L;
+		Assert.assertTrue(progress.isElectedInTerm(2L));
+	}
+
 
 	private static ClusterConfig _buildConfig(int size) {
 		ConfigEntry[] entries = new ConfigEntry[size];
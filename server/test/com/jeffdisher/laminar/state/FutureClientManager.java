@@ -1,5 +1,7 @@
 package com.jeffdisher.laminar.state;
 
+import java.util.UUID;
+
 import org.junit.Assert;
 
 import com.jeffdisher.laminar.disk.CommittedMutationRecord;
@@ -7,6 +9,7 @@ import com.jeffdisher.laminar.network.IClientManager;
 import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 
 
@@ -17,6 +20,9 @@ import com.jeffdisher.laminar.types.event.EventRecord;
 public class FutureClientManager implements IClientManager {
 	private F<Long> f_mainEnterFollowerState;
 	private F<Long> f_mainProcessingPendingMessageCommits;
+	private F<Long> f_mainFollowerCommitLagDidChange;
+	private F<TopicState> f_mainSendTopicState;
+	private F<byte[]> f_mainSendValue;
 
 	public F<Long> get_mainEnterFollowerState() {
 		Assert.assertNull(f_mainEnterFollowerState);
@@ -30,6 +36,24 @@ public class FutureClientManager implements IClientManager {
 		return f_mainProcessingPendingMessageCommits;
 	}
 
+	public F<Long> get_mainFollowerCommitLagDidChange() {
+		Assert.assertNull(f_mainFollowerCommitLagDidChange);
+		f_mainFollowerCommitLagDidChange = new F<Long>();
+		return f_mainFollowerCommitLagDidChange;
+	}
+
+	public F<TopicState> get_mainSendTopicState() {
+		Assert.assertNull(f_mainSendTopicState);
+		f_mainSendTopicState = new F<TopicState>();
+		return f_mainSendTopicState;
+	}
+
+	public F<byte[]> get_mainSendValue() {
+		Assert.assertNull(f_mainSendValue);
+		f_mainSendValue = new F<byte[]>();
+		return f_mainSendValue;
+	}
+
 	@Override
 	public void mainDisconnectAllClientsAndListeners() {
 		System.out.println("IClientManager - mainDisconnectAllClientsAndListeners");
@@ -73,4 +97,44 @@ public class FutureClientManager implements IClientManager {
 	public void mainEnterCandidateState() {
 		System.out.println("IClientManager - mainEnterCandidateState");
 	}
+
+	@Override
+	public void mainFollowerCommitLagDidChange(long mutationsBehindLeader) {
+		if (null != f_mainFollowerCommitLagDidChange) {
+			f_mainFollowerCommitLagDidChange.put(mutationsBehindLeader);
+			f_mainFollowerCommitLagDidChange = f_mainFollowerCommitLagDidChange.nextLink;
+		} else {
+			System.out.println("IClientManager - mainFollowerCommitLagDidChange");
+		}
+	}
+
+	@Override
+	public void mainSendTopicState(UUID clientId, long readId, long lastCommittedMutationOffset, TopicState state) {
+		if (null != f_mainSendTopicState) {
+			f_mainSendTopicState.put(state);
+			f_mainSendTopicState = f_mainSendTopicState.nextLink;
+		} else {
+			System.out.println("IClientManager - mainSendTopicState");
+		}
+	}
+
+	@Override
+	public void mainSendValue(UUID clientId, long readId, long lastCommittedMutationOffset, byte[] value) {
+		if (null != f_mainSendValue) {
+			f_mainSendValue.put(value);
+			f_mainSendValue = f_mainSendValue.nextLink;
+		} else {
+			System.out.println("IClientManager - mainSendValue");
+		}
+	}
+
+	@Override
+	public void mainStartBatch() {
+		// This is called around every command so we don't log it.
+	}
+
+	@Override
+	public void mainFlushBatch() {
+		// This is called around every command so we don't log it.
+	}
 }
@@ -19,6 +19,14 @@ public class FutureClusterManager implements IClusterManager {
 	private F<ConfigEntry> f_mainCloseDownstreamConnection;
 	private F<Void> f_mainEnterLeaderState;
 	private F<Long> f_mainEnterCandidateState;
+	private F<Long> f_mainStartPreVote;
+	private F<ConfigEntry> f_mainSendTimeoutNow;
+	// Set to the isLeadershipTransfer flag of the most recent mainEnterCandidateState call.
+	public boolean lastCandidateWasLeadershipTransfer;
+	// Tests can revoke this to check how reads behave when the leader can't prove it is still leader.
+	public boolean hasLeaderLease = true;
+	// The election timeout we report (tests only use it to bound how long a leadership transfer waits).
+	public long electionTimeoutMillis = 500L;
 
 	public F<Void> get_mainEnterFollowerState() {
 		Assert.assertNull(f_mainEnterFollowerState);
@@ -72,6 +80,18 @@ public class FutureClusterManager implements IClusterManager {
 		return f_mainEnterLeaderState;
 	}
 
+	public F<ConfigEntry> get_mainSendTimeoutNow() {
+		Assert.assertNull(f_mainSendTimeoutNow);
+		f_mainSendTimeoutNow = new F<ConfigEntry>();
+		return f_mainSendTimeoutNow;
+	}
+
+	public F<Long> get_mainStartPreVote() {
+		Assert.assertNull(f_mainStartPreVote);
+		f_mainStartPreVote = new F<Long>();
+		return f_mainStartPreVote;
+	}
+
 	public F<Long> get_mainEnterCandidateState() {
 		Assert.assertNull(f_mainEnterCandidateState);
 		f_mainEnterCandidateState = new F<>();
@@ -112,6 +132,10 @@ public class FutureClusterManager implements IClusterManager {
 		return false;
 	}
 	@Override
+	public void mainCommittedMutationsWereFetched(StateSnapshot snapshot, long previousMutationTermNumber, MutationRecord[] mutations) {
+		System.out.println("IClusterManager - mainCommittedMutationsWereFetched");
+	}
+	@Override
 	public void mainOpenDownstreamConnection(ConfigEntry entry) {
 		if (null != f_mainOpenDownstreamConnection) {
 			f_mainOpenDownstreamConnection.put(entry);
@@ -140,7 +164,8 @@ public class FutureClusterManager implements IClusterManager {
 	}
 
 	@Override
-	public void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMuationOffset) {
+	public void mainEnterCandidateState(long newTermNumber, long previousMutationTerm, long previousMuationOffset, boolean isLeadershipTransfer) {
+		this.lastCandidateWasLeadershipTransfer = isLeadershipTransfer;
 		if (null != f_mainEnterCandidateState) {
 			f_mainEnterCandidateState.put(newTermNumber);
 			f_mainEnterCandidateState = f_mainEnterCandidateState.nextLink;
@@ -148,4 +173,45 @@ public class FutureClusterManager implements IClusterManager {
 			System.out.println("IClusterManager - mainEnterCandidateState");
 		}
 	}
+
+	@Override
+	public void mainStartPreVote(long proposedTermNumber, long previousMutationTerm, long previousMutationOffset) {
+		if (null != f_mainStartPreVote) {
+			f_mainStartPreVote.put(proposedTermNumber);
+			f_mainStartPreVote = f_mainStartPreVote.nextLink;
+		} else {
+			System.out.println("IClusterManager - mainStartPreVote");
+		}
+	}
+
+	@Override
+	public boolean mainHasLeaderLease() {
+		return this.hasLeaderLease;
+	}
+
+	@Override
+	public long mainGetElectionTimeoutMillis() {
+		return this.electionTimeoutMillis;
+	}
+
+	@Override
+	public boolean mainSendTimeoutNow(ConfigEntry target, long currentTermNumber) {
+		if (null != f_mainSendTimeoutNow) {
+			f_mainSendTimeoutNow.put(target);
+			f_mainSendTimeoutNow = f_mainSendTimeoutNow.nextLink;
+		} else {
+			System.out.println("IClusterManager - mainSendTimeoutNow");
+		}
+		return true;
+	}
+
+	@Override
+	public void mainStartBatch() {
+		// This is called around every command so we don't log it.
+	}
+
+	@Override
+	public void mainFlushBatch() {
+		// This is called around every command so we don't log it.
+	}
 }
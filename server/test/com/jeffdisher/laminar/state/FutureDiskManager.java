@@ -6,6 +6,7 @@ import com.jeffdisher.laminar.disk.CommittedMutationRecord;
 import com.jeffdisher.laminar.disk.IDiskManager;
 import com.jeffdisher.laminar.types.TopicName;
 import com.jeffdisher.laminar.types.event.EventRecord;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
 
 
 /**
@@ -13,9 +14,24 @@ import com.jeffdisher.laminar.types.event.EventRecord;
  * given.
  */
 public class FutureDiskManager implements IDiskManager {
+	private F<MutationRecord> f_appendMutation;
 	private F<CommittedMutationRecord> f_commitMutation;
 	private F<EventRecord> f_commitEvent;
 
+	public F<MutationRecord> get_appendMutation() {
+		F<MutationRecord> future = new F<>();
+		if (null != f_appendMutation) {
+			F<MutationRecord> stem = f_appendMutation;
+			while (null != stem.nextLink) {
+				stem = stem.nextLink;
+			}
+			stem.nextLink = future;
+		} else {
+			f_appendMutation = future;
+		}
+		return future;
+	}
+
 	public F<CommittedMutationRecord> get_commitMutation() {
 		F<CommittedMutationRecord> future = new F<>();
 		if (null != f_commitMutation) {
@@ -41,10 +57,23 @@ public class FutureDiskManager implements IDiskManager {
 		System.out.println("IDiskManager - fetchMutation");
 	}
 	@Override
+	public void fetchMutationRange(long firstMutationOffset, int maxCount) {
+		System.out.println("IDiskManager - fetchMutationRange");
+	}
+	@Override
 	public void fetchEvent(TopicName topic, long eventToFetch) {
 		System.out.println("IDiskManager - fetchEvent");
 	}
 	@Override
+	public void appendMutation(MutationRecord mutation) {
+		if (null != f_appendMutation) {
+			f_appendMutation.put(mutation);
+			f_appendMutation = f_appendMutation.nextLink;
+		} else {
+			System.out.println("IDiskManager - appendMutation");
+		}
+	}
+	@Override
 	public void commitMutation(CommittedMutationRecord mutation) {
 		if (null != f_commitMutation) {
 			f_commitMutation.put(mutation);
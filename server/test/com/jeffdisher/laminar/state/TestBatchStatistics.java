@@ -0,0 +1,33 @@
+package com.jeffdisher.laminar.state;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for BatchStatistics.
+ */
+public class TestBatchStatistics {
+	@Test
+	public void testEmpty() throws Throwable {
+		BatchStatistics statistics = new BatchStatistics();
+		Assert.assertEquals(0L, statistics.getBatchCount());
+		Assert.assertEquals(0.0, statistics.getAverageCommandsPerBatch(), 0.0);
+		Assert.assertEquals(0L, statistics.getAverageBatchMicros());
+	}
+
+	@Test
+	public void testAccumulate() throws Throwable {
+		BatchStatistics statistics = new BatchStatistics();
+		statistics.recordBatch(1, 2_000L);
+		statistics.recordBatch(5, 10_000L);
+		statistics.recordBatch(3, 3_000L);
+		Assert.assertEquals(3L, statistics.getBatchCount());
+		Assert.assertEquals(9L, statistics.getCommandCount());
+		Assert.assertEquals(5, statistics.getLargestBatchCommands());
+		Assert.assertEquals(3.0, statistics.getAverageCommandsPerBatch(), 0.0);
+		Assert.assertEquals(5L, statistics.getAverageBatchMicros());
+		Assert.assertEquals(10L, statistics.getLongestBatchMicros());
+		Assert.assertEquals("Batches=3, commands=9, commands/batch=3.00 (max 5), time/batch=5 us (max 10 us)", statistics.toString());
+	}
+}
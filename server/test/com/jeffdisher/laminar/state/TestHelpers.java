@@ -0,0 +1,38 @@
+package com.jeffdisher.laminar.state;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.message.ClientMessage;
+import com.jeffdisher.laminar.types.mutation.MutationRecord;
+import com.jeffdisher.laminar.types.mutation.MutationRecordType;
+
+
+public class TestHelpers {
+	/**
+	 * A message whose mutation is as large as can be replicated is converted normally but one which is a byte larger
+	 * becomes a REJECTED mutation (which still has its offset and nonce, so the client gets its commit).
+	 */
+	@Test
+	public void testRejectTooLargeToReplicate() throws Throwable {
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		byte[][] keys = new byte[][] { new byte[0] };
+		int emptySize = Helpers.convertClientMessageToMutation(ClientMessage.batch(1L, topic, keys, new byte[][] { new byte[0] }), 1L, clientId, 1L).serializedSize();
+		int largestValue = MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES - emptySize;
+		
+		MutationRecord largest = Helpers.convertClientMessageToMutation(ClientMessage.batch(1L, topic, keys, new byte[][] { new byte[largestValue] }), 1L, clientId, 1L);
+		Assert.assertEquals(MutationRecordType.BATCH, largest.type);
+		Assert.assertEquals(MutationRecord.MAX_REPLICATED_SERIALIZED_BYTES, largest.serializedSize());
+		
+		MutationRecord rejected = Helpers.convertClientMessageToMutation(ClientMessage.batch(2L, topic, keys, new byte[][] { new byte[largestValue + 1] }), 1L, clientId, 2L);
+		Assert.assertEquals(MutationRecordType.REJECTED, rejected.type);
+		Assert.assertEquals(2L, rejected.globalOffset);
+		Assert.assertEquals(clientId, rejected.clientId);
+		Assert.assertEquals(2L, rejected.clientNonce);
+		Assert.assertEquals(MutationRecordType.REJECTED, MutationRecord.deserialize(rejected.serialize()).type);
+	}
+}
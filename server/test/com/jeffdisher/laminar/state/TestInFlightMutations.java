@@ -118,4 +118,76 @@ public class TestInFlightMutations {
 		Assert.assertTrue(mutations.isEmpty());
 		Assert.assertEquals(1L, mutations.getNextMutationOffset());
 	}
+
+	@Test
+	public void testFirstOffsetOfLastTerm() throws Throwable {
+		InFlightMutations mutations = new InFlightMutations();
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		byte[] key = new byte[0];
+		byte[] value = new byte[0];
+		
+		mutations.add(MutationRecord.put(1L, 1L, topic, clientId, 1L, key, value));
+		Assert.assertEquals(1L, mutations.getFirstOffsetOfLastTerm());
+		mutations.add(MutationRecord.put(2L, 2L, topic, clientId, 2L, key, value));
+		mutations.add(MutationRecord.put(2L, 3L, topic, clientId, 3L, key, value));
+		mutations.add(MutationRecord.put(2L, 4L, topic, clientId, 4L, key, value));
+		Assert.assertEquals(2L, mutations.getFirstOffsetOfLastTerm());
+		
+		// The search stops at the front of the in-flight list, even if earlier committed mutations had the same term.
+		Assert.assertNotNull(mutations.removeFirstElementLessThanOrEqualTo(1L));
+		Assert.assertNotNull(mutations.removeFirstElementLessThanOrEqualTo(2L));
+		Assert.assertEquals(3L, mutations.getFirstOffsetOfLastTerm());
+	}
+
+	@Test
+	public void testRingWrapAndGrowth() throws Throwable {
+		InFlightMutations mutations = new InFlightMutations();
+		TopicName topic = TopicName.fromString("test");
+		UUID clientId = UUID.randomUUID();
+		byte[] key = new byte[0];
+		byte[] value = new byte[0];
+		
+		// Keep a small window in-flight while moving the head around the ring a few times.
+		long nextOffset = 1L;
+		for (int i = 0; i < 10; ++i) {
+			mutations.add(MutationRecord.put(1L, nextOffset, topic, clientId, nextOffset, key, value));
+			nextOffset += 1;
+		}
+		for (long committed = 1L; committed <= 40L; ++committed) {
+			Assert.assertEquals(committed, mutations.removeFirstElementLessThanOrEqualTo(committed).globalOffset);
+			mutations.add(MutationRecord.put(1L, nextOffset, topic, clientId, nextOffset, key, value));
+			nextOffset += 1;
+		}
+		// Now, grow it past the initial capacity, while the head is in the middle of the ring, with a term change.
+		for (int i = 0; i < 50; ++i) {
+			mutations.add(MutationRecord.put(2L, nextOffset, topic, clientId, nextOffset, key, value));
+			nextOffset += 1;
+		}
+		Assert.assertEquals(nextOffset, mutations.getNextMutationOffset());
+		Assert.assertNull(mutations.getMutationAtOffset(40L));
+		for (long offset = 41L; offset < nextOffset; ++offset) {
+			Assert.assertEquals(offset, mutations.getMutationAtOffset(offset).globalOffset);
+		}
+		Assert.assertEquals(2L, mutations.getLastTermNumber());
+		Assert.assertEquals(51L, mutations.getFirstOffsetOfLastTerm());
+		Assert.assertFalse(mutations.canCommitUpToMutation(50L, 2L));
+		Assert.assertTrue(mutations.canCommitUpToMutation(51L, 2L));
+		Assert.assertTrue(mutations.canCommitUpToMutation(41L, 1L));
+		
+		// Truncating the whole term 2 run exposes the term 1 run again.
+		for (long offset = nextOffset - 1; offset >= 51L; --offset) {
+			Assert.assertEquals(offset, mutations.removeLastElementGreaterThanOrEqualTo(51L).globalOffset);
+		}
+		Assert.assertNull(mutations.removeLastElementGreaterThanOrEqualTo(51L));
+		Assert.assertEquals(51L, mutations.getNextMutationOffset());
+		Assert.assertEquals(1L, mutations.getLastTermNumber());
+		Assert.assertEquals(41L, mutations.getFirstOffsetOfLastTerm());
+		Assert.assertFalse(mutations.canCommitUpToMutation(50L, 2L));
+		
+		// Committing the first mutation of the run moves the start of the run.
+		Assert.assertEquals(41L, mutations.removeFirstElementLessThanOrEqualTo(41L).globalOffset);
+		Assert.assertEquals(42L, mutations.getFirstOffsetOfLastTerm());
+		Assert.assertTrue(mutations.canCommitUpToMutation(42L, 1L));
+	}
 }
@@ -15,6 +15,7 @@ import com.jeffdisher.laminar.types.ClusterConfig;
 import com.jeffdisher.laminar.types.CommitInfo;
 import com.jeffdisher.laminar.types.ConfigEntry;
 import com.jeffdisher.laminar.types.TopicName;
+import com.jeffdisher.laminar.types.TopicState;
 import com.jeffdisher.laminar.types.event.EventRecord;
 import com.jeffdisher.laminar.types.message.ClientMessage;
 import com.jeffdisher.laminar.types.mutation.MutationRecord;
@@ -50,17 +51,24 @@ public class TestNodeState {
 		test.startLatch.await();
 		Runner runner = new Runner(test.nodeState);
 		
-		// Register the topic and say it was committed.
+		// Register the topic and say it was appended and committed.
+		F<MutationRecord> preAppend = test.diskManager.get_appendMutation();
 		F<CommittedMutationRecord> preMutation = test.diskManager.get_commitMutation();
 		long mutationNumber = runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.createTopic(1L, topic, new byte[0], new byte[0])));
 		Assert.assertEquals(1L, mutationNumber);
+		// (we are the only node so nothing can commit until our own append is durable).
+		Assert.assertFalse(preMutation.pollDidCall());
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(preAppend.get()));
 		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(preMutation.get()));
 		
 		// Send the ClientMessage.
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
 		F<CommittedMutationRecord> mutation = test.diskManager.get_commitMutation();
 		F<EventRecord> event = test.diskManager.get_commitEvent();
 		mutationNumber = runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.put(2L, topic, new byte[0], new byte[] {1})));
 		Assert.assertEquals(2L, mutationNumber);
+		Assert.assertEquals(mutationNumber, append.get().globalOffset);
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
 		Assert.assertEquals(mutationNumber, mutation.get().record.globalOffset);
 		Assert.assertEquals(mutationNumber, event.get().globalOffset);
 		
@@ -76,6 +84,75 @@ public class TestNodeState {
 		test.join();
 	}
 
+	/**
+	 * Tests that a READ_TOPIC_STATE is answered from the executed state while we hold the leader lease and is held until
+	 * the lease is renewed, otherwise.
+	 */
+	@Test
+	public void testLeaseRead() throws Throwable {
+		TopicName topic = TopicName.fromString("fake");
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		
+		// Create the topic and commit it.
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.createTopic(1L, topic, new byte[0], new byte[0])));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
+		
+		// We hold the lease so this is answered immediately.
+		F<TopicState> read = test.clientManager.get_mainSendTopicState();
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleReadOnlyClientMessage(UUID.randomUUID(), ClientMessage.readTopicState(1L, topic)));
+		Assert.assertTrue(read.get().isActive);
+		// (the creation is the first event in the topic).
+		Assert.assertEquals(1L, read.get().lastEventLocalOffset);
+		
+		// Without the lease, the read waits until it is renewed.
+		test.clusterManager.hasLeaderLease = false;
+		F<TopicState> waiting = test.clientManager.get_mainSendTopicState();
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleReadOnlyClientMessage(UUID.randomUUID(), ClientMessage.readTopicState(2L, TopicName.fromString("missing"))));
+		Assert.assertFalse(waiting.pollDidCall());
+		test.clusterManager.hasLeaderLease = true;
+		runner.runVoid((snapshot) -> test.nodeState.mainLeaderLeaseWasRenewed());
+		Assert.assertFalse(waiting.get().isActive);
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
+	/**
+	 * Tests that a GET is answered from the materialized view of the topic, once the PUT has committed.
+	 */
+	@Test
+	public void testLeaseGet() throws Throwable {
+		TopicName topic = TopicName.fromString("fake");
+		byte[] key = new byte[] {1};
+		byte[] value = new byte[] {2};
+		UUID clientId = UUID.randomUUID();
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		
+		// Create the topic and put the key, committing both.
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(clientId, ClientMessage.createTopic(1L, topic, new byte[0], new byte[0])));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
+		F<MutationRecord> appendPut = test.diskManager.get_appendMutation();
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(clientId, ClientMessage.put(2L, topic, key, value)));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(appendPut.get()));
+		
+		F<byte[]> read = test.clientManager.get_mainSendValue();
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleReadOnlyClientMessage(clientId, ClientMessage.get(1L, topic, key)));
+		Assert.assertArrayEquals(value, read.get());
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
 	/**
 	 * Tests that in-flight messages with a mismatching term number are removed and the sync state is restarted when
 	 * they are detected.
@@ -121,6 +198,43 @@ public class TestNodeState {
 		test.join();
 	}
 
+	/**
+	 * Tests that a term mismatch asks the leader to rewind to the start of the conflicting term, in one step, instead of
+	 * walking back one mutation at a time.
+	 */
+	@Test
+	public void testRewindWholeTermOnMismatch() throws Throwable {
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		TopicName topic = TopicName.fromString("fake");
+		ConfigEntry upstream1 = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
+		ConfigEntry upstream2 = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(5), new InetSocketAddress(6));
+		MutationRecord record1 = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {1});
+		MutationRecord record2 = MutationRecord.put(2L, 2L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {2});
+		MutationRecord record3 = MutationRecord.put(2L, 3L, topic, UUID.randomUUID(), 2, new byte[0], new byte[] {3});
+		MutationRecord record4 = MutationRecord.put(2L, 4L, topic, UUID.randomUUID(), 3, new byte[0], new byte[] {4});
+		
+		// Receive the first leader's mutations:  1 in term 1 and 3 in term 2.
+		Assert.assertEquals(2L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream1, 2L, 0L, record1)).longValue());
+		Assert.assertEquals(3L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream1, 2L, 1L, record2)).longValue());
+		Assert.assertEquals(4L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream1, 2L, 2L, record3)).longValue());
+		Assert.assertEquals(5L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream1, 2L, 2L, record4)).longValue());
+		
+		// A new leader, in term 3, never saw term 2 so its mutation 5 follows a term 3 mutation:  we skip all of term 2.
+		MutationRecord record5 = MutationRecord.put(3L, 5L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {5});
+		Assert.assertEquals(2L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream2, 3L, 3L, record5)).longValue());
+		
+		// Their mutation 2 does match our term 1 mutation so it is applied, replacing everything we had from term 2.
+		MutationRecord record2_fix = MutationRecord.put(3L, 2L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {6});
+		Assert.assertEquals(3L, runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(upstream2, 3L, 1L, record2_fix)).longValue());
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
 	/**
 	 * Tests that a leader will not commit mutations from a previous term until it can commit something from its current
 	 * term.
@@ -150,7 +264,9 @@ public class TestNodeState {
 		MutationRecord tempRecord = MutationRecord.put(1L, 2L, topic, UUID.randomUUID(), 1L, new byte[0], new byte[] {1});
 		nextToLoad = runner.run((snapshot) -> nodeState.mainAppendMutationFromUpstream(upstreamEntry, 1L, 1L, tempRecord));
 		Assert.assertEquals(tempRecord.globalOffset + 1, nextToLoad);
-		// Tell it the first mutation committed (meaning that config will be active).
+		// Tell it that both mutations were appended to its log and the first one committed (meaning that config will be active).
+		runner.runVoid((snapshot) -> nodeState.mainMutationWasAppended(configChangeRecord));
+		runner.runVoid((snapshot) -> nodeState.mainMutationWasAppended(tempRecord));
 		runner.runVoid((snapshot) -> nodeState.mainCommittedMutationOffsetFromUpstream(upstreamEntry, 1L, 1L));
 		
 		// <election>
@@ -165,7 +281,7 @@ public class TestNodeState {
 		// </election>
 		
 		// Ask it to send the remaining mutation downstream.
-		IClusterManagerCallbacks.MutationWrapper wrapper = runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(2L));
+		IClusterManagerCallbacks.MutationWrapper wrapper = runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(2L, 1));
 		Assert.assertNotNull(wrapper);
 		// Send it the ack for the mutation.
 		runner.runVoid((snapshot) -> nodeState.mainReceivedAckFromDownstream(upstreamEntry, 2L));
@@ -174,10 +290,12 @@ public class TestNodeState {
 		Assert.assertEquals(tempRecord, mutation);
 		// Create new mutation (3).
 		ClientMessage newTemp = ClientMessage.put(1L, TopicName.fromString("fake"), new byte[0], new byte[]{2});
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
 		long mutationOffset = runner.run((snapshot) -> nodeState.mainHandleValidClientMessage(UUID.randomUUID(), newTemp));
 		Assert.assertEquals(3L, mutationOffset);
+		runner.runVoid((snapshot) -> nodeState.mainMutationWasAppended(append.get()));
 		// Ask it to send the new mutation downstream.
-		wrapper = runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(3L));
+		wrapper = runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(3L, 1));
 		Assert.assertEquals(1L, wrapper.previousMutationTermNumber);
 		Assert.assertEquals(2L, wrapper.record.termNumber);
 		// Send it the ack for the new mutation (this causes it to immediately commit mutations 2 and 3).
@@ -188,9 +306,9 @@ public class TestNodeState {
 		Assert.assertEquals(3L, commit2.get().record.globalOffset);
 		
 		// Verify all mutations are committed.
-		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(1L)));
-		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(2L)));
-		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(3L)));
+		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(1L, 1)));
+		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(2L, 1)));
+		Assert.assertNull(runner.run((snapshot) -> nodeState.mainClusterFetchMutationIfAvailable(3L, 1)));
 		
 		// Stop.
 		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
@@ -231,10 +349,14 @@ public class TestNodeState {
 		ConfigEntry upstreamEntry1 = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
 		ClusterConfig newConfig = ClusterConfig.configFromEntries(new ConfigEntry[] {originalEntry, upstreamEntry1});
 		
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
 		F<CommittedMutationRecord> commit = test.diskManager.get_commitMutation();
 		long mutationNumber = runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.updateConfig(1L, newConfig)));
 		Assert.assertEquals(1L, mutationNumber);
+		// (the downstream ack alone isn't a majority:  we also need our own append to be durable).
 		runner.runVoid((snapshot) -> test.nodeState.mainReceivedAckFromDownstream(upstreamEntry1, 1L));
+		Assert.assertFalse(commit.pollDidCall());
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
 		Assert.assertEquals(1L, commit.get().record.globalOffset);
 		
 		// Synthesize a call for an election from a peer behind us and verify that this causes us to start an election.
@@ -247,6 +369,219 @@ public class TestNodeState {
 		test.join();
 	}
 
+	/**
+	 * Tests that a leader timeout only starts a pre-vote and that the election is only started once a majority would
+	 * vote for us.  Also checks that answering a pre-vote doesn't change our own state.
+	 */
+	@Test
+	public void testPreVoteBeforeElection() throws Throwable {
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		NodeState nodeState = test.nodeState;
+		Runner runner = new Runner(nodeState);
+		
+		// Commit a 2-node config so we have a peer.
+		ConfigEntry originalEntry = test.initialConfig.entries[0];
+		ConfigEntry peer = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
+		ClusterConfig newConfig = ClusterConfig.configFromEntries(new ConfigEntry[] {originalEntry, peer});
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
+		F<CommittedMutationRecord> commit = test.diskManager.get_commitMutation();
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.updateConfig(1L, newConfig)));
+		runner.runVoid((snapshot) -> test.nodeState.mainReceivedAckFromDownstream(peer, 1L));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(commit.get()));
+		
+		// Vote for the peer in term 2 so we are a FOLLOWER.
+		Assert.assertTrue(runner.run((snapshot) -> nodeState.mainReceivedRequestForVotes(peer, 2L, 1L, 1L)));
+		
+		// We won't pre-vote for a stale peer but will for a current one, without starting an election of our own.
+		F<Long> startElection = test.clusterManager.get_mainEnterCandidateState();
+		Assert.assertFalse(runner.run((snapshot) -> nodeState.mainReceivedRequestForPreVote(peer, 3L, 0L, 0L)));
+		Assert.assertTrue(runner.run((snapshot) -> nodeState.mainReceivedRequestForPreVote(peer, 3L, 1L, 1L)));
+		Assert.assertFalse(startElection.pollDidCall());
+		
+		// A timeout starts a pre-vote for the next term, but not the election.
+		F<Long> preVote = test.clusterManager.get_mainStartPreVote();
+		runner.runVoid((snapshot) -> nodeState.mainUpstreamMessageDidTimeout());
+		Assert.assertEquals(3L, preVote.get().longValue());
+		Assert.assertFalse(startElection.pollDidCall());
+		
+		// A pre-vote for some other term is ignored but the peer's pre-vote for this one is a majority so we start.
+		runner.runVoid((snapshot) -> nodeState.mainReceivedPreVoteFromPeer(peer, 2L));
+		Assert.assertFalse(startElection.pollDidCall());
+		runner.runVoid((snapshot) -> nodeState.mainReceivedPreVoteFromPeer(peer, 3L));
+		Assert.assertEquals(3L, startElection.get().longValue());
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
+	/**
+	 * Tests that a learner in the config receives a connection but its acks aren't required to commit.
+	 */
+	/**
+	 * Tests that a leader transferring leadership waits for the target to catch up before telling it to start an
+	 * election, and that a follower told to do so starts a transfer election right away.
+	 */
+	@Test
+	public void testLeadershipTransfer() throws Throwable {
+		TopicName topic = TopicName.fromString("fake");
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		NodeState nodeState = test.nodeState;
+		Runner runner = new Runner(nodeState);
+		
+		// Commit a 2-node config so we have a peer.
+		ConfigEntry originalEntry = test.initialConfig.entries[0];
+		ConfigEntry peer = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
+		ClusterConfig newConfig = ClusterConfig.configFromEntries(new ConfigEntry[] {originalEntry, peer});
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
+		F<CommittedMutationRecord> commit = test.diskManager.get_commitMutation();
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.updateConfig(1L, newConfig)));
+		runner.runVoid((snapshot) -> test.nodeState.mainReceivedAckFromDownstream(peer, 1L));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(commit.get()));
+		
+		// Receive another mutation which the peer doesn't yet have.
+		runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.createTopic(2L, topic, new byte[0], new byte[0])));
+		
+		// Transfers to unknown nodes are ignored but the peer is valid so we wait for it to catch up.
+		F<ConfigEntry> timeoutNow = test.clusterManager.get_mainSendTimeoutNow();
+		runner.runVoid((snapshot) -> nodeState.mainTransferLeader(UUID.randomUUID()));
+		runner.runVoid((snapshot) -> nodeState.mainTransferLeader(peer.nodeUuid));
+		Assert.assertFalse(timeoutNow.pollDidCall());
+		
+		// We no longer answer reads from our lease.
+		F<TopicState> read = test.clientManager.get_mainSendTopicState();
+		runner.runVoid((snapshot) -> nodeState.mainHandleReadOnlyClientMessage(UUID.randomUUID(), ClientMessage.readTopicState(1L, topic)));
+		Assert.assertFalse(read.pollDidCall());
+		
+		// Once the peer has everything, we tell it to take over and then vote for it.
+		runner.runVoid((snapshot) -> nodeState.mainReceivedAckFromDownstream(peer, 2L));
+		Assert.assertEquals(peer.nodeUuid, timeoutNow.get().nodeUuid);
+		Assert.assertTrue(runner.run((snapshot) -> nodeState.mainReceivedRequestForVotes(peer, 2L, 1L, 2L)));
+		
+		// Now, as a FOLLOWER, a stale TIMEOUT_NOW is ignored but one from the current leader starts a transfer election.
+		F<Long> startElection = test.clusterManager.get_mainEnterCandidateState();
+		runner.runVoid((snapshot) -> nodeState.mainReceivedTimeoutNow(peer, 1L));
+		Assert.assertFalse(startElection.pollDidCall());
+		runner.runVoid((snapshot) -> nodeState.mainReceivedTimeoutNow(peer, 2L));
+		Assert.assertEquals(3L, startElection.get().longValue());
+		Assert.assertTrue(test.clusterManager.lastCandidateWasLeadershipTransfer);
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
+	@Test
+	public void testLearnerNotInConsensus() throws Throwable {
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		
+		ConfigEntry self = test.initialConfig.entries[0];
+		ConfigEntry learner = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4), true);
+		ClusterConfig newConfig = ClusterConfig.configFromEntries(new ConfigEntry[] {self, learner});
+		TopicName topic = TopicName.fromString("fake");
+		
+		// The config change opens a connection to the learner but commits on our own append.
+		F<ConfigEntry> connect = test.clusterManager.get_mainOpenDownstreamConnection();
+		F<MutationRecord> append = test.diskManager.get_appendMutation();
+		F<CommittedMutationRecord> commit = test.diskManager.get_commitMutation();
+		long mutationNumber = runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.updateConfig(1L, newConfig)));
+		Assert.assertEquals(1L, mutationNumber);
+		Assert.assertEquals(learner.nodeUuid, connect.get().nodeUuid);
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append.get()));
+		Assert.assertEquals(1L, commit.get().record.globalOffset);
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(commit.get()));
+		
+		// Now that the config is active, normal mutations also commit without hearing from the learner.
+		F<MutationRecord> append2 = test.diskManager.get_appendMutation();
+		F<CommittedMutationRecord> commit2 = test.diskManager.get_commitMutation();
+		mutationNumber = runner.run((snapshot) -> test.nodeState.mainHandleValidClientMessage(UUID.randomUUID(), ClientMessage.createTopic(2L, topic, new byte[0], new byte[0])));
+		Assert.assertEquals(2L, mutationNumber);
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasAppended(append2.get()));
+		Assert.assertEquals(2L, commit2.get().record.globalOffset);
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
+	/**
+	 * Tests that a node which is a learner in the active config neither starts elections nor votes.
+	 */
+	@Test
+	public void testLearnerNeverCandidate() throws Throwable {
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		
+		ConfigEntry original = test.initialConfig.entries[0];
+		ConfigEntry self = new ConfigEntry(original.nodeUuid, original.cluster, original.client, true);
+		ConfigEntry leader = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
+		ClusterConfig config = ClusterConfig.configFromEntries(new ConfigEntry[] {self, leader});
+		MutationRecord record = MutationRecord.updateConfig(1L, 1L, UUID.randomUUID(), 1L, config);
+		
+		// Receive and commit the config which makes us a learner.
+		F<Void> becomeFollower = test.clusterManager.get_mainEnterFollowerState();
+		long nextToLoad = runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(leader, 1L, 0L, record));
+		Assert.assertEquals(2L, nextToLoad);
+		becomeFollower.get();
+		runner.runVoid((snapshot) -> test.nodeState.mainCommittedMutationOffsetFromUpstream(leader, 1L, 1L));
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(CommittedMutationRecord.create(record, CommitInfo.Effect.VALID)));
+		
+		// A leader timeout doesn't start an election and a vote request isn't granted.
+		F<Long> startElection = test.clusterManager.get_mainEnterCandidateState();
+		runner.runVoid((snapshot) -> test.nodeState.mainUpstreamMessageDidTimeout());
+		boolean didVote = runner.run((snapshot) -> test.nodeState.mainReceivedRequestForVotes(leader, 2L, 1L, 1L));
+		Assert.assertFalse(didVote);
+		Assert.assertFalse(startElection.pollDidCall());
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
+	/**
+	 * Tests that a FOLLOWER reports how far its commits are behind the leader's so listeners can be bounded.
+	 */
+	@Test
+	public void testFollowerCommitLag() throws Throwable {
+		MainThread test = new MainThread();
+		test.start();
+		test.startLatch.await();
+		Runner runner = new Runner(test.nodeState);
+		
+		ConfigEntry leader = new ConfigEntry(UUID.randomUUID(), new InetSocketAddress(3), new InetSocketAddress(4));
+		TopicName topic = TopicName.fromString("fake");
+		MutationRecord record1 = MutationRecord.put(1L, 1L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {1});
+		MutationRecord record2 = MutationRecord.put(1L, 2L, topic, UUID.randomUUID(), 1, new byte[0], new byte[] {2});
+		runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(leader, 1L, 0L, record1));
+		runner.run((snapshot) -> test.nodeState.mainAppendMutationFromUpstream(leader, 1L, 1L, record2));
+		
+		// The leader tells us it committed both so we are 2 behind until our disk commits complete.
+		F<Long> lag = test.clientManager.get_mainFollowerCommitLagDidChange();
+		runner.runVoid((snapshot) -> test.nodeState.mainCommittedMutationOffsetFromUpstream(leader, 1L, 2L));
+		Assert.assertEquals(2L, lag.get().longValue());
+		lag = test.clientManager.get_mainFollowerCommitLagDidChange();
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(CommittedMutationRecord.create(record1, CommitInfo.Effect.VALID)));
+		Assert.assertEquals(1L, lag.get().longValue());
+		lag = test.clientManager.get_mainFollowerCommitLagDidChange();
+		runner.runVoid((snapshot) -> test.nodeState.mainMutationWasCommitted(CommittedMutationRecord.create(record2, CommitInfo.Effect.VALID)));
+		Assert.assertEquals(0L, lag.get().longValue());
+		
+		// Stop.
+		runner.runVoid((snapshot) -> test.nodeState.mainHandleStopCommand());
+		test.join();
+	}
+
 	/**
 	 * Tests that nodes no longer referenced in any active config are disconnected once the last config referencing them
 	 * is committed.